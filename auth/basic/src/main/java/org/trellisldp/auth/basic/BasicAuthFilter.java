@@ -13,7 +13,6 @@
  */
 package org.trellisldp.auth.basic;
 
-import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
 import static javax.ws.rs.Priorities.AUTHENTICATION;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
@@ -24,7 +23,6 @@ import java.io.File;
 import java.io.IOException;
 import java.security.Principal;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -45,7 +43,10 @@ public class BasicAuthFilter implements ContainerRequestFilter {
     /** The configuration key controlling the realm used in a WWW-Authenticate header, or 'trellis' by default. **/
     public static final String CONFIG_AUTH_REALM = "trellis.auth.realm";
 
-    private final File file;
+    /** The configuration key controlling the number of successful password verifications to cache. **/
+    public static final String CONFIG_AUTH_BASIC_CACHE_SIZE = "trellis.auth.basic.cache.size";
+
+    private final CredentialStore store;
     private final String challenge;
 
     /**
@@ -78,7 +79,8 @@ public class BasicAuthFilter implements ContainerRequestFilter {
      * @param realm the authentication realm
      */
     public BasicAuthFilter(final File file, final String realm) {
-        this.file = file;
+        this.store = new CredentialStore(file.toPath(),
+                getConfiguration().getOrDefault(CONFIG_AUTH_BASIC_CACHE_SIZE, Long.class, 1000L));
         this.challenge = "Basic realm=\"" + realm + "\"";
     }
 
@@ -96,15 +98,7 @@ public class BasicAuthFilter implements ContainerRequestFilter {
     }
 
     private Optional<Principal> authenticate(final String credentials) {
-        return ofNullable(Credentials.parse(credentials)).flatMap(creds ->
-            of(file).filter(File::exists).map(File::toPath).flatMap(path -> {
-                try (final Stream<String> lineStream = BasicAuthUtils.uncheckedLines(path)) {
-                    return lineStream.map(String::trim).filter(line -> !line.startsWith("#"))
-                        .map(line -> line.split(":", 3)).filter(x -> x.length == 3)
-                        .filter(d -> d[0].trim().equals(creds.getUsername()) && d[1].trim().equals(creds.getPassword()))
-                        .map(d -> d[2].trim()).findFirst().map(BasicPrincipal::new);
-                }
-            }));
+        return ofNullable(Credentials.parse(credentials)).flatMap(store::authenticate);
     }
 
     private Optional<String> getCredentials(final ContainerRequestContext ctx) {
@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.basic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+
+/**
+ * An in-memory index of the credentials file.
+ *
+ * <p>The credentials file is read once into a map keyed by username, so that authenticating a request does not
+ * touch the filesystem, and a file watcher reloads it whenever it changes. A username may appear on more than one
+ * line, in which case credentials that match any of those lines are accepted. Since a salted password hash is
+ * deliberately slow to verify, the most recent successful verifications are remembered, as an HMAC of the password
+ * under a random key that exists only in memory; the remembered verifications are discarded whenever the file is
+ * reloaded.
+ */
+final class CredentialStore implements AutoCloseable {
+
+    private static final Logger LOGGER = getLogger(CredentialStore.class);
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final Path path;
+    private final long capacity;
+    private final SecretKeySpec macKey;
+    private final Map<String, Verification> verified = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final WatchService watcher;
+    private volatile Map<String, List<Account>> accounts;
+
+    /**
+     * Create a credential store.
+     * @param path the location of the credentials file
+     * @param capacity the maximum number of successful verifications to remember, or zero to verify every request
+     */
+    CredentialStore(final Path path, final long capacity) {
+        this.path = path.toAbsolutePath();
+        this.capacity = Math.max(0L, capacity);
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.macKey = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.accounts = initialAccounts(this.path);
+        this.watcher = watch(this.path);
+    }
+
+    /**
+     * Authenticate a set of credentials.
+     * @param credentials the credentials
+     * @return the principal, if the credentials are valid
+     */
+    Optional<Principal> authenticate(final Credentials credentials) {
+        final List<Account> candidates = accounts.get(credentials.getUsername());
+        if (isNull(candidates)) {
+            return empty();
+        }
+        if (capacity == 0L || candidates.stream().noneMatch(account -> Passwords.isHashed(account.password))) {
+            return verify(candidates, credentials.getPassword(), null);
+        }
+
+        final byte[] mac = mac(credentials);
+        synchronized (this) {
+            final Verification cached = verified.get(credentials.getUsername());
+            if (nonNull(cached) && candidates.contains(cached.account) && MessageDigest.isEqual(cached.mac, mac)) {
+                hits.increment();
+                return of(cached.account.principal);
+            }
+        }
+        return verify(candidates, credentials.getPassword(), mac);
+    }
+
+    /**
+     * Reload the credentials file.
+     *
+     * <p>If the file cannot be read, the previous accounts remain in place.
+     * @throws UncheckedIOException if the credentials file could not be read
+     */
+    void reload() {
+        final Map<String, Account> loaded = load(path);
+        synchronized (this) {
+            accounts = loaded;
+            verified.clear();
+        }
+        reloads.increment();
+    }
+
+    /**
+     * Get the number of requests that were authenticated by a remembered verification.
+     * @return the number of cache hits
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of times that the credentials file has been reloaded.
+     * @return the number of reloads
+     */
+    long getReloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * Get the number of accounts in the credentials file.
+     * @return the number of accounts
+     */
+    int size() {
+        return accounts.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (nonNull(watcher)) {
+            watcher.close();
+        }
+    }
+
+    private Optional<Principal> verify(final List<Account> candidates, final String password, final byte[] mac) {
+        for (final Account account : candidates) {
+            if (Passwords.verify(account.password, password)) {
+                if (nonNull(mac) && Passwords.isHashed(account.password)) {
+                    remember(account, mac);
+                }
+                return of(account.principal);
+            }
+        }
+        return empty();
+    }
+
+    private synchronized void remember(final Account account, final byte[] mac) {
+        // A verification against credentials that were replaced in the meantime is not remembered
+        final List<Account> current = accounts.get(account.username);
+        if (isNull(current) || !current.contains(account)) {
+            return;
+        }
+        verified.put(account.username, new Verification(account, mac));
+        final Iterator<Verification> eldest = verified.values().iterator();
+        while (verified.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private byte[] mac(final Credentials credentials) {
+        try {
+            final Mac hmac = Mac.getInstance(MAC_ALGORITHM);
+            hmac.init(macKey);
+            return hmac.doFinal(credentials.getPassword().getBytes(UTF_8));
+        } catch (final GeneralSecurityException ex) {
+            // Every Java platform is required to support HmacSHA256
+            throw new IllegalStateException("Unable to compute password MAC", ex);
+        }
+    }
+
+    private static Map<String, List<Account>> load(final Path path) {
+        final Map<String, List<Account>> accounts = new HashMap<>();
+        if (Files.isRegularFile(path)) {
+            try (final Stream<String> lineStream = Files.lines(path)) {
+                lineStream.map(String::trim).filter(line -> !line.startsWith("#"))
+                    .map(line -> line.split(":", 3)).filter(x -> x.length == 3)
+                    .map(d -> new Account(d[0].trim(), d[1].trim(), d[2].trim()))
+                    // A username may have several entries, and credentials matching any of them are accepted
+                    .forEachOrdered(account -> accounts.computeIfAbsent(account.username, k -> new ArrayList<>())
+                            .add(account));
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        LOGGER.debug("Loaded {} accounts from {}", accounts.size(), path);
+        return unmodifiableMap(accounts);
+    }
+
+    private static Map<String, List<Account>> initialAccounts(final Path path) {
+        try {
+            return load(path);
+        } catch (final UncheckedIOException ex) {
+            LOGGER.error("Unable to read credentials file {}", path, ex);
+        }
+        return emptyMap();
+    }
+
+    private WatchService watch(final Path file) {
+        final Path directory = file.getParent();
+        if (isNull(directory) || !Files.isDirectory(directory)) {
+            LOGGER.warn("Unable to watch credentials file {} for changes", file);
+            return null;
+        }
+        try {
+            final WatchService service = directory.getFileSystem().newWatchService();
+            directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            final Thread thread = new Thread(() -> watchLoop(service, file), "trellis-credentials-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return service;
+        } catch (final IOException ex) {
+            LOGGER.warn("Unable to watch credentials file {} for changes: {}", file, ex.getMessage());
+        }
+        return null;
+    }
+
+    private void watchLoop(final WatchService service, final Path file) {
+        try {
+            while (true) {
+                final WatchKey key = service.take();
+                boolean changed = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    changed |= file.getFileName().equals(event.context());
+                }
+                if (changed) {
+                    LOGGER.info("Reloading credentials file {}", file);
+                    try {
+                        reload();
+                    } catch (final RuntimeException ex) {
+                        // A failed reload must not end the watcher, and must not discard the current accounts
+                        LOGGER.error("Unable to reload credentials file {}, keeping the previous accounts", file, ex);
+                    }
+                }
+                if (!key.reset()) {
+                    LOGGER.warn("No longer watching credentials file {} for changes", file);
+                    return;
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ClosedWatchServiceException ex) {
+            LOGGER.debug("Stopped watching credentials file {}", file);
+        }
+    }
+
+    private static final class Account {
+        private final String username;
+        private final String password;
+        private final Principal principal;
+
+        private Account(final String username, final String password, final String webid) {
+            this.username = username;
+            this.password = password;
+            this.principal = new BasicPrincipal(webid);
+        }
+    }
+
+    private static final class Verification {
+        private final Account account;
+        private final byte[] mac;
+
+        private Verification(final Account account, final byte[] mac) {
+            this.account = account;
+            this.mac = mac;
+        }
+    }
+}
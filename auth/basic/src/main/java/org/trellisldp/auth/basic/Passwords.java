@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.basic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.slf4j.Logger;
+
+/**
+ * Password verification for the credentials file.
+ *
+ * <p>A password may be stored in plain text, or as a salted PBKDF2 hash in the form
+ * {@code {PBKDF2}iterations$salt$hash}, where the salt and the hash are base64-encoded and the hash is derived
+ * with HMAC-SHA256. Passwords are always compared in constant time.
+ */
+final class Passwords {
+
+    /** The prefix of a PBKDF2 password hash. **/
+    static final String PBKDF2 = "{PBKDF2}";
+
+    private static final Logger LOGGER = getLogger(Passwords.class);
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Check whether a stored password is hashed.
+     * @param stored the stored password
+     * @return true if the password is hashed; false if it is in plain text
+     */
+    static boolean isHashed(final String stored) {
+        return stored.startsWith(PBKDF2);
+    }
+
+    /**
+     * Verify a password.
+     * @param stored the stored password, in plain text or hashed
+     * @param presented the password presented by a client
+     * @return true if the passwords match; false otherwise
+     */
+    static boolean verify(final String stored, final String presented) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(stored.getBytes(UTF_8), presented.getBytes(UTF_8));
+        }
+        final String[] parts = stored.substring(PBKDF2.length()).split("\\$");
+        try {
+            if (parts.length == 3) {
+                final byte[] expected = Base64.getDecoder().decode(parts[2]);
+                return MessageDigest.isEqual(expected, derive(presented, Base64.getDecoder().decode(parts[1]),
+                            Integer.parseInt(parts[0]), expected.length));
+            }
+        } catch (final IllegalArgumentException | GeneralSecurityException ex) {
+            LOGGER.warn("Unable to verify a password hash: {}", ex.getMessage());
+            return false;
+        }
+        LOGGER.warn("Ignoring a malformed password hash");
+        return false;
+    }
+
+    /**
+     * Hash a password for storage in the credentials file.
+     * @param password the password
+     * @param iterations the number of PBKDF2 iterations
+     * @return the salted password hash
+     */
+    static String encode(final String password, final int iterations) {
+        final byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        try {
+            return PBKDF2 + iterations + "$" + Base64.getEncoder().encodeToString(salt) + "$"
+                + Base64.getEncoder().encodeToString(derive(password, salt, iterations, HASH_LENGTH));
+        } catch (final GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to hash password", ex);
+        }
+    }
+
+    private static byte[] derive(final String password, final byte[] salt, final int iterations, final int length)
+            throws GeneralSecurityException {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private Passwords() {
+        // prevent instantiation
+    }
+}
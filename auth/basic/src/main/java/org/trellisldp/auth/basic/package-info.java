@@ -15,5 +15,10 @@
  * Trellis Basic Auth filter
  *
  * <p>This package implements a file-based BasicAuth filter for Trellis.
+ *
+ * <p>Each line of the credentials file has the form {@code username : password : webid}. A password may be
+ * stored in plain text or as a salted PBKDF2 hash, {@code {PBKDF2}iterations$salt$hash}, where the base64-encoded
+ * hash is derived with HMAC-SHA256. A username may appear on several lines, and credentials matching any of those
+ * lines are accepted. The file is reloaded automatically whenever it changes.
  */
 package org.trellisldp.auth.basic;
@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.basic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CredentialStoreTest {
+
+    private static final String WEBID1 = "https://people.apache.org/~acoburn/#i";
+    private static final String WEBID2 = "https://madison.example.com/profile/#me";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("trellis-credentials");
+        file = directory.resolve("users.auth");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        final File users = new File(getClass().getResource("/users.auth").getFile());
+        try (final CredentialStore store = new CredentialStore(users.toPath(), 10L)) {
+            assertEquals(3, store.size(), "Incorrect number of accounts!");
+            assertEquals(WEBID1, getName(store.authenticate(new Credentials("acoburn", "secret"))),
+                    "Incorrect principal!");
+            assertEquals(WEBID2, getName(store.authenticate(new Credentials("user", "password"))),
+                    "Incorrect principal!");
+            assertFalse(store.authenticate(new Credentials("acoburn", "password")).isPresent(), "Wrong password!");
+            assertFalse(store.authenticate(new Credentials("other", "pass")).isPresent(), "Incomplete entry!");
+            assertFalse(store.authenticate(new Credentials("nobody", "secret")).isPresent(), "Unknown user!");
+        }
+    }
+
+    @Test
+    public void testHashedPasswords() throws Exception {
+        write("acoburn : " + Passwords.encode("secret", 1000) + " : " + WEBID1);
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertEquals(WEBID1, getName(store.authenticate(new Credentials("acoburn", "secret"))),
+                    "Incorrect principal!");
+            assertEquals(0L, store.getHits(), "Unexpected cache hit!");
+            assertEquals(WEBID1, getName(store.authenticate(new Credentials("acoburn", "secret"))),
+                    "Incorrect principal!");
+            assertEquals(1L, store.getHits(), "Verification not cached!");
+
+            // A cached verification is never used for a different password
+            assertFalse(store.authenticate(new Credentials("acoburn", "wrong")).isPresent(), "Wrong password!");
+            assertEquals(1L, store.getHits(), "Unexpected cache hit!");
+        }
+    }
+
+    @Test
+    public void testRepeatedUsername() throws Exception {
+        write("acoburn : " + Passwords.encode("secret", 1000) + " : " + WEBID1,
+                "acoburn : other : " + WEBID2);
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertEquals(2, store.size(), "Incorrect number of accounts!");
+            assertEquals(WEBID1, getName(store.authenticate(new Credentials("acoburn", "secret"))),
+                    "Incorrect principal!");
+            assertEquals(WEBID2, getName(store.authenticate(new Credentials("acoburn", "other"))),
+                    "Incorrect principal!");
+            assertEquals(WEBID1, getName(store.authenticate(new Credentials("acoburn", "secret"))),
+                    "Incorrect principal!");
+            assertEquals(1L, store.getHits(), "Verification not cached!");
+            assertFalse(store.authenticate(new Credentials("acoburn", "wrong")).isPresent(), "Wrong password!");
+        }
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+        write("acoburn : " + Passwords.encode("secret", 1000) + " : " + WEBID1);
+        try (final CredentialStore store = new CredentialStore(file, 0L)) {
+            assertTrue(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Missing principal!");
+            assertTrue(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Missing principal!");
+            assertEquals(0L, store.getHits(), "Unexpected cache hit!");
+        }
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        write("acoburn : " + Passwords.encode("secret", 1000) + " : " + WEBID1);
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertTrue(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Missing principal!");
+
+            // A changed password must not be served from the cache
+            write("acoburn : " + Passwords.encode("changed", 1000) + " : " + WEBID1,
+                    "user : password : " + WEBID2);
+            store.reload();
+            assertFalse(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Stale password!");
+            assertTrue(store.authenticate(new Credentials("acoburn", "changed")).isPresent(), "Missing principal!");
+            assertTrue(store.authenticate(new Credentials("user", "password")).isPresent(), "Missing principal!");
+            assertEquals(0L, store.getHits(), "Unexpected cache hit!");
+        }
+    }
+
+    @Test
+    public void testWatchFile() throws Exception {
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertEquals(0, store.size(), "Unexpected accounts!");
+
+            write("acoburn : secret : " + WEBID1);
+            await().atMost(30, SECONDS).until(() -> store.authenticate(new Credentials("acoburn", "secret"))
+                    .isPresent());
+
+            write("user : password : " + WEBID2);
+            await().atMost(30, SECONDS).until(() -> store.authenticate(new Credentials("user", "password"))
+                    .isPresent());
+            assertFalse(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Removed account!");
+            assertTrue(store.getReloads() >= 2L, "Credentials file not reloaded!");
+
+            Files.delete(file);
+            await().atMost(30, SECONDS).until(() -> store.size() == 0);
+        }
+    }
+
+    @Test
+    public void testFailedReload() throws Exception {
+        write("acoburn : secret : " + WEBID1);
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertTrue(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Missing principal!");
+
+            writeMalformed();
+            assertThrows(UncheckedIOException.class, store::reload, "Malformed file reloaded!");
+            assertTrue(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Accounts discarded!");
+
+            // The watcher survives a failed reload and picks up the next change
+            writeMalformed();
+            write("user : password : " + WEBID2);
+            await().atMost(30, SECONDS).until(() -> store.authenticate(new Credentials("user", "password"))
+                    .isPresent());
+        }
+    }
+
+    @Test
+    public void testMalformedFile() throws Exception {
+        writeMalformed();
+        try (final CredentialStore store = new CredentialStore(file, 10L)) {
+            assertEquals(0, store.size(), "Unexpected accounts!");
+        }
+    }
+
+    @Test
+    public void testUnwatchableFile() throws Exception {
+        final File users = new File(getClass().getResource("/users.auth").getFile());
+        try (final CredentialStore store = new CredentialStore(new File(users, "nonexistent").toPath(), 10L)) {
+            assertEquals(0, store.size(), "Unexpected accounts!");
+            assertFalse(store.authenticate(new Credentials("acoburn", "secret")).isPresent(), "Unexpected principal!");
+        }
+    }
+
+    private void write(final String... lines) throws Exception {
+        final Path temp = directory.resolve("users.tmp");
+        Files.write(temp, asList(lines), UTF_8);
+        Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private void writeMalformed() throws Exception {
+        final Path temp = directory.resolve("users.tmp");
+        // An invalid UTF-8 sequence
+        Files.write(temp, new byte[] {'u', 's', 'e', 'r', (byte) 0xc3, (byte) 0x28, '\n'});
+        Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static String getName(final Optional<Principal> principal) {
+        return principal.map(Principal::getName).orElse(null);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.basic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class PasswordsTest {
+
+    @Test
+    public void testPlainText() {
+        assertFalse(Passwords.isHashed("secret"), "Plain text password reported as hashed!");
+        assertTrue(Passwords.verify("secret", "secret"), "Password not verified!");
+        assertFalse(Passwords.verify("secret", "Secret"), "Incorrect password verified!");
+        assertFalse(Passwords.verify("secret", "secret2"), "Incorrect password verified!");
+    }
+
+    @Test
+    public void testHashed() {
+        final String hash = Passwords.encode("secret", 1000);
+        assertTrue(hash.startsWith(Passwords.PBKDF2), "Missing hash prefix!");
+        assertTrue(Passwords.isHashed(hash), "Hashed password not recognized!");
+        assertFalse(hash.contains(":"), "Hash conflicts with the credentials file separator!");
+        assertTrue(Passwords.verify(hash, "secret"), "Password not verified!");
+        assertFalse(Passwords.verify(hash, "wrong"), "Incorrect password verified!");
+        assertFalse(Passwords.verify(hash, hash), "The hash itself was accepted as a password!");
+    }
+
+    @Test
+    public void testSalted() {
+        final String hash1 = Passwords.encode("secret", 1000);
+        final String hash2 = Passwords.encode("secret", 1000);
+        assertNotEquals(hash1, hash2, "Password hashes are not salted!");
+        assertTrue(Passwords.verify(hash2, "secret"), "Password not verified!");
+    }
+
+    @Test
+    public void testMalformedHash() {
+        assertFalse(Passwords.verify(Passwords.PBKDF2 + "1000$salt", "secret"), "Malformed hash accepted!");
+        assertFalse(Passwords.verify(Passwords.PBKDF2 + "many$c2FsdA==$aGFzaA==", "secret"), "Bad iterations!");
+        assertFalse(Passwords.verify(Passwords.PBKDF2 + "1000$!!!$aGFzaA==", "secret"), "Bad salt accepted!");
+        assertFalse(Passwords.verify(Passwords.PBKDF2 + "0$c2FsdA==$aGFzaA==", "secret"), "Bad iterations!");
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.oauth;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import io.jsonwebtoken.Claims;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An authenticator that remembers the claims of tokens that it has already verified.
+ *
+ * <p>Parsing a token verifies its signature, which is costly for RSA and EC keys, while clients tend to present
+ * the same token on many requests. The claims of each verified token are retained until the token expires, or
+ * until a maximum age has passed, whichever comes first, and the least recently used tokens are evicted once the
+ * cache is full. A token that cannot be verified is never cached, so a token is only cached once the underlying
+ * authenticator has accepted its signature, its {@code exp} claim and its {@code nbf} claim.
+ *
+ * <p>Tokens are bearer credentials, so the cache holds only a SHA-256 digest of each token, and digests are
+ * compared in constant time.
+ */
+public class CachingAuthenticator implements Authenticator {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Authenticator authenticator;
+    private final long capacity;
+    private final long maxAge;
+    private final Clock clock;
+    private final Map<TokenKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Create a caching authenticator.
+     * @param authenticator the authenticator that verifies tokens
+     * @param capacity the maximum number of tokens to cache, or zero to verify every token
+     * @param maxAgeSeconds the maximum number of seconds to cache the claims of a token
+     */
+    public CachingAuthenticator(final Authenticator authenticator, final long capacity, final long maxAgeSeconds) {
+        this(authenticator, capacity, maxAgeSeconds, Clock.systemUTC());
+    }
+
+    /**
+     * Create a caching authenticator.
+     * @param authenticator the authenticator that verifies tokens
+     * @param capacity the maximum number of tokens to cache, or zero to verify every token
+     * @param maxAgeSeconds the maximum number of seconds to cache the claims of a token
+     * @param clock the clock used to expire tokens
+     */
+    CachingAuthenticator(final Authenticator authenticator, final long capacity, final long maxAgeSeconds,
+            final Clock clock) {
+        this.authenticator = requireNonNull(authenticator, "Authenticator may not be null!");
+        this.capacity = Math.max(0L, capacity);
+        this.maxAge = Math.max(0L, maxAgeSeconds) * 1000L;
+        this.clock = requireNonNull(clock, "Clock may not be null!");
+    }
+
+    @Override
+    public Claims parse(final String token) {
+        if (capacity == 0L || maxAge == 0L) {
+            return verify(token);
+        }
+
+        final TokenKey key = new TokenKey(digest(token));
+        final long now = clock.millis();
+        synchronized (this) {
+            final Entry cached = entries.get(key);
+            if (nonNull(cached)) {
+                if (now < cached.expires) {
+                    hits.increment();
+                    return cached.claims;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+
+        final Claims claims = verify(token);
+        if (nonNull(claims)) {
+            put(key, claims, expiry(claims, now));
+        }
+        return claims;
+    }
+
+    /**
+     * Get the authenticator that verifies tokens.
+     * @return the authenticator
+     */
+    public Authenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    /**
+     * Get the number of tokens that were served from the cache.
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of tokens that were verified by the underlying authenticator.
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of cached tokens that were found to have expired.
+     * @return the number of expired tokens
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Get the number of tokens that the underlying authenticator rejected.
+     * @return the number of failed verifications
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Get the number of tokens held by the cache.
+     * @return the size of the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Claims verify(final String token) {
+        try {
+            return authenticator.parse(token);
+        } catch (final RuntimeException ex) {
+            failures.increment();
+            throw ex;
+        }
+    }
+
+    private long expiry(final Claims claims, final long now) {
+        final long expires = now + maxAge;
+        final Date exp = claims.getExpiration();
+        return isNull(exp) ? expires : Math.min(exp.getTime(), expires);
+    }
+
+    private synchronized void put(final TokenKey key, final Claims claims, final long expires) {
+        entries.put(key, new Entry(claims, expires));
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static byte[] digest(final String token) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(token.getBytes(UTF_8));
+        } catch (final NoSuchAlgorithmException ex) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("Unable to compute token digest", ex);
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expires;
+
+        private Entry(final Claims claims, final long expires) {
+            this.claims = claims;
+            this.expires = expires;
+        }
+    }
+
+    private static final class TokenKey {
+        private final byte[] digest;
+        private final int hash;
+
+        private TokenKey(final byte[] digest) {
+            this.digest = digest;
+            // The digest is uniformly distributed, so its leading bytes make a suitable hash code
+            this.hash = (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8
+                | digest[3] & 0xff;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof TokenKey && MessageDigest.isEqual(digest, ((TokenKey) other).digest);
+        }
+    }
+}
@@ -14,7 +14,13 @@
 package org.trellisldp.auth.oauth;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import io.jsonwebtoken.Claims;
@@ -30,30 +36,74 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.net.URL;
+import java.net.URLConnection;
 import java.security.Key;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 /**
  * A jwks-based authenticator.
+ *
+ * <p>The keys are fetched when the authenticator is created, and are then refreshed on a schedule by a background
+ * thread, so that rotated keys are picked up without a restart. A token signed with an unknown key is rejected
+ * immediately, but it also prompts the keys to be fetched again in the background, at most once per refetch
+ * interval, so that a newly published key is recognized on a later request. A request never waits for a fetch, and
+ * a failed fetch leaves the current keys in place.
  */
-public class JwksAuthenticator implements Authenticator {
+public class JwksAuthenticator implements Authenticator, AutoCloseable {
+
+    /** The default number of seconds between scheduled key refreshes. **/
+    public static final long DEFAULT_REFRESH_SECONDS = 3600L;
+
+    /** The default minimum number of seconds between fetches prompted by an unknown key. **/
+    public static final long DEFAULT_REFETCH_SECONDS = 60L;
 
     private static final Logger LOGGER = getLogger(JwksAuthenticator.class);
+    private static final int TIMEOUT = 10000;
 
-    private final Map<String, Key> keys;
+    private final String location;
+    private final long refetchInterval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "trellis-jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong lastFetch = new AtomicLong();
+    private final LongAdder fetches = new LongAdder();
+    private volatile Map<String, Key> keys = emptyMap();
 
     /**
      * Build a jwks-based authenticator.
      * @param url the location of the public jwks keys
      */
     public JwksAuthenticator(final String url) {
-        this.keys = buildKeys(url);
+        this(url, DEFAULT_REFRESH_SECONDS, DEFAULT_REFETCH_SECONDS);
+    }
+
+    /**
+     * Build a jwks-based authenticator.
+     * @param url the location of the public jwks keys
+     * @param refreshSeconds the number of seconds between scheduled key refreshes, or zero to disable them
+     * @param refetchSeconds the minimum number of seconds between fetches prompted by an unknown key
+     */
+    public JwksAuthenticator(final String url, final long refreshSeconds, final long refetchSeconds) {
+        this.location = url;
+        this.refetchInterval = Math.max(0L, refetchSeconds) * 1000L;
+        lastFetch.set(System.currentTimeMillis());
+        refresh();
+        if (refreshSeconds > 0L) {
+            executor.scheduleWithFixedDelay(this::scheduledRefresh, refreshSeconds, refreshSeconds, SECONDS);
+        }
     }
 
     @Override
@@ -65,30 +115,78 @@ public class JwksAuthenticator implements Authenticator {
                 if (isNull(keyid)) {
                     throw new JwtException("Missing Key ID (kid) header field");
                 }
-                if (keys.containsKey(keyid)) {
-                    return keys.get(keyid);
+                final Key key = keys.get(keyid);
+                if (nonNull(key)) {
+                    return key;
                 }
+                refetch();
                 throw new SecurityException("Could not locate key: " + keyid);
             }
         }).parseClaimsJws(token).getBody();
     }
 
-    private static Map<String, Key> buildKeys(final String location) {
+    /**
+     * Get the number of times that the keys have been fetched.
+     * @return the number of fetches
+     */
+    public long getFetches() {
+        return fetches.sum();
+    }
+
+    /**
+     * Stop refreshing the keys.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void refetch() {
+        final long now = System.currentTimeMillis();
+        final long last = lastFetch.get();
+        // Only the first request to see an unknown key within the refetch interval triggers a fetch
+        if (now - last >= refetchInterval && !executor.isShutdown() && lastFetch.compareAndSet(last, now)) {
+            LOGGER.debug("Unknown key id, fetching jwk document from {}", location);
+            executor.execute(this::refresh);
+        }
+    }
+
+    private void scheduledRefresh() {
+        lastFetch.set(System.currentTimeMillis());
+        refresh();
+    }
+
+    private void refresh() {
+        fetches.increment();
+        buildKeys(location).ifPresent(fetched -> keys = fetched);
+    }
+
+    private static Optional<Map<String, Key>> buildKeys(final String location) {
         final Map<String, Key> keys = new HashMap<>();
         // TODO eventually, this will become part of the JJWT library
         final Deserializer<Map<String, List<Map<String, String>>>> deserializer = new JacksonDeserializer<>();
         final Map<String, List<Map<String, String>>> data = new HashMap<>();
-        try (final InputStream input = new URL(location).openConnection().getInputStream()) {
-            deserializer.deserialize(IOUtils.toByteArray(input)).forEach(data::put);
-        } catch (final IOException ex) {
-            LOGGER.error("Error fetching/parsing jwk document", ex);
-        }
+        try {
+            final URLConnection connection = new URL(location).openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            try (final InputStream input = connection.getInputStream()) {
+                deserializer.deserialize(IOUtils.toByteArray(input)).forEach(data::put);
+            }
 
-        for (final Map<String, String> jwk : data.getOrDefault("keys", emptyList())) {
-            final BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("n")));
-            final BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("e")));
-            OAuthUtils.buildRSAPublicKey("RSA", modulus, exponent).ifPresent(key -> keys.put(jwk.get("kid"), key));
+            for (final Map<String, String> jwk : data.getOrDefault("keys", emptyList())) {
+                if (nonNull(jwk.get("kid")) && nonNull(jwk.get("n")) && nonNull(jwk.get("e"))) {
+                    final BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("n")));
+                    final BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("e")));
+                    OAuthUtils.buildRSAPublicKey("RSA", modulus, exponent)
+                        .ifPresent(key -> keys.put(jwk.get("kid"), key));
+                }
+            }
+        } catch (final IOException | RuntimeException ex) {
+            // A failed fetch must not end the scheduled refresh, and must not discard the current keys
+            LOGGER.error("Error fetching/parsing jwk document", ex);
+            return empty();
         }
-        return keys;
+        return of(unmodifiableMap(keys));
     }
 }
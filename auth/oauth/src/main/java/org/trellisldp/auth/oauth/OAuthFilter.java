@@ -58,6 +58,14 @@ public class OAuthFilter implements ContainerRequestFilter {
     public static final String CONFIG_AUTH_OAUTH_SHARED_SECRET = "trellis.auth.oauth.sharedsecret";
     /** The configuration key controlling the OAuth JWK URL. **/
     public static final String CONFIG_AUTH_OAUTH_JWK_URL = "trellis.auth.oauth.jwk";
+    /** The configuration key controlling the number of seconds between scheduled refreshes of the JWK keys. **/
+    public static final String CONFIG_AUTH_OAUTH_JWK_REFRESH_SECONDS = "trellis.auth.oauth.jwk.refreshSeconds";
+    /** The configuration key controlling the minimum number of seconds between JWK fetches for unknown keys. **/
+    public static final String CONFIG_AUTH_OAUTH_JWK_REFETCH_SECONDS = "trellis.auth.oauth.jwk.refetchSeconds";
+    /** The configuration key controlling the number of verified tokens to cache, or zero to disable the cache. **/
+    public static final String CONFIG_AUTH_OAUTH_CACHE_SIZE = "trellis.auth.oauth.cache.size";
+    /** The configuration key controlling the maximum number of seconds to cache a verified token. **/
+    public static final String CONFIG_AUTH_OAUTH_CACHE_EXPIRE_SECONDS = "trellis.auth.oauth.cache.expireSeconds";
     /** The authentication scheme used by this module. **/
     public static final String SCHEME = "Bearer";
 
@@ -71,7 +79,7 @@ public class OAuthFilter implements ContainerRequestFilter {
      */
     @Inject
     public OAuthFilter() {
-        this(buildAuthenticator());
+        this(withCache(buildAuthenticator()));
     }
 
     /**
@@ -124,7 +132,11 @@ public class OAuthFilter implements ContainerRequestFilter {
     private static Authenticator buildAuthenticator() {
         final Configuration config = getConfiguration();
         final Authenticator jwksAuthenticator = OAuthUtils.buildAuthenticatorWithJwk(
-                config.get(CONFIG_AUTH_OAUTH_JWK_URL));
+                config.get(CONFIG_AUTH_OAUTH_JWK_URL),
+                config.getOrDefault(CONFIG_AUTH_OAUTH_JWK_REFRESH_SECONDS, Long.class,
+                    JwksAuthenticator.DEFAULT_REFRESH_SECONDS),
+                config.getOrDefault(CONFIG_AUTH_OAUTH_JWK_REFETCH_SECONDS, Long.class,
+                    JwksAuthenticator.DEFAULT_REFETCH_SECONDS));
         if (nonNull(jwksAuthenticator)) {
             return jwksAuthenticator;
         }
@@ -145,6 +157,16 @@ public class OAuthFilter implements ContainerRequestFilter {
         return new NullAuthenticator();
     }
 
+    private static Authenticator withCache(final Authenticator authenticator) {
+        final Configuration config = getConfiguration();
+        final long size = config.getOrDefault(CONFIG_AUTH_OAUTH_CACHE_SIZE, Long.class, 1000L);
+        if (size > 0L && !(authenticator instanceof NullAuthenticator)) {
+            return new CachingAuthenticator(authenticator, size,
+                    config.getOrDefault(CONFIG_AUTH_OAUTH_CACHE_EXPIRE_SECONDS, Long.class, 300L));
+        }
+        return authenticator;
+    }
+
     private static final class OAuthSecurityContext implements SecurityContext {
         private final boolean secure;
         private final Principal principal;
@@ -100,6 +100,19 @@ public final class OAuthUtils {
         return ofNullable(location).filter(OAuthUtils::isUrl).map(JwksAuthenticator::new).orElse(null);
     }
 
+    /**
+     * Build an authenticator.
+     * @param location the key location
+     * @param refreshSeconds the number of seconds between scheduled key refreshes, or zero to disable them
+     * @param refetchSeconds the minimum number of seconds between fetches prompted by an unknown key
+     * @return an Authenticator
+     */
+    public static Authenticator buildAuthenticatorWithJwk(final String location, final long refreshSeconds,
+            final long refetchSeconds) {
+        return ofNullable(location).filter(OAuthUtils::isUrl)
+            .map(url -> new JwksAuthenticator(url, refreshSeconds, refetchSeconds)).orElse(null);
+    }
+
     /**
      * Build an RSA public key.
      * @param keyType the algorithm (should be "RSA")
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.auth.oauth;
+
+import static io.jsonwebtoken.security.Keys.secretKeyFor;
+import static java.time.Instant.now;
+import static java.util.Date.from;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.SecurityException;
+
+import java.security.Key;
+import java.security.Principal;
+import java.time.Clock;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the caching authenticator.
+ */
+public class CachingAuthenticatorTest {
+
+    private static final String WEBID = "https://people.apache.org/~acoburn/#i";
+
+    private final Key key = secretKeyFor(SignatureAlgorithm.HS256);
+    private Authenticator verifier;
+    private Clock clock;
+
+    @BeforeEach
+    public void setUp() {
+        verifier = spy(new JwtAuthenticator(key));
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(now().toEpochMilli());
+    }
+
+    @Test
+    public void testCachedToken() {
+        final String token = Jwts.builder().setSubject(WEBID).signWith(key).compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 10L, 300L, clock);
+
+        final Optional<Principal> result = authenticator.authenticate(token);
+        assertTrue(result.isPresent(), "Missing principal!");
+        result.ifPresent(p -> assertEquals(WEBID, p.getName(), "Incorrect webid!"));
+        assertEquals(WEBID, authenticator.authenticate(token).map(Principal::getName).orElse(null),
+                "Incorrect cached webid!");
+
+        verify(verifier).parse(token);
+        assertEquals(1L, authenticator.getHits(), "Incorrect hit count!");
+        assertEquals(1L, authenticator.getMisses(), "Incorrect miss count!");
+        assertEquals(1, authenticator.size(), "Incorrect cache size!");
+        assertEquals(verifier, authenticator.getAuthenticator(), "Incorrect authenticator!");
+    }
+
+    @Test
+    public void testExpiredToken() {
+        final long time = clock.millis();
+        final String token = Jwts.builder().setSubject(WEBID).setExpiration(from(now().plusSeconds(60L)))
+            .signWith(key).compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 10L, 300L, clock);
+
+        assertNotNull(authenticator.parse(token), "Missing claims!");
+        when(clock.millis()).thenReturn(time + 30000L);
+        assertNotNull(authenticator.parse(token), "Missing cached claims!");
+        assertEquals(1L, authenticator.getHits(), "Incorrect hit count!");
+
+        // Once the exp claim has passed, the token must be verified again
+        when(clock.millis()).thenReturn(time + 61000L);
+        assertNotNull(authenticator.parse(token), "Missing claims!");
+        assertEquals(1L, authenticator.getExpirations(), "Incorrect expiration count!");
+        verify(verifier, times(2)).parse(token);
+    }
+
+    @Test
+    public void testMaxAge() {
+        final long time = clock.millis();
+        final String token = Jwts.builder().setSubject(WEBID).signWith(key).compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 10L, 10L, clock);
+
+        assertNotNull(authenticator.parse(token), "Missing claims!");
+        when(clock.millis()).thenReturn(time + 11000L);
+        assertNotNull(authenticator.parse(token), "Missing claims!");
+        assertEquals(0L, authenticator.getHits(), "Unexpected cache hit!");
+        assertEquals(1L, authenticator.getExpirations(), "Incorrect expiration count!");
+        verify(verifier, times(2)).parse(token);
+    }
+
+    @Test
+    public void testRejectedTokens() {
+        final String expired = Jwts.builder().setSubject(WEBID).setExpiration(from(now().minusSeconds(60L)))
+            .signWith(key).compact();
+        final String premature = Jwts.builder().setSubject(WEBID).setNotBefore(from(now().plusSeconds(60L)))
+            .signWith(key).compact();
+        final String forged = Jwts.builder().setSubject(WEBID).signWith(secretKeyFor(SignatureAlgorithm.HS256))
+            .compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 10L, 300L, clock);
+
+        assertThrows(ExpiredJwtException.class, () -> authenticator.parse(expired), "Expired token accepted!");
+        assertThrows(PrematureJwtException.class, () -> authenticator.parse(premature), "Premature token accepted!");
+        assertThrows(SecurityException.class, () -> authenticator.parse(forged), "Forged token accepted!");
+        assertThrows(SecurityException.class, () -> authenticator.parse(forged), "Forged token accepted!");
+
+        assertEquals(4L, authenticator.getFailures(), "Incorrect failure count!");
+        assertEquals(0L, authenticator.getHits(), "Unexpected cache hit!");
+        assertEquals(0, authenticator.size(), "Rejected token was cached!");
+    }
+
+    @Test
+    public void testEviction() {
+        final String token1 = Jwts.builder().setSubject(WEBID).claim("n", 1).signWith(key).compact();
+        final String token2 = Jwts.builder().setSubject(WEBID).claim("n", 2).signWith(key).compact();
+        final String token3 = Jwts.builder().setSubject(WEBID).claim("n", 3).signWith(key).compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 2L, 300L, clock);
+
+        authenticator.parse(token1);
+        authenticator.parse(token2);
+        authenticator.parse(token1);
+        authenticator.parse(token3);
+        assertEquals(2, authenticator.size(), "Incorrect cache size!");
+
+        // The least recently used token is evicted
+        final Claims claims = authenticator.parse(token1);
+        assertEquals(Integer.valueOf(1), claims.get("n", Integer.class), "Incorrect claims!");
+        authenticator.parse(token2);
+        verify(verifier).parse(token1);
+        verify(verifier, times(2)).parse(token2);
+    }
+
+    @Test
+    public void testDisabled() {
+        final String token = Jwts.builder().setSubject(WEBID).signWith(key).compact();
+        final CachingAuthenticator authenticator = new CachingAuthenticator(verifier, 0L, 300L);
+
+        assertTrue(authenticator.authenticate(token).isPresent(), "Missing principal!");
+        assertTrue(authenticator.authenticate(token).isPresent(), "Missing principal!");
+        verify(verifier, times(2)).parse(token);
+        assertEquals(0, authenticator.size(), "Unexpected cache entry!");
+    }
+}
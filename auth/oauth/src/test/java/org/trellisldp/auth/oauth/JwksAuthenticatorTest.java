@@ -13,24 +13,41 @@
  */
 package org.trellisldp.auth.oauth;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.now;
 import static java.util.Base64.getUrlDecoder;
+import static java.util.Base64.getUrlEncoder;
 import static java.util.Date.from;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.sun.net.httpserver.HttpServer;
+
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.SecurityException;
 
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.net.InetSocketAddress;
 import java.security.Key;
 import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.Principal;
+import java.security.interfaces.RSAPublicKey;
 import java.security.spec.RSAPrivateKeySpec;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class JwksAuthenticatorTest {
@@ -50,6 +67,34 @@ public class JwksAuthenticatorTest {
             "6IKSB8NduH438zhMXE5VLC6PzhR3i_4KKpe4nq2otsrJ3KlEc7Me6UeiMXxPYz8rrPovW5L3LFWDmntGs5q923fBZFLFg8yBgMdTine" +
             "aahEQ"));
 
+    private final Map<String, RSAPublicKey> published = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private HttpServer server;
+    private String localUrl;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // A local stand-in for an identity provider that publishes its keys as a JWKS document
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jwks.json", exchange -> {
+            requests.incrementAndGet();
+            final byte[] body = jwks().getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        localUrl = "http://localhost:" + server.getAddress().getPort() + "/jwks.json";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
     @Test
     public void testAuthenticateJwks() throws Exception {
         final String webid = "https://people.apache.org/~acoburn/#i";
@@ -130,4 +175,101 @@ public class JwksAuthenticatorTest {
 
         assertThrows(SecurityException.class, () -> authenticator.authenticate(token), "Unexpected principal!");
     }
+
+    @Test
+    public void testUnknownKeyRefetch() throws Exception {
+        final KeyPair original = generateKeyPair();
+        final KeyPair rotated = generateKeyPair();
+        published.put("original", (RSAPublicKey) original.getPublic());
+
+        try (final JwksAuthenticator authenticator = new JwksAuthenticator(localUrl, 0L, 0L)) {
+            assertTrue(authenticator.authenticate(token("original", original)).isPresent(), "Missing principal!");
+            assertEquals(1, requests.get(), "Incorrect number of JWKS requests!");
+
+            // The provider rotates its keys: the first token with the new key fails without waiting for a fetch
+            published.put("rotated", (RSAPublicKey) rotated.getPublic());
+            final String token = token("rotated", rotated);
+            assertThrows(SecurityException.class, () -> authenticator.authenticate(token), "Unexpected principal!");
+            await().atMost(5, SECONDS).until(() -> requests.get() == 2);
+            await().atMost(5, SECONDS).until(() -> authenticate(authenticator, token));
+            assertTrue(authenticator.authenticate(token("original", original)).isPresent(), "Missing principal!");
+        }
+    }
+
+    @Test
+    public void testUnknownKeyRateLimit() throws Exception {
+        final KeyPair keypair = generateKeyPair();
+        published.put("original", (RSAPublicKey) keypair.getPublic());
+
+        try (final JwksAuthenticator authenticator = new JwksAuthenticator(localUrl, 0L, 3600L)) {
+            final String token = token("unknown", generateKeyPair());
+            for (int i = 0; i < 10; i++) {
+                assertThrows(SecurityException.class, () -> authenticator.authenticate(token), "Unexpected principal!");
+            }
+            assertEquals(1L, authenticator.getFetches(), "Unknown keys were not rate limited!");
+            assertEquals(1, requests.get(), "Incorrect number of JWKS requests!");
+        }
+    }
+
+    @Test
+    public void testScheduledRefresh() throws Exception {
+        final KeyPair original = generateKeyPair();
+        final KeyPair rotated = generateKeyPair();
+        published.put("original", (RSAPublicKey) original.getPublic());
+
+        try (final JwksAuthenticator authenticator = new JwksAuthenticator(localUrl, 1L, 3600L)) {
+            final String token = token("rotated", rotated);
+            assertThrows(SecurityException.class, () -> authenticator.authenticate(token), "Unexpected principal!");
+
+            // Only the scheduled refresh may pick up the new key, since unknown keys are rate limited
+            published.remove("original");
+            published.put("rotated", (RSAPublicKey) rotated.getPublic());
+            await().atMost(5, SECONDS).until(() -> authenticate(authenticator, token));
+            assertThrows(SecurityException.class, () -> authenticator.authenticate(token("original", original)),
+                    "Retired key was accepted!");
+        }
+    }
+
+    @Test
+    public void testFailedRefresh() throws Exception {
+        final KeyPair keypair = generateKeyPair();
+        published.put("original", (RSAPublicKey) keypair.getPublic());
+
+        try (final JwksAuthenticator authenticator = new JwksAuthenticator(localUrl, 1L, 3600L)) {
+            status.set(500);
+            await().atMost(5, SECONDS).until(() -> authenticator.getFetches() >= 2L);
+            assertTrue(authenticator.authenticate(token("original", keypair)).isPresent(),
+                    "Keys were discarded after a failed refresh!");
+        }
+    }
+
+    private String jwks() {
+        return published.entrySet().stream().map(entry -> "{\"kty\":\"RSA\",\"kid\":\"" + entry.getKey()
+                    + "\",\"n\":\"" + encode(entry.getValue().getModulus()) + "\",\"e\":\""
+                    + encode(entry.getValue().getPublicExponent()) + "\"}")
+            .collect(joining(",", "{\"keys\":[", "]}"));
+    }
+
+    private static boolean authenticate(final Authenticator authenticator, final String token) {
+        try {
+            return authenticator.authenticate(token).isPresent();
+        } catch (final SecurityException ex) {
+            return false;
+        }
+    }
+
+    private static String token(final String kid, final KeyPair keypair) {
+        return Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, kid)
+            .setSubject("https://people.apache.org/~acoburn/#i").signWith(keypair.getPrivate()).compact();
+    }
+
+    private static String encode(final BigInteger value) {
+        return getUrlEncoder().withoutPadding().encodeToString(value.toByteArray());
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
 }
@@ -162,6 +162,26 @@ public class OAuthFilterTest {
         }
     }
 
+    @Test
+    public void testFilterCachedToken() throws Exception {
+        try {
+            System.setProperty(OAuthFilter.CONFIG_AUTH_OAUTH_SHARED_SECRET,
+                    "y7MCBmoOx7TH70q1fabSGLzOrEYx+liUmLWPkwIPUTfWMXn/J5MDZuepBd8mcRObUDYYQN3MIS8p40ZT5EhvWw==");
+            System.setProperty(OAuthFilter.CONFIG_AUTH_OAUTH_CACHE_SIZE, "10");
+            final String token = Jwts.builder().claim("webid", WEBID1).signWith(hmacShaKeyFor(getConfiguration()
+                            .get(OAuthFilter.CONFIG_AUTH_OAUTH_SHARED_SECRET).getBytes(UTF_8))).compact();
+            when(mockContext.getHeaderString(AUTHORIZATION)).thenReturn("Bearer " + token);
+            final OAuthFilter filter = new OAuthFilter();
+            filter.filter(mockContext);
+            filter.filter(mockContext);
+            verify(mockContext, times(2)).setSecurityContext(securityArgument.capture());
+            assertAll("Validate security context", checkSecurityContext(securityArgument.getValue(), WEBID1));
+        } finally {
+            System.clearProperty(OAuthFilter.CONFIG_AUTH_OAUTH_SHARED_SECRET);
+            System.clearProperty(OAuthFilter.CONFIG_AUTH_OAUTH_CACHE_SIZE);
+        }
+    }
+
     @Test
     public void testFilterNotBasicAuth() throws Exception {
         try {
@@ -13,10 +13,12 @@
  */
 package org.trellisldp.app;
 
+import static java.util.Optional.ofNullable;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.google.common.cache.Cache;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
@@ -57,4 +59,19 @@ public class TrellisCache<K, V> implements CacheService<K, V> {
             return null;
         }
     }
+
+    @Override
+    public Optional<V> getIfPresent(final K key) {
+        return ofNullable(cache.getIfPresent(key));
+    }
+
+    @Override
+    public void invalidate(final K key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
 }
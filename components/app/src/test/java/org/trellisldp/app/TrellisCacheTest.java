@@ -47,6 +47,22 @@ public class TrellisCacheTest {
         assertEquals("longer", cache.get("long", x -> x + "er"), "Incorrect cache response!");
     }
 
+    @Test
+    public void testCacheInvalidation() {
+        final TrellisCache<String, String> cache = new TrellisCache<>(newBuilder().maximumSize(5).build());
+        assertEquals("longer", cache.get("long", x -> x + "er"), "Incorrect cache response!");
+        assertEquals("longer", cache.get("long", x -> x + "est"), "Value not cached!");
+
+        assertEquals("longer", cache.getIfPresent("long").orElse(null), "Cached value not present!");
+
+        cache.invalidate("long");
+        assertFalse(cache.getIfPresent("long").isPresent(), "Value still present!");
+        assertEquals("longest", cache.get("long", x -> x + "est"), "Value not invalidated!");
+
+        cache.invalidateAll();
+        assertEquals("long!", cache.get("long", x -> x + "!"), "Values not invalidated!");
+    }
+
     @Test
     public void testCacheException() throws Exception {
         final TrellisCache<String, String> cache = new TrellisCache<>(mockCache);
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.time.Instant.parse;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_BNODE_PREFIX;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.RDF.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trellisldp.api.Resource;
+import org.trellisldp.vocabulary.AS;
+import org.trellisldp.vocabulary.DC;
+import org.trellisldp.vocabulary.LDP;
+import org.trellisldp.vocabulary.PROV;
+import org.trellisldp.vocabulary.RDFS;
+import org.trellisldp.vocabulary.Trellis;
+import org.trellisldp.vocabulary.XSD;
+
+/**
+ * Compare the size on disk against the cost of writing and reading a memento in each storage format.
+ *
+ * <p>The sample resource is a container with user-managed triples, child resources and a history of
+ * audit events, which is typical of a frequently edited resource. The size of each format is reported
+ * by the {@code mementoSize} benchmark as its {@code bytes} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MementoCompressionBenchmark {
+
+    private static final RDF rdf = new JenaRDF();
+    private static final Instant TIME = parse("2019-01-01T00:00:00Z");
+
+    /** The storage format: N-Quads, the uncompressed compact format or the compressed compact format. **/
+    @Param({"nquads", "compact", "compressed"})
+    public String format;
+
+    /** The number of child resources and user-managed triples. **/
+    @Param({"100", "1000"})
+    public int size;
+
+    private File directory;
+    private File file;
+    private IRI identifier;
+    private Resource resource;
+
+    /**
+     * Create a sample resource and write it once, so that there is a file to read.
+     * @throws IOException if the working directory could not be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("trellis-memento").toFile();
+        identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+        resource = new FileResource(identifier, sample(identifier, size));
+        file = write();
+    }
+
+    /**
+     * Remove the working directory.
+     * @throws IOException if the working directory could not be removed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteDirectory(directory);
+    }
+
+    /**
+     * Measure the time to write a memento.
+     * @return the memento file
+     */
+    @Benchmark
+    public File writeMemento() {
+        return write();
+    }
+
+    /**
+     * Report the size of a memento on disk; only the {@code bytes} counter of this benchmark is meaningful.
+     * @param counters the reported counters
+     * @return the size of the memento
+     */
+    @Benchmark
+    public long mementoSize(final MementoSize counters) {
+        // The counter is assigned rather than accumulated, so that it reports the size instead of a sum
+        counters.bytes = file.length();
+        return counters.bytes;
+    }
+
+    /**
+     * Measure the time to read the metadata of a memento.
+     * @return the modification date
+     */
+    @Benchmark
+    public Instant readMetadata() {
+        return new FileResource(identifier, file).getModified();
+    }
+
+    /**
+     * Measure the time to read the full content of a memento.
+     * @return the number of quads
+     */
+    @Benchmark
+    public long readContent() {
+        try (final Stream<Quad> quads = new FileResource(identifier, file).stream()) {
+            return quads.count();
+        }
+    }
+
+    /**
+     * Measure the time to read the user-managed triples of a memento.
+     * @return the number of triples
+     */
+    @Benchmark
+    public long readUserManaged() {
+        return new FileResource(identifier, file).stream(Trellis.PreferUserManaged).count();
+    }
+
+    /**
+     * The size of a memento, reported alongside the benchmark results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MementoSize {
+
+        /** The number of bytes in the memento file. **/
+        public long bytes;
+    }
+
+    private File write() {
+        if ("nquads".equals(format)) {
+            FileUtils.writeMemento(directory, resource, TIME);
+            return FileUtils.getNquadsFile(directory, TIME);
+        }
+        FileUtils.writeCompactMemento(directory, resource, TIME, "compressed".equals(format));
+        return FileUtils.getCompactFile(directory, TIME);
+    }
+
+    private static List<Quad> sample(final IRI identifier, final int size) {
+        final List<Quad> quads = new ArrayList<>();
+        quads.add(rdf.createQuad(Trellis.PreferServerManaged, identifier, type, LDP.BasicContainer));
+        quads.add(rdf.createQuad(Trellis.PreferServerManaged, identifier, DC.modified,
+                    rdf.createLiteral(TIME.toString(), XSD.dateTime)));
+        for (int i = 0; i < size; i++) {
+            quads.add(rdf.createQuad(Trellis.PreferUserManaged, identifier, DC.subject,
+                        rdf.createIRI("http://id.example.org/subjects/" + i)));
+            quads.add(rdf.createQuad(LDP.PreferContainment, identifier, LDP.contains,
+                        rdf.createIRI(identifier.getIRIString() + "/" + randomUUID())));
+        }
+        quads.add(rdf.createQuad(Trellis.PreferUserManaged, identifier, RDFS.label,
+                    rdf.createLiteral("A sample resource", "en")));
+
+        // Each edit of the resource adds an audit event
+        for (int i = 0; i < size / 10; i++) {
+            final IRI event = rdf.createIRI(TRELLIS_BNODE_PREFIX + randomUUID());
+            quads.add(rdf.createQuad(Trellis.PreferAudit, identifier, PROV.wasGeneratedBy, event));
+            quads.add(rdf.createQuad(Trellis.PreferAudit, event, type, PROV.Activity));
+            quads.add(rdf.createQuad(Trellis.PreferAudit, event, type, i == 0 ? AS.Create : AS.Update));
+            quads.add(rdf.createQuad(Trellis.PreferAudit, event, PROV.wasAssociatedWith,
+                        rdf.createIRI("https://people.example.org/users/" + i % 5)));
+            quads.add(rdf.createQuad(Trellis.PreferAudit, event, PROV.atTime,
+                        rdf.createLiteral(TIME.plusSeconds(i).toString(), XSD.dateTime)));
+        }
+        return quads;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.time.Instant.parse;
+import static java.util.Collections.singleton;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.RDF.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trellisldp.api.Metadata;
+import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResourceService;
+import org.trellisldp.vocabulary.DC;
+import org.trellisldp.vocabulary.LDP;
+import org.trellisldp.vocabulary.Trellis;
+import org.trellisldp.vocabulary.XSD;
+
+/**
+ * Compare the time a caller waits for a new Memento with and without write-behind.
+ *
+ * <p>Each invocation stores a new version of the same resource, as the HTTP layer does after every
+ * modification. Without write-behind the caller waits for the delta to be computed and written; with
+ * write-behind it waits for the content to be spooled, and, when journal sync is enabled, forced to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MementoWriteBehindBenchmark {
+
+    private static final RDF rdf = new JenaRDF();
+    private static final Instant TIME = parse("2019-01-01T00:00:00Z");
+
+    /** The write mode: synchronous, write-behind, or write-behind with a synced journal. **/
+    @Param({"synchronous", "writebehind", "writebehind-sync"})
+    public String mode;
+
+    /** The number of user-managed triples. **/
+    @Param({"100", "1000"})
+    public int size;
+
+    private final AtomicLong version = new AtomicLong();
+    private File directory;
+    private IRI identifier;
+    private List<Quad> content;
+    private FileMementoService service;
+    private ResourceService resourceService;
+
+    /**
+     * Create the memento service and a resource service that returns a new version on every request.
+     * @throws IOException if the working directory could not be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("trellis-memento").toFile();
+        identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+        content = new ArrayList<>();
+        content.add(rdf.createQuad(Trellis.PreferServerManaged, identifier, type, LDP.RDFSource));
+        for (int i = 0; i < size; i++) {
+            content.add(rdf.createQuad(Trellis.PreferUserManaged, identifier, DC.subject,
+                        rdf.createIRI("http://id.example.org/subjects/" + i)));
+        }
+        resourceService = new VersionedResourceService();
+        try {
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND,
+                    Boolean.toString(mode.startsWith("writebehind")));
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_JOURNAL_SYNC,
+                    Boolean.toString(mode.endsWith("sync")));
+            service = new FileMementoService(directory.getAbsolutePath());
+        } finally {
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND);
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_JOURNAL_SYNC);
+        }
+    }
+
+    /**
+     * Wait for any pending writes and remove the working directory.
+     * @throws IOException if the working directory could not be removed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.flush().toCompletableFuture().join();
+        deleteDirectory(directory);
+    }
+
+    /**
+     * Measure the time until a new Memento is accepted.
+     */
+    @Benchmark
+    public void putMemento() {
+        service.put(resourceService, identifier).toCompletableFuture().join();
+    }
+
+    /**
+     * A resource service whose resource is modified one second later on every request.
+     */
+    private class VersionedResourceService implements ResourceService {
+
+        @Override
+        public CompletionStage<Resource> get(final IRI id) {
+            final Instant modified = TIME.plusSeconds(version.incrementAndGet());
+            final List<Quad> quads = new ArrayList<>(content);
+            quads.add(rdf.createQuad(Trellis.PreferServerManaged, id, DC.modified,
+                        rdf.createLiteral(modified.toString(), XSD.dateTime)));
+            quads.add(rdf.createQuad(Trellis.PreferUserManaged, id, DC.title,
+                        rdf.createLiteral("Version " + modified)));
+            return completedFuture(new FileResource(id, quads));
+        }
+
+        @Override
+        public CompletionStage<Void> replace(final Metadata metadata, final Dataset dataset) {
+            return completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<Void> delete(final Metadata metadata) {
+            return completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<Void> add(final IRI id, final Dataset dataset) {
+            return completedFuture(null);
+        }
+
+        @Override
+        public CompletionStage<Void> touch(final IRI id) {
+            return completedFuture(null);
+        }
+
+        @Override
+        public Set<IRI> supportedInteractionModels() {
+            return singleton(LDP.RDFSource);
+        }
+
+        @Override
+        public String generateIdentifier() {
+            return Long.toString(version.incrementAndGet());
+        }
+    }
+}
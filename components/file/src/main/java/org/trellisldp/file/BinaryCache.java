@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.nonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+
+/**
+ * An in-memory cache of small binaries.
+ *
+ * <p>The content of each binary up to a size threshold is held in a read-only direct {@link ByteBuffer},
+ * outside of the Java heap, and the least recently used binaries are evicted once the total size of the
+ * cached content exceeds a byte budget. Any change to a binary invalidates its cached content, and content
+ * that was read from disk while such a change was in progress is not cached.
+ */
+final class BinaryCache {
+
+    private static final Logger LOGGER = getLogger(BinaryCache.class);
+
+    private final long capacity;
+    private final long threshold;
+    private final Map<IRI, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long size;
+
+    /**
+     * Create a binary cache.
+     * @param capacity the maximum number of bytes to cache, or zero to disable the cache
+     * @param threshold the size, in bytes, of the largest binary that may be cached
+     */
+    BinaryCache(final long capacity, final long threshold) {
+        this.capacity = Math.max(0L, capacity);
+        this.threshold = Math.min(Math.min(this.capacity, Integer.MAX_VALUE), Math.max(0L, threshold));
+    }
+
+    /**
+     * Get the content of a binary, reading it into the cache if it is small enough.
+     * @param identifier the binary identifier
+     * @param file the file holding the binary content
+     * @return the content, or null if the binary is not cached
+     */
+    ByteBuffer get(final IRI identifier, final File file) {
+        if (capacity == 0L) {
+            return null;
+        }
+        synchronized (this) {
+            final ByteBuffer cached = entries.get(identifier);
+            if (nonNull(cached)) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        final long length = file.length();
+        if (length > threshold || length == 0L && !file.isFile()) {
+            return null;
+        }
+        // A binary that changes while it is being read is not cached, since it may be stale
+        final long current = generation.get();
+        final ByteBuffer content = read(file, (int) length);
+        if (nonNull(content)) {
+            put(identifier, content, current);
+        }
+        return content;
+    }
+
+    /**
+     * Remove a binary from the cache.
+     * @param identifier the binary identifier
+     */
+    void invalidate(final IRI identifier) {
+        generation.incrementAndGet();
+        synchronized (this) {
+            final ByteBuffer removed = entries.remove(identifier);
+            if (nonNull(removed)) {
+                size -= removed.capacity();
+            }
+        }
+    }
+
+    /**
+     * Get the proportion of reads that were served from the cache.
+     * @return the hit ratio, between 0 and 1
+     */
+    double getHitRatio() {
+        final long hit = hits.sum();
+        final long total = hit + misses.sum();
+        return total == 0L ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * Get the number of bytes held by the cache.
+     * @return the size of the cached content
+     */
+    synchronized long getMemoryUsage() {
+        return size;
+    }
+
+    private synchronized void put(final IRI identifier, final ByteBuffer content, final long expected) {
+        if (generation.get() != expected || entries.containsKey(identifier)) {
+            return;
+        }
+        entries.put(identifier, content);
+        size += content.capacity();
+        final Iterator<ByteBuffer> eldest = entries.values().iterator();
+        while (size > capacity && eldest.hasNext()) {
+            size -= eldest.next().capacity();
+            eldest.remove();
+        }
+    }
+
+    private static ByteBuffer read(final File file, final int length) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        try (final FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer);
+            }
+            if (buffer.hasRemaining() || channel.size() != length) {
+                // The file changed size while it was being read
+                return null;
+            }
+        } catch (final IOException ex) {
+            LOGGER.debug("Unable to cache {}: {}", file, ex.getMessage());
+            return null;
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
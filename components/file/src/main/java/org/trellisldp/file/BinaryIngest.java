@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * Streams binary content to files through an {@link AsynchronousFileChannel}.
+ *
+ * <p>Each upload is read in fixed-size chunks into pooled direct buffers on a dedicated pool of ingest
+ * threads, and each chunk is written asynchronously at its offset in a temporary file, which replaces the
+ * target file once all chunks are written. The bytes that have been read but not yet written are limited
+ * both per upload and across all uploads. When either budget is exhausted, the ingest thread stops reading
+ * until earlier writes complete, so that a fast client is slowed to the speed of the storage device rather
+ * than buffered in memory.
+ *
+ * <p>Content may also be written at an offset within an existing file, which allows a binary to be
+ * assembled from chunks that are transferred separately.
+ */
+final class BinaryIngest {
+
+    private static final Logger LOGGER = getLogger(BinaryIngest.class);
+    private static final int RATE_WINDOW = 10;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int chunkSize;
+    private final int uploadChunks;
+    private final Semaphore budget;
+    private final ExecutorService readers;
+    private final ExecutorService writers;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LongAdder ingested = new LongAdder();
+    private final AtomicLongArray rateBytes = new AtomicLongArray(RATE_WINDOW);
+    private final AtomicLongArray rateSeconds = new AtomicLongArray(RATE_WINDOW);
+
+    /**
+     * Create a binary ingest pipeline.
+     * @param threads the number of uploads that may be read concurrently
+     * @param ioThreads the number of threads that perform file writes
+     * @param chunkSize the size of each buffer, in bytes
+     * @param uploadBudget the number of bytes that a single upload may have in flight
+     * @param globalBudget the number of bytes that all uploads together may have in flight
+     */
+    BinaryIngest(final int threads, final int ioThreads, final int chunkSize, final long uploadBudget,
+            final long globalBudget) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.uploadChunks = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, uploadBudget / this.chunkSize));
+        this.budget = new Semaphore((int) Math.max(this.chunkSize, Math.min(Integer.MAX_VALUE, globalBudget)), true);
+        this.readers = newFixedThreadPool(Math.max(1, threads), runnable -> {
+            final Thread thread = new Thread(runnable, "trellis-binary-ingest");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writers = newFixedThreadPool(Math.max(1, ioThreads), runnable -> {
+            final Thread thread = new Thread(runnable, "trellis-binary-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Write the content of a stream to a file.
+     * @param stream the content, which is closed once it has been read
+     * @param file the target file
+     * @return the completion stage representing that the file has been written
+     */
+    CompletionStage<Void> ingest(final InputStream stream, final Path file) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        readers.execute(() -> {
+            try {
+                ingest(stream, file, result);
+            } catch (final RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get the number of bytes that have been read but not yet written.
+     * @return the in-flight bytes
+     */
+    long getInFlightBytes() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the total number of bytes written.
+     * @return the ingested bytes
+     */
+    long getIngestedBytes() {
+        return ingested.sum();
+    }
+
+    /**
+     * Get the average write rate over the last few seconds.
+     * @return the rate, in bytes per second
+     */
+    long getBytesPerSecond() {
+        final long current = System.nanoTime() / NANOS_PER_SECOND;
+        long total = 0L;
+        for (int i = 0; i < RATE_WINDOW; i++) {
+            final long second = rateSeconds.get(i);
+            // The current second is still filling up, so only complete seconds are counted
+            if (second < current && second >= current - RATE_WINDOW) {
+                total += rateBytes.get(i);
+            }
+        }
+        return total / RATE_WINDOW;
+    }
+
+    /**
+     * Write the content of a stream into an existing file at a given offset.
+     * @param stream the content, which is closed once it has been read
+     * @param file the target file
+     * @param offset the position at which to write the content
+     * @param limit the maximum number of bytes that may be written
+     * @return the completion stage containing the number of bytes written, which have been forced to
+     *         the storage device. If the stream contains more than the limit, the stage completes
+     *         exceptionally with an {@link IllegalArgumentException}.
+     */
+    CompletionStage<Long> write(final InputStream stream, final Path file, final long offset, final long limit) {
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        readers.execute(() -> {
+            try {
+                result.complete(transfer(stream, file, singleton(WRITE), offset, limit, true));
+            } catch (final IOException ex) {
+                result.completeExceptionally(new UncheckedIOException("Error writing " + file, ex));
+            } catch (final RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    private void ingest(final InputStream stream, final Path file, final CompletableFuture<Void> result) {
+        final Path tmp;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        } catch (final IOException ex) {
+            close(stream);
+            result.completeExceptionally(new UncheckedIOException("Error creating file for " + file, ex));
+            return;
+        }
+
+        try {
+            transfer(stream, tmp, new HashSet<>(asList(CREATE, WRITE, TRUNCATE_EXISTING)), 0L, Long.MAX_VALUE,
+                    false);
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            result.complete(null);
+        } catch (final IOException ex) {
+            delete(tmp);
+            result.completeExceptionally(new UncheckedIOException("Error writing " + file, ex));
+        } catch (final RuntimeException ex) {
+            delete(tmp);
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private long transfer(final InputStream stream, final Path file, final Set<? extends OpenOption> options,
+            final long offset, final long limit, final boolean force) throws IOException {
+        final Semaphore upload = new Semaphore(uploadChunks);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        long position = offset;
+        try (final AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, options, writers)) {
+            try (final ReadableByteChannel input = Channels.newChannel(stream)) {
+                while (isNull(error.get())) {
+                    upload.acquire();
+                    budget.acquire(chunkSize);
+                    final ByteBuffer buffer = buffer();
+                    final int length;
+                    try {
+                        length = fill(input, buffer);
+                    } catch (final IOException ex) {
+                        release(buffer, upload);
+                        throw ex;
+                    }
+                    if (length <= 0) {
+                        release(buffer, upload);
+                        break;
+                    }
+                    if (position - offset + length > limit) {
+                        release(buffer, upload);
+                        error.compareAndSet(null, new IllegalArgumentException("Content exceeds " + limit
+                                    + " bytes for " + file));
+                        break;
+                    }
+                    buffer.flip();
+                    inFlight.addAndGet(length);
+                    write(channel, buffer, position, upload, error);
+                    position += length;
+                }
+            } catch (final IOException ex) {
+                error.compareAndSet(null, ex);
+            }
+            // Every write holds a permit until it completes, so the channel is not closed while writes are pending
+            upload.acquire(uploadChunks);
+            if (force && isNull(error.get())) {
+                channel.force(false);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, new InterruptedIOException("Interrupted while writing " + file));
+        }
+
+        final Throwable err = error.get();
+        if (err instanceof IOException) {
+            throw (IOException) err;
+        } else if (err instanceof RuntimeException) {
+            throw (RuntimeException) err;
+        } else if (nonNull(err)) {
+            throw new IOException(err);
+        }
+        return position - offset;
+    }
+
+    private void write(final AsynchronousFileChannel channel, final ByteBuffer buffer, final long position,
+            final Semaphore upload, final AtomicReference<Throwable> error) {
+        channel.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(final Integer written, final Void attachment) {
+                if (buffer.hasRemaining()) {
+                    // A partial write continues from where it stopped
+                    write(channel, buffer, position + written, upload, error);
+                } else {
+                    inFlight.addAndGet(-buffer.limit());
+                    ingested.add(buffer.limit());
+                    mark(buffer.limit());
+                    release(buffer, upload);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable ex, final Void attachment) {
+                LOGGER.warn("Error writing binary content at offset {}: {}", position, ex.getMessage());
+                error.compareAndSet(null, ex);
+                inFlight.addAndGet(-buffer.limit());
+                release(buffer, upload);
+            }
+        });
+    }
+
+    private ByteBuffer buffer() {
+        final ByteBuffer buffer = buffers.poll();
+        if (nonNull(buffer)) {
+            buffer.clear();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(chunkSize);
+    }
+
+    private void release(final ByteBuffer buffer, final Semaphore upload) {
+        // The number of buffers is bounded by the global budget, so they can all be kept for reuse
+        buffers.offer(buffer);
+        budget.release(chunkSize);
+        upload.release();
+    }
+
+    private void mark(final long bytes) {
+        final long second = System.nanoTime() / NANOS_PER_SECOND;
+        final int slot = (int) (second % RATE_WINDOW);
+        final long previous = rateSeconds.get(slot);
+        if (previous != second && rateSeconds.compareAndSet(slot, previous, second)) {
+            rateBytes.set(slot, 0L);
+        }
+        rateBytes.addAndGet(slot, bytes);
+    }
+
+    private static int fill(final ReadableByteChannel input, final ByteBuffer buffer) throws IOException {
+        // Reads are repeated until the buffer is full, so that each write is a complete chunk
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            final int read = input.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException ex) {
+            LOGGER.warn("Error deleting temporary file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static void close(final InputStream stream) {
+        try {
+            stream.close();
+        } catch (final IOException ex) {
+            LOGGER.warn("Error closing binary input stream: {}", ex.getMessage());
+        }
+    }
+}
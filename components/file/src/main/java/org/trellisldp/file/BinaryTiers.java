@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+
+/**
+ * Places binaries on a fast and a bulk storage tier.
+ *
+ * <p>New binaries are written to the fast tier unless their media type or declared size matches a placement
+ * rule for the bulk tier. Binaries on the fast tier that have been neither read nor written for a configured
+ * age are copied to the bulk tier by {@link #migrate}. Reads and writes are tracked by this process rather than
+ * through file access times, which many filesystems do not maintain; a binary that has not been used since the
+ * process started is judged by its modification time. Each binary keeps the same relative path on either tier,
+ * so its identifier never changes: an index records which binaries are on the bulk tier, and binaries that
+ * are not in the index are located by checking the fast tier first. Once a binary has been migrated, reads
+ * are directed to the bulk tier, but the fast copy is only removed by the following migration run, so that
+ * reads which located the binary before it moved can still open it. Migrating, writing and removing a binary
+ * all hold a lock on its path, so that a fast copy is never retired once it holds newer content.
+ */
+final class BinaryTiers {
+
+    private static final Logger LOGGER = getLogger(BinaryTiers.class);
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final int LOCK_STRIPES = 64;
+
+    private final File fast;
+    private final File bulk;
+    private final long minSize;
+    private final Set<String> mimeTypes;
+    private final Duration age;
+    private final Map<String, Boolean> index = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastUse = new ConcurrentHashMap<>();
+    private final List<String> retired = new ArrayList<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongAdder migrated = new LongAdder();
+    private final LongAdder migratedBytes = new LongAdder();
+
+    /**
+     * Create a set of storage tiers.
+     * @param fast the root directory of the fast tier
+     * @param bulk the root directory of the bulk tier, or null if there is only one tier
+     * @param minSize the declared size, in bytes, at which new binaries are placed on the bulk tier, or zero
+     * @param mimeTypes the media types, such as {@code video/*}, of new binaries placed on the bulk tier
+     * @param age the age at which binaries are migrated to the bulk tier, or null
+     */
+    BinaryTiers(final File fast, final File bulk, final long minSize, final Set<String> mimeTypes,
+            final Duration age) {
+        this.fast = fast;
+        this.bulk = bulk;
+        this.minSize = minSize;
+        this.mimeTypes = mimeTypes;
+        this.age = age;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Determine whether binaries are migrated between tiers.
+     * @return true if a bulk tier and a migration age are defined
+     */
+    boolean isMigrating() {
+        return nonNull(bulk) && nonNull(age);
+    }
+
+    /**
+     * Locate the file of an existing binary.
+     * @param path the relative path of the binary
+     * @return the file, which may not exist
+     */
+    File locate(final String path) {
+        if (isNull(bulk)) {
+            return new File(fast, path);
+        }
+        final Boolean onBulk = index.get(path);
+        if (nonNull(onBulk)) {
+            return new File(onBulk ? bulk : fast, path);
+        }
+        final File file = new File(fast, path);
+        if (!file.exists() && new File(bulk, path).exists()) {
+            index.put(path, Boolean.TRUE);
+            return new File(bulk, path);
+        }
+        return file;
+    }
+
+    /**
+     * Record that a binary is in use, so that it is not migrated.
+     * @param path the relative path of the binary
+     */
+    void used(final String path) {
+        if (isMigrating()) {
+            lastUse.put(path, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Select the file for new binary content.
+     * @param path the relative path of the binary
+     * @param metadata the binary metadata
+     * @return the file to which the content should be written
+     */
+    File place(final String path, final BinaryMetadata metadata) {
+        used(path);
+        if (isNull(bulk) || !isBulk(metadata)) {
+            return new File(fast, path);
+        }
+        return new File(bulk, path);
+    }
+
+    /**
+     * Record that new binary content has been written, removing any copy on the other tier.
+     * @param path the relative path of the binary
+     * @param file the file to which the content was written
+     */
+    void placed(final String path, final File file) {
+        if (nonNull(bulk)) {
+            synchronized (lock(path)) {
+                final boolean onBulk = file.toPath().startsWith(bulk.toPath());
+                index.put(path, onBulk);
+                delete(new File(onBulk ? fast : bulk, path).toPath());
+                used(path);
+            }
+        }
+    }
+
+    /**
+     * Remove a binary from every tier.
+     * @param path the relative path of the binary
+     * @return true if a file was removed
+     */
+    boolean remove(final String path) {
+        synchronized (lock(path)) {
+            index.remove(path);
+            lastUse.remove(path);
+            final boolean removed = delete(new File(fast, path).toPath());
+            return nonNull(bulk) && delete(new File(bulk, path).toPath()) || removed;
+        }
+    }
+
+    /**
+     * Move binaries that have not been used recently from the fast tier to the bulk tier.
+     */
+    void migrate() {
+        if (!isMigrating()) {
+            return;
+        }
+        // Fast copies of binaries migrated by the previous run are no longer in use, unless they have been rewritten
+        final List<String> previous;
+        synchronized (retired) {
+            previous = new ArrayList<>(retired);
+            retired.clear();
+        }
+        previous.forEach(path -> {
+            synchronized (lock(path)) {
+                if (Boolean.TRUE.equals(index.get(path))) {
+                    delete(new File(fast, path).toPath());
+                }
+            }
+        });
+
+        final Instant cutoff = Instant.now().minus(age);
+        try (final Stream<Path> files = Files.walk(fast.toPath())) {
+            files.filter(this::isBinary).filter(file -> lastUsed(file).isBefore(cutoff))
+                .forEach(file -> migrate(file, cutoff));
+        } catch (final IOException | UncheckedIOException ex) {
+            LOGGER.warn("Unable to migrate binaries from {}: {}", fast, ex.getMessage());
+        }
+    }
+
+    /**
+     * Get the number of binaries moved to the bulk tier.
+     * @return the number of migrated binaries
+     */
+    long getMigrated() {
+        return migrated.sum();
+    }
+
+    /**
+     * Get the number of bytes moved to the bulk tier.
+     * @return the size of the migrated binaries
+     */
+    long getMigratedBytes() {
+        return migratedBytes.sum();
+    }
+
+    private void migrate(final Path file, final Instant cutoff) {
+        final String path = fast.toPath().relativize(file).toString();
+        synchronized (lock(path)) {
+            // The binary may have been used, rewritten or removed since the tier was scanned
+            if (Boolean.TRUE.equals(index.get(path)) || !lastUsed(file).isBefore(cutoff)) {
+                return;
+            }
+            final Path target = new File(bulk, path).toPath();
+            try {
+                Files.createDirectories(target.getParent());
+                // The copy is completed under a temporary name, so that the bulk tier never holds a partial binary
+                final Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                try {
+                    Files.copy(file, tmp, REPLACE_EXISTING, COPY_ATTRIBUTES);
+                    Files.move(tmp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                index.put(path, Boolean.TRUE);
+                lastUse.remove(path);
+                migrated.increment();
+                migratedBytes.add(Files.size(target));
+                synchronized (retired) {
+                    retired.add(path);
+                }
+                LOGGER.debug("Migrated binary {} to {}", path, bulk);
+            } catch (final IOException ex) {
+                LOGGER.warn("Unable to migrate binary {}: {}", file, ex.getMessage());
+            }
+        }
+    }
+
+    private boolean isBinary(final Path file) {
+        final String name = file.getFileName().toString();
+        return Files.isRegularFile(file) && !name.endsWith(".tmp") && !file.startsWith(bulk.toPath())
+            && !fast.toPath().relativize(file).startsWith(BinaryUploads.DIRECTORY);
+    }
+
+    private boolean isBulk(final BinaryMetadata metadata) {
+        // The size is only known up front if the client declared it
+        final boolean large = minSize > 0 && metadata.getHints().entrySet().stream()
+            .filter(hint -> CONTENT_LENGTH.equalsIgnoreCase(hint.getKey())).flatMap(hint -> hint.getValue().stream())
+            .map(BinaryTiers::parseSize).anyMatch(size -> size >= minSize);
+        return large || metadata.getMimeType().filter(this::isBulkType).isPresent();
+    }
+
+    private boolean isBulkType(final String mimeType) {
+        final String type = mimeType.split(";")[0].trim().toLowerCase();
+        return mimeTypes.contains(type) || mimeTypes.contains(type.split("/")[0] + "/*");
+    }
+
+    private static long parseSize(final String size) {
+        try {
+            return Long.parseLong(size.trim());
+        } catch (final NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    private Instant lastUsed(final Path file) {
+        final Long used = lastUse.get(fast.toPath().relativize(file).toString());
+        if (nonNull(used)) {
+            return Instant.ofEpochMilli(used);
+        }
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (final IOException ex) {
+            // A binary that cannot be inspected, such as one that was just deleted, is left where it is
+            LOGGER.debug("Unable to read attributes of {}: {}", file, ex.getMessage());
+            return Instant.MAX;
+        }
+    }
+
+    private Object lock(final String path) {
+        return locks[Math.floorMod(path.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static boolean delete(final Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (final IOException ex) {
+            LOGGER.warn("Unable to delete {}: {}", file, ex.getMessage());
+            return false;
+        }
+    }
+}
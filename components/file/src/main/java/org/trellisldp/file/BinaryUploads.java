@@ -0,0 +1,415 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DSYNC;
+import static java.util.Arrays.stream;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableSortedMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.trellisldp.api.TrellisUtils.getInstance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+
+/**
+ * Resumable uploads of binary content.
+ *
+ * <p>Each upload is stored in a file that is allocated at the full size of the content when the upload is
+ * created, and chunks are written directly at their offsets in that file. The identifier, media type and
+ * size of an upload are recorded alongside it, together with the resource and the agent that it belongs to,
+ * and the range covered by each chunk is appended to a log once the chunk has been forced to disk, so that
+ * an upload can be resumed after a restart. When every byte has been received, the file is atomically moved
+ * to the location of the binary.
+ *
+ * <p>Since an upload reserves its full size on disk, the size of an upload is limited, and an upload that has
+ * not been used for a configured period is discarded.
+ */
+final class BinaryUploads {
+
+    /** The name of the directory, beneath the base path, that holds incomplete uploads. */
+    static final String DIRECTORY = ".uploads";
+
+    private static final Logger LOGGER = getLogger(BinaryUploads.class);
+    private static final RDF rdf = getInstance();
+    private static final Pattern UPLOAD_ID = Pattern.compile("^[0-9a-f-]{36}$");
+    private static final String IDENTIFIER = "identifier";
+    private static final String MIME_TYPE = "mimeType";
+    private static final String LENGTH = "length";
+    private static final String RESOURCE = "resource";
+    private static final String AGENT = "agent";
+    private static final String[] SUFFIXES = new String[]{".bin", ".ranges", ".properties"};
+
+    private final File directory;
+    private final BinaryIngest ingest;
+    private final Function<IRI, File> files;
+    private final long maxLength;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Create a store of resumable uploads.
+     * @param directory the directory for incomplete uploads, which must be on the same filesystem as the binaries
+     * @param ingest the pipeline used to write chunks
+     * @param files a function that maps a binary identifier to its file
+     * @param maxLength the size, in bytes, of the largest upload
+     */
+    BinaryUploads(final File directory, final BinaryIngest ingest, final Function<IRI, File> files,
+            final long maxLength) {
+        this.directory = directory;
+        this.ingest = ingest;
+        this.files = files;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Create an upload.
+     * @param resource the resource that will hold the content
+     * @param agent the agent that creates the upload
+     * @param metadata the binary metadata
+     * @param length the size of the content
+     * @return the completion stage containing the upload identifier
+     */
+    CompletionStage<String> initiate(final IRI resource, final IRI agent, final BinaryMetadata metadata,
+            final long length) {
+        return supplyAsync(() -> {
+            if (length < 0) {
+                throw new IllegalArgumentException("Invalid upload length: " + length);
+            } else if (length > maxLength) {
+                throw new IllegalArgumentException("Upload length " + length + " exceeds the maximum of "
+                        + maxLength + " bytes");
+            }
+            final String id = randomUUID().toString();
+            try {
+                Files.createDirectories(directory.toPath());
+                // The file is given its full size up front, so that chunks can be written at any offset
+                try (final RandomAccessFile data = new RandomAccessFile(file(id, ".bin"), "rw")) {
+                    data.setLength(length);
+                }
+                final Properties properties = new Properties();
+                properties.setProperty(IDENTIFIER, metadata.getIdentifier().getIRIString());
+                metadata.getMimeType().ifPresent(mimeType -> properties.setProperty(MIME_TYPE, mimeType));
+                properties.setProperty(LENGTH, Long.toString(length));
+                properties.setProperty(RESOURCE, resource.getIRIString());
+                properties.setProperty(AGENT, agent.getIRIString());
+                try (final OutputStream output = Files.newOutputStream(file(id, ".properties").toPath())) {
+                    properties.store(output, null);
+                }
+            } catch (final IOException ex) {
+                throw new UncheckedIOException("Error creating upload for " + metadata.getIdentifier(), ex);
+            }
+            LOGGER.debug("Created upload {} of {} bytes for {}", id, length, metadata.getIdentifier());
+            uploads.put(id, new Upload(resource, agent, metadata, length));
+            return id;
+        });
+    }
+
+    /**
+     * Write a chunk of an upload.
+     * @param resource the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param id the upload identifier
+     * @param offset the position of the chunk
+     * @param length the size of the chunk
+     * @param total the stated size of the content, or a negative value if it was not stated
+     * @param stream the chunk
+     * @return the completion stage containing the number of bytes written
+     */
+    CompletionStage<Long> write(final IRI resource, final IRI agent, final String id, final long offset,
+            final long length, final long total, final InputStream stream) {
+        return supplyAsync(() -> get(resource, agent, id)).thenCompose(upload -> {
+            if (total >= 0 && total != upload.length) {
+                throw new IllegalArgumentException("Content length " + total + " does not match the length "
+                        + upload.length + " of upload " + id);
+            }
+            if (offset < 0 || length < 0 || offset > upload.length || length > upload.length - offset) {
+                throw new IllegalArgumentException("Invalid range of " + length + " bytes at " + offset
+                        + " for upload " + id);
+            }
+            // The stream may hold no more than the chunk that was announced
+            return ingest.write(stream, file(id, ".bin").toPath(), offset, length)
+                .thenApply(written -> {
+                    received(id, upload, offset, offset + written);
+                    return written;
+                });
+        });
+    }
+
+    /**
+     * Get the ranges that have been received.
+     * @param resource the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param id the upload identifier
+     * @return the completion stage containing the received ranges
+     */
+    CompletionStage<SortedMap<Long, Long>> ranges(final IRI resource, final IRI agent, final String id) {
+        return supplyAsync(() -> {
+            final Upload upload = get(resource, agent, id);
+            synchronized (upload) {
+                return unmodifiableSortedMap(new TreeMap<>(upload.ranges));
+            }
+        });
+    }
+
+    /**
+     * Complete an upload.
+     * @param resource the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param id the upload identifier
+     * @return the completion stage containing the binary metadata
+     */
+    CompletionStage<BinaryMetadata> complete(final IRI resource, final IRI agent, final String id) {
+        return supplyAsync(() -> {
+            final Upload upload = get(resource, agent, id);
+            synchronized (upload) {
+                checkActive(id, upload);
+                if (!upload.isComplete()) {
+                    throw new IllegalStateException("Upload " + id + " is incomplete");
+                }
+                final File target = files.apply(upload.metadata.getIdentifier());
+                try {
+                    Files.createDirectories(target.getParentFile().toPath());
+                    Files.move(file(id, ".bin").toPath(), target.toPath(), ATOMIC_MOVE);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException("Error completing upload " + id, ex);
+                }
+                LOGGER.debug("Completed upload {} for {}", id, upload.metadata.getIdentifier());
+                discard(id);
+                return upload.metadata;
+            }
+        });
+    }
+
+    /**
+     * Abort an upload.
+     * @param resource the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param id the upload identifier
+     * @return the completion stage
+     */
+    CompletionStage<Void> abort(final IRI resource, final IRI agent, final String id) {
+        return supplyAsync(() -> {
+            final Upload upload = get(resource, agent, id);
+            synchronized (upload) {
+                checkActive(id, upload);
+                LOGGER.debug("Aborting upload {} for {}", id, upload.metadata.getIdentifier());
+                discard(id);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Discard the uploads that have not been used for a given period.
+     * @param expiry the period after which an unused upload is discarded
+     */
+    void expire(final Duration expiry) {
+        final long cutoff = System.currentTimeMillis() - expiry.toMillis();
+        final File[] entries = directory.listFiles((dir, name) -> name.endsWith(".properties")
+                || name.endsWith(".bin"));
+        if (isNull(entries)) {
+            return;
+        }
+        stream(entries).map(File::getName).map(name -> name.substring(0, name.lastIndexOf('.')))
+            .filter(id -> UPLOAD_ID.matcher(id).matches()).distinct().forEach(id -> {
+                final Upload upload = resume(id);
+                if (isNull(upload)) {
+                    // The files of an upload that cannot be resumed are only removed once they are old enough
+                    if (lastModified(id) < cutoff) {
+                        LOGGER.info("Discarding unusable upload {}", id);
+                        discard(id);
+                    }
+                    return;
+                }
+                synchronized (upload) {
+                    if (upload.lastUsed < cutoff && uploads.get(id) == upload) {
+                        LOGGER.info("Discarding abandoned upload {} for {}", id, upload.resource);
+                        discard(id);
+                    }
+                }
+            });
+    }
+
+    private Upload resume(final String id) {
+        try {
+            return uploads.computeIfAbsent(id, this::load);
+        } catch (final RuntimeException ex) {
+            LOGGER.warn("Unable to read upload {}: {}", id, ex.getMessage());
+            return null;
+        }
+    }
+
+    private Upload get(final IRI resource, final IRI agent, final String id) {
+        final Upload upload = nonNull(id) && UPLOAD_ID.matcher(id).matches()
+            ? uploads.computeIfAbsent(id, this::load) : null;
+        // An upload is only visible to the agent that created it, and only at the resource it was created for
+        if (isNull(upload) || !upload.resource.equals(resource) || !upload.agent.equals(agent)) {
+            throw new NoSuchElementException("No upload found for " + id);
+        }
+        upload.lastUsed = System.currentTimeMillis();
+        return upload;
+    }
+
+    private void checkActive(final String id, final Upload upload) {
+        // Another request may have completed or aborted the upload while this one waited for it
+        if (uploads.get(id) != upload) {
+            throw new NoSuchElementException("No upload found for " + id);
+        }
+    }
+
+    private Upload load(final String id) {
+        final File state = file(id, ".properties");
+        if (!state.exists() || !file(id, ".bin").exists()) {
+            return null;
+        }
+        try {
+            final Properties properties = new Properties();
+            try (final InputStream input = Files.newInputStream(state.toPath())) {
+                properties.load(input);
+            }
+            if (!properties.containsKey(RESOURCE) || !properties.containsKey(AGENT)) {
+                // An upload that does not record its owner can never be used, so it is left to expire
+                return null;
+            }
+            final BinaryMetadata.Builder metadata = BinaryMetadata.builder(
+                    rdf.createIRI(properties.getProperty(IDENTIFIER)));
+            if (properties.containsKey(MIME_TYPE)) {
+                metadata.mimeType(properties.getProperty(MIME_TYPE));
+            }
+            final Upload upload = new Upload(rdf.createIRI(properties.getProperty(RESOURCE)),
+                    rdf.createIRI(properties.getProperty(AGENT)), metadata.build(),
+                    Long.parseLong(properties.getProperty(LENGTH)));
+            upload.lastUsed = lastModified(id);
+            final Path log = file(id, ".ranges").toPath();
+            if (Files.exists(log)) {
+                try (final Stream<String> lines = Files.lines(log, UTF_8)) {
+                    lines.map(line -> line.split(" ")).filter(range -> range.length == 2)
+                        .forEach(range -> upload.add(Long.parseLong(range[0]), Long.parseLong(range[1])));
+                }
+            }
+            LOGGER.debug("Resuming upload {} for {}", id, upload.metadata.getIdentifier());
+            return upload;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error reading upload " + id, ex);
+        }
+    }
+
+    private void received(final String id, final Upload upload, final long start, final long end) {
+        synchronized (upload) {
+            if (uploads.get(id) != upload) {
+                // The upload was completed or aborted while this chunk was being written
+                return;
+            }
+            try {
+                Files.write(file(id, ".ranges").toPath(), singletonList(start + " " + end), UTF_8,
+                        CREATE, APPEND, DSYNC);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException("Error recording chunk of upload " + id, ex);
+            }
+            upload.add(start, end);
+            upload.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private long lastModified(final String id) {
+        return stream(SUFFIXES).map(suffix -> file(id, suffix)).mapToLong(File::lastModified).max().orElse(0L);
+    }
+
+    private void discard(final String id) {
+        uploads.remove(id);
+        for (final String suffix : SUFFIXES) {
+            try {
+                Files.deleteIfExists(file(id, suffix).toPath());
+            } catch (final IOException ex) {
+                LOGGER.warn("Error deleting {} file of upload {}: {}", suffix, id, ex.getMessage());
+            }
+        }
+    }
+
+    private File file(final String id, final String suffix) {
+        return new File(directory, id + suffix);
+    }
+
+    private static final class Upload {
+
+        private final IRI resource;
+        private final IRI agent;
+        private final BinaryMetadata metadata;
+        private final long length;
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Upload(final IRI resource, final IRI agent, final BinaryMetadata metadata, final long length) {
+            this.resource = resource;
+            this.agent = agent;
+            this.metadata = metadata;
+            this.length = length;
+        }
+
+        private void add(final long start, final long end) {
+            if (end <= start) {
+                return;
+            }
+            // Adjacent and overlapping ranges are merged, so a complete upload has a single range
+            long from = start;
+            long to = end;
+            final Map.Entry<Long, Long> lower = ranges.floorEntry(start);
+            if (nonNull(lower) && lower.getValue() >= start) {
+                from = lower.getKey();
+                to = Math.max(to, lower.getValue());
+            }
+            final Iterator<Long> following = ranges.subMap(from, true, to, true).values().iterator();
+            while (following.hasNext()) {
+                to = Math.max(to, following.next());
+                following.remove();
+            }
+            ranges.put(from, to);
+        }
+
+        private boolean isComplete() {
+            final Map.Entry<Long, Long> first = ranges.firstEntry();
+            return length == 0 || nonNull(first) && first.getKey() == 0L && first.getValue() == length;
+        }
+    }
+}
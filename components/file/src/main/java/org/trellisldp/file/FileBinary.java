@@ -14,32 +14,49 @@
 
 package org.trellisldp.file;
 
+import static java.util.Objects.nonNull;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 
 import org.trellisldp.api.Binary;
 
 /**
  * Implements {@link Binary} for files on a filesystem.
  *
+ * <p>The content of a small file may also be held in memory, in which case it is read from there.
  */
 public class FileBinary implements Binary {
 
     private final File file;
+    private final ByteBuffer content;
 
     /**
      * @param file the file to wrap as a {@link Binary}
      */
     public FileBinary(final File file) {
+        this(file, null);
+    }
+
+    /**
+     * @param file the file to wrap as a {@link Binary}
+     * @param content the content of the file, or null if it is not held in memory
+     */
+    FileBinary(final File file, final ByteBuffer content) {
         this.file = file;
+        this.content = content;
     }
 
     @Override
     public InputStream getContent() {
+        if (nonNull(content)) {
+            return new BufferInputStream(content.duplicate());
+        }
         try {
             return new FileInputStream(file);
         } catch (FileNotFoundException e) {
@@ -49,10 +66,54 @@ public class FileBinary implements Binary {
 
     @Override
     public InputStream getContent(final int from, final int to) {
+        if (nonNull(content)) {
+            final ByteBuffer range = content.duplicate();
+            range.position(Math.min(Math.max(0, from), range.limit()));
+            range.limit(Math.max(range.position(), Math.min(to, range.limit())));
+            return new BufferInputStream(range);
+        }
         try {
             return FileUtils.getBoundedStream(new FileInputStream(file), from, to);
         } catch (final IOException ex) {
             throw new UncheckedIOException(ex);
         }
     }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int count = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
@@ -13,23 +13,27 @@
  */
 package org.trellisldp.file;
 
-import static java.nio.file.Files.copy;
-import static java.nio.file.Files.delete;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Arrays.stream;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.of;
 import static java.util.ServiceLoader.load;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toSet;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.ServiceLoader;
+import java.util.SortedMap;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 
 import javax.inject.Inject;
@@ -43,11 +47,27 @@ import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.BinaryService;
 import org.trellisldp.api.DefaultIdentifierService;
 import org.trellisldp.api.IdentifierService;
+import org.trellisldp.api.ResumableBinaryService;
 
 /**
  * A {@link BinaryService} implementation that stores LDP-NR resources as files on a local filesystem.
+ *
+ * <p>New content is streamed to disk by a dedicated pool of threads using asynchronous file I/O. The amount
+ * of content that has been read from clients but not yet written is bounded, both for each upload and in
+ * total, so that reading from a client pauses whenever the storage device falls behind.
+ *
+ * <p>Content may also be uploaded in chunks. An upload is kept in the {@code .uploads} directory beneath the
+ * base path, so that it can be moved into place atomically once it is complete. The size of an upload is
+ * limited, and uploads that go unused for a configured number of hours are discarded in the background.
+ *
+ * <p>Small binaries may optionally be cached in memory, outside of the Java heap, so that frequently read
+ * content such as thumbnails does not require opening a file.
+ *
+ * <p>A second, bulk storage tier may be configured. Binaries are placed there directly when their media type or
+ * declared size matches the configured rules, and binaries that go unused for a configured number of days are
+ * moved there in the background, without any change to their identifiers.
  */
-public class FileBinaryService implements BinaryService {
+public class FileBinaryService implements ResumableBinaryService {
 
     /** The configuration key controlling the base filesystem path for the binary service. */
     public static final String CONFIG_FILE_BINARY_BASE_PATH = "trellis.file.binary.basepath";
@@ -58,12 +78,69 @@ public class FileBinaryService implements BinaryService {
     /** The configuration key controlling the length of each level of hierarchy in a filesystem layout. */
     public static final String CONFIG_FILE_BINARY_LENGTH = "trellis.file.binary.length";
 
+    /** The configuration key controlling the number of uploads that may be read concurrently. */
+    public static final String CONFIG_FILE_BINARY_INGEST_THREADS = "trellis.file.binary.ingest.threads";
+
+    /** The configuration key controlling the number of threads that write binary content to disk. */
+    public static final String CONFIG_FILE_BINARY_IO_THREADS = "trellis.file.binary.ingest.iothreads";
+
+    /** The configuration key controlling the size, in bytes, of each buffer used to write binary content. */
+    public static final String CONFIG_FILE_BINARY_BUFFER_SIZE = "trellis.file.binary.ingest.buffersize";
+
+    /** The configuration key controlling the number of bytes that a single upload may hold in memory. */
+    public static final String CONFIG_FILE_BINARY_UPLOAD_BUDGET = "trellis.file.binary.ingest.uploadbudget";
+
+    /** The configuration key controlling the number of bytes that all uploads together may hold in memory. */
+    public static final String CONFIG_FILE_BINARY_BUDGET = "trellis.file.binary.ingest.budget";
+
+    /** The configuration key controlling the size, in bytes, of the largest resumable upload. */
+    public static final String CONFIG_FILE_BINARY_UPLOAD_MAX_LENGTH = "trellis.file.binary.upload.maxlength";
+
+    /** The configuration key controlling the number of hours after which an unused upload is discarded. */
+    public static final String CONFIG_FILE_BINARY_UPLOAD_EXPIRY = "trellis.file.binary.upload.expiryhours";
+
+    /** The configuration key controlling the number of bytes of binary content to cache in memory, or 0 for none. */
+    public static final String CONFIG_FILE_BINARY_CACHE_SIZE = "trellis.file.binary.cache.size";
+
+    /** The configuration key controlling the size, in bytes, of the largest binary that may be cached. */
+    public static final String CONFIG_FILE_BINARY_CACHE_THRESHOLD = "trellis.file.binary.cache.threshold";
+
+    /** The configuration key controlling the base filesystem path of the bulk storage tier, if any. */
+    public static final String CONFIG_FILE_BINARY_BULK_PATH = "trellis.file.binary.bulk.basepath";
+
+    /** The configuration key controlling the declared size, in bytes, at which binaries are stored in bulk. */
+    public static final String CONFIG_FILE_BINARY_BULK_SIZE = "trellis.file.binary.bulk.minsize";
+
+    /** The configuration key controlling the media types, separated by commas, of binaries stored in bulk. */
+    public static final String CONFIG_FILE_BINARY_BULK_MIME_TYPES = "trellis.file.binary.bulk.mimetypes";
+
+    /** The configuration key controlling the number of days after which unused binaries move to bulk storage. */
+    public static final String CONFIG_FILE_BINARY_BULK_DAYS = "trellis.file.binary.bulk.days";
+
+    /** The configuration key controlling the number of minutes between runs of the bulk storage migrator. */
+    public static final String CONFIG_FILE_BINARY_BULK_INTERVAL = "trellis.file.binary.bulk.interval";
+
     private static final Logger LOGGER = getLogger(FileBinaryService.class);
     private static final int DEFAULT_HIERARCHY = 3;
     private static final int DEFAULT_LENGTH = 2;
+    private static final int DEFAULT_INGEST_THREADS = 8;
+    private static final int DEFAULT_IO_THREADS = 4;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_UPLOAD_BUDGET = 1024L * 1024L;
+    private static final long DEFAULT_BUDGET = 64L * 1024L * 1024L;
+    private static final long DEFAULT_CACHE_THRESHOLD = 64L * 1024L;
+    private static final long DEFAULT_BULK_INTERVAL = 60L;
+    private static final long DEFAULT_UPLOAD_MAX_LENGTH = 64L * 1024L * 1024L * 1024L;
+    private static final long DEFAULT_UPLOAD_EXPIRY = 24L;
+    private static final long UPLOAD_EXPIRY_INTERVAL = 60L;
 
     private final String basePath;
     private final Supplier<String> idSupplier;
+    private final BinaryIngest ingest;
+    private final BinaryUploads uploads;
+    private final BinaryCache cache;
+    private final BinaryTiers tiers;
+    private final ScheduledExecutorService maintenance;
 
     /**
      * Create a File-based Binary service.
@@ -96,6 +173,48 @@ public class FileBinaryService implements BinaryService {
         this.basePath = requireNonNull(basePath, CONFIG_FILE_BINARY_BASE_PATH + " configuration may not be null!");
         LOGGER.info("Storing binaries as files at {}", basePath);
         this.idSupplier = idService.getSupplier("file:///", hierarchy, length);
+        final Configuration config = ConfigurationProvider.getConfiguration();
+        this.ingest = new BinaryIngest(
+                config.getOrDefault(CONFIG_FILE_BINARY_INGEST_THREADS, Integer.class, DEFAULT_INGEST_THREADS),
+                config.getOrDefault(CONFIG_FILE_BINARY_IO_THREADS, Integer.class, DEFAULT_IO_THREADS),
+                config.getOrDefault(CONFIG_FILE_BINARY_BUFFER_SIZE, Integer.class, DEFAULT_BUFFER_SIZE),
+                config.getOrDefault(CONFIG_FILE_BINARY_UPLOAD_BUDGET, Long.class, DEFAULT_UPLOAD_BUDGET),
+                config.getOrDefault(CONFIG_FILE_BINARY_BUDGET, Long.class, DEFAULT_BUDGET));
+        // Uploads are always completed on the fast tier, since a file can only be moved atomically within a tier
+        this.uploads = new BinaryUploads(new File(basePath, BinaryUploads.DIRECTORY), ingest,
+                identifier -> new File(basePath, getPath(identifier)),
+                config.getOrDefault(CONFIG_FILE_BINARY_UPLOAD_MAX_LENGTH, Long.class, DEFAULT_UPLOAD_MAX_LENGTH));
+        this.cache = new BinaryCache(config.getOrDefault(CONFIG_FILE_BINARY_CACHE_SIZE, Long.class, 0L),
+                config.getOrDefault(CONFIG_FILE_BINARY_CACHE_THRESHOLD, Long.class, DEFAULT_CACHE_THRESHOLD));
+
+        final String bulkPath = config.get(CONFIG_FILE_BINARY_BULK_PATH);
+        final int days = config.getOrDefault(CONFIG_FILE_BINARY_BULK_DAYS, Integer.class, 0);
+        this.tiers = new BinaryTiers(new File(basePath), nonNull(bulkPath) ? new File(bulkPath) : null,
+                config.getOrDefault(CONFIG_FILE_BINARY_BULK_SIZE, Long.class, 0L),
+                stream(config.getOrDefault(CONFIG_FILE_BINARY_BULK_MIME_TYPES, "").split(",")).map(String::trim)
+                    .filter(type -> !type.isEmpty()).map(String::toLowerCase).collect(toSet()),
+                days > 0 ? Duration.ofDays(days) : null);
+        final long expiry = config.getOrDefault(CONFIG_FILE_BINARY_UPLOAD_EXPIRY, Long.class, DEFAULT_UPLOAD_EXPIRY);
+        if (tiers.isMigrating() || expiry > 0L) {
+            this.maintenance = newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "trellis-binary-maintenance");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        } else {
+            this.maintenance = null;
+        }
+        if (tiers.isMigrating()) {
+            LOGGER.info("Moving unused binaries to {} after {} days", bulkPath, days);
+            final long interval = config.getOrDefault(CONFIG_FILE_BINARY_BULK_INTERVAL, Long.class,
+                    DEFAULT_BULK_INTERVAL);
+            maintenance.scheduleWithFixedDelay(tiers::migrate, interval, interval, MINUTES);
+        }
+        if (expiry > 0L) {
+            final Duration unused = Duration.ofHours(expiry);
+            maintenance.scheduleWithFixedDelay(() -> uploads.expire(unused), 0L, UPLOAD_EXPIRY_INTERVAL, MINUTES);
+        }
     }
 
     private FileBinaryService(final IdentifierService idService, final Configuration config) {
@@ -106,17 +225,21 @@ public class FileBinaryService implements BinaryService {
 
     @Override
     public CompletionStage<Binary> get(final IRI identifier) {
-        return supplyAsync(() -> new FileBinary(getFileFromIdentifier(identifier)));
+        return supplyAsync(() -> {
+            final String path = getPath(identifier);
+            tiers.used(path);
+            final File file = tiers.locate(path);
+            return new FileBinary(file, cache.get(identifier, file));
+        });
     }
 
     @Override
     public CompletionStage<Void> purgeContent(final IRI identifier) {
         return supplyAsync(() -> {
-            try {
-                delete(getFileFromIdentifier(identifier).toPath());
-            } catch (final IOException ex) {
-                LOGGER.warn("File could not deleted {}: {}", identifier, ex.getMessage());
+            if (!tiers.remove(getPath(identifier))) {
+                LOGGER.warn("File could not be deleted {}", identifier);
             }
+            cache.invalidate(identifier);
             return null;
         });
     }
@@ -124,29 +247,121 @@ public class FileBinaryService implements BinaryService {
     @Override
     public CompletionStage<Void> setContent(final BinaryMetadata metadata, final InputStream stream) {
         requireNonNull(stream, "InputStream may not be null!");
-        return supplyAsync(() -> {
-            final File file = getFileFromIdentifier(metadata.getIdentifier());
+        return completedFuture(metadata.getIdentifier()).thenApply(this::getPath).thenCompose(path -> {
+            final File file = tiers.place(path, metadata);
             LOGGER.debug("Setting binary content for {} at {}", metadata.getIdentifier(), file.getAbsolutePath());
-            try (final InputStream input = stream) {
-                final File parent = file.getParentFile();
-                parent.mkdirs();
-                copy(stream, file.toPath(), REPLACE_EXISTING);
-            } catch (final IOException ex) {
-                throw new UncheckedIOException("Error while setting content for " + metadata.getIdentifier(), ex);
-            }
-            return null;
+            return ingest.ingest(stream, file.toPath()).thenRun(() -> tiers.placed(path, file));
+        }).whenComplete((result, err) -> cache.invalidate(metadata.getIdentifier()));
+    }
+
+    @Override
+    public CompletionStage<String> initiateUpload(final IRI resource, final IRI agent, final BinaryMetadata metadata,
+            final long length) {
+        return uploads.initiate(resource, agent, metadata, length);
+    }
+
+    @Override
+    public CompletionStage<Long> uploadChunk(final IRI resource, final IRI agent, final String uploadId,
+            final long offset, final long length, final long total, final InputStream stream) {
+        requireNonNull(stream, "InputStream may not be null!");
+        return uploads.write(resource, agent, uploadId, offset, length, total, stream);
+    }
+
+    @Override
+    public CompletionStage<SortedMap<Long, Long>> uploadedRanges(final IRI resource, final IRI agent,
+            final String uploadId) {
+        return uploads.ranges(resource, agent, uploadId);
+    }
+
+    @Override
+    public CompletionStage<BinaryMetadata> completeUpload(final IRI resource, final IRI agent,
+            final String uploadId) {
+        return uploads.complete(resource, agent, uploadId).thenApply(binary -> {
+            final String path = getPath(binary.getIdentifier());
+            tiers.placed(path, new File(basePath, path));
+            cache.invalidate(binary.getIdentifier());
+            return binary;
         });
     }
 
+    @Override
+    public CompletionStage<Void> abortUpload(final IRI resource, final IRI agent, final String uploadId) {
+        return uploads.abort(resource, agent, uploadId);
+    }
+
+    /**
+     * Get the proportion of binary reads that were served from memory.
+     * @return the cache hit ratio, between 0 and 1
+     */
+    public double getCacheHitRatio() {
+        return cache.getHitRatio();
+    }
+
+    /**
+     * Get the amount of memory used to cache binary content.
+     * @return the number of cached bytes
+     */
+    public long getCacheMemoryUsage() {
+        return cache.getMemoryUsage();
+    }
+
+    /**
+     * Move binaries that have not been used recently to the bulk storage tier now, rather than waiting for
+     * the next scheduled run.
+     */
+    public void migrate() {
+        tiers.migrate();
+    }
+
+    /**
+     * Get the number of binaries that have been moved to the bulk storage tier.
+     * @return the number of migrated binaries
+     */
+    public long getMigratedBinaries() {
+        return tiers.getMigrated();
+    }
+
+    /**
+     * Get the number of bytes that have been moved to the bulk storage tier.
+     * @return the size of the migrated binaries
+     */
+    public long getMigratedBytes() {
+        return tiers.getMigratedBytes();
+    }
+
+    /**
+     * Get the number of bytes that have been received from clients but not yet written to disk.
+     * @return the number of in-flight bytes
+     */
+    public long getIngestInFlightBytes() {
+        return ingest.getInFlightBytes();
+    }
+
+    /**
+     * Get the total number of bytes written to disk.
+     * @return the number of ingested bytes
+     */
+    public long getIngestedBytes() {
+        return ingest.getIngestedBytes();
+    }
+
+    /**
+     * Get the rate at which binary content has been written to disk over the last few seconds.
+     * @return the ingest rate, in bytes per second
+     */
+    public long getIngestBytesPerSecond() {
+        return ingest.getBytesPerSecond();
+    }
+
     @Override
     public String generateIdentifier() {
         return idSupplier.get();
     }
 
-    private File getFileFromIdentifier(final IRI identifier) {
+    private static String getPath(final IRI identifier) {
         requireNonNull(identifier, "Identifier may not be null!");
         return of(identifier).map(IRI::getIRIString).filter(x -> x.startsWith("file:")).map(URI::create)
-            .map(URI::getSchemeSpecificPart).map(x -> trimStart(x, "/")).map(x -> new File(basePath, x))
+            .map(URI::getSchemeSpecificPart).map(x -> trimStart(x, "/"))
             .orElseThrow(() -> new IllegalArgumentException("Could not create File object from IRI: " + identifier));
     }
 
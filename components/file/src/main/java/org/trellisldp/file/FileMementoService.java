@@ -13,35 +13,90 @@
  */
 package org.trellisldp.file;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Instant.now;
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static java.util.Collections.emptySortedSet;
-import static java.util.Collections.unmodifiableSortedSet;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+import static org.trellisldp.vocabulary.RDF.type;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.tamaya.Configuration;
 import org.apache.tamaya.ConfigurationProvider;
 import org.slf4j.Logger;
 import org.trellisldp.api.MementoService;
 import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResourceService;
+import org.trellisldp.vocabulary.Trellis;
 
 /**
  * A file-based versioning system.
+ *
+ * <p>Mementos are stored as periodic full copies of a resource, with the versions in between stored
+ * as deltas against the preceding version. Retrieving a delta version replays the chain of deltas from
+ * the nearest full copy. Chains that exceed the configured snapshot interval are rewritten in the
+ * background. Unless disabled in the configuration, memento content is compressed on disk.
+ *
+ * <p>When write-behind is enabled, Mementos created from a {@link ResourceService} are recorded in a local,
+ * append-only journal and written by a pool of background workers. The content of the resource is captured
+ * when the Memento is requested and spooled, uncompressed, alongside the journal, so that each Memento holds
+ * the version it was requested for; the deltas, compression and index updates happen in the background.
+ * Writes of the same resource are applied in the order they were requested. Pending writes are replayed from
+ * the journal when the service starts. Forcing each journal entry to disk is optional, and adds two
+ * synchronous disk flushes to every write; {@code MementoWriteBehindBenchmark} compares the cost of each mode.
+ *
+ * <p>A content hash of the most recent Memento of each resource is kept alongside the index. When skipping
+ * unchanged content is enabled, a new Memento whose content matches that hash, ignoring the modification date
+ * and the audit trail, is skipped, and its datetime does not appear in the TimeMap.
+ *
+ * <p>A retention policy may be configured to limit the number of Mementos kept for each resource. When it is,
+ * a low-priority background task periodically visits each resource and removes the Mementos that the policy
+ * does not keep, rewriting any deltas that depended on them and replacing the index in a single step.
  */
 @Alternative
 public class FileMementoService implements MementoService {
@@ -49,9 +104,81 @@ public class FileMementoService implements MementoService {
     /** The configuration key controlling the base filesystem path for memento storage. **/
     public static final String CONFIG_FILE_MEMENTO_BASE_PATH = "trellis.file.memento.basepath";
 
+    /** The configuration key controlling how many memento indexes are held in memory. **/
+    public static final String CONFIG_FILE_MEMENTO_INDEX_CACHE_SIZE = "trellis.file.memento.index.cachesize";
+
+    /** The configuration key controlling how many versions may separate two full copies of a resource. **/
+    public static final String CONFIG_FILE_MEMENTO_SNAPSHOT_INTERVAL = "trellis.file.memento.snapshot.interval";
+
+    /** The configuration key controlling whether memento files are compressed. **/
+    public static final String CONFIG_FILE_MEMENTO_COMPRESSION = "trellis.file.memento.compression";
+
+    /** The configuration key controlling whether mementos are written in the background. **/
+    public static final String CONFIG_FILE_MEMENTO_WRITE_BEHIND = "trellis.file.memento.writebehind";
+
+    /** The configuration key controlling the number of background memento writers. **/
+    public static final String CONFIG_FILE_MEMENTO_WRITE_BEHIND_THREADS = "trellis.file.memento.writebehind.threads";
+
+    /** The configuration key controlling how many writes may be pending before callers wait for them. **/
+    public static final String CONFIG_FILE_MEMENTO_WRITE_BEHIND_MAX_PENDING
+        = "trellis.file.memento.writebehind.maxpending";
+
+    /** The configuration key controlling whether journal entries are forced to disk before a write is accepted. **/
+    public static final String CONFIG_FILE_MEMENTO_JOURNAL_SYNC = "trellis.file.memento.journal.sync";
+
+    /** The configuration key controlling whether Mementos of unchanged content are skipped. **/
+    public static final String CONFIG_FILE_MEMENTO_SKIP_UNCHANGED = "trellis.file.memento.skipunchanged";
+
+    /** The configuration key controlling how many of the most recent Mementos are always kept. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_KEEP_LAST = "trellis.file.memento.retention.keeplast";
+
+    /** The configuration key controlling the age, in days, within which all Mementos are kept. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_KEEP_DAYS = "trellis.file.memento.retention.keepdays";
+
+    /** The configuration key controlling the age, in days, beyond which one Memento per day is kept. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_DAILY = "trellis.file.memento.retention.daily";
+
+    /** The configuration key controlling the age, in days, beyond which one Memento per week is kept. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_WEEKLY = "trellis.file.memento.retention.weekly";
+
+    /** The configuration key controlling the age, in days, beyond which one Memento per month is kept. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_MONTHLY = "trellis.file.memento.retention.monthly";
+
+    /** The configuration key controlling the number of minutes between runs of the Memento pruner. **/
+    public static final String CONFIG_FILE_MEMENTO_RETENTION_INTERVAL = "trellis.file.memento.retention.interval";
+
+    /** The name of the write-behind journal in the base directory. **/
+    public static final String JOURNAL_FILE = "mementos.journal";
+
     private static final Logger LOGGER = getLogger(FileMementoService.class);
+    private static final JenaRDF rdf = new JenaRDF();
+    private static final int DEFAULT_INDEX_CACHE_SIZE = 1000;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 10;
+    private static final int LOCK_STRIPES = 64;
+    private static final String HASH_FILE = "mementos.hash";
+    /** The name of the directory, in the base directory, that holds the content of pending writes. **/
+    static final String SPOOL_DIRECTORY = "mementos.spool";
+    private static final int DEFAULT_WRITE_BEHIND_THREADS = 2;
+    private static final int DEFAULT_WRITE_BEHIND_MAX_PENDING = 10000;
+    private static final long DEFAULT_RETENTION_INTERVAL = 60L;
 
     private final File directory;
+    private final MementoIndex index;
+    private final int snapshotInterval;
+    private final boolean compress;
+    private final boolean skipUnchanged;
+    private final MementoRetention retention;
+    private final ScheduledExecutorService pruner;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Set<File> compacting = ConcurrentHashMap.newKeySet();
+    private final MementoJournal journal;
+    private final ExecutorService writers;
+    private final int maxPending;
+    private final Map<IRI, CompletableFuture<Void>> queued = new HashMap<>();
+    private final Map<Long, CompletableFuture<Void>> writes = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Instant> enqueued = new ConcurrentSkipListMap<>();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
 
     /**
      * Create a file-based memento service.
@@ -66,10 +193,95 @@ public class FileMementoService implements MementoService {
      * @param path the file path
      */
     public FileMementoService(final String path) {
+        this(path, ConfigurationProvider.getConfiguration()
+                .getOrDefault(CONFIG_FILE_MEMENTO_INDEX_CACHE_SIZE, Integer.class, DEFAULT_INDEX_CACHE_SIZE));
+    }
+
+    /**
+     * Create a file-based memento service.
+     * @param path the file path
+     * @param indexCacheSize the number of memento indexes to hold in memory
+     */
+    public FileMementoService(final String path, final int indexCacheSize) {
+        this(path, indexCacheSize, ConfigurationProvider.getConfiguration()
+                .getOrDefault(CONFIG_FILE_MEMENTO_SNAPSHOT_INTERVAL, Integer.class, DEFAULT_SNAPSHOT_INTERVAL));
+    }
+
+    /**
+     * Create a file-based memento service.
+     * @param path the file path
+     * @param indexCacheSize the number of memento indexes to hold in memory
+     * @param snapshotInterval the maximum number of versions between full copies of a resource;
+     *                         a value of 1 stores every version in full
+     */
+    public FileMementoService(final String path, final int indexCacheSize, final int snapshotInterval) {
         requireNonNull(path, "Memento base path is undefined!");
         LOGGER.info("Storing Mementos as files at {}", path);
         this.directory = new File(path);
+        this.index = new MementoIndex(indexCacheSize);
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        final Configuration config = ConfigurationProvider.getConfiguration();
+        this.compress = config.getOrDefault(CONFIG_FILE_MEMENTO_COMPRESSION, Boolean.class, Boolean.TRUE);
+        this.skipUnchanged = config.getOrDefault(CONFIG_FILE_MEMENTO_SKIP_UNCHANGED, Boolean.class, Boolean.FALSE);
+        this.maxPending = config.getOrDefault(CONFIG_FILE_MEMENTO_WRITE_BEHIND_MAX_PENDING, Integer.class,
+                DEFAULT_WRITE_BEHIND_MAX_PENDING);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
         init();
+
+        if (config.getOrDefault(CONFIG_FILE_MEMENTO_WRITE_BEHIND, Boolean.class, Boolean.FALSE)) {
+            LOGGER.info("Writing Mementos in the background");
+            this.journal = new MementoJournal(new File(directory, JOURNAL_FILE), new File(directory, SPOOL_DIRECTORY),
+                    config.getOrDefault(CONFIG_FILE_MEMENTO_JOURNAL_SYNC, Boolean.class, Boolean.FALSE));
+            this.writers = newFixedThreadPool(config.getOrDefault(CONFIG_FILE_MEMENTO_WRITE_BEHIND_THREADS,
+                        Integer.class, DEFAULT_WRITE_BEHIND_THREADS), runnable -> {
+                final Thread thread = new Thread(runnable, "trellis-memento-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            journal.recover().forEach(this::enqueue);
+        } else {
+            this.journal = null;
+            this.writers = null;
+        }
+
+        this.retention = new MementoRetention(config.getOrDefault(CONFIG_FILE_MEMENTO_RETENTION_KEEP_LAST,
+                    Integer.class, 0), days(config, CONFIG_FILE_MEMENTO_RETENTION_KEEP_DAYS),
+                days(config, CONFIG_FILE_MEMENTO_RETENTION_DAILY), days(config, CONFIG_FILE_MEMENTO_RETENTION_WEEKLY),
+                days(config, CONFIG_FILE_MEMENTO_RETENTION_MONTHLY));
+        if (retention.isEnabled()) {
+            final long interval = config.getOrDefault(CONFIG_FILE_MEMENTO_RETENTION_INTERVAL, Long.class,
+                    DEFAULT_RETENTION_INTERVAL);
+            LOGGER.info("Pruning Mementos every {} minutes", interval);
+            this.pruner = newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "trellis-memento-pruner");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            pruner.scheduleWithFixedDelay(this::sweep, interval, interval, MINUTES);
+        } else {
+            this.pruner = null;
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> put(final ResourceService resourceService, final IRI identifier) {
+        if (isNull(journal)) {
+            return MementoService.super.put(resourceService, identifier);
+        }
+
+        return resourceService.get(identifier).thenCompose(resource -> {
+            // The content is captured now, so that the background write stores this version and no later one
+            final CompletableFuture<Void> write = enqueue(journal.add(MementoSnapshot.of(resource),
+                        resource.getModified()));
+            if (enqueued.size() > maxPending) {
+                LOGGER.debug("Memento write-behind backlog exceeds {}, waiting for write", maxPending);
+                return write;
+            }
+            return completedFuture(null);
+        });
     }
 
     @Override
@@ -89,24 +301,69 @@ public class FileMementoService implements MementoService {
             if (!resourceDir.exists()) {
                 resourceDir.mkdirs();
             }
-            FileUtils.writeMemento(resourceDir, resource, time.truncatedTo(SECONDS));
+            final Instant mementoTime = time.truncatedTo(SECONDS);
+            final MementoSnapshot snapshot = MementoSnapshot.of(resource);
+            synchronized (lock(resourceDir)) {
+                final SortedSet<Instant> mementos = index.get(resourceDir);
+                final boolean latest = mementos.isEmpty() || !mementoTime.isBefore(mementos.last());
+                if (!mementos.isEmpty() && mementoTime.isAfter(mementos.last())) {
+                    if (skipUnchanged && snapshot.getHash().equals(readHash(resourceDir))) {
+                        LOGGER.debug("Skipping unchanged Memento for {} at {}", resource.getIdentifier(), mementoTime);
+                        skipped.increment();
+                        return;
+                    }
+                    final List<Instant> chain = chain(resourceDir, mementos, mementos.last());
+                    if (chain.size() < snapshotInterval) {
+                        FileUtils.writeDeltaMemento(resourceDir, snapshot, mementoTime,
+                                replay(resourceDir, resource.getIdentifier(), chain), compress);
+                    } else {
+                        FileUtils.writeCompactMemento(resourceDir, snapshot, mementoTime, compress);
+                    }
+                } else {
+                    // A full copy is written here, so a following delta must no longer depend on what it replaces
+                    rebaseSuccessor(resourceDir, resource.getIdentifier(), mementos, mementoTime);
+                    FileUtils.writeCompactMemento(resourceDir, snapshot, mementoTime, compress);
+                    delete(FileUtils.getDeltaFile(resourceDir, mementoTime));
+                }
+                index.add(resourceDir, mementoTime);
+                if (latest) {
+                    writeHash(resourceDir, snapshot.getHash());
+                }
+                // Neither the hash nor a rewritten or removed delta changes the datetimes in the index
+                index.touch(resourceDir);
+            }
         });
     }
 
+    /**
+     * Get the number of Mementos that were not written because the resource content had not changed.
+     * @return the number of skipped writes
+     */
+    public long getSkippedWrites() {
+        return skipped.sum();
+    }
+
     @Override
     public CompletionStage<Resource> get(final IRI identifier, final Instant time) {
         return supplyAsync(() -> {
             final Instant mementoTime = time.truncatedTo(SECONDS);
             final File resourceDir = FileUtils.getResourceDirectory(directory, identifier);
-            final File file = FileUtils.getNquadsFile(resourceDir, mementoTime);
-            if (file.exists()) {
-                return new FileResource(identifier, file);
-            }
-            final SortedSet<Instant> possible = listMementos(identifier).headSet(mementoTime);
+            final SortedSet<Instant> mementos = listMementos(identifier);
+            final SortedSet<Instant> possible = mementos.headSet(mementoTime.plusSeconds(1));
             if (possible.isEmpty()) {
                 return MISSING_RESOURCE;
             }
-            return new FileResource(identifier, FileUtils.getNquadsFile(resourceDir, possible.last()));
+            final File file = FileUtils.getMementoFile(resourceDir, possible.last());
+            if (!MementoFile.isDelta(file)) {
+                return new FileResource(identifier, file);
+            }
+            synchronized (lock(resourceDir)) {
+                final List<Instant> chain = chain(resourceDir, mementos, possible.last());
+                if (chain.size() > snapshotInterval) {
+                    compact(identifier);
+                }
+                return replay(resourceDir, identifier, chain);
+            }
         });
     }
 
@@ -115,25 +372,350 @@ public class FileMementoService implements MementoService {
         return supplyAsync(() -> listMementos(identifier));
     }
 
+    @Override
+    public CompletionStage<SortedSet<Instant>> mementos(final IRI identifier, final Instant from,
+            final Instant until) {
+        return supplyAsync(() -> {
+            // The index is already sorted, so a window is a view of it rather than a copy
+            if (until.isBefore(from)) {
+                return emptySortedSet();
+            }
+            final SortedSet<Instant> window = listMementos(identifier).tailSet(from);
+            return Instant.MAX.equals(until) ? window : window.headSet(until.plusNanos(1));
+        });
+    }
+
+    /**
+     * Wait for all currently pending background writes to complete.
+     * @return the completion stage representing that the pending writes have completed
+     */
+    public CompletionStage<Void> flush() {
+        return CompletableFuture.allOf(writes.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Get the number of background writes that have not yet completed.
+     * @return the number of pending writes
+     */
+    public int getPendingWrites() {
+        return enqueued.size();
+    }
+
+    /**
+     * Get the age of the oldest background write that has not yet completed.
+     * @return the write-behind lag, or zero if there are no pending writes
+     */
+    public Duration getWriteLag() {
+        final Map.Entry<Long, Instant> oldest = enqueued.firstEntry();
+        return isNull(oldest) ? Duration.ZERO : Duration.between(oldest.getValue(), now());
+    }
+
+    /**
+     * Remove the Mementos of a resource that the configured retention policy does not keep.
+     * @param identifier the resource identifier
+     * @return the completion stage representing that the operation has completed
+     */
+    public CompletionStage<Void> prune(final IRI identifier) {
+        return runAsync(() -> prune(FileUtils.getResourceDirectory(directory, identifier), identifier));
+    }
+
+    /**
+     * Get the number of Mementos removed by the retention policy.
+     * @return the number of pruned Mementos
+     */
+    public long getPrunedMementos() {
+        return pruned.sum();
+    }
+
+    /**
+     * Rewrite any delta chains for a resource that exceed the configured snapshot interval.
+     *
+     * <p>This is triggered in the background whenever a long delta chain is read, such as after the
+     * snapshot interval has been reduced.
+     * @param identifier the resource identifier
+     * @return the completion stage representing that the operation has completed
+     */
+    public CompletionStage<Void> compact(final IRI identifier) {
+        final File resourceDir = FileUtils.getResourceDirectory(directory, identifier);
+        if (!compacting.add(resourceDir)) {
+            return completedFuture(null);
+        }
+        return runAsync(() -> {
+            try {
+                synchronized (lock(resourceDir)) {
+                    compact(resourceDir, identifier);
+                }
+            } finally {
+                compacting.remove(resourceDir);
+            }
+        });
+    }
+
     private void init() {
         if (!directory.exists()) {
             directory.mkdirs();
         }
     }
 
+    private void sweep() {
+        // Each resource is pruned under its own lock, so that writes to other resources are not held up
+        try (final Stream<Path> files = Files.walk(directory.toPath())) {
+            files.filter(path -> MementoIndex.INDEX_FILE.equals(path.getFileName().toString()))
+                .map(path -> path.getParent().toFile()).forEach(resourceDir -> prune(resourceDir, null));
+        } catch (final IOException | UncheckedIOException ex) {
+            LOGGER.warn("Unable to prune Mementos in {}: {}", directory, ex.getMessage());
+        }
+    }
+
+    private void prune(final File resourceDir, final IRI identifier) {
+        synchronized (lock(resourceDir)) {
+            final SortedSet<Instant> mementos = index.get(resourceDir);
+            final SortedSet<Instant> keep = retention.retain(mementos, now());
+            if (keep.size() == mementos.size()) {
+                return;
+            }
+
+            final IRI id = nonNull(identifier) ? identifier
+                : identifierOf(FileUtils.getMementoFile(resourceDir, mementos.last())).orElse(null);
+            if (isNull(id)) {
+                LOGGER.warn("Unable to determine the resource for Mementos in {}", resourceDir);
+                return;
+            }
+            LOGGER.debug("Pruning {} Mementos of {}", mementos.size() - keep.size(), id);
+
+            // A kept delta that follows a removed Memento is rewritten as a full copy, before anything is removed
+            final Set<org.apache.jena.sparql.core.Quad> state = new LinkedHashSet<>();
+            boolean removed = false;
+            for (final Instant time : mementos) {
+                final File file = FileUtils.getMementoFile(resourceDir, time);
+                final boolean delta = MementoFile.isDelta(file);
+                if (delta) {
+                    apply(file, state);
+                } else {
+                    load(id, file, state);
+                }
+                if (!keep.contains(time)) {
+                    removed = true;
+                } else if (removed) {
+                    if (delta) {
+                        materialize(resourceDir, id, time, file, state);
+                    }
+                    removed = false;
+                }
+            }
+
+            // The index is rewritten last, so that after a crash in between it looks stale and is rebuilt
+            // from the remaining files, rather than listing Mementos that no longer exist
+            mementos.stream().filter(time -> !keep.contains(time))
+                .forEach(time -> deleteMemento(resourceDir, time));
+            index.replace(resourceDir, keep);
+            pruned.add(mementos.size() - keep.size());
+        }
+    }
+
     private SortedSet<Instant> listMementos(final IRI identifier) {
-        final File resourceDir = FileUtils.getResourceDirectory(directory, identifier);
-        if (!resourceDir.exists()) {
-            return emptySortedSet();
+        return index.get(FileUtils.getResourceDirectory(directory, identifier));
+    }
+
+    private CompletableFuture<Void> enqueue(final MementoJournal.Entry entry) {
+        final long id = entry.getSequence();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (queued) {
+            // A write waits for any earlier write of the same resource, so that versions are stored in order
+            final CompletableFuture<Void> previous = queued.put(entry.getIdentifier(), future);
+            enqueued.put(id, now());
+            writes.put(id, future);
+            (isNull(previous) ? completedFuture(null) : previous)
+                .whenCompleteAsync((result, err) -> write(entry, future), writers);
+        }
+        return future;
+    }
+
+    private void write(final MementoJournal.Entry entry, final CompletableFuture<Void> future) {
+        RuntimeException error = null;
+        try {
+            put(entry.getResource(), entry.getTime()).toCompletableFuture().join();
+        } catch (final RuntimeException ex) {
+            LOGGER.warn("Unable to store memento for {}: {}", entry.getIdentifier(), ex.getMessage());
+            error = ex;
+        }
+
+        // Bookkeeping happens before completion so that a flushed service reports no pending writes
+        try {
+            journal.complete(entry);
+        } finally {
+            synchronized (queued) {
+                queued.remove(entry.getIdentifier(), future);
+            }
+            enqueued.remove(entry.getSequence());
+            writes.remove(entry.getSequence());
+            if (isNull(error)) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private Object lock(final File resourceDir) {
+        return locks[Math.floorMod(resourceDir.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void compact(final File resourceDir, final IRI identifier) {
+        LOGGER.debug("Compacting memento deltas for {}", identifier);
+        final Set<org.apache.jena.sparql.core.Quad> state = new LinkedHashSet<>();
+        int length = 0;
+        for (final Instant time : index.get(resourceDir)) {
+            final File file = FileUtils.getMementoFile(resourceDir, time);
+            if (MementoFile.isDelta(file) && length < snapshotInterval) {
+                apply(file, state);
+                length++;
+            } else if (MementoFile.isDelta(file)) {
+                apply(file, state);
+                materialize(resourceDir, identifier, time, file, state);
+                length = 1;
+            } else {
+                load(identifier, file, state);
+                length = 1;
+            }
+        }
+        index.touch(resourceDir);
+    }
+
+    private void rebaseSuccessor(final File resourceDir, final IRI identifier, final SortedSet<Instant> mementos,
+            final Instant time) {
+        final SortedSet<Instant> later = mementos.tailSet(time.plusSeconds(1));
+        if (!later.isEmpty()) {
+            final File next = FileUtils.getMementoFile(resourceDir, later.first());
+            if (MementoFile.isDelta(next)) {
+                final Set<org.apache.jena.sparql.core.Quad> state = new LinkedHashSet<>();
+                for (final Instant version : chain(resourceDir, mementos, later.first())) {
+                    final File file = FileUtils.getMementoFile(resourceDir, version);
+                    if (MementoFile.isDelta(file)) {
+                        apply(file, state);
+                    } else {
+                        load(identifier, file, state);
+                    }
+                }
+                materialize(resourceDir, identifier, later.first(), next, state);
+            }
+        }
+    }
+
+    private void materialize(final File resourceDir, final IRI identifier, final Instant time,
+            final File delta, final Set<org.apache.jena.sparql.core.Quad> state) {
+        try {
+            MementoFile.write(FileUtils.getCompactFile(resourceDir, time),
+                    MementoFile.readHeader(delta).getServerManaged(), state.stream().map(rdf::asQuad), compress);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error writing resource version for " + identifier.getIRIString(), ex);
+        }
+        delete(delta);
+    }
+
+    private static List<Instant> chain(final File resourceDir, final SortedSet<Instant> mementos,
+            final Instant time) {
+        final Deque<Instant> chain = new ArrayDeque<>();
+        final Iterator<Instant> versions = new TreeSet<>(mementos.headSet(time.plusSeconds(1))).descendingIterator();
+        while (versions.hasNext()) {
+            final Instant version = versions.next();
+            chain.addFirst(version);
+            if (!MementoFile.isDelta(FileUtils.getMementoFile(resourceDir, version))) {
+                break;
+            }
+        }
+        return new ArrayList<>(chain);
+    }
+
+    private static Resource replay(final File resourceDir, final IRI identifier, final List<Instant> chain) {
+        final Set<org.apache.jena.sparql.core.Quad> state = new LinkedHashSet<>();
+        MementoFile.Header header = null;
+        for (final Instant version : chain) {
+            final File file = FileUtils.getMementoFile(resourceDir, version);
+            if (MementoFile.isDelta(file)) {
+                header = apply(file, state);
+            } else {
+                load(identifier, file, state);
+            }
+        }
+        if (isNull(header)) {
+            return new FileResource(identifier, FileUtils.getMementoFile(resourceDir, chain.get(chain.size() - 1)));
         }
+        final List<Quad> content = new ArrayList<>();
+        header.getServerManaged().stream().map(t -> rdf.createQuad(Trellis.PreferServerManaged, t.getSubject(),
+                    t.getPredicate(), t.getObject())).forEach(content::add);
+        state.stream().map(rdf::asQuad).forEach(content::add);
+        return new FileResource(identifier, content);
+    }
 
-        final SortedSet<Instant> instants = new TreeSet<>();
-        try (final Stream<Path> files = FileUtils.uncheckedList(resourceDir.toPath())) {
-            files.map(Path::toString).filter(path -> path.endsWith(".nq")).map(FilenameUtils::getBaseName)
-                .map(Long::parseLong).map(Instant::ofEpochSecond).map(t -> t.truncatedTo(SECONDS))
-                .forEach(instants::add);
+    private static void load(final IRI identifier, final File file,
+            final Set<org.apache.jena.sparql.core.Quad> state) {
+        state.clear();
+        try (final Stream<Quad> quads = new FileResource(identifier, file).stream()) {
+            quads.filter(FileUtils::notServerManaged).map(rdf::asJenaQuad).forEach(state::add);
         }
+    }
 
-        return unmodifiableSortedSet(instants);
+    private static MementoFile.Header apply(final File file, final Set<org.apache.jena.sparql.core.Quad> state) {
+        final MementoFile.Header header = MementoFile.readHeader(file);
+        MementoFile.removals(file, header).map(rdf::asJenaQuad).forEach(state::remove);
+        MementoFile.stream(file, header, graph -> true).map(rdf::asJenaQuad).forEach(state::add);
+        return header;
+    }
+
+    private static String readHash(final File resourceDir) {
+        final File file = new File(resourceDir, HASH_FILE);
+        if (file.exists()) {
+            try {
+                return new String(Files.readAllBytes(file.toPath()), UTF_8);
+            } catch (final IOException ex) {
+                LOGGER.warn("Unable to read memento content hash at {}: {}", file, ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static void writeHash(final File resourceDir, final String hash) {
+        final File file = new File(resourceDir, HASH_FILE);
+        try {
+            Files.write(file.toPath(), hash.getBytes(UTF_8));
+        } catch (final IOException ex) {
+            // Without a hash, the next Memento is always written, so this is not fatal
+            LOGGER.warn("Unable to write memento content hash at {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static Optional<IRI> identifierOf(final File file) {
+        if (MementoFile.isDelta(file)) {
+            return MementoFile.readHeader(file).getServerManaged().stream().filter(t -> type.equals(t.getPredicate()))
+                .map(Triple::getSubject).filter(IRI.class::isInstance).map(IRI.class::cast).findFirst();
+        }
+        try (final Stream<Triple> triples = new FileResource(null, file).stream(Trellis.PreferServerManaged)) {
+            return triples.filter(t -> type.equals(t.getPredicate())).map(Triple::getSubject)
+                .filter(IRI.class::isInstance).map(IRI.class::cast).findFirst();
+        }
+    }
+
+    private static Duration days(final Configuration config, final String key) {
+        final int days = config.getOrDefault(key, Integer.class, 0);
+        return days > 0 ? Duration.ofDays(days) : null;
+    }
+
+    private static void deleteMemento(final File resourceDir, final Instant time) {
+        // More than one file may exist for the same datetime, such as after a change of storage format
+        File file = FileUtils.getMementoFile(resourceDir, time);
+        while (file.exists()) {
+            if (!file.delete()) {
+                LOGGER.warn("Unable to delete memento file {}", file);
+                return;
+            }
+            file = FileUtils.getMementoFile(resourceDir, time);
+        }
+    }
+
+    private static void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Unable to delete memento file {}", file);
+        }
     }
 }
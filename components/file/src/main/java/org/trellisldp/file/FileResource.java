@@ -13,20 +13,35 @@
  */
 package org.trellisldp.file;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.lines;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Predicate.isEqual;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.empty;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.trellisldp.api.TrellisUtils.toQuad;
 import static org.trellisldp.vocabulary.RDF.type;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Literal;
@@ -50,17 +65,42 @@ public class FileResource implements Resource {
 
     private final File file;
     private final IRI identifier;
+    private final MementoFile.Header header;
+    private final List<Quad> content;
     private final Map<IRI, RDFTerm> data;
 
     /**
-     * Create a resource backed by an NQuads file.
+     * Create a resource backed by a memento file.
+     *
+     * <p>Both NQuads files and compact memento files are supported. For compact files, only the
+     * file header is read when the resource is created.
      * @param identifier the resource identifier
      * @param file the file
      */
     public FileResource(final IRI identifier, final File file) {
         this.identifier = identifier;
         this.file = file;
-        this.data = init(identifier, file);
+        if (MementoFile.isCompact(file)) {
+            this.header = MementoFile.readHeader(file);
+            this.data = init(identifier, header.getServerManaged().stream());
+        } else {
+            this.header = null;
+            this.data = init(identifier, serverManaged(fetchContent(identifier, file)));
+        }
+        this.content = null;
+    }
+
+    /**
+     * Create a resource from an in-memory copy of its content.
+     * @param identifier the resource identifier
+     * @param content the quads of the resource, including the server-managed quads
+     */
+    FileResource(final IRI identifier, final List<Quad> content) {
+        this.identifier = identifier;
+        this.file = null;
+        this.header = null;
+        this.content = unmodifiableList(content);
+        this.data = init(identifier, serverManaged(content.stream()));
     }
 
     @Override
@@ -111,6 +151,9 @@ public class FileResource implements Resource {
 
     @Override
     public boolean hasAcl() {
+        if (nonNull(header)) {
+            return header.hasGraph(Trellis.PreferAccessControl);
+        }
         try (final Stream<Triple> triples = stream(Trellis.PreferAccessControl)) {
             return triples.findFirst().isPresent();
         }
@@ -118,9 +161,28 @@ public class FileResource implements Resource {
 
     @Override
     public Stream<Quad> stream() {
+        if (nonNull(content)) {
+            return content.stream();
+        }
+        if (nonNull(header)) {
+            return concat(header.getServerManaged().stream().map(toQuad(Trellis.PreferServerManaged)),
+                    MementoFile.stream(file, header, graph -> true));
+        }
         return fetchContent(identifier, file);
     }
 
+    @Override
+    public Stream<Triple> stream(final Collection<IRI> graphNames) {
+        if (nonNull(header)) {
+            LOGGER.trace("Streaming triples for {} from {}", identifier, graphNames);
+            final Set<String> graphs = graphNames.stream().map(IRI::getIRIString).collect(toSet());
+            final Stream<Triple> serverManaged = graphNames.contains(Trellis.PreferServerManaged)
+                ? header.getServerManaged().stream() : Stream.empty();
+            return concat(serverManaged, MementoFile.stream(file, header, graphs::contains).map(Quad::asTriple));
+        }
+        return Resource.super.stream(graphNames);
+    }
+
     private Optional<IRI> asIRI(final IRI predicate) {
         return ofNullable(data.get(predicate)).filter(IRI.class::isInstance).map(IRI.class::cast);
     }
@@ -130,9 +192,13 @@ public class FileResource implements Resource {
             .map(Literal::getLexicalForm);
     }
 
-    private static Map<IRI, RDFTerm> init(final IRI identifier, final File file) {
-        try (final Stream<Triple> triples = fetchContent(identifier, file).filter(q ->
-                    q.getGraphName().filter(isEqual(Trellis.PreferServerManaged)).isPresent()).map(Quad::asTriple)) {
+    private static Stream<Triple> serverManaged(final Stream<Quad> quads) {
+        return quads.filter(q -> q.getGraphName().filter(isEqual(Trellis.PreferServerManaged)).isPresent())
+            .map(Quad::asTriple);
+    }
+
+    private static Map<IRI, RDFTerm> init(final IRI identifier, final Stream<Triple> serverManaged) {
+        try (final Stream<Triple> triples = serverManaged) {
             return triples.collect(toMap(t -> !t.getSubject().equals(identifier) && DC.modified.equals(t.getPredicate())
                         ? Time.hasTime : t.getPredicate(), Triple::getObject));
         }
@@ -141,10 +207,33 @@ public class FileResource implements Resource {
     private static Stream<Quad> fetchContent(final IRI identifier, final File file) {
         LOGGER.trace("Streaming quads for {}", identifier);
         try {
+            if (FileUtils.isGzipped(file)) {
+                return gzipLines(file).flatMap(FileUtils::parseQuad);
+            }
             return lines(file.toPath()).flatMap(FileUtils::parseQuad);
         } catch (final IOException ex) {
             LOGGER.warn("Could not read file at {}: {}", file, ex.getMessage());
         }
         return empty();
     }
+
+    private static Stream<String> gzipLines(final File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(input),
+                        UTF_8));
+            return reader.lines().onClose(() -> close(reader));
+        } catch (final IOException ex) {
+            input.close();
+            throw ex;
+        }
+    }
+
+    private static void close(final BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error closing memento file", ex);
+        }
+    }
 }
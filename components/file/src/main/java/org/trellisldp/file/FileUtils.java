@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.stream.Stream;
 import java.util.zip.CRC32;
@@ -70,6 +71,8 @@ public final class FileUtils {
     private static final Logger LOGGER = getLogger(FileUtils.class);
     private static final JenaRDF rdf = new JenaRDF();
     private static final String SEP = " ";
+    private static final String NQUADS_EXT = ".nq";
+    private static final String GZIP_EXT = ".gz";
 
     // The length of the CRC directory partition
     public static final int LENGTH = 2;
@@ -162,6 +165,61 @@ public final class FileUtils {
             throw new UncheckedIOException(
                             "Error writing resource version for " + resource.getIdentifier().getIRIString(), ex);
         }
+        // A compact file for the same datetime would otherwise shadow the one just written
+        delete(getCompactFile(resourceDir, time));
+        delete(getDeltaFile(resourceDir, time));
+    }
+
+    /**
+     * Write a Memento to a particular resource directory, using the compact memento format.
+     * @param resourceDir the resource directory
+     * @param resource the resource
+     * @param time the time for the memento
+     * @param compress whether to compress the memento content
+     */
+    public static void writeCompactMemento(final File resourceDir, final Resource resource,
+            final Instant time, final boolean compress) {
+        writeCompactMemento(resourceDir, MementoSnapshot.of(resource), time, compress);
+    }
+
+    static void writeCompactMemento(final File resourceDir, final MementoSnapshot snapshot, final Instant time,
+            final boolean compress) {
+        try {
+            MementoFile.write(getCompactFile(resourceDir, time), snapshot.getServerManaged(),
+                    snapshot.getQuads().stream().map(rdf::asQuad), compress);
+            deleteNquads(resourceDir, time);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                            "Error writing resource version for " + snapshot.getIdentifier().getIRIString(), ex);
+        }
+    }
+
+    /**
+     * Write a Memento to a particular resource directory as a delta against the previous version.
+     * @param resourceDir the resource directory
+     * @param resource the resource
+     * @param time the time for the memento
+     * @param previous the previous version of the resource
+     * @param compress whether to compress the memento content
+     */
+    public static void writeDeltaMemento(final File resourceDir, final Resource resource, final Instant time,
+            final Resource previous, final boolean compress) {
+        writeDeltaMemento(resourceDir, MementoSnapshot.of(resource), time, previous, compress);
+    }
+
+    static void writeDeltaMemento(final File resourceDir, final MementoSnapshot snapshot, final Instant time,
+            final Resource previous, final boolean compress) {
+        final Set<org.apache.jena.sparql.core.Quad> before = MementoSnapshot.quads(previous);
+        final Set<org.apache.jena.sparql.core.Quad> after = snapshot.getQuads();
+        try {
+            MementoFile.write(getDeltaFile(resourceDir, time), snapshot.getServerManaged(),
+                    after.stream().filter(q -> !before.contains(q)).map(rdf::asQuad),
+                    before.stream().filter(q -> !after.contains(q)).map(rdf::asQuad), compress);
+            deleteNquads(resourceDir, time);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                            "Error writing resource delta for " + snapshot.getIdentifier().getIRIString(), ex);
+        }
     }
 
     /**
@@ -196,10 +254,88 @@ public final class FileUtils {
      * @return the file
      */
     public static File getNquadsFile(final File dir, final Instant time) {
-        return new File(dir, Long.toString(time.getEpochSecond()) + ".nq");
+        return new File(dir, Long.toString(time.getEpochSecond()) + NQUADS_EXT);
+    }
+
+    /**
+     * Get the compact memento file for a given moment in time.
+     * @param dir the directory
+     * @param time the time
+     * @return the file
+     */
+    public static File getCompactFile(final File dir, final Instant time) {
+        return new File(dir, Long.toString(time.getEpochSecond()) + MementoFile.EXTENSION);
+    }
+
+    /**
+     * Get the memento delta file for a given moment in time.
+     * @param dir the directory
+     * @param time the time
+     * @return the file
+     */
+    public static File getDeltaFile(final File dir, final Instant time) {
+        return new File(dir, Long.toString(time.getEpochSecond()) + MementoFile.DELTA_EXTENSION);
+    }
+
+    /**
+     * Get the memento file for a given moment in time, in whichever format it was stored.
+     *
+     * <p>Compact files take precedence over N-Quads files, which may be GZIP-compressed in place,
+     * and full copies of a resource are preferred over deltas when both exist.
+     * @param dir the directory
+     * @param time the time
+     * @return the file
+     */
+    public static File getMementoFile(final File dir, final Instant time) {
+        final File compact = getCompactFile(dir, time);
+        if (compact.exists()) {
+            return compact;
+        }
+        final File delta = getDeltaFile(dir, time);
+        if (delta.exists()) {
+            return delta;
+        }
+        final File nquads = getNquadsFile(dir, time);
+        if (nquads.exists()) {
+            return nquads;
+        }
+        final File gzipped = new File(dir, nquads.getName() + GZIP_EXT);
+        return gzipped.exists() ? gzipped : compact;
+    }
+
+    private static void deleteNquads(final File dir, final Instant time) {
+        // An N-Quads file left from before the compact format would hold stale content for this datetime
+        final File nquads = getNquadsFile(dir, time);
+        delete(nquads);
+        delete(new File(dir, nquads.getName() + GZIP_EXT));
+    }
+
+    private static void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Unable to delete memento file {}", file);
+        }
+    }
+
+    /**
+     * Test whether a file holds GZIP-compressed data.
+     * @param file the file
+     * @return true if the file is GZIP-compressed; false otherwise
+     */
+    public static boolean isGzipped(final File file) {
+        return file.getName().endsWith(GZIP_EXT);
+    }
+
+    /**
+     * Test whether a path refers to a memento file.
+     * @param path the path
+     * @return true if the path is a memento file in any supported format; false otherwise
+     */
+    public static boolean isMementoFile(final String path) {
+        return path.endsWith(NQUADS_EXT) || path.endsWith(NQUADS_EXT + GZIP_EXT)
+            || path.endsWith(MementoFile.EXTENSION) || path.endsWith(MementoFile.DELTA_EXTENSION);
     }
 
-    private static Stream<Quad> generateServerManaged(final Resource resource) {
+    static Stream<Quad> generateServerManaged(final Resource resource) {
         final List<Quad> quads = new ArrayList<>();
 
         quads.add(rdf.createQuad(PreferServerManaged, resource.getIdentifier(), type, resource.getInteractionModel()));
@@ -235,7 +371,7 @@ public final class FileUtils {
         return quads.stream();
     }
 
-    private static boolean notServerManaged(final Quad quad) {
+    static boolean notServerManaged(final Quad quad) {
         return !quad.getGraphName().filter(isEqual(PreferServerManaged)).isPresent();
     }
 
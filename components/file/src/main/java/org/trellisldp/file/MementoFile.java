@@ -0,0 +1,604 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Stream.empty;
+import static org.apache.jena.sparql.core.Quad.create;
+import static org.apache.jena.sparql.core.Quad.defaultGraphIRI;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * A compact, binary serialization of a Memento resource.
+ *
+ * <p>The file begins with a small header holding the server-managed triples and an offset table for each
+ * named graph, followed by a dictionary of every distinct RDF term in the resource. The remainder of the
+ * file consists of one block per named graph, in which each triple is stored as three dictionary indexes.
+ * The dictionary and each graph block may be compressed individually with the DEFLATE algorithm, which
+ * leaves the header readable on its own and keeps each graph addressable.
+ * Resource metadata can be loaded by reading only the header, and a single graph can be streamed by
+ * seeking directly to its block.
+ *
+ * <p>The same layout is used for deltas between versions, in which the graph blocks hold only the added
+ * quads, followed by blocks of the removed quads.
+ *
+ * <p>A compact memento file is limited to 2GB; a larger resource cannot be written in this format.
+ */
+final class MementoFile {
+
+    /** The file extension used for compact memento files. **/
+    public static final String EXTENSION = ".nqb";
+
+    /** The file extension used for compact memento deltas. **/
+    public static final String DELTA_EXTENSION = ".nqd";
+
+    private static final JenaRDF rdf = new JenaRDF();
+    private static final int MAGIC = 0x54524c4d;
+    private static final byte UNCOMPRESSED = 1;
+    private static final byte COMPRESSED = 2;
+    private static final int PREAMBLE = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+    private static final byte IRI_TERM = 0;
+    private static final byte BLANK_TERM = 1;
+    private static final byte TYPED_LITERAL = 2;
+    private static final byte LANG_LITERAL = 3;
+    private static final int TRIPLE_BYTES = 3 * Integer.BYTES;
+    // Files are read through a single buffer, so every position must fit in an int
+    private static final long MAX_LENGTH = Integer.MAX_VALUE;
+    private static final String DEFAULT_GRAPH = "";
+    // Graph names are absolute IRIs, so this prefix cannot collide with a real graph name
+    private static final String REMOVED = "-";
+
+    /**
+     * Test whether a file uses the compact memento format.
+     * @param file the file
+     * @return true if the file is a compact memento; false otherwise
+     */
+    static boolean isCompact(final File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Test whether a file is a compact memento delta.
+     * @param file the file
+     * @return true if the file is a memento delta; false otherwise
+     */
+    static boolean isDelta(final File file) {
+        return file.getName().endsWith(DELTA_EXTENSION);
+    }
+
+    /**
+     * Write a compact memento file.
+     * @param file the target file
+     * @param serverManaged the server-managed triples, stored in the header
+     * @param quads the remaining quads of the resource
+     * @param compress whether to compress the dictionary and graph blocks
+     * @throws IOException if the file could not be written
+     */
+    static void write(final File file, final List<Triple> serverManaged, final Stream<Quad> quads,
+            final boolean compress) throws IOException {
+        write(file, serverManaged, quads, empty(), compress);
+    }
+
+    /**
+     * Write a compact memento delta file.
+     *
+     * <p>A delta has the same layout as a full memento: the header holds the complete set of server-managed
+     * triples, while the graph blocks hold only the quads added since the previous version along with
+     * separate blocks for the quads that were removed.
+     * @param file the target file
+     * @param serverManaged the server-managed triples, stored in the header
+     * @param additions the quads added since the previous version
+     * @param removals the quads removed since the previous version
+     * @param compress whether to compress the dictionary and graph blocks
+     * @throws IOException if the file could not be written
+     */
+    static void write(final File file, final List<Triple> serverManaged, final Stream<Quad> additions,
+            final Stream<Quad> removals, final boolean compress) throws IOException {
+        final Map<Node, Integer> dictionary = new HashMap<>();
+        final List<Node> terms = new ArrayList<>();
+        final Map<String, GraphBlock> blocks = new LinkedHashMap<>();
+
+        addQuads(blocks, dictionary, terms, additions.iterator(), "");
+        addQuads(blocks, dictionary, terms, removals.iterator(), REMOVED);
+
+        final ByteArrayOutputStream dict = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(dict)) {
+            out.writeInt(terms.size());
+            for (final Node term : terms) {
+                writeNode(out, term);
+            }
+        }
+        final byte[] dictData = compress ? deflate(dict.toByteArray()) : dict.toByteArray();
+        for (final GraphBlock block : blocks.values()) {
+            block.data = compress ? deflate(block.bytes.toByteArray()) : block.bytes.toByteArray();
+        }
+
+        // The header length does not depend on the offset values, so it can be computed up front
+        final int headerLength = header(serverManaged, blocks, 0L, compress).length;
+        final int dictLength = compress ? 2 * Integer.BYTES + dictData.length : dictData.length;
+        final byte[] header = header(serverManaged, blocks, PREAMBLE + headerLength + dictLength, compress);
+        long fileLength = (long) PREAMBLE + header.length + dictLength;
+        for (final GraphBlock block : blocks.values()) {
+            fileLength += block.data.length;
+        }
+        if (fileLength > MAX_LENGTH) {
+            throw new IOException("Memento of " + fileLength + " bytes exceeds the compact format limit: " + file);
+        }
+
+        final Path tmp = new File(file.getParentFile(), file.getName() + ".tmp").toPath();
+        try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeByte(compress ? COMPRESSED : UNCOMPRESSED);
+            out.writeInt(header.length);
+            out.write(header);
+            if (compress) {
+                out.writeInt(dict.size());
+                out.writeInt(dictData.length);
+            }
+            out.write(dictData);
+            for (final GraphBlock block : blocks.values()) {
+                out.write(block.data);
+            }
+        }
+        Files.move(tmp, file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the header of a compact memento file.
+     * @param file the file
+     * @return the header
+     */
+    static Header readHeader(final File file) {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            final ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE);
+            readFully(channel, preamble, 0L);
+            if (preamble.getInt(0) != MAGIC) {
+                throw new IOException("Invalid memento file: " + file);
+            }
+            final byte version = preamble.get(Integer.BYTES);
+            if (version != UNCOMPRESSED && version != COMPRESSED) {
+                throw new IOException("Unsupported memento file version " + version + ": " + file);
+            }
+            final boolean compressed = version == COMPRESSED;
+            final ByteBuffer buffer = ByteBuffer.allocate(preamble.getInt(Integer.BYTES + Byte.BYTES));
+            readFully(channel, buffer, PREAMBLE);
+
+            final List<Triple> serverManaged = new ArrayList<>();
+            final int tripleCount = buffer.getInt();
+            for (int i = 0; i < tripleCount; i++) {
+                serverManaged.add(rdf.asTriple(org.apache.jena.graph.Triple.create(readNode(buffer),
+                                readNode(buffer), readNode(buffer))));
+            }
+
+            final Map<String, Block> graphs = new LinkedHashMap<>();
+            final int graphCount = buffer.getInt();
+            for (int i = 0; i < graphCount; i++) {
+                final String name = readString(buffer);
+                final long offset = buffer.getLong();
+                final int count = buffer.getInt();
+                graphs.put(name, new Block(offset, count, compressed ? buffer.getInt() : count * TRIPLE_BYTES));
+            }
+            return new Header(PREAMBLE + buffer.capacity(), compressed, serverManaged, graphs);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error reading memento header from " + file, ex);
+        }
+    }
+
+    /**
+     * Stream the quads from a compact memento file.
+     * @param file the file
+     * @param header the file header
+     * @param graphFilter a filter for the graph names to read
+     * @return a stream of quads
+     */
+    static Stream<Quad> stream(final File file, final Header header, final Predicate<String> graphFilter) {
+        return stream(file, header, graph -> !graph.startsWith(REMOVED) && graphFilter.test(graph), identity());
+    }
+
+    /**
+     * Stream the quads removed by a compact memento delta.
+     * @param file the file
+     * @param header the file header
+     * @return a stream of the removed quads
+     */
+    static Stream<Quad> removals(final File file, final Header header) {
+        return stream(file, header, graph -> graph.startsWith(REMOVED), graph -> graph.substring(REMOVED.length()));
+    }
+
+    private static Stream<Quad> stream(final File file, final Header header, final Predicate<String> blockFilter,
+            final Function<String, String> graphName) {
+        final List<Map.Entry<String, Block>> selected = new ArrayList<>();
+        header.getGraphs().entrySet().stream().filter(e -> blockFilter.test(e.getKey())).forEach(selected::add);
+        if (selected.isEmpty()) {
+            return empty();
+        }
+
+        final MappedByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            if (channel.size() > MAX_LENGTH) {
+                throw new IOException("Memento of " + channel.size() + " bytes exceeds the compact format limit");
+            }
+            buffer = channel.map(READ_ONLY, 0, channel.size());
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error reading memento from " + file, ex);
+        }
+
+        final ByteBuffer dictionary;
+        if (header.isCompressed()) {
+            buffer.position(header.getDictionaryOffset());
+            final int size = buffer.getInt();
+            final int length = buffer.getInt();
+            dictionary = inflate(buffer, buffer.position(), length, size);
+        } else {
+            dictionary = buffer.duplicate();
+            dictionary.position(header.getDictionaryOffset());
+        }
+        final Terms terms = new Terms(dictionary);
+
+        // Each block is decompressed only once the stream reaches it
+        return selected.stream().flatMap(entry -> {
+            final String name = graphName.apply(entry.getKey());
+            final Node graph = DEFAULT_GRAPH.equals(name) ? defaultGraphIRI : NodeFactory.createURI(name);
+            final Block location = entry.getValue();
+            final ByteBuffer block;
+            if (header.isCompressed()) {
+                block = inflate(buffer, location.getOffset(), location.getLength(), location.getCount() * TRIPLE_BYTES);
+            } else {
+                block = buffer.duplicate();
+                block.position(Math.toIntExact(location.getOffset()));
+            }
+            return IntStream.range(0, location.getCount()).mapToObj(i ->
+                    rdf.asQuad(create(graph, terms.get(block.getInt()), terms.get(block.getInt()),
+                            terms.get(block.getInt()))));
+        });
+    }
+
+    private static byte[] header(final List<Triple> serverManaged, final Map<String, GraphBlock> blocks,
+            final long start, final boolean compress) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(serverManaged.size());
+            for (final Triple triple : serverManaged) {
+                writeNode(out, rdf.asJenaNode(triple.getSubject()));
+                writeNode(out, rdf.asJenaNode(triple.getPredicate()));
+                writeNode(out, rdf.asJenaNode(triple.getObject()));
+            }
+            out.writeInt(blocks.size());
+            long offset = start;
+            for (final Map.Entry<String, GraphBlock> block : blocks.entrySet()) {
+                writeString(out, block.getKey());
+                out.writeLong(offset);
+                out.writeInt(block.getValue().count);
+                if (compress) {
+                    out.writeInt(block.getValue().data.length);
+                }
+                offset += block.getValue().data.length;
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addQuads(final Map<String, GraphBlock> blocks, final Map<Node, Integer> dictionary,
+            final List<Node> terms, final Iterator<Quad> quads, final String prefix) throws IOException {
+        while (quads.hasNext()) {
+            final Quad quad = quads.next();
+            final String graph = quad.getGraphName().filter(IRI.class::isInstance).map(IRI.class::cast)
+                .map(IRI::getIRIString).orElse(DEFAULT_GRAPH);
+            final GraphBlock block = blocks.computeIfAbsent(prefix + graph, k -> new GraphBlock());
+            block.out.writeInt(termIndex(dictionary, terms, quad.getSubject()));
+            block.out.writeInt(termIndex(dictionary, terms, quad.getPredicate()));
+            block.out.writeInt(termIndex(dictionary, terms, quad.getObject()));
+            block.count++;
+        }
+    }
+
+    private static byte[] deflate(final byte[] data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater();
+        try (final DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer inflate(final ByteBuffer source, final long offset, final int length,
+            final int size) {
+        final byte[] input = new byte[length];
+        final ByteBuffer slice = source.duplicate();
+        slice.position(Math.toIntExact(offset));
+        slice.get(input);
+
+        final byte[] output = new byte[size];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int position = 0;
+            while (position < size) {
+                final int read = inflater.inflate(output, position, size - position);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated compressed data in memento file");
+                }
+                position += read;
+            }
+        } catch (final DataFormatException ex) {
+            throw new IllegalStateException("Invalid compressed data in memento file", ex);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output);
+    }
+
+    private static int termIndex(final Map<Node, Integer> dictionary, final List<Node> terms, final RDFTerm term) {
+        return dictionary.computeIfAbsent(rdf.asJenaNode(term), node -> {
+            terms.add(node);
+            return terms.size() - 1;
+        });
+    }
+
+    private static void writeNode(final DataOutputStream out, final Node node) throws IOException {
+        if (node.isURI()) {
+            out.writeByte(IRI_TERM);
+            writeString(out, node.getURI());
+        } else if (node.isBlank()) {
+            out.writeByte(BLANK_TERM);
+            writeString(out, node.getBlankNodeLabel());
+        } else if (isNull(node.getLiteralLanguage()) || node.getLiteralLanguage().isEmpty()) {
+            out.writeByte(TYPED_LITERAL);
+            writeString(out, node.getLiteralLexicalForm());
+            writeString(out, node.getLiteralDatatypeURI());
+        } else {
+            out.writeByte(LANG_LITERAL);
+            writeString(out, node.getLiteralLexicalForm());
+            writeString(out, node.getLiteralLanguage());
+        }
+    }
+
+    private static Node readNode(final ByteBuffer buffer) {
+        final byte type = buffer.get();
+        switch (type) {
+            case IRI_TERM:
+                return NodeFactory.createURI(readString(buffer));
+            case BLANK_TERM:
+                return NodeFactory.createBlankNode(readString(buffer));
+            case TYPED_LITERAL:
+                return NodeFactory.createLiteral(readString(buffer), TypeMapper.getInstance()
+                        .getSafeTypeByName(readString(buffer)));
+            case LANG_LITERAL:
+                return NodeFactory.createLiteral(readString(buffer), readString(buffer));
+            default:
+                throw new IllegalStateException("Invalid term type in memento file: " + type);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void skipNode(final ByteBuffer buffer) {
+        final byte type = buffer.get();
+        skipString(buffer);
+        if (type == TYPED_LITERAL || type == LANG_LITERAL) {
+            skipString(buffer);
+        }
+    }
+
+    private static void skipString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of memento file");
+            }
+            pos += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * The header of a compact memento file.
+     */
+    static final class Header {
+        private final int dictionaryOffset;
+        private final boolean compressed;
+        private final List<Triple> serverManaged;
+        private final Map<String, Block> graphs;
+
+        private Header(final int dictionaryOffset, final boolean compressed, final List<Triple> serverManaged,
+                final Map<String, Block> graphs) {
+            this.dictionaryOffset = dictionaryOffset;
+            this.compressed = compressed;
+            this.serverManaged = unmodifiableList(serverManaged);
+            this.graphs = unmodifiableMap(graphs);
+        }
+
+        /**
+         * Get the position of the term dictionary.
+         * @return the dictionary offset
+         */
+        int getDictionaryOffset() {
+            return dictionaryOffset;
+        }
+
+        /**
+         * Test whether the dictionary and graph blocks are compressed.
+         * @return true if the file content is compressed; false otherwise
+         */
+        boolean isCompressed() {
+            return compressed;
+        }
+
+        /**
+         * Get the server-managed triples.
+         * @return the server-managed triples
+         */
+        List<Triple> getServerManaged() {
+            return serverManaged;
+        }
+
+        /**
+         * Get the graph blocks, keyed by graph name.
+         * @return the graph blocks
+         */
+        Map<String, Block> getGraphs() {
+            return graphs;
+        }
+
+        /**
+         * Test whether a graph contains any triples.
+         * @param graphName the graph name
+         * @return true if the graph has content; false otherwise
+         */
+        boolean hasGraph(final IRI graphName) {
+            final Block block = graphs.get(graphName.getIRIString());
+            return nonNull(block) && block.getCount() > 0;
+        }
+    }
+
+    /**
+     * The location of a graph block in a compact memento file.
+     */
+    static final class Block {
+        private final long offset;
+        private final int count;
+        private final int length;
+
+        private Block(final long offset, final int count, final int length) {
+            this.offset = offset;
+            this.count = count;
+            this.length = length;
+        }
+
+        /**
+         * Get the absolute file position of this block.
+         * @return the offset
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Get the number of triples in this block.
+         * @return the triple count
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the number of bytes that this block occupies in the file.
+         * @return the stored length
+         */
+        int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * The term dictionary of a compact memento file, from which terms are decoded only when they are used.
+     */
+    private static final class Terms {
+        private final ByteBuffer dictionary;
+        private final int[] positions;
+        private final Node[] terms;
+
+        private Terms(final ByteBuffer dictionary) {
+            this.dictionary = dictionary;
+            this.positions = new int[dictionary.getInt()];
+            this.terms = new Node[positions.length];
+            // Only the term boundaries are found here, so a single graph does not pay for every term
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = dictionary.position();
+                skipNode(dictionary);
+            }
+        }
+
+        private Node get(final int index) {
+            if (isNull(terms[index])) {
+                final ByteBuffer term = dictionary.duplicate();
+                term.position(positions[index]);
+                terms[index] = readNode(term);
+            }
+            return terms[index];
+        }
+    }
+
+    private static final class GraphBlock {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+        private byte[] data;
+    }
+
+    private MementoFile() {
+        // prevent instantiation
+    }
+}
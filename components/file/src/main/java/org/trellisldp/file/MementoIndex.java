@@ -0,0 +1,245 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static java.util.Collections.emptySortedSet;
+import static java.util.Collections.unmodifiableSortedSet;
+import static java.util.Objects.nonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+
+/**
+ * A per-resource index of Memento datetimes.
+ *
+ * <p>Each resource directory holds a compact index file consisting of the sorted epoch seconds of
+ * every Memento, stored as 8-byte values. New Mementos are appended to the file, and reads load the
+ * file rather than listing and parsing the contents of the directory. An index that is older than its
+ * directory may have missed a Memento, such as after a crash between writing the Memento and recording
+ * it, so it is rebuilt from the directory listing. Routine changes that leave the Memento datetimes as
+ * they are, such as rewriting a delta as a full copy, mark the index as current again so that they do not
+ * cause a rebuild. A bounded, access-ordered cache holds the most recently used indexes.
+ */
+final class MementoIndex {
+
+    /** The name of the index file in each resource directory. **/
+    public static final String INDEX_FILE = "mementos.idx";
+
+    private static final Logger LOGGER = getLogger(MementoIndex.class);
+
+    private final Map<File, SortedSet<Instant>> cache;
+
+    /**
+     * Create a memento index.
+     * @param cacheSize the maximum number of resource indexes to hold in memory
+     */
+    MementoIndex(final int cacheSize) {
+        this.cache = new LinkedHashMap<File, SortedSet<Instant>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<File, SortedSet<Instant>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Get the Memento datetimes for a resource directory.
+     * @param resourceDir the resource directory
+     * @return the sorted Memento datetimes
+     */
+    SortedSet<Instant> get(final File resourceDir) {
+        synchronized (cache) {
+            final SortedSet<Instant> cached = cache.get(resourceDir);
+            if (nonNull(cached)) {
+                return cached;
+            }
+        }
+
+        if (!resourceDir.exists()) {
+            return emptySortedSet();
+        }
+
+        final SortedSet<Instant> instants = load(resourceDir);
+        synchronized (cache) {
+            final SortedSet<Instant> existing = cache.putIfAbsent(resourceDir, instants);
+            return nonNull(existing) ? existing : instants;
+        }
+    }
+
+    /**
+     * Record a new Memento datetime for a resource directory.
+     * @param resourceDir the resource directory
+     * @param time the Memento datetime
+     */
+    synchronized void add(final File resourceDir, final Instant time) {
+        final Instant mementoTime = time.truncatedTo(SECONDS);
+        final SortedSet<Instant> current = get(resourceDir);
+        if (current.contains(mementoTime)) {
+            return;
+        }
+
+        final SortedSet<Instant> updated = new TreeSet<>(current);
+        updated.add(mementoTime);
+        try {
+            if (current.isEmpty() || mementoTime.isAfter(current.last())) {
+                append(resourceDir, mementoTime);
+            } else {
+                // Out-of-order additions require a rewrite of the index
+                write(resourceDir, updated);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error updating memento index in " + resourceDir, ex);
+        }
+
+        synchronized (cache) {
+            cache.put(resourceDir, unmodifiableSortedSet(updated));
+        }
+    }
+
+    /**
+     * Replace the Memento datetimes for a resource directory.
+     * @param resourceDir the resource directory
+     * @param instants the complete set of Memento datetimes
+     */
+    synchronized void replace(final File resourceDir, final SortedSet<Instant> instants) {
+        try {
+            write(resourceDir, instants);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error rewriting memento index in " + resourceDir, ex);
+        }
+        synchronized (cache) {
+            cache.put(resourceDir, unmodifiableSortedSet(new TreeSet<>(instants)));
+        }
+    }
+
+    /**
+     * Record that the index of a resource directory is current, after files in the directory were added or
+     * removed without changing its Memento datetimes.
+     * @param resourceDir the resource directory
+     */
+    void touch(final File resourceDir) {
+        final File index = new File(resourceDir, INDEX_FILE);
+        if (index.exists()) {
+            stamp(resourceDir, index);
+        }
+    }
+
+    /**
+     * Remove a resource directory from the in-memory cache.
+     * @param resourceDir the resource directory
+     */
+    void invalidate(final File resourceDir) {
+        synchronized (cache) {
+            cache.remove(resourceDir);
+        }
+    }
+
+    private static SortedSet<Instant> load(final File resourceDir) {
+        final File index = new File(resourceDir, INDEX_FILE);
+        if (index.exists() && index.lastModified() >= resourceDir.lastModified()) {
+            try {
+                return unmodifiableSortedSet(read(index.toPath()));
+            } catch (final IOException ex) {
+                LOGGER.warn("Unable to read memento index at {}, rebuilding: {}", index, ex.getMessage());
+            }
+        }
+        return unmodifiableSortedSet(rebuild(resourceDir));
+    }
+
+    private static SortedSet<Instant> read(final Path index) throws IOException {
+        // An index holds a few bytes per Memento, so a plain read is cheaper than mapping it
+        final byte[] bytes = Files.readAllBytes(index);
+        final LongBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - bytes.length % Long.BYTES)
+            .asLongBuffer();
+        final SortedSet<Instant> instants = new TreeSet<>();
+        while (buffer.hasRemaining()) {
+            instants.add(Instant.ofEpochSecond(buffer.get()));
+        }
+        return instants;
+    }
+
+    private static SortedSet<Instant> rebuild(final File resourceDir) {
+        LOGGER.debug("Building memento index for {}", resourceDir);
+        final SortedSet<Instant> instants = new TreeSet<>();
+        try (final Stream<Path> files = FileUtils.uncheckedList(resourceDir.toPath())) {
+            files.map(Path::getFileName).map(Path::toString).filter(FileUtils::isMementoFile)
+                .map(name -> name.substring(0, name.indexOf('.'))).map(Long::parseLong)
+                .map(Instant::ofEpochSecond).forEach(instants::add);
+        }
+        try {
+            write(resourceDir, instants);
+        } catch (final IOException ex) {
+            LOGGER.warn("Unable to write memento index for {}: {}", resourceDir, ex.getMessage());
+        }
+        return instants;
+    }
+
+    private static void append(final File resourceDir, final Instant time) throws IOException {
+        try (final FileChannel channel = FileChannel.open(new File(resourceDir, INDEX_FILE).toPath(), CREATE,
+                    WRITE, APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, time.getEpochSecond());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void write(final File resourceDir, final SortedSet<Instant> instants) throws IOException {
+        final Path tmp = new File(resourceDir, INDEX_FILE + ".tmp").toPath();
+        final ByteBuffer buffer = ByteBuffer.allocate(instants.size() * Long.BYTES);
+        instants.forEach(time -> buffer.putLong(time.getEpochSecond()));
+        buffer.flip();
+        try (final FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        final File index = new File(resourceDir, INDEX_FILE);
+        Files.move(tmp, index.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        // The move updates the directory, which must not make the new index look stale
+        stamp(resourceDir, index);
+    }
+
+    private static void stamp(final File resourceDir, final File index) {
+        if (!index.setLastModified(Math.max(System.currentTimeMillis(), resourceDir.lastModified()))) {
+            LOGGER.debug("Unable to update the modification time of {}", index);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.nonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.slf4j.Logger;
+import org.trellisldp.api.Resource;
+
+/**
+ * An append-only journal of pending Memento writes.
+ *
+ * <p>The content of each queued write is first spooled to its own file, and the write is then recorded as a
+ * {@code +} entry holding its sequence number, Memento datetime and resource identifier. Each finished write is
+ * recorded as a {@code -} entry and its spooled content is removed. Entries without a matching completion are
+ * returned by {@link #recover} so that writes which were pending when the server stopped can be replayed from
+ * the content that was captured for them. The journal is truncated whenever no writes are outstanding.
+ */
+final class MementoJournal {
+
+    private static final Logger LOGGER = getLogger(MementoJournal.class);
+    private static final RDF rdf = new JenaRDF();
+    private static final String ADDED = "+ ";
+    private static final String COMPLETED = "- ";
+
+    private final File file;
+    private final File spool;
+    private final boolean sync;
+    private final AtomicLong sequence = new AtomicLong();
+    private int outstanding;
+
+    /**
+     * Create a memento journal.
+     * @param file the journal file
+     * @param spool the directory that holds the content of pending writes
+     * @param sync whether each entry is forced to the storage device before returning
+     */
+    MementoJournal(final File file, final File spool, final boolean sync) {
+        this.file = file;
+        this.spool = spool;
+        this.sync = sync;
+    }
+
+    /**
+     * Read the writes that were still outstanding when the journal was last used.
+     *
+     * <p>Spooled content that no outstanding entry refers to, such as that of a write that was never recorded,
+     * is removed.
+     * @return the outstanding writes, in journal order
+     */
+    synchronized List<Entry> recover() {
+        final Map<Long, Entry> entries = new LinkedHashMap<>();
+        if (file.exists()) {
+            try (final Stream<String> lines = Files.lines(file.toPath(), UTF_8)) {
+                lines.forEach(line -> {
+                    if (line.startsWith(ADDED)) {
+                        final Entry entry = parse(line.substring(ADDED.length()));
+                        if (nonNull(entry)) {
+                            entries.put(entry.sequence, entry);
+                        }
+                    } else if (line.startsWith(COMPLETED)) {
+                        parseSequence(line.substring(COMPLETED.length())).ifPresent(entries::remove);
+                    }
+                });
+            } catch (final IOException ex) {
+                throw new UncheckedIOException("Error reading memento journal at " + file, ex);
+            }
+        }
+
+        final List<Entry> pending = new ArrayList<>();
+        entries.values().forEach(entry -> {
+            sequence.accumulateAndGet(entry.sequence, Math::max);
+            if (entry.file.exists()) {
+                pending.add(entry);
+            } else {
+                LOGGER.warn("Missing content for pending memento write of {}", entry.identifier);
+            }
+        });
+        final File[] spooled = spool.listFiles();
+        if (nonNull(spooled)) {
+            for (final File orphan : spooled) {
+                if (pending.stream().noneMatch(entry -> entry.file.equals(orphan)) && !orphan.delete()) {
+                    LOGGER.warn("Unable to delete spooled memento content at {}", orphan);
+                }
+            }
+        }
+
+        outstanding = entries.size();
+        if (outstanding == 0) {
+            truncate();
+        } else {
+            // Writes whose content is missing can never be replayed, so they are completed here
+            entries.values().stream().filter(entry -> !pending.contains(entry)).forEach(this::complete);
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.info("Recovered {} pending memento writes from {}", pending.size(), file);
+        }
+        return pending;
+    }
+
+    /**
+     * Record a queued write.
+     *
+     * <p>The content is written to the spool before the entry is recorded, so that every recorded write
+     * can be replayed.
+     * @param snapshot the content of the resource
+     * @param time the time to which the Memento corresponds
+     * @return the journal entry
+     */
+    Entry add(final MementoSnapshot snapshot, final Instant time) {
+        final long id = sequence.incrementAndGet();
+        final Entry entry = new Entry(id, snapshot.getIdentifier(), time, new File(spool, id + MementoFile.EXTENSION));
+        try {
+            if (!spool.exists()) {
+                spool.mkdirs();
+            }
+            MementoFile.write(entry.file, snapshot.getServerManaged(),
+                    snapshot.getQuads().stream().map(rdf::asQuad), false);
+            if (sync) {
+                try (final FileChannel channel = FileChannel.open(entry.file.toPath(), WRITE)) {
+                    channel.force(true);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error spooling memento content for " + snapshot.getIdentifier(), ex);
+        }
+        synchronized (this) {
+            write(ADDED + id + " " + time + " " + entry.identifier.getIRIString() + "\n");
+            outstanding++;
+        }
+        return entry;
+    }
+
+    /**
+     * Record a finished write, and remove its spooled content.
+     * @param entry the journal entry
+     */
+    synchronized void complete(final Entry entry) {
+        outstanding = Math.max(0, outstanding - 1);
+        if (outstanding == 0) {
+            truncate();
+        } else {
+            write(COMPLETED + entry.sequence + "\n");
+        }
+        if (entry.file.exists() && !entry.file.delete()) {
+            LOGGER.warn("Unable to delete spooled memento content at {}", entry.file);
+        }
+    }
+
+    private Entry parse(final String value) {
+        final String[] parts = value.split(" ", 3);
+        if (parts.length == 3) {
+            try {
+                final long id = Long.parseLong(parts[0]);
+                return new Entry(id, rdf.createIRI(parts[2]), Instant.parse(parts[1]),
+                        new File(spool, id + MementoFile.EXTENSION));
+            } catch (final NumberFormatException | DateTimeParseException ex) {
+                LOGGER.debug("Invalid memento journal entry: {}", ex.getMessage());
+            }
+        }
+        LOGGER.warn("Ignoring an unreadable memento journal entry: {}", value);
+        return null;
+    }
+
+    private static Optional<Long> parseSequence(final String value) {
+        try {
+            return Optional.of(Long.parseLong(value.trim()));
+        } catch (final NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private void write(final String entry) {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(entry.getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error writing memento journal at " + file, ex);
+        }
+    }
+
+    private void truncate() {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+            channel.truncate(0L);
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException("Error truncating memento journal at " + file, ex);
+        }
+    }
+
+    /**
+     * A pending Memento write.
+     */
+    static final class Entry {
+
+        private final long sequence;
+        private final IRI identifier;
+        private final Instant time;
+        private final File file;
+
+        private Entry(final long sequence, final IRI identifier, final Instant time, final File file) {
+            this.sequence = sequence;
+            this.identifier = identifier;
+            this.time = time;
+            this.file = file;
+        }
+
+        /**
+         * Get the sequence number of the write.
+         * @return the sequence number
+         */
+        long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Get the resource identifier.
+         * @return the identifier
+         */
+        IRI getIdentifier() {
+            return identifier;
+        }
+
+        /**
+         * Get the time to which the Memento corresponds.
+         * @return the Memento datetime
+         */
+        Instant getTime() {
+            return time;
+        }
+
+        /**
+         * Get the content of the resource, as it was when the write was queued.
+         * @return the resource
+         */
+        Resource getResource() {
+            return new FileResource(identifier, file);
+        }
+    }
+}
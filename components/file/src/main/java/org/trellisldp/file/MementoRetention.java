@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.time.DayOfWeek.MONDAY;
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.TemporalAdjusters.previousOrSame;
+import static java.util.Objects.nonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * A retention policy for Mementos.
+ *
+ * <p>The most recent Mementos, up to a configured count, and all Mementos newer than a configured age are
+ * always kept. Older Mementos are thinned: beyond the daily, weekly and monthly ages only the latest
+ * Memento in each day, week or month is kept. If no thinning ages are defined, the remaining Mementos
+ * are removed; otherwise, Mementos that are not yet old enough to be thinned are kept. The latest
+ * Memento of a resource is never removed.
+ */
+final class MementoRetention {
+
+    private final int keepLast;
+    private final Duration keepWithin;
+    private final Duration daily;
+    private final Duration weekly;
+    private final Duration monthly;
+
+    /**
+     * Create a retention policy.
+     * @param keepLast the number of most recent Mementos to keep, or zero
+     * @param keepWithin the age within which all Mementos are kept, or null
+     * @param daily the age beyond which one Memento per day is kept, or null
+     * @param weekly the age beyond which one Memento per week is kept, or null
+     * @param monthly the age beyond which one Memento per month is kept, or null
+     */
+    MementoRetention(final int keepLast, final Duration keepWithin, final Duration daily, final Duration weekly,
+            final Duration monthly) {
+        this.keepLast = Math.max(0, keepLast);
+        this.keepWithin = keepWithin;
+        this.daily = daily;
+        this.weekly = weekly;
+        this.monthly = monthly;
+    }
+
+    /**
+     * Determine whether the policy removes any Mementos.
+     * @return true if any retention rule is defined
+     */
+    boolean isEnabled() {
+        return keepLast > 0 || nonNull(keepWithin) || isThinning();
+    }
+
+    /**
+     * Select the Mementos to keep.
+     * @param mementos the Memento datetimes of a resource
+     * @param now the current time
+     * @return the Memento datetimes that the policy keeps
+     */
+    SortedSet<Instant> retain(final SortedSet<Instant> mementos, final Instant now) {
+        if (!isEnabled() || mementos.isEmpty()) {
+            return mementos;
+        }
+
+        final SortedSet<Instant> keep = new TreeSet<>();
+        final Set<LocalDate> days = new HashSet<>();
+        final Set<LocalDate> weeks = new HashSet<>();
+        final Set<LocalDate> months = new HashSet<>();
+        final Iterator<Instant> versions = new TreeSet<>(mementos).descendingIterator();
+        int position = 0;
+        while (versions.hasNext()) {
+            final Instant time = versions.next();
+            final Duration age = Duration.between(time, now);
+            if (position < Math.max(1, keepLast) || nonNull(keepWithin) && age.compareTo(keepWithin) < 0) {
+                keep.add(time);
+            } else if (exceeds(age, monthly)) {
+                // Mementos are visited newest first, so the first one seen in each period is its latest
+                keepFirst(keep, time, months, date -> date.withDayOfMonth(1));
+            } else if (exceeds(age, weekly)) {
+                keepFirst(keep, time, weeks, date -> date.with(previousOrSame(MONDAY)));
+            } else if (exceeds(age, daily)) {
+                keepFirst(keep, time, days, Function.identity());
+            } else if (isThinning()) {
+                keep.add(time);
+            }
+            position++;
+        }
+        return keep;
+    }
+
+    private boolean isThinning() {
+        return nonNull(daily) || nonNull(weekly) || nonNull(monthly);
+    }
+
+    private static boolean exceeds(final Duration age, final Duration limit) {
+        return nonNull(limit) && age.compareTo(limit) >= 0;
+    }
+
+    private static void keepFirst(final SortedSet<Instant> keep, final Instant time, final Set<LocalDate> periods,
+            final Function<LocalDate, LocalDate> period) {
+        if (periods.add(period.apply(time.atZone(UTC).toLocalDate()))) {
+            keep.add(time);
+        }
+    }
+}
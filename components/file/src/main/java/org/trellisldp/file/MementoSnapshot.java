@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.function.Predicate.isEqual;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.codec.digest.DigestUtils.md5;
+import static org.trellisldp.vocabulary.Trellis.PreferAudit;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.trellisldp.api.Resource;
+import org.trellisldp.vocabulary.DC;
+
+/**
+ * The content of a resource, gathered in a single pass in preparation for writing a Memento.
+ *
+ * <p>While the quads are collected, a content hash is computed. The hash does not depend on the order
+ * of the quads, and it ignores the modification date and the audit trail, so two versions with the same
+ * content have the same hash.
+ */
+final class MementoSnapshot {
+
+    private static final JenaRDF rdf = new JenaRDF();
+
+    private final IRI identifier;
+    private final List<Triple> serverManaged;
+    private final Set<org.apache.jena.sparql.core.Quad> quads;
+    private final String hash;
+
+    private MementoSnapshot(final IRI identifier, final List<Triple> serverManaged,
+            final Set<org.apache.jena.sparql.core.Quad> quads, final String hash) {
+        this.identifier = identifier;
+        this.serverManaged = unmodifiableList(serverManaged);
+        this.quads = unmodifiableSet(quads);
+        this.hash = hash;
+    }
+
+    /**
+     * Gather the content of a resource.
+     * @param resource the resource
+     * @return the snapshot
+     */
+    static MementoSnapshot of(final Resource resource) {
+        final Hash hash = new Hash();
+        final List<Quad> serverManaged = FileUtils.generateServerManaged(resource).collect(toList());
+        serverManaged.stream().filter(q -> !DC.modified.equals(q.getPredicate())).forEach(hash::add);
+
+        final Set<org.apache.jena.sparql.core.Quad> quads = new LinkedHashSet<>();
+        try (final Stream<Quad> stream = resource.stream().filter(FileUtils::notServerManaged)) {
+            final Iterator<Quad> iter = stream.iterator();
+            while (iter.hasNext()) {
+                final Quad quad = iter.next();
+                // Compare quads as Jena nodes so that blank nodes from different readers are matched by label
+                if (quads.add(rdf.asJenaQuad(quad)) && !quad.getGraphName().filter(isEqual(PreferAudit)).isPresent()) {
+                    hash.add(quad);
+                }
+            }
+        }
+        return new MementoSnapshot(resource.getIdentifier(),
+                serverManaged.stream().map(Quad::asTriple).collect(toList()), quads, hash.toString());
+    }
+
+    /**
+     * Gather the quads of a resource, other than the server-managed quads, without computing a hash.
+     * @param resource the resource
+     * @return the quads, as Jena quads
+     */
+    static Set<org.apache.jena.sparql.core.Quad> quads(final Resource resource) {
+        try (final Stream<Quad> stream = resource.stream().filter(FileUtils::notServerManaged)) {
+            return stream.map(rdf::asJenaQuad).collect(toCollection(LinkedHashSet::new));
+        }
+    }
+
+    /**
+     * Get the resource identifier.
+     * @return the identifier
+     */
+    IRI getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Get the server-managed triples.
+     * @return the server-managed triples
+     */
+    List<Triple> getServerManaged() {
+        return serverManaged;
+    }
+
+    /**
+     * Get the remaining quads of the resource.
+     * @return the quads, as Jena quads
+     */
+    Set<org.apache.jena.sparql.core.Quad> getQuads() {
+        return quads;
+    }
+
+    /**
+     * Get the content hash.
+     * @return the content hash, as a hex string
+     */
+    String getHash() {
+        return hash;
+    }
+
+    /**
+     * An order-independent hash, formed from the sum of the MD5 digests of each quad.
+     */
+    private static final class Hash {
+        private long high;
+        private long low;
+
+        void add(final Quad quad) {
+            final ByteBuffer digest = ByteBuffer.wrap(md5(FileUtils.serializeQuad(quad).getBytes(UTF_8)));
+            high += digest.getLong();
+            low += digest.getLong();
+        }
+
+        @Override
+        public String toString() {
+            return Hex.encodeHexString(ByteBuffer.allocate(2 * Long.BYTES).putLong(high).putLong(low).array());
+        }
+    }
+}
@@ -14,6 +14,10 @@
 package org.trellisldp.file;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Instant.now;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.util.Optional.of;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 
@@ -22,7 +26,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
 import org.apache.commons.io.IOUtils;
@@ -35,6 +46,7 @@ import org.junit.jupiter.api.Test;
 import org.trellisldp.api.Binary;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.BinaryService;
+import org.trellisldp.api.DefaultIdentifierService;
 
 /**
  * Test the file-based binary service.
@@ -50,6 +62,10 @@ public class FileBinaryServiceTest {
 
     private static final IRI file = rdf.createIRI("file:///" + testDoc);
 
+    private static final IRI resource = rdf.createIRI("trellis:data/resource");
+
+    private static final IRI agent = rdf.createIRI("https://example.com/agent");
+
     @BeforeAll
     public static void setUpEverything() {
         System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BASE_PATH, directory);
@@ -157,6 +173,320 @@ public class FileBinaryServiceTest {
             }).toCompletableFuture().join());
     }
 
+    @Test
+    public void testSetFileContentInChunks() {
+        final StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            contents.append("Line ").append(i).append("\n");
+        }
+        try {
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BUFFER_SIZE, "16");
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_UPLOAD_BUDGET, "32");
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BUDGET, "48");
+            final FileBinaryService service = new FileBinaryService();
+            final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+            final InputStream inputStream = new ByteArrayInputStream(contents.toString().getBytes(UTF_8));
+            assertNull(service.setContent(BinaryMetadata.builder(fileIRI).build(), inputStream)
+                    .toCompletableFuture().join(), "Setting content didn't complete cleanly!");
+            assertEquals(contents.toString(), service.get(fileIRI).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect content!");
+            assertEquals(contents.length(), service.getIngestedBytes(), "Incorrect count of ingested bytes!");
+            assertEquals(0L, service.getIngestInFlightBytes(), "Unexpected in-flight bytes!");
+        } finally {
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_BUFFER_SIZE);
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_UPLOAD_BUDGET);
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_BUDGET);
+        }
+    }
+
+    @Test
+    public void testCachedContent() {
+        try {
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_CACHE_SIZE, "1024");
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_CACHE_THRESHOLD, "16");
+            final FileBinaryService service = new FileBinaryService();
+            final IRI small = rdf.createIRI("file:///" + randomFilename());
+            final IRI large = rdf.createIRI("file:///" + randomFilename());
+            service.setContent(BinaryMetadata.builder(small).build(),
+                    new ByteArrayInputStream("Small data".getBytes(UTF_8))).toCompletableFuture().join();
+            service.setContent(BinaryMetadata.builder(large).build(),
+                    new ByteArrayInputStream("Data that is too large to cache".getBytes(UTF_8)))
+                .toCompletableFuture().join();
+
+            assertEquals("Small data", service.get(small).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect content!");
+            assertEquals(10L, service.getCacheMemoryUsage(), "Small binary wasn't cached!");
+            assertEquals("ll da", service.get(small).thenApply(b -> b.getContent(3, 8))
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect cached range!");
+            assertEquals("data", service.get(small).thenApply(b -> b.getContent(6, 100))
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect cached range!");
+            assertEquals("Data that is too large to cache", service.get(large).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect content!");
+            assertEquals(10L, service.getCacheMemoryUsage(), "Large binary shouldn't be cached!");
+            assertEquals(0.5, service.getCacheHitRatio(), 0.001, "Incorrect hit ratio!");
+
+            service.purgeContent(small).toCompletableFuture().join();
+            assertEquals(0L, service.getCacheMemoryUsage(), "Purged binary wasn't removed from the cache!");
+            assertThrows(CompletionException.class, () -> service.get(small).thenApply(Binary::getContent)
+                    .toCompletableFuture().join(), "Purged content shouldn't be readable!");
+            service.purgeContent(large).toCompletableFuture().join();
+        } finally {
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_CACHE_SIZE);
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_CACHE_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testStorageTiers() throws IOException {
+        final File fastDir = Files.createTempDirectory("trellis-fast").toFile();
+        final File bulk = Files.createTempDirectory("trellis-bulk").toFile();
+        try {
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_PATH, bulk.getAbsolutePath());
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_MIME_TYPES, "video/*");
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_DAYS, "1");
+            final FileBinaryService service = new FileBinaryService(new DefaultIdentifierService(),
+                    fastDir.getAbsolutePath(), 2, 2);
+
+            // Placement rules select the bulk tier for new content
+            final String video = randomFilename();
+            service.setContent(BinaryMetadata.builder(rdf.createIRI("file:///" + video)).mimeType("video/mp4")
+                    .build(), new ByteArrayInputStream("A video".getBytes(UTF_8))).toCompletableFuture().join();
+            assertTrue(new File(bulk, video).exists(), "Video wasn't placed on the bulk tier!");
+            assertFalse(new File(fastDir, video).exists(), "Video was placed on the fast tier!");
+
+            // Unused content is migrated without changing its identifier
+            final String text = randomFilename();
+            final IRI textIRI = rdf.createIRI("file:///" + text);
+            service.setContent(BinaryMetadata.builder(textIRI).mimeType("text/plain").build(),
+                    new ByteArrayInputStream("Some text".getBytes(UTF_8))).toCompletableFuture().join();
+            final Path fast = new File(fastDir, text).toPath();
+            final FileTime old = FileTime.from(now().minus(10, DAYS));
+            Files.setLastModifiedTime(fast, old);
+            Files.setAttribute(fast, "lastAccessTime", old);
+            service.migrate();
+            assertEquals(0L, service.getMigratedBinaries(), "Binary in use was migrated!");
+
+            // A restarted service has no record of the binary being used
+            final FileBinaryService restarted = new FileBinaryService(new DefaultIdentifierService(),
+                    fastDir.getAbsolutePath(), 2, 2);
+            restarted.migrate();
+            assertEquals(1L, restarted.getMigratedBinaries(), "Incorrect number of migrated binaries!");
+            assertEquals(9L, restarted.getMigratedBytes(), "Incorrect number of migrated bytes!");
+            assertTrue(new File(bulk, text).exists(), "Text wasn't migrated to the bulk tier!");
+            assertTrue(fast.toFile().exists(), "The fast copy was removed while it may still be in use!");
+            assertEquals("Some text", restarted.get(textIRI).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect migrated content!");
+
+            restarted.migrate();
+            assertFalse(fast.toFile().exists(), "The fast copy wasn't removed by the next migration!");
+            assertEquals(1L, restarted.getMigratedBinaries(), "Binary was migrated twice!");
+            assertEquals("Some text", new FileBinaryService(new DefaultIdentifierService(),
+                        fastDir.getAbsolutePath(), 2, 2).get(textIRI).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(),
+                    "Incorrect content after restart!");
+
+            // A fast copy that is rewritten after its migration is kept
+            final String other = randomFilename();
+            final IRI otherIRI = rdf.createIRI("file:///" + other);
+            restarted.setContent(BinaryMetadata.builder(otherIRI).mimeType("text/plain").build(),
+                    new ByteArrayInputStream("Old text".getBytes(UTF_8))).toCompletableFuture().join();
+            Files.setLastModifiedTime(new File(fastDir, other).toPath(), old);
+            final FileBinaryService rewritten = new FileBinaryService(new DefaultIdentifierService(),
+                    fastDir.getAbsolutePath(), 2, 2);
+            rewritten.migrate();
+            assertTrue(new File(bulk, other).exists(), "Text wasn't migrated to the bulk tier!");
+            rewritten.setContent(BinaryMetadata.builder(otherIRI).mimeType("text/plain").build(),
+                    new ByteArrayInputStream("New text".getBytes(UTF_8))).toCompletableFuture().join();
+            rewritten.migrate();
+            assertTrue(new File(fastDir, other).exists(), "Rewritten content was removed!");
+            assertFalse(new File(bulk, other).exists(), "Stale bulk copy remains!");
+            assertEquals("New text", rewritten.get(otherIRI).thenApply(Binary::getContent)
+                    .thenApply(this::uncheckedToString).toCompletableFuture().join(), "Incorrect rewritten content!");
+            rewritten.purgeContent(otherIRI).toCompletableFuture().join();
+
+            service.purgeContent(textIRI).toCompletableFuture().join();
+            service.purgeContent(rdf.createIRI("file:///" + video)).toCompletableFuture().join();
+            assertFalse(new File(bulk, text).exists(), "Migrated binary wasn't purged!");
+            assertFalse(new File(bulk, video).exists(), "Bulk binary wasn't purged!");
+        } finally {
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_PATH);
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_MIME_TYPES);
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_BULK_DAYS);
+            deleteDirectory(fastDir);
+            deleteDirectory(bulk);
+        }
+    }
+
+    @Test
+    public void testResumableUpload() {
+        final String contents = "The first chunk, the second chunk and the last chunk.";
+        final FileBinaryService service = new FileBinaryService();
+        final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+        final String uploadId = service.initiateUpload(resource, agent,
+                BinaryMetadata.builder(fileIRI).mimeType("text/plain").build(), contents.length())
+            .toCompletableFuture().join();
+
+        // Chunks are written out of order and concurrently
+        final CompletableFuture<Long> last = service.uploadChunk(resource, agent, uploadId, 35, 18,
+                contents.length(), chunk(contents, 35, 53)).toCompletableFuture();
+        final CompletableFuture<Long> first = service.uploadChunk(resource, agent, uploadId, 0, 16,
+                -1L, chunk(contents, 0, 16)).toCompletableFuture();
+        assertEquals(18L, last.join(), "Incorrect size of last chunk!");
+        assertEquals(16L, first.join(), "Incorrect size of first chunk!");
+
+        final SortedMap<Long, Long> ranges = service.uploadedRanges(resource, agent, uploadId)
+            .toCompletableFuture().join();
+        assertEquals(2, ranges.size(), "Incorrect number of received ranges!");
+        assertEquals(Long.valueOf(16L), ranges.get(0L), "Incorrect end of first range!");
+        assertEquals(Long.valueOf(53L), ranges.get(35L), "Incorrect end of last range!");
+        assertThrows(CompletionException.class, () -> service.completeUpload(resource, agent, uploadId)
+                .toCompletableFuture().join(), "An incomplete upload shouldn't be committed!");
+
+        // A restarted service resumes the upload from its recorded ranges
+        final FileBinaryService resumed = new FileBinaryService();
+        assertEquals(ranges, resumed.uploadedRanges(resource, agent, uploadId).toCompletableFuture().join(),
+                "Incorrect ranges!");
+        assertEquals(20L, resumed.uploadChunk(resource, agent, uploadId, 15, 20, -1L, chunk(contents, 15, 35))
+                .toCompletableFuture().join(), "Incorrect size of overlapping chunk!");
+        final BinaryMetadata binary = resumed.completeUpload(resource, agent, uploadId).toCompletableFuture().join();
+        assertEquals(fileIRI, binary.getIdentifier(), "Incorrect binary identifier!");
+        assertEquals(of("text/plain"), binary.getMimeType(), "Incorrect binary media type!");
+        assertEquals(contents, resumed.get(fileIRI).thenApply(Binary::getContent).thenApply(this::uncheckedToString)
+                .toCompletableFuture().join(), "Incorrect content!");
+        assertThrows(CompletionException.class, () -> resumed.uploadedRanges(resource, agent, uploadId)
+                .toCompletableFuture().join(), "A completed upload should no longer exist!");
+    }
+
+    @Test
+    public void testAbortUpload() {
+        final FileBinaryService service = new FileBinaryService();
+        final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+        final String uploadId = service.initiateUpload(resource, agent, BinaryMetadata.builder(fileIRI).build(), 4L)
+            .toCompletableFuture().join();
+        final CompletionException err = assertThrows(CompletionException.class, () ->
+                service.uploadChunk(resource, agent, uploadId, 2, 4, 4, chunk("data", 0, 4)).toCompletableFuture()
+                .join(), "A chunk beyond the end of the upload shouldn't be written!");
+        assertTrue(err.getCause() instanceof IllegalArgumentException, "Incorrect chunk error!");
+        assertNull(service.abortUpload(resource, agent, uploadId).toCompletableFuture().join(),
+                "Abort didn't complete cleanly!");
+        final CompletionException missing = assertThrows(CompletionException.class, () ->
+                service.uploadChunk(resource, agent, uploadId, 0, 4, 4, chunk("data", 0, 4)).toCompletableFuture()
+                .join(), "An aborted upload shouldn't accept chunks!");
+        assertTrue(missing.getCause() instanceof NoSuchElementException, "Incorrect missing upload error!");
+        assertThrows(CompletionException.class, () -> service.abortUpload(resource, agent, "../../" + testDoc)
+                .toCompletableFuture().join(), "An invalid upload identifier should be rejected!");
+        assertTrue(new File(directory, testDoc).exists(), "A file outside the upload directory was removed!");
+    }
+
+    @Test
+    public void testUploadChunkBounds() {
+        final FileBinaryService service = new FileBinaryService();
+        final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+        final String uploadId = service.initiateUpload(resource, agent, BinaryMetadata.builder(fileIRI).build(), 8L)
+            .toCompletableFuture().join();
+
+        // A chunk may not hold more than its announced range, even if the upload has room for it
+        final CompletionException oversized = assertThrows(CompletionException.class, () ->
+                service.uploadChunk(resource, agent, uploadId, 0, 2, 8, chunk("data", 0, 4)).toCompletableFuture()
+                .join(), "A chunk larger than its range shouldn't be written!");
+        assertTrue(oversized.getCause() instanceof IllegalArgumentException, "Incorrect chunk error!");
+        final CompletionException mismatch = assertThrows(CompletionException.class, () ->
+                service.uploadChunk(resource, agent, uploadId, 0, 4, 10, chunk("data", 0, 4)).toCompletableFuture()
+                .join(), "A chunk for content of a different length shouldn't be written!");
+        assertTrue(mismatch.getCause() instanceof IllegalArgumentException, "Incorrect length error!");
+        assertTrue(service.uploadedRanges(resource, agent, uploadId).toCompletableFuture().join().isEmpty(),
+                "Rejected chunks were recorded!");
+        assertEquals(4L, service.uploadChunk(resource, agent, uploadId, 4, 4, 8, chunk("data", 0, 4))
+                .toCompletableFuture().join(), "Incorrect size of chunk!");
+    }
+
+    @Test
+    public void testUploadOwnership() {
+        final FileBinaryService service = new FileBinaryService();
+        final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+        final IRI other = rdf.createIRI("trellis:data/other");
+        final IRI intruder = rdf.createIRI("https://example.com/intruder");
+        final String uploadId = service.initiateUpload(resource, agent, BinaryMetadata.builder(fileIRI).build(), 4L)
+            .toCompletableFuture().join();
+        assertEquals(4L, service.uploadChunk(resource, agent, uploadId, 0, 4, 4, chunk("data", 0, 4))
+                .toCompletableFuture().join(), "Incorrect size of chunk!");
+
+        // An upload cannot be used at another resource, or by another agent
+        final CompletionException err = assertThrows(CompletionException.class, () ->
+                service.completeUpload(other, agent, uploadId).toCompletableFuture().join(),
+                "An upload was completed at another resource!");
+        assertTrue(err.getCause() instanceof NoSuchElementException, "Incorrect missing upload error!");
+        assertThrows(CompletionException.class, () -> service.completeUpload(resource, intruder, uploadId)
+                .toCompletableFuture().join(), "An upload was completed by another agent!");
+        assertThrows(CompletionException.class, () -> service.uploadChunk(other, agent, uploadId, 0, 4, 4,
+                    chunk("evil", 0, 4)).toCompletableFuture().join(), "A chunk was written from another resource!");
+        assertThrows(CompletionException.class, () -> service.abortUpload(resource, intruder, uploadId)
+                .toCompletableFuture().join(), "An upload was aborted by another agent!");
+        assertThrows(CompletionException.class, () -> service.uploadedRanges(other, intruder, uploadId)
+                .toCompletableFuture().join(), "Ranges were listed at another resource!");
+
+        assertEquals(fileIRI, service.completeUpload(resource, agent, uploadId).toCompletableFuture().join()
+                .getIdentifier(), "Incorrect binary identifier!");
+        assertEquals("data", service.get(fileIRI).thenApply(Binary::getContent).thenApply(this::uncheckedToString)
+                .toCompletableFuture().join(), "Incorrect content!");
+    }
+
+    @Test
+    public void testUploadMaxLength() {
+        try {
+            System.setProperty(FileBinaryService.CONFIG_FILE_BINARY_UPLOAD_MAX_LENGTH, "10");
+            final FileBinaryService service = new FileBinaryService();
+            final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+            final CompletionException err = assertThrows(CompletionException.class, () ->
+                    service.initiateUpload(resource, agent, BinaryMetadata.builder(fileIRI).build(), 11L)
+                    .toCompletableFuture().join(), "An upload larger than the maximum was created!");
+            assertTrue(err.getCause() instanceof IllegalArgumentException, "Incorrect upload length error!");
+            final String uploadId = service.initiateUpload(resource, agent, BinaryMetadata.builder(fileIRI).build(),
+                    10L).toCompletableFuture().join();
+            assertNull(service.abortUpload(resource, agent, uploadId).toCompletableFuture().join(),
+                    "Abort didn't complete cleanly!");
+        } finally {
+            System.clearProperty(FileBinaryService.CONFIG_FILE_BINARY_UPLOAD_MAX_LENGTH);
+        }
+    }
+
+    @Test
+    public void testExpireUploads() throws IOException {
+        final File uploadDir = new File(directory, "expire-" + randomFilename());
+        final IRI fileIRI = rdf.createIRI("file:///" + randomFilename());
+        try {
+            final BinaryUploads uploads = new BinaryUploads(uploadDir, null, id -> new File(uploadDir, "done"), 10L);
+            final String abandoned = uploads.initiate(resource, agent, BinaryMetadata.builder(fileIRI).build(), 4L)
+                .toCompletableFuture().join();
+            final String active = uploads.initiate(resource, agent, BinaryMetadata.builder(fileIRI).build(), 4L)
+                .toCompletableFuture().join();
+            final FileTime old = FileTime.from(now().minus(2L, DAYS));
+            for (final String suffix : new String[]{".bin", ".properties"}) {
+                Files.setLastModifiedTime(new File(uploadDir, abandoned + suffix).toPath(), old);
+            }
+            // An orphaned file, such as one left by a crash while an upload was created, also expires
+            final File orphan = new File(uploadDir, "00000000-0000-0000-0000-000000000000.bin");
+            assertTrue(orphan.createNewFile(), "Orphaned file not created!");
+            Files.setLastModifiedTime(orphan.toPath(), old);
+
+            // After a restart, the time of last use comes from the upload's files
+            final BinaryUploads restarted = new BinaryUploads(uploadDir, null, id -> new File(uploadDir, "done"),
+                    10L);
+            restarted.expire(Duration.ofDays(1L));
+            assertFalse(new File(uploadDir, abandoned + ".bin").exists(), "Abandoned upload not discarded!");
+            assertFalse(new File(uploadDir, abandoned + ".properties").exists(), "Abandoned upload not discarded!");
+            assertFalse(orphan.exists(), "Orphaned file not discarded!");
+            final CompletionException err = assertThrows(CompletionException.class, () ->
+                    restarted.ranges(resource, agent, abandoned).toCompletableFuture().join(),
+                    "An expired upload should no longer exist!");
+            assertTrue(err.getCause() instanceof NoSuchElementException, "Incorrect missing upload error!");
+            assertTrue(restarted.ranges(resource, agent, active).toCompletableFuture().join().isEmpty(),
+                    "An active upload was discarded!");
+        } finally {
+            deleteDirectory(uploadDir);
+        }
+    }
+
     @Test
     public void testBadIdentifier() {
         final BinaryService service = new FileBinaryService();
@@ -171,6 +501,10 @@ public class FileBinaryServiceTest {
         return false;
     }
 
+    private static InputStream chunk(final String contents, final int start, final int end) {
+        return new ByteArrayInputStream(contents.substring(start, end).getBytes(UTF_8));
+    }
+
     private String uncheckedToString(final InputStream is) {
         try {
             return IOUtils.toString(is, UTF_8);
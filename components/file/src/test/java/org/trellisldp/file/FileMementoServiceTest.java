@@ -16,21 +16,33 @@ package org.trellisldp.file;
 import static java.time.Instant.MAX;
 import static java.time.Instant.now;
 import static java.time.Instant.parse;
+import static java.util.Arrays.asList;
+import static java.util.Collections.reverse;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.RDF.type;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.stream.Stream;
 
 import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
 import org.apache.commons.rdf.api.RDF;
 import org.apache.commons.rdf.jena.JenaRDF;
 import org.junit.jupiter.api.AfterAll;
@@ -38,10 +50,13 @@ import org.junit.jupiter.api.Test;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.MementoService;
 import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResourceService;
 import org.trellisldp.vocabulary.DC;
 import org.trellisldp.vocabulary.FOAF;
 import org.trellisldp.vocabulary.LDP;
+import org.trellisldp.vocabulary.PROV;
 import org.trellisldp.vocabulary.Trellis;
+import org.trellisldp.vocabulary.XSD;
 
 /**
  * Test a file-based memento service.
@@ -57,6 +72,30 @@ public class FileMementoServiceTest {
         if (vDir.exists()) {
             deleteDirectory(vDir);
         }
+        final File vDir3 = new File(dir, "versions3");
+        if (vDir3.exists()) {
+            deleteDirectory(vDir3);
+        }
+        final File vDir4 = new File(dir, "versions4");
+        if (vDir4.exists()) {
+            deleteDirectory(vDir4);
+        }
+        final File vDir5 = new File(dir, "versions5");
+        if (vDir5.exists()) {
+            deleteDirectory(vDir5);
+        }
+        final File vDir6 = new File(dir, "versions6");
+        if (vDir6.exists()) {
+            deleteDirectory(vDir6);
+        }
+        final File vDir7 = new File(dir, "versions7");
+        if (vDir7.exists()) {
+            deleteDirectory(vDir7);
+        }
+        final File vDir8 = new File(dir, "versions8");
+        if (vDir8.exists()) {
+            deleteDirectory(vDir8);
+        }
     }
 
     @Test
@@ -242,8 +281,284 @@ public class FileMementoServiceTest {
             svc.put(res, res.getModified().plusSeconds(10)).toCompletableFuture().join();
             assertEquals(2L, svc.mementos(identifier).toCompletableFuture().join().size(),
                     "Incorrect count of Mementos!");
+            assertEquals(0L, svc.getSkippedWrites(), "Memento skipped by default!");
         } finally {
             System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_BASE_PATH);
         }
     }
+
+    @Test
+    public void testSkipUnchanged() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "unchanged");
+        final IRI activity = rdf.createIRI(TRELLIS_DATA_PREFIX + "activity");
+        final Instant time = parse("2019-04-01T10:00:00Z");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions8");
+        assertFalse(versionDir.exists(), "Version directory already exists!");
+
+        try {
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_SKIP_UNCHANGED, "true");
+            final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath());
+            svc.put(version(identifier, time, "Title")).toCompletableFuture().join();
+            assertEquals(0L, svc.getSkippedWrites(), "Unexpected skipped memento!");
+
+            // Only the modification date differs
+            svc.put(version(identifier, time.plusSeconds(10), "Title")).toCompletableFuture().join();
+            assertEquals(1L, svc.getSkippedWrites(), "Memento with a new modification date wasn't skipped!");
+
+            // The same quads in a different order, with an added audit trail
+            final List<Quad> quads = new ArrayList<>();
+            version(identifier, time.plusSeconds(20), "Title").stream().forEach(quads::add);
+            reverse(quads);
+            quads.add(rdf.createQuad(Trellis.PreferAudit, identifier, PROV.wasGeneratedBy, activity));
+            quads.add(rdf.createQuad(Trellis.PreferAudit, activity, type, PROV.Activity));
+            svc.put(new FileResource(identifier, quads)).toCompletableFuture().join();
+            assertEquals(2L, svc.getSkippedWrites(), "Reordered or audited memento wasn't skipped!");
+            assertEquals(1L, svc.mementos(identifier).toCompletableFuture().join().size(),
+                    "Incorrect count of Mementos!");
+
+            // The content hash of the latest memento survives a restart
+            final File hash = new File(FileUtils.getResourceDirectory(versionDir, identifier), "mementos.hash");
+            assertTrue(hash.exists(), "Missing content hash!");
+            final FileMementoService svc2 = new FileMementoService(versionDir.getAbsolutePath());
+            svc2.put(version(identifier, time.plusSeconds(30), "Title")).toCompletableFuture().join();
+            assertEquals(1L, svc2.getSkippedWrites(), "Unchanged memento wasn't skipped after a restart!");
+            svc2.put(version(identifier, time.plusSeconds(40), "Changed")).toCompletableFuture().join();
+            assertEquals(1L, svc2.getSkippedWrites(), "Changed memento was skipped!");
+            assertEquals(2L, svc2.mementos(identifier).toCompletableFuture().join().size(),
+                    "Incorrect count of Mementos!");
+        } finally {
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_SKIP_UNCHANGED);
+        }
+    }
+
+    @Test
+    public void testMementoIndex() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "indexed");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions3");
+        final File file = new File(getClass().getResource("/resource.nq").getFile());
+        final Resource res = new FileResource(identifier, file);
+        final Instant time = res.getModified();
+
+        final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath(), 10);
+        svc.put(res, time.plusSeconds(20)).toCompletableFuture().join();
+        svc.put(res, time).toCompletableFuture().join();
+        svc.put(res, time.plusSeconds(10)).toCompletableFuture().join();
+        svc.put(res, time.plusSeconds(10)).toCompletableFuture().join();
+
+        final File resourceDir = FileUtils.getResourceDirectory(versionDir, identifier);
+        assertTrue(new File(resourceDir, MementoIndex.INDEX_FILE).exists(), "Memento index wasn't created!");
+        assertEquals(3L, svc.mementos(identifier).toCompletableFuture().join().size(),
+                "Incorrect count of Mementos!");
+        assertEquals(time, svc.mementos(identifier).toCompletableFuture().join().first(), "Incorrect first date!");
+
+        // A fresh service must read the same values back from the index file
+        final FileMementoService svc2 = new FileMementoService(versionDir.getAbsolutePath(), 10);
+        assertEquals(svc.mementos(identifier).toCompletableFuture().join(),
+                svc2.mementos(identifier).toCompletableFuture().join(), "Index contents don't match!");
+        assertEquals(identifier, svc2.get(identifier, time.plusSeconds(15)).toCompletableFuture().join()
+                .getIdentifier(), "Incorrect memento identifier!");
+        assertEquals(MISSING_RESOURCE, svc2.get(identifier, time.minusSeconds(5)).toCompletableFuture().join(),
+                "Wrong response for a missing resource!");
+
+        // A memento that was written but never recorded, as after a crash, is found from the directory
+        FileUtils.writeCompactMemento(resourceDir, res, time.plusSeconds(30), true);
+        final File indexFile = new File(resourceDir, MementoIndex.INDEX_FILE);
+        assertTrue(indexFile.setLastModified(resourceDir.lastModified() - 10000L), "Couldn't age the index!");
+        final FileMementoService svc3 = new FileMementoService(versionDir.getAbsolutePath(), 10);
+        assertEquals(4L, svc3.mementos(identifier).toCompletableFuture().join().size(),
+                "Unrecorded memento wasn't reconciled!");
+        assertTrue(indexFile.lastModified() >= resourceDir.lastModified(), "Index wasn't rewritten!");
+    }
+
+    @Test
+    public void testDeltaMementos() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "delta");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions4");
+        final File resourceDir = FileUtils.getResourceDirectory(versionDir, identifier);
+        final Instant time = parse("2017-02-16T11:15:01Z");
+
+        final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath(), 10, 3);
+        for (int i = 0; i < 5; i++) {
+            svc.put(version(identifier, time.plusSeconds(i), "Title " + i)).toCompletableFuture().join();
+        }
+
+        assertTrue(FileUtils.getCompactFile(resourceDir, time).exists(), "Missing initial snapshot!");
+        assertTrue(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(1)).exists(), "Missing first delta!");
+        assertTrue(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(2)).exists(), "Missing second delta!");
+        assertTrue(FileUtils.getCompactFile(resourceDir, time.plusSeconds(3)).exists(), "Missing second snapshot!");
+        assertTrue(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(4)).exists(), "Missing third delta!");
+        for (int i = 0; i < 5; i++) {
+            assertVersion(svc.get(identifier, time.plusSeconds(i)).toCompletableFuture().join(),
+                    time.plusSeconds(i), "Title " + i);
+        }
+
+        // Replacing a version in the middle of a chain turns the following delta into a full copy
+        svc.put(version(identifier, time.plusSeconds(1), "Replaced")).toCompletableFuture().join();
+        assertFalse(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(1)).exists(), "Unexpected delta!");
+        assertTrue(FileUtils.getCompactFile(resourceDir, time.plusSeconds(2)).exists(), "Delta wasn't rebased!");
+        assertFalse(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(2)).exists(), "Stale delta remains!");
+        assertVersion(svc.get(identifier, time.plusSeconds(1)).toCompletableFuture().join(),
+                time.plusSeconds(1), "Replaced");
+        assertVersion(svc.get(identifier, time.plusSeconds(2)).toCompletableFuture().join(),
+                time.plusSeconds(2), "Title 2");
+        final File indexFile = new File(resourceDir, MementoIndex.INDEX_FILE);
+        assertTrue(indexFile.lastModified() >= resourceDir.lastModified(), "A rebased delta made the index stale!");
+
+        // Reducing the snapshot interval causes the remaining deltas to be rewritten
+        final FileMementoService svc2 = new FileMementoService(versionDir.getAbsolutePath(), 10, 1);
+        svc2.compact(identifier).toCompletableFuture().join();
+        assertFalse(FileUtils.getDeltaFile(resourceDir, time.plusSeconds(4)).exists(), "Delta wasn't compacted!");
+        assertVersion(svc2.get(identifier, time.plusSeconds(4)).toCompletableFuture().join(),
+                time.plusSeconds(4), "Title 4");
+        assertEquals(5L, svc2.mementos(identifier).toCompletableFuture().join().size(),
+                "Incorrect count of Mementos!");
+        assertTrue(indexFile.lastModified() >= resourceDir.lastModified(), "Compaction made the index stale!");
+    }
+
+    @Test
+    public void testWriteBehind() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "write-behind");
+        final IRI recovered = rdf.createIRI(TRELLIS_DATA_PREFIX + "recovered");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions5");
+        final Instant time = parse("2017-02-16T11:15:01Z");
+
+        // Simulate a write that was still pending when the server stopped
+        final File spool = new File(versionDir, FileMementoService.SPOOL_DIRECTORY);
+        new MementoJournal(new File(versionDir, FileMementoService.JOURNAL_FILE), spool, false)
+            .add(MementoSnapshot.of(version(recovered, time, "Recovered")), time);
+        assertTrue(new File(spool, "1" + MementoFile.EXTENSION).exists(), "Memento content wasn't spooled!");
+        final File orphan = new File(spool, "99" + MementoFile.EXTENSION);
+        assertDoesNotThrow(() -> orphan.createNewFile(), "Couldn't create orphaned spool file!");
+
+        final ResourceService mockResourceService = mock(ResourceService.class);
+        when(mockResourceService.get(eq(identifier)))
+            .thenAnswer(inv -> completedFuture(version(identifier, time, "Title")));
+
+        try {
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND, "true");
+            // The pending write is replayed from its spooled content when the service starts
+            final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath());
+            svc.flush().toCompletableFuture().join();
+            assertEquals(1L, svc.mementos(recovered).toCompletableFuture().join().size(),
+                    "Journal entry wasn't recovered!");
+            assertVersion(svc.get(recovered, time).toCompletableFuture().join(), time, "Recovered");
+            assertFalse(orphan.exists(), "Orphaned spool file wasn't removed!");
+            verify(mockResourceService, never()).get(eq(recovered));
+
+            svc.put(mockResourceService, identifier).toCompletableFuture().join();
+            svc.flush().toCompletableFuture().join();
+
+            assertEquals(0, svc.getPendingWrites(), "Unexpected pending writes!");
+            assertEquals(Duration.ZERO, svc.getWriteLag(), "Unexpected write lag!");
+            assertEquals(1L, svc.mementos(identifier).toCompletableFuture().join().size(),
+                    "Incorrect count of Mementos!");
+            assertEquals(0L, new File(versionDir, FileMementoService.JOURNAL_FILE).length(),
+                    "Journal wasn't truncated!");
+            assertEquals(0, spool.list().length, "Spooled content wasn't removed!");
+        } finally {
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND);
+        }
+    }
+
+    @Test
+    public void testWriteBehindVersions() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "write-behind-versions");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions7");
+        final Instant time = parse("2017-02-16T11:15:01Z");
+        final ResourceService mockResourceService = mock(ResourceService.class);
+
+        try {
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND, "true");
+            final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath());
+            // Each write stores the version that was current when it was requested, even while others are queued
+            for (int i = 0; i < 5; i++) {
+                final Resource version = version(identifier, time.plusSeconds(i), "Title " + i);
+                when(mockResourceService.get(eq(identifier))).thenAnswer(inv -> completedFuture(version));
+                svc.put(mockResourceService, identifier).toCompletableFuture().join();
+            }
+            svc.flush().toCompletableFuture().join();
+
+            assertEquals(5L, svc.mementos(identifier).toCompletableFuture().join().size(),
+                    "Incorrect count of Mementos!");
+            for (int i = 0; i < 5; i++) {
+                assertVersion(svc.get(identifier, time.plusSeconds(i)).toCompletableFuture().join(),
+                        time.plusSeconds(i), "Title " + i);
+            }
+        } finally {
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_WRITE_BEHIND);
+        }
+    }
+
+    @Test
+    public void testRetention() {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "retention");
+        final File dir = new File(getClass().getResource("/versions").getFile()).getParentFile();
+        final File versionDir = new File(dir, "versions6");
+        final File resourceDir = FileUtils.getResourceDirectory(versionDir, identifier);
+        final Instant day1 = parse("2017-02-16T10:00:00Z");
+        final Instant day2 = parse("2017-02-17T10:00:00Z");
+        final Instant day3 = parse("2017-02-18T10:00:00Z");
+        final List<Instant> times = asList(day1, day1.plusSeconds(3600), day1.plusSeconds(7200), day2,
+                day2.plusSeconds(3600), day3, day3.plusSeconds(3600));
+
+        try {
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_RETENTION_KEEP_LAST, "2");
+            System.setProperty(FileMementoService.CONFIG_FILE_MEMENTO_RETENTION_DAILY, "1");
+            final FileMementoService svc = new FileMementoService(versionDir.getAbsolutePath(), 10, 10);
+            for (final Instant time : times) {
+                svc.put(version(identifier, time, "Version " + time)).toCompletableFuture().join();
+            }
+            assertEquals(7L, svc.mementos(identifier).toCompletableFuture().join().size(),
+                    "Incorrect count of Mementos!");
+
+            // The last two Mementos are kept, and the latest Memento of each earlier day
+            svc.prune(identifier).toCompletableFuture().join();
+            final List<Instant> kept = asList(day1.plusSeconds(7200), day2.plusSeconds(3600), day3,
+                    day3.plusSeconds(3600));
+            assertEquals(new TreeSet<>(kept), svc.mementos(identifier).toCompletableFuture().join(),
+                    "Incorrect Mementos after pruning!");
+            assertEquals(3L, svc.getPrunedMementos(), "Incorrect count of pruned Mementos!");
+            assertFalse(FileUtils.getMementoFile(resourceDir, day1).exists(), "Pruned Memento wasn't removed!");
+            assertTrue(new File(resourceDir, MementoIndex.INDEX_FILE).lastModified() >= resourceDir.lastModified(),
+                    "Pruning made the index stale!");
+            assertEquals(new TreeSet<>(asList(day2.plusSeconds(3600), day3)), svc.mementos(identifier,
+                        day2, day3).toCompletableFuture().join(), "Incorrect Mementos in window!");
+            assertTrue(FileUtils.getCompactFile(resourceDir, day1.plusSeconds(7200)).exists(), "Missing snapshot!");
+            assertTrue(FileUtils.getDeltaFile(resourceDir, day3).exists(), "Delta was needlessly rewritten!");
+            for (final Instant time : kept) {
+                assertVersion(svc.get(identifier, time).toCompletableFuture().join(), time, "Version " + time);
+            }
+
+            // The index on disk reflects the pruned Mementos
+            final FileMementoService svc2 = new FileMementoService(versionDir.getAbsolutePath(), 10, 10);
+            assertEquals(new TreeSet<>(kept), svc2.mementos(identifier).toCompletableFuture().join(),
+                    "Incorrect Mementos after a restart!");
+        } finally {
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_RETENTION_KEEP_LAST);
+            System.clearProperty(FileMementoService.CONFIG_FILE_MEMENTO_RETENTION_DAILY);
+        }
+    }
+
+    private static Resource version(final IRI identifier, final Instant time, final String title) {
+        return new FileResource(identifier, asList(
+                    rdf.createQuad(Trellis.PreferServerManaged, identifier, type, LDP.RDFSource),
+                    rdf.createQuad(Trellis.PreferServerManaged, identifier, DC.modified,
+                        rdf.createLiteral(time.toString(), XSD.dateTime)),
+                    rdf.createQuad(Trellis.PreferUserManaged, identifier, DC.subject,
+                        rdf.createIRI("http://example.org/subject")),
+                    rdf.createQuad(Trellis.PreferUserManaged, identifier, DC.title, rdf.createLiteral(title))));
+    }
+
+    private static void assertVersion(final Resource res, final Instant time, final String title) {
+        assertEquals(time, res.getModified(), "Incorrect modification date!");
+        assertEquals(LDP.RDFSource, res.getInteractionModel(), "Incorrect interaction model!");
+        assertEquals(2L, res.stream(Trellis.PreferUserManaged).count(), "Incorrect user triple count!");
+        assertTrue(res.stream(Trellis.PreferUserManaged).anyMatch(t -> DC.title.equals(t.getPredicate())
+                    && rdf.createLiteral(title).equals(t.getObject())), "Incorrect title!");
+    }
 }
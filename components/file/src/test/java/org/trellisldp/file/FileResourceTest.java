@@ -14,11 +14,18 @@
 package org.trellisldp.file;
 
 import static java.time.Instant.parse;
+import static java.util.Arrays.asList;
 import static java.util.Optional.of;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDF;
@@ -149,4 +156,60 @@ public class FileResourceTest {
         assertEquals(4L, res.stream(Trellis.PreferServerManaged).count(), "Incorrect server triple count!");
         assertEquals(12L, res.stream().count(), "Incorrect total triple count!");
     }
+
+    @Test
+    public void testCompactResource() {
+        assertCompactResource("compact", true);
+    }
+
+    @Test
+    public void testUncompressedCompactResource() {
+        assertCompactResource("uncompressed", false);
+    }
+
+    @Test
+    public void testGzippedResource() throws IOException {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+        final File file = new File(getClass().getResource("/resource.nq").getFile());
+        final File gzipped = new File(file.getParentFile(), "resource.nq.gz");
+        try (final OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipped))) {
+            Files.copy(file.toPath(), out);
+        }
+        final Resource res = new FileResource(identifier, gzipped);
+
+        assertEquals(parse("2017-02-16T11:15:01Z"), res.getModified(), "Incorrect modification date!");
+        assertEquals(LDP.BasicContainer, res.getInteractionModel(), "Incorrect interaction model!");
+        assertEquals(3L, res.stream(LDP.PreferContainment).count(), "Incorrect containment count!");
+        assertEquals(3L, res.stream(Trellis.PreferUserManaged).count(), "Incorrect user triple count!");
+        assertEquals(8L, res.stream().count(), "Incorrect total triple count!");
+    }
+
+    private void assertCompactResource(final String directory, final boolean compress) {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+        final File file = new File(getClass().getResource("/resource.nq").getFile());
+        final File dir = new File(file.getParentFile(), directory);
+        assertTrue(dir.mkdirs() || dir.exists(), "Could not create compact memento directory!");
+        final Instant time = parse("2017-02-16T11:15:01Z");
+        FileUtils.writeCompactMemento(dir, new FileResource(identifier, file), time, compress);
+
+        final File compact = FileUtils.getCompactFile(dir, time);
+        assertTrue(compact.exists(), "Compact memento file doesn't exist!");
+        assertEquals(compact, FileUtils.getMementoFile(dir, time), "Incorrect memento file!");
+        final Resource res = new FileResource(identifier, compact);
+
+        assertEquals(identifier, res.getIdentifier(), "Incorrect identifier!");
+        assertEquals(time, res.getModified(), "Incorrect modification date!");
+        assertEquals(LDP.BasicContainer, res.getInteractionModel(), "Incorrect interaction model!");
+        assertFalse(res.getBinaryMetadata().isPresent(), "Unexpected binary present!");
+        assertFalse(res.hasAcl(), "Unexpected ACL present!");
+        assertEquals(3L, res.stream(LDP.PreferContainment).count(), "Incorrect containment count!");
+        assertEquals(3L, res.stream(Trellis.PreferUserManaged).count(), "Incorrect user triple count!");
+        assertEquals(2L, res.stream(Trellis.PreferServerManaged).count(), "Incorrect server managed count!");
+        assertEquals(5L, res.stream(asList(Trellis.PreferServerManaged, Trellis.PreferUserManaged)).count(),
+                "Incorrect combined triple count!");
+        assertEquals(0L, res.stream(Trellis.PreferAccessControl).count(), "Unexpected ACL triples!");
+        assertEquals(8L, res.stream().count(), "Incorrect total triple count!");
+        assertTrue(res.stream(Trellis.PreferUserManaged).anyMatch(t -> t.getObject().equals(
+                        rdf.createLiteral("A label", "eng"))), "Missing language-tagged literal!");
+    }
 }
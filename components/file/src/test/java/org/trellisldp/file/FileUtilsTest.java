@@ -14,6 +14,7 @@
 package org.trellisldp.file;
 
 import static java.time.Instant.now;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
@@ -22,6 +23,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Instant;
 import java.util.Optional;
 
 import org.apache.commons.rdf.api.IRI;
@@ -133,4 +136,39 @@ public class FileUtilsTest {
 
         assertThrows(UncheckedIOException.class, () -> FileUtils.writeMemento(dir, res, now()));
     }
+
+    @Test
+    public void testMementoFilePrecedence() throws IOException {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+        final File file = new File(getClass().getResource("/resource.nq").getFile());
+        final Resource res = new FileResource(identifier, file);
+        final Instant time = res.getModified();
+        final File dir = Files.createTempDirectory("trellis-mementos").toFile();
+        try {
+            assertEquals(FileUtils.getCompactFile(dir, time), FileUtils.getMementoFile(dir, time),
+                    "New mementos aren't written in the compact format!");
+
+            FileUtils.writeMemento(dir, res, time);
+            assertEquals(FileUtils.getNquadsFile(dir, time), FileUtils.getMementoFile(dir, time),
+                    "Legacy memento not found!");
+
+            // Writing a compact memento replaces the legacy file
+            FileUtils.writeCompactMemento(dir, res, time, true);
+            assertEquals(FileUtils.getCompactFile(dir, time), FileUtils.getMementoFile(dir, time),
+                    "Compact memento shadowed by a legacy file!");
+            assertFalse(FileUtils.getNquadsFile(dir, time).exists(), "Legacy memento wasn't removed!");
+
+            // A stray legacy file never shadows a compact memento
+            Files.copy(file.toPath(), FileUtils.getNquadsFile(dir, time).toPath());
+            assertEquals(FileUtils.getCompactFile(dir, time), FileUtils.getMementoFile(dir, time),
+                    "Compact memento shadowed by a legacy file!");
+
+            FileUtils.writeMemento(dir, res, time);
+            assertEquals(FileUtils.getNquadsFile(dir, time), FileUtils.getMementoFile(dir, time),
+                    "Legacy memento shadowed by a stale compact file!");
+            assertFalse(FileUtils.getCompactFile(dir, time).exists(), "Stale compact memento wasn't removed!");
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
 }
@@ -59,6 +59,7 @@ import org.apache.jena.sparql.syntax.ElementPathBlock;
 import org.slf4j.Logger;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.Resource;
+import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.DC;
 import org.trellisldp.vocabulary.LDP;
 import org.trellisldp.vocabulary.RDF;
@@ -240,7 +241,7 @@ public class TriplestoreResource implements Resource {
 
     @Override
     public boolean hasAcl() {
-        return fetchAclQuads().findAny().isPresent();
+        return data.containsKey(ACL.accessControl);
     }
 
     /**
@@ -23,6 +23,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.Optional.of;
 import static java.util.ServiceLoader.load;
 import static java.util.concurrent.CompletableFuture.runAsync;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.builder;
 import static org.apache.jena.graph.NodeFactory.createURI;
@@ -41,6 +42,7 @@ import static org.trellisldp.triplestore.TriplestoreUtils.asJenaDataset;
 import static org.trellisldp.triplestore.TriplestoreUtils.getBaseIRI;
 import static org.trellisldp.triplestore.TriplestoreUtils.getInstance;
 import static org.trellisldp.triplestore.TriplestoreUtils.getObject;
+import static org.trellisldp.triplestore.TriplestoreUtils.getSubject;
 import static org.trellisldp.vocabulary.Trellis.DeletedResource;
 import static org.trellisldp.vocabulary.Trellis.PreferAccessControl;
 import static org.trellisldp.vocabulary.Trellis.PreferAudit;
@@ -49,10 +51,13 @@ import static org.trellisldp.vocabulary.Trellis.PreferUserManaged;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -68,11 +73,20 @@ import org.apache.jena.query.Query;
 import org.apache.jena.rdfconnection.RDFConnection;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.E_Exists;
+import org.apache.jena.sparql.expr.E_IRI;
+import org.apache.jena.sparql.expr.E_Str;
+import org.apache.jena.sparql.expr.E_StrConcat;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.NodeValue;
 import org.apache.jena.sparql.modify.request.QuadAcc;
 import org.apache.jena.sparql.modify.request.QuadDataAcc;
 import org.apache.jena.sparql.modify.request.UpdateDataInsert;
 import org.apache.jena.sparql.modify.request.UpdateDeleteInsert;
 import org.apache.jena.sparql.modify.request.UpdateDeleteWhere;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementFilter;
 import org.apache.jena.sparql.syntax.ElementGroup;
 import org.apache.jena.sparql.syntax.ElementNamedGraph;
 import org.apache.jena.sparql.syntax.ElementPathBlock;
@@ -101,6 +115,7 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
     public static final String CONFIG_TRIPLESTORE_RDF_LOCATION = "trellis.triplestore.rdf.location";
 
     private static final String MODIFIED = "modified";
+    private static final String STORE_VERSION = "1";
 
     private static final Logger LOGGER = getLogger(TriplestoreResourceService.class);
     private static final JenaRDF rdf = getInstance();
@@ -108,6 +123,7 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
     private final Supplier<String> supplier;
     private final RDFConnection rdfConnection;
     private final Set<IRI> supportedIxnModels;
+    private final AtomicBoolean migrated = new AtomicBoolean();
 
     /**
      * Create a triplestore-backed resource service.
@@ -194,6 +210,12 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
                     dataset.add(PreferServerManaged, binary.getIdentifier(), DC.format, mimeType));
         });
 
+        // Record the presence of an ACL, so that it is loaded along with the other resource metadata
+        if (dataset.contains(of(PreferAccessControl), null, null, null)) {
+            dataset.add(PreferServerManaged, metadata.getIdentifier(), ACL.accessControl,
+                    rdf.createIRI(metadata.getIdentifier().getIRIString() + "?ext=acl"));
+        }
+
         storeResource(metadata.getIdentifier(), dataset, eventTime, type);
     }
 
@@ -318,6 +340,7 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
      * INSERT DATA {
      *   GRAPH trellis:PreferServerManaged {
      *     IDENTIFIER rdf:type ldp:Container ;
+     *                acl:accessControl IDENTIFIER?ext=acl ;
      *                dc:modified "NOW"^^xsd:dateTime }
      *   GRAPH IDENTIFIER?ext=audit {
      *     IDENTIFIER prov:wasGeneratedBy [
@@ -360,6 +383,8 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
                             rdf.asJenaNode(RDF.type), rdf.asJenaNode(LDP.BasicContainer))));
             sink.addQuad(new Quad(rdf.asJenaNode(PreferServerManaged), triple(rdf.asJenaNode(root),
                             rdf.asJenaNode(DC.modified), rdf.asJenaNode(time))));
+            sink.addQuad(new Quad(rdf.asJenaNode(PreferServerManaged), triple(rdf.asJenaNode(root),
+                            rdf.asJenaNode(ACL.accessControl), getAclIRI(root))));
 
             sink.addQuad(new Quad(getAclIRI(root), triple(rdf.asJenaNode(auth), rdf.asJenaNode(ACL.mode),
                             rdf.asJenaNode(ACL.Read))));
@@ -375,13 +400,130 @@ public class TriplestoreResourceService extends DefaultAuditService implements R
             update.add(new UpdateDataInsert(sink));
             rdfConnection.update(update);
         }
+        migrateOnce();
+    }
+
+    /**
+     * Migrate the store before it is first read, since the bundlers need not call {@link #initialize()}.
+     */
+    private void migrateOnce() {
+        if (!migrated.get()) {
+            synchronized (migrated) {
+                if (!migrated.get()) {
+                    migrate();
+                    migrated.set(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the ACL flag for resources written before it existed.
+     *
+     * <p>The store records its version in the server-managed graph, so that the migration runs only once.
+     * This code is equivalent to the SPARQL queries below.
+     *
+     * <pre><code>
+     * ASK { GRAPH trellis:PreferServerManaged { trellis:PreferServerManaged dc:hasVersion VERSION } }
+     * </code></pre>
+     *
+     * <pre><code>
+     * INSERT { GRAPH trellis:PreferServerManaged { ?resource acl:accessControl ?acl } }
+     * WHERE {
+     *   GRAPH trellis:PreferServerManaged { ?resource rdf:type ?type }
+     *   BIND(IRI(CONCAT(STR(?resource), "?ext=acl")) AS ?acl)
+     *   FILTER EXISTS { GRAPH ?acl { ?subject ?predicate ?object } }
+     * } ;
+     * INSERT DATA {
+     *   GRAPH trellis:PreferServerManaged { trellis:PreferServerManaged dc:hasVersion VERSION }
+     * }
+     * </code></pre>
+     */
+    private void migrate() {
+        final Node version = rdf.asJenaNode(rdf.createLiteral(STORE_VERSION, XSD.integer));
+        final Query q = new Query();
+        q.setQueryAskType();
+        final ElementPathBlock epb = new ElementPathBlock();
+        epb.addTriple(triple(rdf.asJenaNode(PreferServerManaged), rdf.asJenaNode(DC.hasVersion), version));
+        q.setQueryPattern(new ElementNamedGraph(rdf.asJenaNode(PreferServerManaged), epb));
+        if (rdfConnection.queryAsk(q)) {
+            return;
+        }
+
+        LOGGER.info("Recording the presence of ACLs in the triplestore");
+        final Var resource = Var.alloc("resource");
+        final Var acl = Var.alloc("acl");
+        final Var type = Var.alloc("type");
+        final UpdateDeleteInsert backfill = new UpdateDeleteInsert();
+        backfill.getInsertAcc().addQuad(new Quad(rdf.asJenaNode(PreferServerManaged), resource,
+                    rdf.asJenaNode(ACL.accessControl), acl));
+
+        final ElementPathBlock resources = new ElementPathBlock();
+        resources.addTriple(triple(resource, rdf.asJenaNode(RDF.type), type));
+        final ElementPathBlock aclTriples = new ElementPathBlock();
+        aclTriples.addTriple(triple(SUBJECT, PREDICATE, OBJECT));
+
+        final ExprList aclIRI = new ExprList(new E_Str(new ExprVar(resource)));
+        aclIRI.add(NodeValue.makeString("?ext=acl"));
+
+        final ElementGroup eg = new ElementGroup();
+        eg.addElement(new ElementNamedGraph(rdf.asJenaNode(PreferServerManaged), resources));
+        eg.addElement(new ElementBind(acl, new E_IRI(new E_StrConcat(aclIRI))));
+        eg.addElement(new ElementFilter(new E_Exists(new ElementNamedGraph(acl, aclTriples))));
+        backfill.setElement(eg);
+
+        final QuadDataAcc marker = new QuadDataAcc();
+        marker.addQuad(new Quad(rdf.asJenaNode(PreferServerManaged), triple(rdf.asJenaNode(PreferServerManaged),
+                        rdf.asJenaNode(DC.hasVersion), version)));
+
+        final UpdateRequest update = new UpdateRequest();
+        update.add(backfill);
+        update.add(new UpdateDataInsert(marker));
+        rdfConnection.update(update);
     }
 
     @Override
     public CompletionStage<Resource> get(final IRI identifier) {
+        if (!migrated.get()) {
+            // Until the ACL flag is recorded, a resource would not report its own ACL
+            return runAsync(this::migrateOnce)
+                .thenCompose(x -> TriplestoreResource.findResource(rdfConnection, identifier));
+        }
         return TriplestoreResource.findResource(rdfConnection, identifier);
     }
 
+    /**
+     * This code is equivalent to the SPARQL query below.
+     *
+     * <p><pre><code>
+     * SELECT ?subject
+     * WHERE {
+     *   GRAPH trellis:PreferServerManaged { ?subject dc:isPartOf IDENTIFIER ; acl:accessControl ?object }
+     * }
+     * </code></pre>
+     */
+    @Override
+    public CompletionStage<Optional<Set<IRI>>> getChildrenWithAcl(final IRI identifier) {
+        return supplyAsync(() -> {
+            migrateOnce();
+            final Query q = new Query();
+            q.setQuerySelectType();
+            q.addResultVar(SUBJECT);
+
+            final ElementPathBlock epb = new ElementPathBlock();
+            epb.addTriple(triple(SUBJECT, rdf.asJenaNode(DC.isPartOf), rdf.asJenaNode(identifier)));
+            epb.addTriple(triple(SUBJECT, rdf.asJenaNode(ACL.accessControl), OBJECT));
+
+            final ElementGroup elg = new ElementGroup();
+            elg.addElement(new ElementNamedGraph(rdf.asJenaNode(PreferServerManaged), epb));
+            q.setQueryPattern(elg);
+
+            final Set<IRI> children = new HashSet<>();
+            rdfConnection.querySelect(q, qs -> children.add((IRI) getSubject(qs)));
+            return of(children);
+        });
+    }
+
     @Override
     public String generateIdentifier() {
         return supplier.get();
@@ -14,6 +14,9 @@
 package org.trellisldp.triplestore;
 
 import static java.time.Instant.now;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Optional.of;
 import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.function.Predicate.isEqual;
@@ -32,6 +35,8 @@ import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 
 import java.io.File;
 import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -53,8 +58,10 @@ import org.mockito.Mock;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.api.Resource;
 import org.trellisldp.api.ResourceService;
+import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.AS;
 import org.trellisldp.vocabulary.DC;
+import org.trellisldp.vocabulary.FOAF;
 import org.trellisldp.vocabulary.LDP;
 import org.trellisldp.vocabulary.PROV;
 import org.trellisldp.vocabulary.RDF;
@@ -135,6 +142,88 @@ public class TriplestoreResourceServiceTest {
         final Resource res = svc.get(root).toCompletableFuture().join();
         assertAll("Check resource", checkResource(res, root, LDP.BasicContainer, early));
         assertAll("Check resource stream", checkResourceStream(res, 0L, 0L, 0L, 0L, 0L));
+        assertFalse(res.hasAcl(), "Unexpected ACL!");
+    }
+
+    @Test
+    public void testMigrateAclFlag() {
+        final JenaDataset dataset = rdf.createDataset();
+        final IRI aclId = rdf.createIRI(resource.getIRIString() + "?ext=acl");
+        final IRI auth = rdf.createIRI(aclId.getIRIString() + "#auth");
+        final Literal time = rdf.createLiteral(now().toString(), XSD.dateTime);
+        // A store written before the ACL flag was recorded
+        dataset.add(Trellis.PreferServerManaged, root, RDF.type, LDP.BasicContainer);
+        dataset.add(Trellis.PreferServerManaged, root, DC.modified, time);
+        dataset.add(Trellis.PreferServerManaged, resource, RDF.type, LDP.RDFSource);
+        dataset.add(Trellis.PreferServerManaged, resource, DC.isPartOf, root);
+        dataset.add(Trellis.PreferServerManaged, resource, DC.modified, time);
+        dataset.add(Trellis.PreferServerManaged, resource2, RDF.type, LDP.RDFSource);
+        dataset.add(Trellis.PreferServerManaged, resource2, DC.isPartOf, root);
+        dataset.add(Trellis.PreferServerManaged, resource2, DC.modified, time);
+        dataset.add(aclId, auth, ACL.mode, ACL.Read);
+        dataset.add(aclId, auth, ACL.agentClass, FOAF.Agent);
+        dataset.add(aclId, auth, ACL.accessTo, resource);
+
+        final RDFConnection rdfConnection = connect(wrap(dataset.asJenaDatasetGraph()));
+        final TriplestoreResourceService svc = new TriplestoreResourceService(rdfConnection);
+        svc.initialize();
+
+        assertTrue(svc.get(resource).toCompletableFuture().join().hasAcl(), "Missing ACL!");
+        assertFalse(svc.get(resource2).toCompletableFuture().join().hasAcl(), "Unexpected ACL!");
+        assertFalse(svc.get(root).toCompletableFuture().join().hasAcl(), "Unexpected ACL!");
+        assertTrue(dataset.contains(of(Trellis.PreferServerManaged), Trellis.PreferServerManaged, DC.hasVersion,
+                    null), "Missing store version!");
+
+        // Once the store is marked as migrated, the flag is not recomputed
+        dataset.remove(of(Trellis.PreferServerManaged), resource, ACL.accessControl, aclId);
+        new TriplestoreResourceService(rdfConnection).initialize();
+        assertFalse(svc.get(resource).toCompletableFuture().join().hasAcl(), "Unexpected migration!");
+    }
+
+    @Test
+    public void testMigrateWithoutInitialize() {
+        final JenaDataset dataset = rdf.createDataset();
+        final IRI aclId = rdf.createIRI(root.getIRIString() + "?ext=acl");
+        final IRI auth = rdf.createIRI(aclId.getIRIString() + "#auth");
+        final IRI agent = rdf.createIRI("http://example.com/agent");
+        // A store with a restrictive root ACL, written before the ACL flag was recorded
+        dataset.add(Trellis.PreferServerManaged, root, RDF.type, LDP.BasicContainer);
+        dataset.add(Trellis.PreferServerManaged, root, DC.modified, rdf.createLiteral(now().toString(),
+                    XSD.dateTime));
+        dataset.add(aclId, auth, ACL.mode, ACL.Read);
+        dataset.add(aclId, auth, ACL.agent, agent);
+        dataset.add(aclId, auth, ACL.accessTo, root);
+
+        // The bundlers construct the service without initializing it
+        final TriplestoreResourceService svc = new TriplestoreResourceService(
+                connect(wrap(dataset.asJenaDatasetGraph())));
+        final Resource res = svc.get(root).toCompletableFuture().join();
+        assertTrue(res.hasAcl(), "Root ACL not recognized after an upgrade!");
+        assertTrue(res.stream(Trellis.PreferAccessControl).anyMatch(t -> agent.equals(t.getObject())),
+                "Root ACL wasn't preserved!");
+        assertFalse(res.stream(Trellis.PreferAccessControl).anyMatch(t -> FOAF.Agent.equals(t.getObject())),
+                "Root ACL was replaced!");
+    }
+
+    @Test
+    public void testChildrenWithAcl() {
+        final JenaDataset dataset = rdf.createDataset();
+        final IRI aclId = rdf.createIRI(resource.getIRIString() + "?ext=acl");
+        dataset.add(Trellis.PreferServerManaged, resource, RDF.type, LDP.RDFSource);
+        dataset.add(Trellis.PreferServerManaged, resource, DC.isPartOf, root);
+        dataset.add(Trellis.PreferServerManaged, resource, ACL.accessControl, aclId);
+        dataset.add(Trellis.PreferServerManaged, resource2, RDF.type, LDP.RDFSource);
+        dataset.add(Trellis.PreferServerManaged, resource2, DC.isPartOf, root);
+
+        final TriplestoreResourceService svc = new TriplestoreResourceService(
+                connect(wrap(dataset.asJenaDatasetGraph())));
+        svc.initialize();
+
+        final Optional<Set<IRI>> children = svc.getChildrenWithAcl(root).toCompletableFuture().join();
+        assertTrue(children.isPresent(), "Children with an ACL not reported!");
+        assertEquals(singleton(resource), children.get(), "Incorrect children with an ACL!");
+        assertEquals(of(emptySet()), svc.getChildrenWithAcl(resource).toCompletableFuture().join(),
+                "Unexpected children with an ACL!");
     }
 
     @Test
@@ -165,6 +254,7 @@ public class TriplestoreResourceServiceTest {
         final Resource res2 = svc.get(root).toCompletableFuture().join();
         assertAll("Check resource", checkResource(res2, root, LDP.BasicContainer, later));
         assertAll("Check resource stream", checkResourceStream(res2, 4L, 5L, 1L, 0L, 0L));
+        assertTrue(res2.hasAcl(), "Missing ACL!");
     }
 
     @Test
@@ -214,6 +304,35 @@ public class TriplestoreResourceServiceTest {
             svc.get(root).thenAccept(checkRoot(later, 1L)).toCompletableFuture()).join();
     }
 
+    @Test
+    public void testPutLdpRsWithAcl() throws Exception {
+        final TriplestoreResourceService svc = new TriplestoreResourceService(
+                connect(wrap(rdf.createDataset().asJenaDatasetGraph())));
+        svc.initialize();
+
+        final Dataset dataset = rdf.createDataset();
+        final IRI auth = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource?ext=acl#auth");
+        dataset.add(Trellis.PreferUserManaged, resource, DC.title, rdf.createLiteral("title"));
+        dataset.add(Trellis.PreferAccessControl, auth, ACL.mode, ACL.Read);
+        dataset.add(Trellis.PreferAccessControl, auth, ACL.agentClass, FOAF.Agent);
+        dataset.add(Trellis.PreferAccessControl, auth, ACL.accessTo, resource);
+
+        assertDoesNotThrow(() -> svc.create(builder(resource).interactionModel(LDP.RDFSource).container(root).build(),
+                    dataset).toCompletableFuture().join(), "Unsuccessful create operation!");
+        svc.get(resource).thenAccept(res -> {
+            assertTrue(res.hasAcl(), "Missing ACL!");
+            assertEquals(3L, res.stream(Trellis.PreferAccessControl).count(), "Incorrect ACL triple count!");
+        }).toCompletableFuture().join();
+
+        dataset.remove(of(Trellis.PreferAccessControl), null, null, null);
+        assertDoesNotThrow(() -> svc.replace(builder(resource).interactionModel(LDP.RDFSource).container(root)
+                    .build(), dataset).toCompletableFuture().join(), "Unsuccessful replace operation!");
+        svc.get(resource).thenAccept(res -> {
+            assertFalse(res.hasAcl(), "Unexpected ACL!");
+            assertEquals(0L, res.stream(Trellis.PreferAccessControl).count(), "Incorrect ACL triple count!");
+        }).toCompletableFuture().join();
+    }
+
     @Test
     public void testPutLdpRsWithoutBaseUrl() throws Exception {
         final TriplestoreResourceService svc = new TriplestoreResourceService(
@@ -1307,6 +1426,7 @@ public class TriplestoreResourceServiceTest {
         return res -> {
             assertAll("Check resource", checkResource(res, root, LDP.BasicContainer, time));
             assertAll("Check resource stream", checkResourceStream(res, 0L, 5L, 0L, 0L, children));
+            assertTrue(res.hasAcl(), "Missing ACL!");
         };
     }
 
@@ -1320,6 +1440,7 @@ public class TriplestoreResourceServiceTest {
         return res -> {
             assertAll("Check resource", checkResource(res, resource, ldpType, time));
             assertAll("Check resource stream", checkResourceStream(res, properties, 0L, audit, 0L, children));
+            assertFalse(res.hasAcl(), "Unexpected ACL!");
         };
     }
 
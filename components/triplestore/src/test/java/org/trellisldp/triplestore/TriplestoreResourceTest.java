@@ -138,6 +138,7 @@ public class TriplestoreResourceTest {
         dataset.add(aclId, aclSubject, ACL.mode, ACL.Read);
         dataset.add(aclId, aclSubject, ACL.agentClass, FOAF.Agent);
         dataset.add(aclId, aclSubject, ACL.accessTo, identifier);
+        dataset.add(Trellis.PreferServerManaged, identifier, ACL.accessControl, aclId);
         auditService.creation(identifier, mockSession).forEach(q ->
                 dataset.add(auditId, q.getSubject(), q.getPredicate(), q.getObject()));
         final TriplestoreResource res = new TriplestoreResource(connect(wrap(dataset.asJenaDatasetGraph())),
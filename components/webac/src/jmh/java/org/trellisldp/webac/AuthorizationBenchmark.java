@@ -0,0 +1,327 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import static java.time.Instant.now;
+import static java.util.Arrays.asList;
+import static java.util.Optional.ofNullable;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.RDF.type;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trellisldp.api.CacheService;
+import org.trellisldp.api.Metadata;
+import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResourceService;
+import org.trellisldp.api.Session;
+import org.trellisldp.api.TrellisUtils;
+import org.trellisldp.vocabulary.ACL;
+import org.trellisldp.vocabulary.LDP;
+import org.trellisldp.vocabulary.Trellis;
+import org.trellisldp.vocabulary.VCARD;
+
+/**
+ * Measure the cost of authorizing a request.
+ *
+ * <p>The sample resource is nested beneath a container whose ACL grants access to an agent directly and to a
+ * group, so that a check reads the inherited authorizations and the group document. Run with the {@code gc}
+ * profiler, which is configured for this module, to report the allocation per authorized request
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    private static final RDF rdf = new JenaRDF();
+
+    private static final IRI root = rdf.createIRI(TRELLIS_DATA_PREFIX);
+    private static final IRI container = rdf.createIRI(TRELLIS_DATA_PREFIX + "container");
+    private static final IRI resource = rdf.createIRI(TRELLIS_DATA_PREFIX + "container/child/resource");
+    private static final IRI groupDocument = rdf.createIRI(TRELLIS_DATA_PREFIX + "groups");
+    private static final IRI group = rdf.createIRI(TRELLIS_DATA_PREFIX + "groups#editors");
+    private static final IRI agent = rdf.createIRI("https://people.example.org/users/agent");
+    private static final IRI member = rdf.createIRI("https://people.example.org/users/member");
+    private static final IRI delegate = rdf.createIRI("https://people.example.org/users/delegate");
+
+    /** Whether computed access modes are cached. **/
+    @Param({"true", "false"})
+    public boolean cached;
+
+    /** Whether compiled ACLs and group documents are indexed. **/
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private WebACService service;
+    private Session agentSession;
+    private Session memberSession;
+    private Session delegatedSession;
+
+    /**
+     * Create the resources and the authorization service.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Map<IRI, Resource> resources = new HashMap<>();
+        resources.put(root, new SampleResource(root, LDP.BasicContainer, false, Stream.empty()));
+        resources.put(container, new SampleResource(container, LDP.BasicContainer, true, Stream.of(
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), type, ACL.Authorization),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), ACL.agent, agent),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), ACL.agent, delegate),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), ACL.mode, ACL.Read),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), ACL.mode, ACL.Write),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(1), ACL.default_, container),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(2), type, ACL.Authorization),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(2), ACL.agentGroup, group),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(2), ACL.mode, ACL.Read),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(2), ACL.mode, ACL.Append),
+                        rdf.createQuad(Trellis.PreferAccessControl, authorization(2), ACL.default_, container))));
+        resources.put(rdf.createIRI(TRELLIS_DATA_PREFIX + "container/child"),
+                new SampleResource(rdf.createIRI(TRELLIS_DATA_PREFIX + "container/child"), LDP.BasicContainer,
+                    false, Stream.empty()));
+        resources.put(resource, new SampleResource(resource, LDP.RDFSource, false, Stream.empty()));
+        resources.put(groupDocument, new SampleResource(groupDocument, LDP.RDFSource, false, Stream.of(
+                        rdf.createQuad(Trellis.PreferUserManaged, group, type, VCARD.Group),
+                        rdf.createQuad(Trellis.PreferUserManaged, group, VCARD.hasMember, member))));
+
+        final String size = indexed ? "1000" : "0";
+        try {
+            System.setProperty(WebACService.CONFIG_WEBAC_ACL_INDEX_SIZE, size);
+            System.setProperty(WebACService.CONFIG_WEBAC_GROUP_INDEX_SIZE, size);
+            service = new WebACService(new SampleResourceService(resources),
+                    cached ? new SampleCache() : new WebACService.NoopAuthorizationCache());
+        } finally {
+            System.clearProperty(WebACService.CONFIG_WEBAC_ACL_INDEX_SIZE);
+            System.clearProperty(WebACService.CONFIG_WEBAC_GROUP_INDEX_SIZE);
+        }
+
+        agentSession = new SampleSession(agent, null);
+        memberSession = new SampleSession(member, null);
+        delegatedSession = new SampleSession(agent, delegate);
+    }
+
+    /**
+     * Measure an agent that is granted access directly.
+     * @return whether the agent may write
+     */
+    @Benchmark
+    public boolean authorizeAgent() {
+        return service.getAccessModes(resource, agentSession).contains(ACL.Write);
+    }
+
+    /**
+     * Measure an agent that is granted access as a member of a group.
+     * @return whether the agent may append
+     */
+    @Benchmark
+    public boolean authorizeGroupMember() {
+        return service.getAccessModes(resource, memberSession).contains(ACL.Append);
+    }
+
+    /**
+     * Measure an agent acting on behalf of another agent.
+     * @return whether the agent may write
+     */
+    @Benchmark
+    public boolean authorizeDelegated() {
+        return service.getAccessModes(resource, delegatedSession).contains(ACL.Write);
+    }
+
+    private static IRI authorization(final int index) {
+        return rdf.createIRI(TRELLIS_DATA_PREFIX + "container?ext=acl#auth" + index);
+    }
+
+    private static final class SampleSession implements Session {
+
+        private final IRI agent;
+        private final IRI delegatedBy;
+        private final Instant created = now();
+
+        private SampleSession(final IRI agent, final IRI delegatedBy) {
+            this.agent = agent;
+            this.delegatedBy = delegatedBy;
+        }
+
+        @Override
+        public IRI getIdentifier() {
+            return rdf.createIRI("trellis:session/benchmark");
+        }
+
+        @Override
+        public IRI getAgent() {
+            return agent;
+        }
+
+        @Override
+        public Optional<IRI> getDelegatedBy() {
+            return ofNullable(delegatedBy);
+        }
+
+        @Override
+        public Instant getCreated() {
+            return created;
+        }
+    }
+
+    private static final class SampleCache implements CacheService<String, Set<IRI>> {
+
+        private final Map<String, Set<IRI>> cache = new ConcurrentHashMap<>();
+
+        @Override
+        public Set<IRI> get(final String key, final Function<String, Set<IRI>> f) {
+            return cache.computeIfAbsent(key, f);
+        }
+
+        @Override
+        public Optional<Set<IRI>> getIfPresent(final String key) {
+            return ofNullable(cache.get(key));
+        }
+
+        @Override
+        public void invalidate(final String key) {
+            cache.remove(key);
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.clear();
+        }
+    }
+
+    private static final class SampleResource implements Resource {
+
+        private final IRI identifier;
+        private final IRI interactionModel;
+        private final boolean hasAcl;
+        private final List<Quad> quads = new ArrayList<>();
+        private final Instant modified = now();
+
+        private SampleResource(final IRI identifier, final IRI interactionModel, final boolean hasAcl,
+                final Stream<Quad> quads) {
+            this.identifier = identifier;
+            this.interactionModel = interactionModel;
+            this.hasAcl = hasAcl;
+            quads.forEachOrdered(this.quads::add);
+        }
+
+        @Override
+        public IRI getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public IRI getInteractionModel() {
+            return interactionModel;
+        }
+
+        @Override
+        public Instant getModified() {
+            return modified;
+        }
+
+        @Override
+        public Optional<IRI> getContainer() {
+            return TrellisUtils.getContainer(identifier);
+        }
+
+        @Override
+        public Stream<Quad> stream() {
+            return quads.stream();
+        }
+
+        @Override
+        public boolean hasAcl() {
+            return hasAcl;
+        }
+    }
+
+    private static final class SampleResourceService implements ResourceService {
+
+        private final Map<IRI, Resource> resources;
+
+        private SampleResourceService(final Map<IRI, Resource> resources) {
+            this.resources = resources;
+        }
+
+        @Override
+        public CompletionStage<? extends Resource> get(final IRI identifier) {
+            return completedFuture(resources.getOrDefault(identifier, MISSING_RESOURCE));
+        }
+
+        @Override
+        public CompletionStage<Void> replace(final Metadata metadata, final Dataset dataset) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<Void> delete(final Metadata metadata) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<Void> add(final IRI identifier, final Dataset dataset) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<Void> touch(final IRI identifier) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<IRI> supportedInteractionModels() {
+            return new HashSet<>(asList(LDP.RDFSource, LDP.BasicContainer));
+        }
+
+        @Override
+        public String generateIdentifier() {
+            return "benchmark";
+        }
+    }
+}
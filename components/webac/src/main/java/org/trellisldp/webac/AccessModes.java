@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.IRI;
+import org.trellisldp.vocabulary.ACL;
+
+/**
+ * Access modes, represented as a bitmask.
+ *
+ * <p>There are only four WebAC access modes, so any combination of them fits in an {@code int}. Modes are
+ * combined with bitwise operations while an authorization is evaluated, and are converted to a {@link Set} only
+ * when they are returned. There is one immutable set for each combination, backed by the bitmask itself, so
+ * that the conversion allocates nothing and membership checks on the result remain bitwise.
+ *
+ * <p>A value of {@code acl:mode} other than the four WebAC modes has no bit, so it is ignored when an
+ * authorization is evaluated and is never reported as a granted mode.
+ */
+final class AccessModes {
+
+    /** acl:Read. **/
+    static final int READ = 1;
+
+    /** acl:Write. **/
+    static final int WRITE = 1 << 1;
+
+    /** acl:Append. **/
+    static final int APPEND = 1 << 2;
+
+    /** acl:Control. **/
+    static final int CONTROL = 1 << 3;
+
+    /** No access. **/
+    static final int NONE = 0;
+
+    /** Every access mode. **/
+    static final int ALL = READ | WRITE | APPEND | CONTROL;
+
+    private static final IRI[] MODES = new IRI[] { ACL.Read, ACL.Write, ACL.Append, ACL.Control };
+    private static final ModeSet[] SETS = new ModeSet[ALL + 1];
+
+    static {
+        for (int i = 0; i <= ALL; i++) {
+            SETS[i] = new ModeSet(i);
+        }
+    }
+
+    /**
+     * Get the bit for an access mode.
+     *
+     * @param mode the access mode
+     * @return the bit, or zero if the value is not a WebAC access mode
+     */
+    static int bit(final Object mode) {
+        for (int i = 0; i < MODES.length; i++) {
+            if (MODES[i].equals(mode)) {
+                return 1 << i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Get the bitmask for a collection of access modes.
+     *
+     * @param modes the access modes
+     * @return the bitmask
+     */
+    static int toMask(final Collection<IRI> modes) {
+        if (modes instanceof ModeSet) {
+            return ((ModeSet) modes).mask;
+        }
+        int mask = NONE;
+        for (final IRI mode : modes) {
+            mask |= bit(mode);
+        }
+        return mask;
+    }
+
+    /**
+     * Get the immutable set of access modes for a bitmask.
+     *
+     * @param mask the bitmask
+     * @return the access modes
+     */
+    static Set<IRI> toSet(final int mask) {
+        return SETS[mask & ALL];
+    }
+
+    private AccessModes() {
+        // prevent instantiation
+    }
+
+    private static final class ModeSet extends AbstractSet<IRI> {
+
+        private final int mask;
+
+        private ModeSet(final int mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean contains(final Object value) {
+            return value instanceof IRI && (mask & bit(value)) != NONE;
+        }
+
+        @Override
+        public int size() {
+            return Integer.bitCount(mask);
+        }
+
+        @Override
+        public Iterator<IRI> iterator() {
+            return new Iterator<IRI>() {
+                private int remaining = mask;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining != NONE;
+                }
+
+                @Override
+                public IRI next() {
+                    if (remaining == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    final int index = Integer.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    return MODES[index];
+                }
+            };
+        }
+    }
+}
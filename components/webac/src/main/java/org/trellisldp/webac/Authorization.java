@@ -46,6 +46,7 @@ public class Authorization {
 
     private final BlankNodeOrIRI identifier;
     private final Map<IRI, Set<IRI>> dataMap = new HashMap<>();
+    private final int modes;
 
     /**
      * Create an Authorization object from a graph and an identifier.
@@ -78,6 +79,7 @@ public class Authorization {
         graph.stream(identifier, null, null).filter(triple -> dataMap.containsKey(triple.getPredicate()))
             .filter(triple -> triple.getObject() instanceof IRI)
             .forEachOrdered(triple -> dataMap.get(triple.getPredicate()).add((IRI) triple.getObject()));
+        this.modes = AccessModes.toMask(dataMap.get(ACL.mode));
     }
 
     /**
@@ -125,6 +127,15 @@ public class Authorization {
         return unmodifiableSet(dataMap.get(ACL.mode));
     }
 
+    /**
+     * Retrieve the access modes that are associated with this Authorization, as a bitmask.
+     *
+     * @return the access modes
+     */
+    int getModeMask() {
+        return modes;
+    }
+
     /**
      * Retrieve the resource identifiers to which this Authorization applies.
      *
@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Stream.concat;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * An index of the compiled access control state of each resource.
+ *
+ * <p>For every resource that has been checked, the index records whether the resource exists and, if it has an
+ * ACL, the parsed authorizations that grant access to the resource itself and those that are inherited by its
+ * descendants, each indexed by agent. Finding the authorizations that govern a resource is then a walk of
+ * in-memory lookups to the nearest ancestor with an ACL. Entries are removed for a whole subtree whenever an
+ * ACL in that subtree changes or a resource in it is created or deleted.
+ */
+final class AuthorizationIndex {
+
+    private final long capacity;
+    private final NavigableMap<String, Node> nodes = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create an authorization index.
+     *
+     * @param capacity the maximum number of resources to index, or zero to disable the index
+     */
+    AuthorizationIndex(final long capacity) {
+        this.capacity = Math.max(0L, capacity);
+    }
+
+    /**
+     * Get the compiled access control state of a resource.
+     *
+     * @param identifier the resource identifier
+     * @param loader a function that compiles the state from the persistence layer
+     * @return the next completion stage, containing the access control state
+     */
+    CompletionStage<Node> get(final IRI identifier, final Function<IRI, CompletionStage<Node>> loader) {
+        if (capacity == 0L) {
+            return loader.apply(identifier);
+        }
+        final Node cached = nodes.get(identifier.getIRIString());
+        if (nonNull(cached)) {
+            return completedFuture(cached);
+        }
+        final long current = generation.get();
+        return loader.apply(identifier).thenApply(node -> {
+            // A state that was compiled while part of the tree was invalidated may already be out of date
+            if (generation.get() == current) {
+                if (size.get() >= capacity) {
+                    nodes.clear();
+                    size.set(0L);
+                }
+                if (isNull(nodes.putIfAbsent(identifier.getIRIString(), node))) {
+                    size.incrementAndGet();
+                }
+            }
+            return node;
+        });
+    }
+
+    /**
+     * Remove the state of a resource and of every resource beneath it.
+     *
+     * @param identifier the resource identifier
+     */
+    void invalidate(final IRI identifier) {
+        generation.incrementAndGet();
+        final String id = identifier.getIRIString();
+        final String base = id.endsWith("/") ? id.substring(0, id.length() - 1) : id;
+        remove(base);
+        nodes.subMap(base + "/", true, base + "/" + Character.MAX_VALUE, false).keySet().forEach(this::remove);
+    }
+
+    private void remove(final String identifier) {
+        if (nonNull(nodes.remove(identifier))) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * The compiled access control state of a single resource.
+     */
+    static final class Node {
+
+        /** The state of a resource that does not exist. **/
+        static final Node MISSING = new Node(false, null, emptyList());
+
+        /** The state of a resource that exists but has no ACL. **/
+        static final Node UNCONTROLLED = new Node(true, null, emptyList());
+
+        private final boolean exists;
+        private final AgentIndex accessTo;
+        private final AgentIndex inheritable;
+
+        private Node(final boolean exists, final IRI identifier, final List<Authorization> authorizations) {
+            this.exists = exists;
+            if (nonNull(identifier)) {
+                final boolean isRoot = TRELLIS_DATA_PREFIX.equals(identifier.getIRIString());
+                this.accessTo = new AgentIndex(authorizations, auth -> auth.getAccessTo().contains(identifier));
+                this.inheritable = new AgentIndex(authorizations, auth ->
+                        isRoot || auth.getDefault().contains(identifier));
+            } else {
+                this.accessTo = null;
+                this.inheritable = null;
+            }
+        }
+
+        /**
+         * Compile the state of a resource that has an ACL.
+         *
+         * @param identifier the resource identifier
+         * @param authorizations the authorizations in the ACL
+         * @return the access control state
+         */
+        static Node withAcl(final IRI identifier, final List<Authorization> authorizations) {
+            return new Node(true, identifier, authorizations);
+        }
+
+        /**
+         * Determine whether the resource exists.
+         *
+         * @return true if the resource exists
+         */
+        boolean exists() {
+            return exists;
+        }
+
+        /**
+         * Determine whether the resource has an ACL.
+         *
+         * @return true if the resource has an ACL
+         */
+        boolean hasAcl() {
+            return nonNull(accessTo);
+        }
+
+        /**
+         * Determine whether the ACL contains any authorizations that descendants inherit.
+         *
+         * @return true if the ACL has inheritable authorizations
+         */
+        boolean isInheritable() {
+            return hasAcl() && !inheritable.isEmpty();
+        }
+
+        /**
+         * Get the authorizations granting access to the resource that may apply to an agent.
+         *
+         * @param agent the agent
+         * @return the candidate authorizations
+         */
+        Stream<Authorization> getAccessTo(final IRI agent) {
+            return hasAcl() ? accessTo.getCandidates(agent) : Stream.empty();
+        }
+
+        /**
+         * Get the authorizations inherited by descendants of the resource that may apply to an agent.
+         *
+         * @param agent the agent
+         * @return the candidate authorizations
+         */
+        Stream<Authorization> getInheritable(final IRI agent) {
+            return hasAcl() ? inheritable.getCandidates(agent) : Stream.empty();
+        }
+    }
+
+    /**
+     * A set of authorizations, indexed by the agents they name.
+     *
+     * <p>Authorizations that apply to agent classes or groups cannot be resolved by agent alone, so they are
+     * always returned as candidates.
+     */
+    private static final class AgentIndex {
+
+        private final Map<IRI, List<Authorization>> byAgent = new HashMap<>();
+        private final List<Authorization> others = new ArrayList<>();
+        private boolean matched;
+
+        private AgentIndex(final List<Authorization> authorizations,
+                final Predicate<Authorization> filter) {
+            authorizations.stream().filter(filter).forEachOrdered(auth -> {
+                matched = true;
+                auth.getAgent().forEach(agent -> byAgent.computeIfAbsent(agent, k -> new ArrayList<>()).add(auth));
+                if (!auth.getAgentClass().isEmpty() || !auth.getAgentGroup().isEmpty()) {
+                    others.add(auth);
+                }
+            });
+        }
+
+        private boolean isEmpty() {
+            return !matched;
+        }
+
+        private Stream<Authorization> getCandidates(final IRI agent) {
+            return concat(byAgent.getOrDefault(agent, emptyList()).stream(), others.stream()).distinct();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.ConcurrentHashMap.newKeySet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Triple;
+import org.trellisldp.vocabulary.RDF;
+import org.trellisldp.vocabulary.VCARD;
+
+/**
+ * An index of agent group membership.
+ *
+ * <p>Each group document is read once and compiled into a hash set of members for every group it describes, so
+ * that checking whether an agent belongs to a group is a constant-time lookup. A group may contain other groups:
+ * a member is followed as a nested group if the document describes its members, or declares it to be a
+ * {@code vcard:Group}. Entries are removed whenever a group document changes.
+ *
+ * <p>Every group document that has been read is also remembered apart from the bounded index, so that a change to
+ * it is reported even after its entry has been evicted, and cached decisions that relied on it can be discarded.
+ */
+final class GroupIndex {
+
+    private final long capacity;
+    private final NavigableMap<String, Map<IRI, Members>> documents = new ConcurrentSkipListMap<>();
+    private final NavigableSet<String> watched = new ConcurrentSkipListSet<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a group index.
+     *
+     * @param capacity the maximum number of group documents to index, or zero to read them on every check
+     */
+    GroupIndex(final long capacity) {
+        this.capacity = Math.max(0L, capacity);
+    }
+
+    /**
+     * Determine whether an agent is a member of a group, or of any group nested within it.
+     *
+     * @param group the group
+     * @param agent the agent
+     * @param loader a function that reads the triples of a group document from the persistence layer
+     * @return the next completion stage, indicating whether the agent is a member
+     */
+    CompletionStage<Boolean> isMember(final IRI group, final IRI agent,
+            final Function<IRI, CompletionStage<Stream<Triple>>> loader) {
+        final Set<IRI> visited = newKeySet();
+        visited.add(group);
+        return isMember(group, agent, loader, visited);
+    }
+
+    /**
+     * Remove the group documents at or beneath a resource.
+     *
+     * @param identifier the resource identifier
+     * @return true if any group document at or beneath the resource has ever been read
+     */
+    boolean invalidate(final IRI identifier) {
+        generation.incrementAndGet();
+        final String id = identifier.getIRIString();
+        final String base = id.endsWith("/") ? id.substring(0, id.length() - 1) : id;
+        remove(base);
+        for (final String key : documents.subMap(base + "/", true, base + "/" + Character.MAX_VALUE, false)
+                .keySet()) {
+            remove(key);
+        }
+        return watched.contains(base)
+            || !watched.subSet(base + "/", true, base + "/" + Character.MAX_VALUE, false).isEmpty();
+    }
+
+    /**
+     * Compile the groups described by a document.
+     *
+     * @param triples the triples of the document
+     * @return the members of each group, keyed by group
+     */
+    static Map<IRI, Members> compile(final Stream<Triple> triples) {
+        final Map<IRI, Set<IRI>> members = new HashMap<>();
+        final Set<IRI> declared = new HashSet<>();
+        triples.filter(t -> t.getSubject() instanceof IRI && t.getObject() instanceof IRI).forEach(t -> {
+            if (VCARD.hasMember.equals(t.getPredicate())) {
+                members.computeIfAbsent((IRI) t.getSubject(), k -> new HashSet<>()).add((IRI) t.getObject());
+            } else if (RDF.type.equals(t.getPredicate()) && VCARD.Group.equals(t.getObject())) {
+                declared.add((IRI) t.getSubject());
+            }
+        });
+        final Map<IRI, Members> groups = new HashMap<>();
+        members.forEach((group, agents) -> {
+            final List<IRI> nested = new ArrayList<>();
+            agents.stream().filter(member -> members.containsKey(member) || declared.contains(member))
+                .forEachOrdered(nested::add);
+            groups.put(group, new Members(agents, nested));
+        });
+        return groups;
+    }
+
+    private CompletionStage<Boolean> isMember(final IRI group, final IRI agent,
+            final Function<IRI, CompletionStage<Stream<Triple>>> loader, final Set<IRI> visited) {
+        return getGroups(WebACService.cleanIdentifier(group), loader).thenCompose(groups -> {
+            final Members members = groups.get(group);
+            if (isNull(members)) {
+                return completedFuture(false);
+            } else if (members.agents.contains(agent)) {
+                return completedFuture(true);
+            }
+            return isNestedMember(members.groups.iterator(), agent, loader, visited);
+        });
+    }
+
+    private CompletionStage<Boolean> isNestedMember(final Iterator<IRI> groups, final IRI agent,
+            final Function<IRI, CompletionStage<Stream<Triple>>> loader, final Set<IRI> visited) {
+        while (groups.hasNext()) {
+            final IRI group = groups.next();
+            // A group that is already being checked cannot add any members
+            if (visited.add(group)) {
+                return isMember(group, agent, loader, visited).thenCompose(found -> {
+                    if (found) {
+                        return completedFuture(true);
+                    }
+                    return isNestedMember(groups, agent, loader, visited);
+                });
+            }
+        }
+        return completedFuture(false);
+    }
+
+    private CompletionStage<Map<IRI, Members>> getGroups(final IRI document,
+            final Function<IRI, CompletionStage<Stream<Triple>>> loader) {
+        watched.add(document.getIRIString());
+        if (capacity > 0L) {
+            final Map<IRI, Members> cached = documents.get(document.getIRIString());
+            if (nonNull(cached)) {
+                return completedFuture(cached);
+            }
+        }
+        final long current = generation.get();
+        return loader.apply(document).thenApply(triples -> {
+            final Map<IRI, Members> groups;
+            try (final Stream<Triple> stream = triples) {
+                groups = compile(stream);
+            }
+            // A document that was read while group documents were changing may already be out of date
+            if (capacity > 0L && generation.get() == current) {
+                if (size.get() >= capacity) {
+                    documents.clear();
+                    size.set(0L);
+                }
+                if (isNull(documents.putIfAbsent(document.getIRIString(), groups))) {
+                    size.incrementAndGet();
+                }
+            }
+            return groups;
+        });
+    }
+
+    private void remove(final String document) {
+        if (nonNull(documents.remove(document))) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * The members of a single group.
+     */
+    static final class Members {
+
+        private final Set<IRI> agents;
+        private final List<IRI> groups;
+
+        private Members(final Set<IRI> agents, final List<IRI> groups) {
+            this.agents = agents;
+            this.groups = groups;
+        }
+
+        /**
+         * Get the direct members of the group.
+         *
+         * @return the members
+         */
+        Set<IRI> getAgents() {
+            return agents;
+        }
+
+        /**
+         * Get the members of the group that are themselves groups.
+         *
+         * @return the nested groups
+         */
+        List<IRI> getGroups() {
+            return groups;
+        }
+    }
+}
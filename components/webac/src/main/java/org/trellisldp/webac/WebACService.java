@@ -19,32 +19,42 @@ import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.ElementType.TYPE;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
-import static java.util.Collections.unmodifiableSet;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.of;
 import static java.util.ServiceLoader.load;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.ConcurrentHashMap.newKeySet;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 import static org.apache.tamaya.ConfigurationProvider.getConfiguration;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.trellisldp.api.Resource.SpecialResources.DELETED_RESOURCE;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
-import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 import static org.trellisldp.api.TrellisUtils.getContainer;
 import static org.trellisldp.api.TrellisUtils.getInstance;
 import static org.trellisldp.api.TrellisUtils.toGraph;
 import static org.trellisldp.webac.WrappedGraph.wrap;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import javax.enterprise.inject.Alternative;
@@ -53,7 +63,6 @@ import javax.inject.Inject;
 import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDF;
-import org.apache.commons.rdf.api.RDFTerm;
 import org.apache.commons.rdf.api.Triple;
 import org.slf4j.Logger;
 import org.trellisldp.api.AccessControlService;
@@ -64,7 +73,6 @@ import org.trellisldp.api.Session;
 import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.FOAF;
 import org.trellisldp.vocabulary.Trellis;
-import org.trellisldp.vocabulary.VCARD;
 
 /**
  * An {@link AccessControlService} implementation, based on the rules defined by WebAC.
@@ -79,21 +87,32 @@ public class WebACService implements AccessControlService {
     /** The configuration key controlling whether to check member resources at the AuthZ enforcement point. **/
     public static final String CONFIG_WEBAC_MEMBERSHIP_CHECK = "trellis.webac.membership.check";
 
+    /** The configuration key controlling how many resources may have cached access modes before the whole
+     * cache is cleared, in place of precise invalidation. **/
+    public static final String CONFIG_WEBAC_CACHE_INDEX_SIZE = "trellis.webac.cache.index.size";
+
+    /** The configuration key controlling how many resources may have their compiled ACL state indexed, or 0
+     * (the default) to read ACLs from the persistence layer on every authorization check. **/
+    public static final String CONFIG_WEBAC_ACL_INDEX_SIZE = "trellis.webac.acl.index.size";
+
+    /** The configuration key controlling how many group documents may have their membership indexed, or 0
+     * (the default) to read group documents from the persistence layer on every authorization check. **/
+    public static final String CONFIG_WEBAC_GROUP_INDEX_SIZE = "trellis.webac.group.index.size";
+
     private static final Logger LOGGER = getLogger(WebACService.class);
     private static final RDF rdf = getInstance();
-    private static final IRI root = rdf.createIRI(TRELLIS_DATA_PREFIX);
-    private static final Set<IRI> allModes = new HashSet<>();
-
-    static {
-        allModes.add(ACL.Read);
-        allModes.add(ACL.Write);
-        allModes.add(ACL.Control);
-        allModes.add(ACL.Append);
-    }
+    private static final int WRITABLE = AccessModes.WRITE | AccessModes.APPEND;
 
     private final ResourceService resourceService;
     private final CacheService<String, Set<IRI>> cache;
     private final boolean checkMembershipResources;
+    private final long maxIndexSize;
+    private final NavigableMap<String, Set<String>> cacheIndex = new ConcurrentSkipListMap<>();
+    private final AtomicLong indexSize = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder invalidations = new LongAdder();
+    private final AuthorizationIndex authorizations;
+    private final GroupIndex groups;
 
     /**
      * Create a WebAC-based authorization service.
@@ -137,92 +156,303 @@ public class WebACService implements AccessControlService {
         this.resourceService = requireNonNull(resourceService, "A non-null ResourceService must be provided!");
         this.cache = requireNonNull(cache, "A non-null Cache must be provided!");
         this.checkMembershipResources = checkMembershipResources;
+        this.maxIndexSize = getConfiguration().getOrDefault(CONFIG_WEBAC_CACHE_INDEX_SIZE, Long.class, 100000L);
+        this.authorizations = new AuthorizationIndex(getConfiguration()
+                .getOrDefault(CONFIG_WEBAC_ACL_INDEX_SIZE, Long.class, 0L));
+        this.groups = new GroupIndex(getConfiguration()
+                .getOrDefault(CONFIG_WEBAC_GROUP_INDEX_SIZE, Long.class, 0L));
     }
 
     @Override
     public Set<IRI> getAccessModes(final IRI identifier, final Session session) {
+        try {
+            return getAccessModesAsync(identifier, session).toCompletableFuture().join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public CompletionStage<Set<IRI>> getAccessModesAsync(final IRI identifier, final Session session) {
+        requireNonNull(session, "A non-null session must be provided!");
+
+        if (Trellis.AdministratorAgent.equals(session.getAgent())) {
+            return completedFuture(AccessModes.toSet(AccessModes.ALL));
+        }
+
+        final CompletionStage<Integer> cachedModes = getCachedAuthz(identifier, session.getAgent());
+        return session.getDelegatedBy().map(delegate -> getCachedAuthz(identifier, delegate)
+                .thenCombine(cachedModes, (delegateModes, agentModes) ->
+                    AccessModes.toSet(delegateModes & agentModes)))
+            .orElseGet(() -> cachedModes.thenApply(AccessModes::toSet));
+    }
+
+    /**
+     * Get the allowable access modes for the given session to each of the children of a container.
+     *
+     * <p>The authorizations that the container passes on to its descendants are resolved once and shared by
+     * every child that has no ACL of its own; only the children with their own ACL are evaluated separately.
+     * If the resource service reports which children have their own ACL, no other child is retrieved.
+     *
+     * @param container the container identifier
+     * @param children the identifiers of the container's children
+     * @param session the agent's session
+     * @return the next completion stage, containing the set of allowable access modes for each child
+     */
+    @Override
+    public CompletionStage<Map<IRI, Set<IRI>>> getAccessModesForChildren(final IRI container,
+            final Collection<IRI> children, final Session session) {
         requireNonNull(session, "A non-null session must be provided!");
 
         if (Trellis.AdministratorAgent.equals(session.getAgent())) {
-            return unmodifiableSet(allModes);
+            final Map<IRI, Set<IRI>> modes = new HashMap<>();
+            children.forEach(child -> modes.put(child, AccessModes.toSet(AccessModes.ALL)));
+            return completedFuture(modes);
+        }
+
+        final CompletionStage<Map<IRI, Integer>> agentModes = getChildModes(container, children, session.getAgent());
+        return session.getDelegatedBy().map(delegate -> getChildModes(container, children, delegate)
+                .thenCombine(agentModes, (delegateModes, modes) -> toModeSets(modes, delegateModes)))
+            .orElseGet(() -> agentModes.thenApply(modes -> toModeSets(modes, null)));
+    }
+
+    /**
+     * Discard the cached access modes of a resource and of every resource beneath it.
+     *
+     * <p>Cached access modes are indexed by resource, in identifier order, so that the entries of a subtree
+     * are found without scanning the cache.
+     *
+     * @param identifier the resource identifier
+     */
+    @Override
+    public void invalidate(final IRI identifier) {
+        generation.incrementAndGet();
+        authorizations.invalidate(identifier);
+        if (groups.invalidate(identifier)) {
+            invalidateAll();
+            return;
+        }
+        final String id = identifier.getIRIString();
+        final String base = id.endsWith("/") ? id.substring(0, id.length() - 1) : id;
+        invalidateKeys(base);
+        cacheIndex.subMap(base + "/", true, base + "/" + Character.MAX_VALUE, false).keySet()
+            .forEach(this::invalidateKeys);
+    }
+
+    /**
+     * Discard any cached group membership read from the given resource.
+     *
+     * <p>A group may be named in any ACL, so if the resource is a group document that has been read, every cached
+     * access mode is discarded.
+     *
+     * @param identifier the resource identifier
+     */
+    @Override
+    public void resourceChanged(final IRI identifier) {
+        if (groups.invalidate(identifier)) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Get the number of cached access modes that were discarded because a resource or its ACL changed.
+     *
+     * @return the number of invalidated cache entries
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private CompletionStage<Integer> getCachedAuthz(final IRI identifier, final IRI agent) {
+        final String key = getCacheKey(identifier, agent);
+        final Optional<Set<IRI>> cached = cache.getIfPresent(key);
+        if (cached.isPresent()) {
+            return completedFuture(AccessModes.toMask(cached.get()));
         }
+        final long current = generation.get();
+        return getAuthz(identifier, agent).thenApply(computed -> {
+            // The cached value is the shared set for these modes, so a cache hit converts back without copying
+            final int modes = AccessModes.toMask(cache.get(key, k -> AccessModes.toSet(computed)));
+            index(identifier.getIRIString(), key);
+            if (generation.get() != current) {
+                // An ACL may have changed while these modes were computed, so they must not outlive this request
+                cache.invalidate(key);
+            }
+            return modes;
+        });
+    }
 
-        final Set<IRI> cachedModes = cache.get(getCacheKey(identifier, session.getAgent()), k ->
-                getAuthz(identifier, session.getAgent()));
-        return session.getDelegatedBy().map(delegate -> {
-                final Set<IRI> delegatedModes = new HashSet<>(cache.get(getCacheKey(identifier, delegate), k ->
-                            getAuthz(identifier, delegate)));
-                delegatedModes.retainAll(cachedModes);
-                return unmodifiableSet(delegatedModes);
-            }).orElseGet(() -> unmodifiableSet(cachedModes));
+    private void index(final String identifier, final String key) {
+        cacheIndex.computeIfAbsent(identifier, k -> {
+            if (indexSize.incrementAndGet() > maxIndexSize) {
+                // Rather than grow without bound, start over with an empty cache
+                LOGGER.debug("Authorization cache index exceeded {} resources; clearing the cache", maxIndexSize);
+                generation.incrementAndGet();
+                cacheIndex.clear();
+                indexSize.set(1L);
+                cache.invalidateAll();
+            }
+            return newKeySet();
+        }).add(key);
+    }
+
+    private void invalidateAll() {
+        generation.incrementAndGet();
+        cacheIndex.clear();
+        indexSize.set(0L);
+        cache.invalidateAll();
+    }
+
+    private void invalidateKeys(final String identifier) {
+        final Set<String> keys = cacheIndex.remove(identifier);
+        if (nonNull(keys)) {
+            indexSize.decrementAndGet();
+            keys.forEach(cache::invalidate);
+            invalidations.add(keys.size());
+        }
     }
 
     private String getCacheKey(final IRI identifier, final IRI agent) {
         return join("||", identifier.getIRIString(), agent.getIRIString());
     }
 
-    private boolean hasWritableMode(final Set<IRI> modes) {
-        return modes.contains(ACL.Write) || modes.contains(ACL.Append);
+    private static Map<IRI, Set<IRI>> toModeSets(final Map<IRI, Integer> modes,
+            final Map<IRI, Integer> delegateModes) {
+        final Map<IRI, Set<IRI>> sets = new HashMap<>();
+        modes.forEach((child, mask) -> sets.put(child,
+                    AccessModes.toSet(isNull(delegateModes) ? mask : mask & delegateModes.get(child))));
+        return sets;
     }
 
-    private Set<IRI> getAuthz(final IRI identifier, final IRI agent) {
-        final Set<IRI> modes = getModesFor(identifier, agent);
-        // consider membership resources, if relevant
-        if (checkMembershipResources && hasWritableMode(modes)) {
-            getContainer(identifier).map(resourceService::get).map(CompletionStage::toCompletableFuture)
-                .map(CompletableFuture::join).flatMap(Resource::getMembershipResource)
-                .map(WebACService::cleanIdentifier).map(member -> getModesFor(member, agent)).ifPresent(memberModes -> {
-                    if (!memberModes.contains(ACL.Write)) {
-                        modes.remove(ACL.Write);
-                    }
-                    if (!memberModes.contains(ACL.Append)) {
-                        modes.remove(ACL.Append);
+    private CompletionStage<Map<IRI, Integer>> getChildModes(final IRI container, final Collection<IRI> children,
+            final IRI agent) {
+        // Every child without an ACL of its own inherits the same authorizations from the container
+        final CompletableFuture<Integer> inherited = getInheritableAuthorizationsFrom(container, agent)
+            .thenCompose(authorizations -> getGrantedModes(authorizations, agent))
+            .thenCompose(modes -> checkMembership(of(container), agent, modes)).toCompletableFuture();
+        // When the resource service can tell which children have their own ACL, the others are not retrieved
+        final CompletableFuture<Optional<Set<IRI>>> withAcl = resourceService.getChildrenWithAcl(container)
+            .toCompletableFuture();
+        final Map<IRI, CompletableFuture<Integer>> modes = new HashMap<>();
+        for (final IRI child : children) {
+            modes.put(child, withAcl.thenCompose(controlled -> {
+                if (controlled.isPresent() && !controlled.get().contains(child)) {
+                    return inherited;
+                }
+                return getNode(child).thenCompose(node -> {
+                    if (!node.exists()) {
+                        return getAuthz(child, agent);
+                    } else if (node.hasAcl()) {
+                        return getGrantedModes(node.getAccessTo(agent).collect(toList()), agent)
+                            .thenCompose(childModes -> checkMembership(getContainer(child), agent, childModes));
                     }
+                    return inherited;
                 });
+            }).toCompletableFuture());
         }
-        return modes;
+        return allOf(modes.values().toArray(new CompletableFuture[0])).thenApply(x -> {
+            final Map<IRI, Integer> result = new HashMap<>();
+            modes.forEach((child, childModes) -> result.put(child, childModes.join()));
+            return result;
+        });
     }
 
-    private Set<IRI> getModesFor(final IRI identifier, final IRI agent) {
-        return getNearestResource(identifier).map(resource -> getAllAuthorizationsFor(resource, false)
-                .filter(agentFilter(agent))).orElseGet(Stream::empty)
-            .flatMap(auth -> auth.getMode().stream()).collect(toSet());
+    private CompletionStage<Integer> getAuthz(final IRI identifier, final IRI agent) {
+        return getModesFor(identifier, agent)
+            .thenCompose(modes -> checkMembership(getContainer(identifier), agent, modes));
     }
 
-    private boolean resourceExists(final Resource res) {
-        return !MISSING_RESOURCE.equals(res) && !DELETED_RESOURCE.equals(res);
+    private CompletionStage<Integer> checkMembership(final Optional<IRI> container, final IRI agent,
+            final int modes) {
+        // consider membership resources, if relevant
+        if (checkMembershipResources && (modes & WRITABLE) != AccessModes.NONE) {
+            return container.map(resourceService::get).map(parent -> parent.thenCompose(res ->
+                        res.getMembershipResource().map(WebACService::cleanIdentifier)
+                            .map(member -> getModesFor(member, agent)).orElseGet(() -> completedFuture(null))))
+                .orElseGet(() -> completedFuture(null)).thenApply(memberModes -> {
+                    if (nonNull(memberModes)) {
+                        // Write and Append are only granted if they are also granted on the member resource
+                        return modes & ~(WRITABLE & ~memberModes);
+                    }
+                    return modes;
+                });
+        }
+        return completedFuture(modes);
+    }
+
+    private CompletionStage<Integer> getModesFor(final IRI identifier, final IRI agent) {
+        return getAllAuthorizationsFor(identifier, agent)
+            .thenCompose(authorizations -> getGrantedModes(authorizations, agent));
     }
 
-    private Optional<Resource> getNearestResource(final IRI identifier) {
-        final Resource res = resourceService.get(identifier).toCompletableFuture().join();
-        if (resourceExists(res)) {
-            return of(res);
+    private CompletionStage<Integer> getGrantedModes(final List<Authorization> authorizations, final IRI agent) {
+        int granted = AccessModes.NONE;
+        final List<CompletableFuture<Integer>> grants = new ArrayList<>();
+        for (final Authorization auth : authorizations) {
+            if (isAuthorizedAgent(auth, agent)) {
+                granted |= auth.getModeMask();
+            } else if (!auth.getAgentGroup().isEmpty() && (auth.getModeMask() & ~granted) != AccessModes.NONE) {
+                grants.add(isAgentInGroup(auth.getAgentGroup().iterator(), agent)
+                        .thenApply(member -> member ? auth.getModeMask() : AccessModes.NONE)
+                        .toCompletableFuture());
+            }
+        }
+        if (grants.isEmpty()) {
+            return completedFuture(granted);
         }
-        return getContainer(identifier).flatMap(this::getNearestResource);
+        final int direct = granted;
+        return allOf(grants.toArray(new CompletableFuture[0])).thenApply(x -> {
+            int modes = direct;
+            for (final CompletableFuture<Integer> grant : grants) {
+                modes |= grant.join();
+            }
+            return modes;
+        });
     }
 
-    private Predicate<Authorization> agentFilter(final IRI agent) {
-        return auth -> auth.getAgentClass().contains(FOAF.Agent) ||
-            (auth.getAgentClass().contains(ACL.AuthenticatedAgent) && !Trellis.AnonymousAgent.equals(agent)) ||
-            auth.getAgent().contains(agent) || auth.getAgentGroup().stream().anyMatch(isAgentInGroup(agent));
+    private boolean resourceExists(final Resource res) {
+        return !MISSING_RESOURCE.equals(res) && !DELETED_RESOURCE.equals(res);
     }
 
-    private Predicate<Authorization> getInheritedAuth(final IRI identifier) {
-        return auth -> root.equals(identifier) || auth.getDefault().contains(identifier);
+    private CompletionStage<AuthorizationIndex.Node> getNode(final IRI identifier) {
+        return authorizations.get(identifier, id -> resourceService.get(id).thenApply(res -> {
+            if (!resourceExists(res)) {
+                return AuthorizationIndex.Node.MISSING;
+            }
+            LOGGER.debug("Checking ACL for: {}", id);
+            if (res.hasAcl()) {
+                try (final WrappedGraph graph = wrap(res.stream(Trellis.PreferAccessControl).collect(toGraph()))) {
+                    return AuthorizationIndex.Node.withAcl(id, getAuthorizationFromGraph(graph.getGraph()));
+                }
+            }
+            return AuthorizationIndex.Node.UNCONTROLLED;
+        }));
     }
 
-    private Predicate<Authorization> getAccessToAuth(final IRI identifier) {
-        return auth -> auth.getAccessTo().contains(identifier);
+    private boolean isAuthorizedAgent(final Authorization auth, final IRI agent) {
+        return auth.getAgentClass().contains(FOAF.Agent) ||
+                (auth.getAgentClass().contains(ACL.AuthenticatedAgent) && !Trellis.AnonymousAgent.equals(agent)) ||
+                auth.getAgent().contains(agent);
     }
 
-    private Predicate<IRI> isAgentInGroup(final IRI agent) {
-        return group -> resourceService.get(cleanIdentifier(group)).thenApply(res -> {
-            try (final Stream<RDFTerm> triples = res.stream(Trellis.PreferUserManaged)
-                    .filter(t -> t.getSubject().equals(group) && t.getPredicate().equals(VCARD.hasMember))
-                    .map(Triple::getObject)) {
-                return triples.anyMatch(agent::equals);
+    private CompletionStage<Stream<Triple>> readGroups(final IRI identifier) {
+        return resourceService.get(identifier).thenApply(res -> res.stream(Trellis.PreferUserManaged));
+    }
+
+    private CompletionStage<Boolean> isAgentInGroup(final Iterator<IRI> agentGroups, final IRI agent) {
+        if (!agentGroups.hasNext()) {
+            return completedFuture(false);
+        }
+        // Groups are checked one at a time, so that no more are fetched once the agent is found in one
+        return groups.isMember(agentGroups.next(), agent, this::readGroups).thenCompose(found -> {
+            if (found) {
+                return completedFuture(true);
             }
-        }).toCompletableFuture().join();
+            return isAgentInGroup(agentGroups, agent);
+        });
     }
 
     private List<Authorization> getAuthorizationFromGraph(final Graph graph) {
@@ -233,25 +463,35 @@ public class WebACService implements AccessControlService {
             }).collect(toList());
     }
 
-    private Stream<Authorization> getAllAuthorizationsFor(final Resource resource, final boolean inherited) {
-        LOGGER.debug("Checking ACL for: {}", resource.getIdentifier());
-        if (resource.hasAcl()) {
-            try (final WrappedGraph graph = wrap(resource.stream(Trellis.PreferAccessControl).collect(toGraph()))) {
-                final List<Authorization> authorizations = getAuthorizationFromGraph(graph.getGraph());
-                // Check for any acl:default statements if checking for inheritance
-                if (inherited && authorizations.stream().anyMatch(getInheritedAuth(resource.getIdentifier()))) {
-                    return authorizations.stream().filter(getInheritedAuth(resource.getIdentifier()));
-                // If not inheriting, just return the relevant Authorizations in the ACL
-                } else if (!inherited) {
-                    return authorizations.stream().filter(getAccessToAuth(resource.getIdentifier()));
-                }
+    private CompletionStage<List<Authorization>> getAllAuthorizationsFor(final IRI identifier, final IRI agent) {
+        return getNode(identifier).thenCompose(node -> {
+            if (!node.exists()) {
+                // The nearest resource that exists is governed by the authorizations that grant access to it
+                return getContainer(identifier).map(parent -> getAllAuthorizationsFor(parent, agent))
+                    .orElseGet(() -> completedFuture(emptyList()));
+            } else if (node.hasAcl()) {
+                return completedFuture(node.getAccessTo(agent).collect(toList()));
             }
-        }
-        // Nothing here, check the parent
-        LOGGER.debug("No ACL for {}; looking up parent resource", resource.getIdentifier());
-        return getContainer(resource.getIdentifier()).map(resourceService::get)
-            .map(CompletionStage::toCompletableFuture).map(CompletableFuture::join)
-            .map(res -> getAllAuthorizationsFor(res, true)).orElseGet(Stream::empty);
+            // Otherwise, by the nearest ancestor with authorizations for its descendants
+            LOGGER.debug("No ACL for {}; looking up parent resource", identifier);
+            return getInheritedAuthorizationsFor(identifier, agent);
+        });
+    }
+
+    private CompletionStage<List<Authorization>> getInheritedAuthorizationsFor(final IRI identifier,
+            final IRI agent) {
+        return getContainer(identifier).map(parent -> getInheritableAuthorizationsFrom(parent, agent))
+            .orElseGet(() -> completedFuture(emptyList()));
+    }
+
+    private CompletionStage<List<Authorization>> getInheritableAuthorizationsFrom(final IRI container,
+            final IRI agent) {
+        return getNode(container).thenCompose(node -> {
+            if (node.isInheritable()) {
+                return completedFuture(node.getInheritable(agent).collect(toList()));
+            }
+            return getInheritedAuthorizationsFor(container, agent);
+        });
     }
 
     /**
@@ -274,7 +514,7 @@ public class WebACService implements AccessControlService {
      * @param identifier the identifier
      * @return the cleaned identifier
      */
-    private static IRI cleanIdentifier(final IRI identifier) {
+    static IRI cleanIdentifier(final IRI identifier) {
         return rdf.createIRI(cleanIdentifier(identifier.getIRIString()));
     }
 
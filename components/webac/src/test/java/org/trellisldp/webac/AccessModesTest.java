@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.vocabulary.ACL;
+
+/**
+ * Test the bitmask representation of access modes.
+ */
+public class AccessModesTest {
+
+    private static final RDF rdf = new JenaRDF();
+
+    @Test
+    public void testRoundTrip() {
+        final Set<IRI> modes = new HashSet<>(asList(ACL.Read, ACL.Append));
+        final int mask = AccessModes.toMask(modes);
+        assertEquals(AccessModes.READ | AccessModes.APPEND, mask, "Incorrect bitmask!");
+        assertEquals(modes, AccessModes.toSet(mask), "Incorrect access modes!");
+        assertEquals(AccessModes.toSet(mask).hashCode(), modes.hashCode(), "Incorrect hash code!");
+        assertEquals(mask, AccessModes.toMask(AccessModes.toSet(mask)), "Incorrect bitmask from a mode set!");
+    }
+
+    @Test
+    public void testSharedSets() {
+        assertSame(AccessModes.toSet(AccessModes.ALL), AccessModes.toSet(AccessModes.ALL), "Sets not shared!");
+        assertEquals(4, AccessModes.toSet(AccessModes.ALL).size(), "Incorrect size!");
+        assertTrue(AccessModes.toSet(AccessModes.NONE).isEmpty(), "Set not empty!");
+        assertTrue(AccessModes.toSet(AccessModes.CONTROL).contains(ACL.Control), "Control mode missing!");
+        assertFalse(AccessModes.toSet(AccessModes.CONTROL).contains(ACL.Write), "Unexpected Write mode!");
+        assertFalse(AccessModes.toSet(AccessModes.ALL).contains("Read"), "Unexpected value!");
+    }
+
+    @Test
+    public void testUnknownMode() {
+        final IRI mode = rdf.createIRI("http://example.com/ns#Mode");
+        assertEquals(AccessModes.NONE, AccessModes.bit(mode), "Unexpected bit for an unknown mode!");
+        assertEquals(AccessModes.WRITE, AccessModes.toMask(asList(mode, ACL.Write)), "Incorrect bitmask!");
+    }
+
+    @Test
+    public void testImmutable() {
+        final Set<IRI> modes = AccessModes.toSet(AccessModes.READ | AccessModes.WRITE);
+        assertThrows(UnsupportedOperationException.class, () -> modes.add(ACL.Control), "Set was modified!");
+        assertThrows(UnsupportedOperationException.class, () -> modes.remove(ACL.Read), "Set was modified!");
+
+        final Iterator<IRI> iterator = modes.iterator();
+        assertEquals(ACL.Read, iterator.next(), "Incorrect first mode!");
+        assertEquals(ACL.Write, iterator.next(), "Incorrect second mode!");
+        assertFalse(iterator.hasNext(), "Unexpected mode!");
+        assertThrows(NoSuchElementException.class, iterator::next, "Iterator not exhausted!");
+    }
+}
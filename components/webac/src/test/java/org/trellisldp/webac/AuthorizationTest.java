@@ -85,6 +85,7 @@ public class AuthorizationTest {
 
         assertEquals(1, auth.getMode().size(), "Incorrect number of modes!");
         assertTrue(auth.getMode().contains(ACL.Read), "Read mode missing!");
+        assertEquals(AccessModes.READ, auth.getModeMask(), "Incorrect mode bitmask!");
 
         assertEquals(3, auth.getAccessTo().size(), "Incorrect number of accessTo values!");
         assertTrue(auth.getAccessTo().contains(rdf.createIRI("trellis:data/resource2")), "missing accessTo value!");
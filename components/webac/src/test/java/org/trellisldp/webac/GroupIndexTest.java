@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.webac;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.vocabulary.RDF.type;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.vocabulary.VCARD;
+
+/**
+ * Test the group membership index.
+ */
+public class GroupIndexTest {
+
+    private static final RDF rdf = new JenaRDF();
+
+    private static final IRI groupsIRI = rdf.createIRI(TRELLIS_DATA_PREFIX + "groups");
+    private static final IRI editorsIRI = rdf.createIRI(TRELLIS_DATA_PREFIX + "groups#editors");
+    private static final IRI reviewersIRI = rdf.createIRI(TRELLIS_DATA_PREFIX + "groups#reviewers");
+    private static final IRI otherIRI = rdf.createIRI(TRELLIS_DATA_PREFIX + "other");
+    private static final IRI adminsIRI = rdf.createIRI(TRELLIS_DATA_PREFIX + "other#admins");
+    private static final IRI acoburnIRI = rdf.createIRI("info:user/acoburn");
+    private static final IRI addisonIRI = rdf.createIRI("info:user/addison");
+    private static final IRI ajsIRI = rdf.createIRI("info:user/ajs6f");
+
+    private final List<IRI> reads = new CopyOnWriteArrayList<>();
+    private final Map<IRI, List<Triple>> documents = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        documents.put(groupsIRI, asList(
+                rdf.createTriple(editorsIRI, VCARD.hasMember, acoburnIRI),
+                rdf.createTriple(editorsIRI, VCARD.hasMember, reviewersIRI),
+                rdf.createTriple(editorsIRI, VCARD.hasMember, adminsIRI),
+                rdf.createTriple(reviewersIRI, VCARD.hasMember, addisonIRI),
+                rdf.createTriple(reviewersIRI, VCARD.hasMember, editorsIRI),
+                rdf.createTriple(adminsIRI, type, VCARD.Group)));
+        documents.put(otherIRI, asList(
+                rdf.createTriple(adminsIRI, VCARD.hasMember, ajsIRI)));
+    }
+
+    private final Function<IRI, CompletionStage<Stream<Triple>>> loader = identifier -> {
+        reads.add(identifier);
+        return completedFuture(documents.getOrDefault(identifier, emptyList()).stream());
+    };
+
+    @Test
+    public void testDirectMembership() {
+        final GroupIndex index = new GroupIndex(10L);
+        assertTrue(isMember(index, editorsIRI, acoburnIRI), "Direct member not found!");
+        assertFalse(isMember(index, reviewersIRI, acoburnIRI), "Unexpected member!");
+        assertEquals(1, reads.size(), "Group document read more than once!");
+    }
+
+    @Test
+    public void testNestedMembership() {
+        final GroupIndex index = new GroupIndex(10L);
+        assertTrue(isMember(index, editorsIRI, addisonIRI), "Member of a nested group not found!");
+        assertTrue(isMember(index, editorsIRI, ajsIRI), "Member of a group in another document not found!");
+        assertFalse(isMember(index, reviewersIRI, ajsIRI), "Unexpected member!");
+        assertFalse(isMember(index, adminsIRI, acoburnIRI), "Unexpected member!");
+        assertEquals(2, reads.size(), "Group documents read more than once!");
+    }
+
+    @Test
+    public void testInvalidate() {
+        final GroupIndex index = new GroupIndex(10L);
+        assertTrue(isMember(index, editorsIRI, ajsIRI), "Member not found!");
+        assertFalse(index.invalidate(rdf.createIRI(TRELLIS_DATA_PREFIX + "unrelated")), "Unexpected invalidation!");
+
+        documents.put(otherIRI, asList(rdf.createTriple(adminsIRI, VCARD.hasMember, acoburnIRI)));
+        assertTrue(index.invalidate(otherIRI), "Group document not invalidated!");
+        assertFalse(isMember(index, editorsIRI, ajsIRI), "Stale member found!");
+        assertEquals(3, reads.size(), "Incorrect number of document reads!");
+    }
+
+    @Test
+    public void testDisabledIndex() {
+        final GroupIndex index = new GroupIndex(0L);
+        assertTrue(isMember(index, editorsIRI, acoburnIRI), "Direct member not found!");
+        assertTrue(isMember(index, editorsIRI, acoburnIRI), "Direct member not found!");
+        assertEquals(2, reads.size(), "Group document was retained!");
+        // Decisions based on a document that was read must still be discarded when it changes
+        assertTrue(index.invalidate(groupsIRI), "Group document not reported!");
+        assertFalse(index.invalidate(otherIRI), "Unexpected invalidation!");
+    }
+
+    @Test
+    public void testInvalidateEvicted() {
+        final GroupIndex index = new GroupIndex(1L);
+        assertTrue(isMember(index, editorsIRI, ajsIRI), "Member not found!");
+        assertTrue(isMember(index, editorsIRI, acoburnIRI), "Direct member not found!");
+        assertTrue(reads.size() > 2, "Group documents weren't evicted!");
+
+        // A group document that has been evicted from the index is still reported when it changes
+        assertTrue(index.invalidate(otherIRI), "Evicted group document not reported!");
+        assertTrue(index.invalidate(groupsIRI), "Group document not reported!");
+        assertTrue(index.invalidate(rdf.createIRI(TRELLIS_DATA_PREFIX)), "Parent of group documents not reported!");
+        assertFalse(index.invalidate(rdf.createIRI(TRELLIS_DATA_PREFIX + "unrelated")), "Unexpected invalidation!");
+    }
+
+    private boolean isMember(final GroupIndex index, final IRI group, final IRI agent) {
+        return index.isMember(group, agent, loader).toCompletableFuture().join();
+    }
+}
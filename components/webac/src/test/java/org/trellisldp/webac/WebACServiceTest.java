@@ -13,6 +13,7 @@
  */
 package org.trellisldp.webac;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
@@ -27,6 +28,7 @@ import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 import static org.trellisldp.vocabulary.RDF.type;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -258,6 +260,51 @@ public class WebACServiceTest {
                                  "Cannot write to " + rootIRI));
     }
 
+    @Test
+    public void testInvalidateSubtree() {
+        final WebACService testService2 = new WebACService(mockResourceService, mockCache, false);
+        testService2.getAccessModes(resourceIRI, mockSession);
+        testService2.getAccessModes(childIRI, mockSession);
+        testService2.getAccessModes(parentIRI, mockSession);
+        testService2.getAccessModes(memberIRI, mockSession);
+
+        testService2.invalidate(childIRI);
+        verify(mockCache).invalidate(eq(resourceIRI.getIRIString() + "||" + agentIRI.getIRIString()));
+        verify(mockCache).invalidate(eq(childIRI.getIRIString() + "||" + agentIRI.getIRIString()));
+        verify(mockCache, never()).invalidate(startsWith(parentIRI.getIRIString() + "||"));
+        verify(mockCache, never()).invalidate(startsWith(memberIRI.getIRIString() + "||"));
+        assertEquals(2L, testService2.getInvalidations(), "Incorrect invalidation count!");
+
+        testService2.invalidate(childIRI);
+        assertEquals(2L, testService2.getInvalidations(), "Entries invalidated twice!");
+    }
+
+    @Test
+    public void testAclIndex() {
+        try {
+            System.setProperty(WebACService.CONFIG_WEBAC_ACL_INDEX_SIZE, "100");
+            final WebACService indexed = new WebACService(mockResourceService);
+            for (final IRI id : asList(nonexistentIRI, resourceIRI, childIRI, parentIRI, rootIRI, memberIRI)) {
+                assertEquals(testService.getAccessModes(id, mockSession), indexed.getAccessModes(id, mockSession),
+                        "Indexed access modes differ for " + id);
+            }
+
+            clearInvocations(mockResourceService, mockChildResource);
+            assertTrue(indexed.getAccessModes(resourceIRI, mockSession).contains(ACL.Write), "Cannot write!");
+            verify(mockResourceService, never()).get(any(IRI.class));
+            verify(mockChildResource, never()).stream(eq(Trellis.PreferAccessControl));
+
+            indexed.invalidate(childIRI);
+            assertTrue(indexed.getAccessModes(resourceIRI, mockSession).contains(ACL.Write), "Cannot write!");
+            verify(mockResourceService).get(eq(resourceIRI));
+            verify(mockResourceService, atLeastOnce()).get(eq(childIRI));
+            verify(mockResourceService, never()).get(eq(parentIRI));
+            verify(mockChildResource).stream(eq(Trellis.PreferAccessControl));
+        } finally {
+            System.clearProperty(WebACService.CONFIG_WEBAC_ACL_INDEX_SIZE);
+        }
+    }
+
     @Test
     public void testCanWrite7() {
         final AccessControlService testService2 = new WebACService(mockResourceService,
@@ -592,6 +639,96 @@ public class WebACServiceTest {
         assertAll("Test group readability", checkAllCanRead());
     }
 
+    @Test
+    public void testUnknownModes() {
+        // Only the four WebAC modes are reported; other acl:mode values are not carried through
+        final IRI extension = rdf.createIRI("http://example.com/ns#Publish");
+        when(mockRootResource.stream(eq(Trellis.PreferAccessControl))).thenAnswer(inv -> Stream.of(
+                rdf.createTriple(authIRI8, type, ACL.Authorization),
+                rdf.createTriple(authIRI8, ACL.mode, ACL.Read),
+                rdf.createTriple(authIRI8, ACL.mode, extension),
+                rdf.createTriple(authIRI8, ACL.agent, agentIRI),
+                rdf.createTriple(authIRI8, ACL.accessTo, rootIRI)));
+
+        when(mockSession.getAgent()).thenReturn(agentIRI);
+        assertEquals(singleton(ACL.Read), testService.getAccessModes(rootIRI, mockSession),
+                "Incorrect access modes!");
+        assertFalse(testService.getAccessModes(rootIRI, mockSession).contains(extension), "Unexpected mode!");
+    }
+
+    @Test
+    public void testAccessModesForChildren() {
+        for (final IRI agent : asList(addisonIRI, acoburnIRI, agentIRI, Trellis.AnonymousAgent,
+                    Trellis.AdministratorAgent)) {
+            when(mockSession.getAgent()).thenReturn(agent);
+            assertAll("Check access modes of children for " + agent,
+                    checkChildAccessModes(rootIRI, parentIRI, memberIRI),
+                    checkChildAccessModes(parentIRI, childIRI),
+                    checkChildAccessModes(childIRI, resourceIRI, nonexistentIRI));
+        }
+
+        when(mockSession.getAgent()).thenReturn(addisonIRI);
+        when(mockSession.getDelegatedBy()).thenReturn(of(acoburnIRI));
+        assertAll("Check delegated access modes of children",
+                checkChildAccessModes(rootIRI, parentIRI, memberIRI),
+                checkChildAccessModes(childIRI, resourceIRI, nonexistentIRI));
+    }
+
+    @Test
+    public void testAccessModesForChildrenWithoutAcl() {
+        when(mockResourceService.getChildrenWithAcl(eq(parentIRI)))
+            .thenAnswer(inv -> completedFuture(of(singleton(childIRI))));
+        when(mockResourceService.getChildrenWithAcl(eq(childIRI)))
+            .thenAnswer(inv -> completedFuture(of(new HashSet<>())));
+        when(mockSession.getAgent()).thenReturn(acoburnIRI);
+
+        final Map<IRI, Set<IRI>> parentModes = testService.getAccessModesForChildren(parentIRI,
+                asList(childIRI), mockSession).toCompletableFuture().join();
+        final Map<IRI, Set<IRI>> childModes = testService.getAccessModesForChildren(childIRI,
+                asList(resourceIRI, nonexistentIRI), mockSession).toCompletableFuture().join();
+        verify(mockResourceService, atLeastOnce()).get(eq(childIRI));
+        verify(mockResourceService, never()).get(eq(resourceIRI));
+        verify(mockResourceService, never()).get(eq(nonexistentIRI));
+
+        assertEquals(testService.getAccessModes(childIRI, mockSession), parentModes.get(childIRI),
+                "Incorrect access modes for the child with an ACL!");
+        assertEquals(testService.getAccessModes(resourceIRI, mockSession), childModes.get(resourceIRI),
+                "Incorrect access modes for a child without an ACL!");
+        assertEquals(testService.getAccessModes(nonexistentIRI, mockSession), childModes.get(nonexistentIRI),
+                "Incorrect access modes for a missing child!");
+    }
+
+    @Test
+    public void testGroupIndex() {
+        when(mockSession.getAgent()).thenReturn(acoburnIRI);
+        when(mockGroupResource.stream(eq(Trellis.PreferUserManaged))).thenAnswer(inv -> Stream.of(
+                    rdf.createTriple(groupIRI, VCARD.hasMember, addisonIRI),
+                    rdf.createTriple(groupIRI, VCARD.hasMember, acoburnIRI)));
+        when(mockChildResource.stream(eq(Trellis.PreferAccessControl))).thenAnswer(inv -> Stream.of(
+                rdf.createTriple(authIRI2, type, ACL.Authorization),
+                rdf.createTriple(authIRI2, ACL.mode, ACL.Write),
+                rdf.createTriple(authIRI2, ACL.agentGroup, groupIRI),
+                rdf.createTriple(authIRI2, ACL.accessTo, childIRI)));
+
+        try {
+            System.setProperty(WebACService.CONFIG_WEBAC_GROUP_INDEX_SIZE, "100");
+            final WebACService indexed = new WebACService(mockResourceService, mockCache);
+            assertTrue(indexed.getAccessModes(childIRI, mockSession).contains(ACL.Write), "Cannot write!");
+            assertTrue(indexed.getAccessModes(childIRI, mockSession).contains(ACL.Write), "Cannot write!");
+            verify(mockGroupResource).stream(eq(Trellis.PreferUserManaged));
+
+            indexed.resourceChanged(childIRI);
+            verify(mockCache, never()).invalidateAll();
+
+            indexed.resourceChanged(groupIRI);
+            verify(mockCache).invalidateAll();
+            assertTrue(indexed.getAccessModes(childIRI, mockSession).contains(ACL.Write), "Cannot write!");
+            verify(mockGroupResource, times(2)).stream(eq(Trellis.PreferUserManaged));
+        } finally {
+            System.clearProperty(WebACService.CONFIG_WEBAC_GROUP_INDEX_SIZE);
+        }
+    }
+
     @Test
     public void testGroup2() {
         when(mockSession.getAgent()).thenReturn(acoburnIRI);
@@ -799,6 +936,19 @@ public class WebACServiceTest {
         when(mockResourceService.get(eq(rootIRI))).thenAnswer(inv -> completedFuture(mockRootResource));
         when(mockResourceService.get(eq(groupIRI))).thenAnswer(inv -> completedFuture(mockGroupResource));
         when(mockResourceService.get(eq(memberIRI))).thenAnswer(inv -> completedFuture(mockMemberResource));
+        when(mockResourceService.getChildrenWithAcl(any(IRI.class))).thenAnswer(inv -> completedFuture(empty()));
+    }
+
+    private Executable checkChildAccessModes(final IRI container, final IRI... children) {
+        return () -> {
+            final Map<IRI, Set<IRI>> modes = testService.getAccessModesForChildren(container, asList(children),
+                    mockSession).toCompletableFuture().join();
+            assertEquals(children.length, modes.size(), "Incorrect number of children!");
+            for (final IRI child : children) {
+                assertEquals(testService.getAccessModes(child, mockSession), modes.get(child),
+                        "Incorrect access modes for " + child);
+            }
+        };
     }
 
     private Executable checkCannotRead(final IRI id) {
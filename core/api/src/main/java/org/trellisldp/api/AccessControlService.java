@@ -13,7 +13,15 @@
  */
 package org.trellisldp.api;
 
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.commons.rdf.api.IRI;
 
@@ -37,4 +45,65 @@ public interface AccessControlService {
      * @return a set of allowable access modes
      */
     Set<IRI> getAccessModes(IRI identifier, Session session);
+
+    /**
+     * Get the allowable access modes for the given session
+     * to the specified resource, without blocking on the persistence layer.
+     *
+     * @implSpec The default implementation completes with the result of {@link #getAccessModes}, computed on the
+     *           calling thread. Implementations that read from the persistence layer should override it.
+     * @param identifier the resource identifier
+     * @param session the agent's session
+     * @return the next completion stage, containing the set of allowable access modes
+     */
+    default CompletionStage<Set<IRI>> getAccessModesAsync(final IRI identifier, final Session session) {
+        return completedFuture(getAccessModes(identifier, session));
+    }
+
+    /**
+     * Get the allowable access modes for the given session to each of the children of a container, such as
+     * when filtering a containment listing.
+     *
+     * @implSpec The default implementation evaluates each child separately with {@link #getAccessModesAsync}.
+     *           Implementations that resolve inherited authorizations should override it, so that the container's
+     *           authorizations are resolved only once.
+     * @param container the container identifier
+     * @param children the identifiers of the container's children
+     * @param session the agent's session
+     * @return the next completion stage, containing the set of allowable access modes for each child
+     */
+    default CompletionStage<Map<IRI, Set<IRI>>> getAccessModesForChildren(final IRI container,
+            final Collection<IRI> children, final Session session) {
+        final Map<IRI, CompletableFuture<Set<IRI>>> modes = new HashMap<>();
+        children.forEach(child -> modes.put(child, getAccessModesAsync(child, session).toCompletableFuture()));
+        return allOf(modes.values().toArray(new CompletableFuture[0])).thenApply(x -> {
+            final Map<IRI, Set<IRI>> result = new HashMap<>();
+            modes.forEach((child, childModes) -> result.put(child, childModes.join()));
+            return result;
+        });
+    }
+
+    /**
+     * Discard any access modes retained for the given resource and for every resource beneath it, such as when
+     * an access control list has changed or a container has been deleted.
+     *
+     * @implSpec The default implementation does nothing, which is suitable for services that do not retain
+     *           access modes between calls.
+     * @param identifier the resource identifier
+     */
+    default void invalidate(final IRI identifier) {
+        // nothing is retained by default
+    }
+
+    /**
+     * Discard anything retained from the content of the given resource, such as the members of a group
+     * document that access control lists refer to, after the resource has been modified.
+     *
+     * @implSpec The default implementation does nothing, which is suitable for services that do not retain
+     *           resource content between calls.
+     * @param identifier the resource identifier
+     */
+    default void resourceChanged(final IRI identifier) {
+        // nothing is retained by default
+    }
 }
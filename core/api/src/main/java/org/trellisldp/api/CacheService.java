@@ -19,6 +19,7 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.ElementType.TYPE;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -39,6 +40,43 @@ public interface CacheService<K, V> {
      */
     V get(K key, Function<K, V> mappingFunction);
 
+    /**
+     * Get a value from the cache, without computing it if it is absent.
+     *
+     * <p>This method was added after {@link #get}. Callers that rely on it to avoid computing a value, such as
+     * the WebAC authorization cache, see every lookup miss when an implementation reports nothing here even though
+     * it retains values.
+     *
+     * @implSpec The default implementation calls {@link #get} with a mapping function that returns {@code null}.
+     *           This suits caches that, like {@link java.util.Map#computeIfAbsent}, store nothing when the mapping
+     *           function returns {@code null}. An implementation that would store or reject a {@code null} value
+     *           must override this method.
+     * @param key the key
+     * @return the cached value, if one is present
+     */
+    default Optional<V> getIfPresent(final K key) {
+        return Optional.ofNullable(get(key, k -> null));
+    }
+
+    /**
+     * Remove a value from the cache.
+     *
+     * @implSpec The default implementation does nothing, which is only suitable for caches that do not retain values.
+     * @param key the key
+     */
+    default void invalidate(final K key) {
+        // nothing is retained by default
+    }
+
+    /**
+     * Remove every value from the cache.
+     *
+     * @implSpec The default implementation does nothing, which is only suitable for caches that do not retain values.
+     */
+    default void invalidateAll() {
+        // nothing is retained by default
+    }
+
     /**
      * A {@link CacheService} used for JSON-LD profiles.
      *
@@ -13,8 +13,11 @@
  */
 package org.trellisldp.api;
 
+import static java.util.stream.Collectors.toCollection;
+
 import java.time.Instant;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CompletionStage;
 
 import org.apache.commons.rdf.api.IRI;
@@ -70,4 +73,19 @@ public interface MementoService {
      * @return the new completion stage containing a collection of Memento dateTimes
      */
     CompletionStage<SortedSet<Instant>> mementos(IRI identifier);
+
+    /**
+     * Get the times for the Mementos of the given resource that fall within a time window.
+     * @param identifier the resource identifier
+     * @param from the beginning of the window, inclusive; {@link Instant#MIN} for an unbounded window
+     * @param until the end of the window, inclusive; {@link Instant#MAX} for an unbounded window
+     * @implSpec The default implementation filters the result of {@link #mementos(IRI)}. Implementations
+     * that are able to select a range of Memento dateTimes directly should override this method.
+     * @return the new completion stage containing a collection of Memento dateTimes
+     */
+    default CompletionStage<SortedSet<Instant>> mementos(final IRI identifier, final Instant from,
+            final Instant until) {
+        return mementos(identifier).thenApply(mementos -> mementos.stream()
+                .filter(time -> !time.isBefore(from) && !time.isAfter(until)).collect(toCollection(TreeSet::new)));
+    }
 }
@@ -13,10 +13,13 @@
  */
 package org.trellisldp.api;
 
+import static java.util.Optional.empty;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_BNODE_PREFIX;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 import static org.trellisldp.api.TrellisUtils.getInstance;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletionStage;
 
@@ -114,6 +117,18 @@ public interface ResourceService extends MutableDataService<Resource>, Immutable
      */
     CompletionStage<Void> touch(IRI identifier);
 
+    /**
+     * Find the children of a container that have an ACL of their own.
+     *
+     * @implSpec The default implementation does not answer this question, and returns an empty {@link Optional},
+     *           in which case each child must be retrieved to find whether it has an ACL.
+     * @param identifier the identifier of the container
+     * @return a new completion stage with the children that have an ACL, if the service can determine them
+     */
+    default CompletionStage<Optional<Set<IRI>>> getChildrenWithAcl(final IRI identifier) {
+        return completedFuture(empty());
+    }
+
     /**
      * Return a collection of interaction models supported by this Resource Service.
      *
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.api;
+
+import java.io.InputStream;
+import java.util.SortedMap;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * A {@link BinaryService} that accepts binary content in separately transferred chunks.
+ *
+ * <p>An upload is created with the final size of the content. Chunks may then be written at any offset, in
+ * any order and concurrently, and a chunk that was not received may simply be sent again. Once the chunks
+ * cover the entire content, the upload is completed, at which point the content becomes available at the
+ * identifier of its {@link BinaryMetadata}.
+ *
+ * <p>An upload belongs to the resource that will hold its content and to the agent that created it. An
+ * operation that names a different resource or agent, like an operation on an upload that does not exist,
+ * completes exceptionally with a {@link java.util.NoSuchElementException}. An implementation may limit the
+ * size of an upload, and may discard uploads that have been abandoned.
+ */
+public interface ResumableBinaryService extends BinaryService {
+
+    /**
+     * Create a new upload.
+     *
+     * @param resource the identifier of the resource that will hold the content
+     * @param agent the agent that creates the upload
+     * @param metadata the binary metadata
+     * @param length the size of the content, in bytes
+     * @return the new completion stage containing the upload identifier. If the size is negative or larger
+     *         than the service accepts, the stage completes exceptionally with an
+     *         {@link IllegalArgumentException}.
+     */
+    CompletionStage<String> initiateUpload(IRI resource, IRI agent, BinaryMetadata metadata, long length);
+
+    /**
+     * Write a chunk of content.
+     *
+     * @param resource the identifier of the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param uploadId the upload identifier
+     * @param offset the position of the chunk in the content
+     * @param length the size of the chunk, in bytes
+     * @param total the size of the content as stated by the client, or a negative value if it was not stated
+     * @param stream the chunk
+     * @return the new completion stage containing the number of bytes written, which may be fewer than the
+     *         size of the chunk if the stream ends early. If the chunk extends beyond the size of the content,
+     *         the stream holds more bytes than the size of the chunk, or the stated size of the content differs
+     *         from the size given when the upload was created, the stage completes exceptionally with an
+     *         {@link IllegalArgumentException}.
+     */
+    CompletionStage<Long> uploadChunk(IRI resource, IRI agent, String uploadId, long offset, long length, long total,
+            InputStream stream);
+
+    /**
+     * Get the ranges of content that have been received.
+     *
+     * @param resource the identifier of the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param uploadId the upload identifier
+     * @return the new completion stage containing the start of each received range, inclusive, mapped to
+     *         its end, exclusive
+     */
+    CompletionStage<SortedMap<Long, Long>> uploadedRanges(IRI resource, IRI agent, String uploadId);
+
+    /**
+     * Complete an upload.
+     *
+     * @param resource the identifier of the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param uploadId the upload identifier
+     * @return the new completion stage containing the metadata of the binary. If any content has not
+     *         been received, the stage completes exceptionally with an {@link IllegalStateException}.
+     */
+    CompletionStage<BinaryMetadata> completeUpload(IRI resource, IRI agent, String uploadId);
+
+    /**
+     * Abort an upload, discarding any content that has been received.
+     *
+     * @param resource the identifier of the resource that will hold the content
+     * @param agent the agent that created the upload
+     * @param uploadId the upload identifier
+     * @return the new completion stage
+     */
+    CompletionStage<Void> abortUpload(IRI resource, IRI agent, String uploadId);
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+public class CacheServiceTest {
+
+    @Test
+    public void testDefaultGetIfPresent() {
+        // A cache written before getIfPresent existed, which only implements get
+        final Map<String, String> map = new ConcurrentHashMap<>();
+        final CacheService<String, String> cache = map::computeIfAbsent;
+
+        assertFalse(cache.getIfPresent("one").isPresent(), "Unexpected cached value for 'one'");
+        assertTrue(map.isEmpty(), "A lookup shouldn't store a value!");
+        assertEquals("one-some-suffix", cache.get("one", key -> key + "-some-suffix"), "Incorrect value for 'one'");
+        assertEquals("one-some-suffix", cache.getIfPresent("one").orElse(null), "Missing cached value for 'one'");
+    }
+}
@@ -14,9 +14,13 @@
 
 package org.trellisldp.api;
 
+import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.commons.rdf.api.IRI;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,5 +45,14 @@ public class NoopAccessControlServiceTest {
         assertTrue(svc.getAccessModes(resource, mockSession).contains(ACL.Read));
         assertTrue(svc.getAccessModes(resource, mockSession).contains(ACL.Write));
         assertTrue(svc.getAccessModes(resource, mockSession).contains(ACL.Append));
+        assertEquals(svc.getAccessModes(resource, mockSession),
+                svc.getAccessModesAsync(resource, mockSession).toCompletableFuture().join());
+        final IRI child = TrellisUtils.getInstance().createIRI("trellis:data/resource/child");
+        final Map<IRI, Set<IRI>> children = svc.getAccessModesForChildren(resource, asList(resource, child),
+                mockSession).toCompletableFuture().join();
+        assertEquals(2, children.size());
+        assertEquals(svc.getAccessModes(child, mockSession), children.get(child));
+        assertDoesNotThrow(() -> svc.invalidate(resource));
+        assertDoesNotThrow(() -> svc.resourceChanged(resource));
     }
 }
@@ -15,6 +15,7 @@
 package org.trellisldp.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -37,5 +38,11 @@ public class NoopCacheServiceTest {
         assertEquals("two-some-suffix", cache.get("two", mapper), "Cache mapper didn't handle 'two'");
         assertEquals("one-some-suffix", cache.get("one", mapper), "Cache mapper didn't handle 'one'");
         assertEquals(3L, list.size(), "Cache calls didn't match the internal record-keeping!");
+
+        assertFalse(cache.getIfPresent("one").isPresent(), "Unexpected cached value for 'one'");
+        cache.invalidate("one");
+        cache.invalidateAll();
+        assertEquals("one-some-suffix", cache.get("one", mapper), "Cache mapper didn't handle 'one'");
+        assertEquals(4L, list.size(), "Cache calls didn't match the internal record-keeping!");
     }
 }
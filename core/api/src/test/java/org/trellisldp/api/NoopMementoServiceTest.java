@@ -15,6 +15,7 @@
 package org.trellisldp.api;
 
 import static java.time.Instant.now;
+import static java.util.Arrays.asList;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.stream.Stream.of;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +28,7 @@ import static org.trellisldp.vocabulary.RDF.type;
 
 import java.time.Instant;
 import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
@@ -93,4 +95,16 @@ public class NoopMementoServiceTest {
     public void testMementos() {
         assertTrue(testService.mementos(identifier).thenApply(SortedSet::isEmpty).toCompletableFuture().join());
     }
+
+    @Test
+    public void testMementosWindowDefaultMethod() {
+        when(mockMementoService.mementos(eq(identifier))).thenReturn(completedFuture(new TreeSet<>(asList(
+                            time.minusSeconds(20), time.minusSeconds(10), time))));
+        when(mockMementoService.mementos(any(IRI.class), any(Instant.class), any(Instant.class)))
+            .thenCallRealMethod();
+        assertEquals(new TreeSet<>(asList(time.minusSeconds(10), time)), mockMementoService.mementos(identifier,
+                    time.minusSeconds(15), time).toCompletableFuture().join(), "Incorrect mementos in window!");
+        assertEquals(3L, mockMementoService.mementos(identifier, Instant.MIN, Instant.MAX)
+                .toCompletableFuture().join().size(), "Incorrect mementos in unbounded window!");
+    }
 }
@@ -64,6 +64,7 @@ public class ResourceServiceTest {
         doCallRealMethod().when(mockResourceService).toInternal(any(), any());
         doCallRealMethod().when(mockResourceService).toExternal(any(), any());
         doCallRealMethod().when(mockResourceService).create(any(), any());
+        doCallRealMethod().when(mockResourceService).getChildrenWithAcl(any());
 
         when(mockRetrievalService.get(eq(existing))).thenAnswer(inv -> completedFuture(mockResource));
     }
@@ -113,6 +114,12 @@ public class ResourceServiceTest {
                 "Unskolemized literal transformed into IRI!");
     }
 
+    @Test
+    public void testDefaultChildrenWithAcl() {
+        assertFalse(mockResourceService.getChildrenWithAcl(existing).toCompletableFuture().join().isPresent(),
+                "Unexpected children with an ACL!");
+    }
+
     @Test
     public void testInternalExternal() {
         final String baseUrl = "http://example.com/";
@@ -17,6 +17,7 @@ import static java.util.Objects.nonNull;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 import static org.apache.tamaya.ConfigurationProvider.getConfiguration;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.trellisldp.api.Resource.SpecialResources.DELETED_RESOURCE;
@@ -28,15 +29,27 @@ import static org.trellisldp.api.TrellisUtils.toQuad;
 import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_BASE_URL;
 import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_JSONLD_PROFILE;
 import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_MEMENTO_HEADER_DATES;
+import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_MEMENTO_HEADER_LINKS;
+import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_MEMENTO_TIMEMAP_PAGE_SIZE;
 import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_PRECONDITION_REQUIRED;
+import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_REPRESENTATION_CACHE_GZIP;
+import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_REPRESENTATION_CACHE_SIZE;
+import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_REPRESENTATION_CACHE_THRESHOLD;
 import static org.trellisldp.http.core.HttpConstants.CONFIG_HTTP_WEAK_ETAG;
 import static org.trellisldp.http.core.HttpConstants.TIMEMAP;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD;
+import static org.trellisldp.http.impl.DeferredAuthorization.authorization;
+import static org.trellisldp.http.impl.DeferredAuthorization.readableChildren;
 
 import com.codahale.metrics.annotation.Timed;
 
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
@@ -55,6 +68,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.RedirectionException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
@@ -70,6 +84,7 @@ import org.apache.commons.rdf.api.RDF;
 import org.apache.commons.rdf.api.Triple;
 import org.apache.tamaya.Configuration;
 import org.slf4j.Logger;
+import org.trellisldp.api.Binary;
 import org.trellisldp.api.Metadata;
 import org.trellisldp.api.Resource;
 import org.trellisldp.api.ServiceBundler;
@@ -83,7 +98,10 @@ import org.trellisldp.http.impl.OptionsHandler;
 import org.trellisldp.http.impl.PatchHandler;
 import org.trellisldp.http.impl.PostHandler;
 import org.trellisldp.http.impl.PutHandler;
+import org.trellisldp.http.impl.RepresentationCache;
+import org.trellisldp.http.impl.RequestCoalescer;
 import org.trellisldp.http.impl.TrellisDataset;
+import org.trellisldp.http.impl.UploadHandler;
 import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.FOAF;
 import org.trellisldp.vocabulary.LDP;
@@ -108,8 +126,17 @@ public class TrellisHttpResource {
     protected final String defaultJsonLdProfile;
     protected final boolean weakEtags;
     protected final boolean includeMementoDates;
+    protected final int mementoHeaderLinks;
+    protected final int timemapPageSize;
     protected final boolean preconditionRequired;
 
+    private final RepresentationCache representations;
+    private final RequestCoalescer<IRI, Resource> resourceReads = new RequestCoalescer<>();
+    private final RequestCoalescer<IRI, SortedSet<Instant>> mementoReads = new RequestCoalescer<>();
+    private final RequestCoalescer<IRI, Binary> binaryReads = new RequestCoalescer<>();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
     /**
      * Create a Trellis HTTP resource matcher.
      *
@@ -141,8 +168,14 @@ public class TrellisHttpResource {
         this.defaultJsonLdProfile = config.get(CONFIG_HTTP_JSONLD_PROFILE);
         this.weakEtags = config.getOrDefault(CONFIG_HTTP_WEAK_ETAG, Boolean.class, Boolean.TRUE);
         this.includeMementoDates = config.getOrDefault(CONFIG_HTTP_MEMENTO_HEADER_DATES, Boolean.class, Boolean.TRUE);
+        this.mementoHeaderLinks = config.getOrDefault(CONFIG_HTTP_MEMENTO_HEADER_LINKS, Integer.class, 100);
+        this.timemapPageSize = config.getOrDefault(CONFIG_HTTP_MEMENTO_TIMEMAP_PAGE_SIZE, Integer.class, 1000);
         this.preconditionRequired = config.getOrDefault(CONFIG_HTTP_PRECONDITION_REQUIRED, Boolean.class,
                 Boolean.FALSE);
+        this.representations = new RepresentationCache(
+                config.getOrDefault(CONFIG_HTTP_REPRESENTATION_CACHE_SIZE, Long.class, 0L),
+                config.getOrDefault(CONFIG_HTTP_REPRESENTATION_CACHE_THRESHOLD, Long.class, 1024L * 1024L),
+                config.getOrDefault(CONFIG_HTTP_REPRESENTATION_CACHE_GZIP, Boolean.class, Boolean.FALSE));
     }
 
     /**
@@ -190,6 +223,63 @@ public class TrellisHttpResource {
         return completedFuture(null);
     }
 
+    /**
+     * Get the number of GET and HEAD requests for the current state of a resource that carried an
+     * If-None-Match or If-Modified-Since header.
+     *
+     * @return the number of revalidation requests
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Get the proportion of revalidation requests that were answered with a 304 (Not Modified) response.
+     *
+     * @return the revalidation hit ratio, between 0 and 1
+     */
+    public double getRevalidationHitRatio() {
+        final long total = revalidations.sum();
+        return total == 0L ? 0.0 : (double) notModified.sum() / total;
+    }
+
+    /**
+     * Get the proportion of RDF representations that were served from the representation cache.
+     *
+     * @return the representation cache hit ratio, between 0 and 1
+     */
+    public double getRepresentationCacheHitRatio() {
+        return representations.getHitRatio();
+    }
+
+    /**
+     * Get the number of bytes held by the representation cache.
+     *
+     * @return the size of the cached representations
+     */
+    public long getRepresentationCacheMemoryUsage() {
+        return representations.getMemoryUsage();
+    }
+
+    /**
+     * Get the number of resource, memento list and binary reads made on behalf of GET, HEAD and OPTIONS requests.
+     *
+     * @return the number of reads
+     */
+    public long getReads() {
+        return resourceReads.getRequests() + mementoReads.getRequests() + binaryReads.getRequests();
+    }
+
+    /**
+     * Get the number of reads that shared a concurrent read of the same resource, memento list or binary
+     * instead of fetching it again.
+     *
+     * @return the number of coalesced reads
+     */
+    public long getCoalescedReads() {
+        return resourceReads.getCoalesced() + mementoReads.getCoalesced() + binaryReads.getCoalesced();
+    }
+
     /**
      * Perform a GET operation on an LDP Resource.
      *
@@ -199,13 +289,17 @@ public class TrellisHttpResource {
      * @param uriInfo the URI info
      * @param headers the HTTP headers
      * @param request the request
+     * @param requestContext the request context
      */
     @GET
     @Timed
     public void getResource(@Suspended final AsyncResponse response, @Context final Request request,
-            @Context final UriInfo uriInfo, @Context final HttpHeaders headers) {
-        fetchResource(new TrellisRequest(request, uriInfo, headers))
-            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+            @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
+            @Context final ContainerRequestContext requestContext) {
+        final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, getSecurityContext(requestContext));
+        authorization(requestContext).thenCompose(authorized -> fetchResource(req, requestContext))
+            .thenApply(ResponseBuilder::build)
+            .exceptionally(this::handleException).thenApply(response::resume);
     }
 
     /**
@@ -217,13 +311,17 @@ public class TrellisHttpResource {
      * @param uriInfo the URI info
      * @param headers the HTTP headers
      * @param request the request
+     * @param requestContext the request context
      */
     @HEAD
     @Timed
     public void getResourceHeaders(@Suspended final AsyncResponse response, @Context final Request request,
-            @Context final UriInfo uriInfo, @Context final HttpHeaders headers) {
-        fetchResource(new TrellisRequest(request, uriInfo, headers))
-            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+            @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
+            @Context final ContainerRequestContext requestContext) {
+        final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, getSecurityContext(requestContext));
+        authorization(requestContext).thenCompose(authorized -> fetchResource(req, requestContext))
+            .thenApply(ResponseBuilder::build)
+            .exceptionally(this::handleException).thenApply(response::resume);
     }
 
     /**
@@ -233,19 +331,21 @@ public class TrellisHttpResource {
      * @param uriInfo the URI info
      * @param headers the HTTP headers
      * @param request the request
+     * @param requestContext the request context
      */
     @OPTIONS
     @Timed
     public void options(@Suspended final AsyncResponse response, @Context final Request request,
-            @Context final UriInfo uriInfo, @Context final HttpHeaders headers) {
+            @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
+            @Context final ContainerRequestContext requestContext) {
         final TrellisRequest req = new TrellisRequest(request, uriInfo, headers);
         final String urlBase = getBaseUrl(req);
         final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
         final OptionsHandler optionsHandler = new OptionsHandler(req, trellis, nonNull(req.getVersion()), urlBase);
 
-        fetchTrellisResource(identifier, req.getVersion()).thenApply(optionsHandler::initialize)
-            .thenApply(optionsHandler::ldpOptions).thenApply(ResponseBuilder::build)
-            .exceptionally(this::handleException).thenApply(response::resume);
+        authorization(requestContext).thenCompose(authorized -> fetchTrellisResource(identifier, req.getVersion()))
+            .thenApply(optionsHandler::initialize).thenApply(optionsHandler::ldpOptions)
+            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
     }
 
     /**
@@ -254,6 +354,7 @@ public class TrellisHttpResource {
      * @param response the async response
      * @param uriInfo the URI info
      * @param secContext the security context
+     * @param requestContext the request context
      * @param headers the HTTP headers
      * @param request the request
      * @param body the body
@@ -262,15 +363,18 @@ public class TrellisHttpResource {
     @Timed
     public void updateResource(@Suspended final AsyncResponse response, @Context final Request request,
             @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
-            @Context final SecurityContext secContext, final String body) {
+            @Context final SecurityContext secContext, @Context final ContainerRequestContext requestContext,
+            final String body) {
         final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, secContext);
         final String urlBase = getBaseUrl(req);
         final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
         final PatchHandler patchHandler = new PatchHandler(req, body, trellis, defaultJsonLdProfile, urlBase);
 
-        getParent(identifier).thenCombine(trellis.getResourceService().get(identifier), patchHandler::initialize)
+        authorization(requestContext).thenCompose(authorized -> getParent(identifier)
+                .thenCombine(trellis.getResourceService().get(identifier), patchHandler::initialize))
             .thenCompose(patchHandler::updateResource).thenCompose(patchHandler::updateMemento)
-            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+            .whenComplete((res, err) -> invalidate(identifier)).thenApply(ResponseBuilder::build)
+            .exceptionally(this::handleException).thenApply(response::resume);
     }
 
     /**
@@ -279,6 +383,7 @@ public class TrellisHttpResource {
      * @param response the async response
      * @param uriInfo the URI info
      * @param secContext the security context
+     * @param requestContext the request context
      * @param headers the HTTP headers
      * @param request the request
      */
@@ -286,14 +391,23 @@ public class TrellisHttpResource {
     @Timed
     public void deleteResource(@Suspended final AsyncResponse response, @Context final Request request,
             @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
-            @Context final SecurityContext secContext) {
+            @Context final SecurityContext secContext, @Context final ContainerRequestContext requestContext) {
         final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, secContext);
         final String urlBase = getBaseUrl(req);
+        if (UPLOAD.equals(req.getExt())) {
+            authorization(requestContext).thenCompose(authorized ->
+                    new UploadHandler(req, null, trellis, urlBase).abortUpload()).thenApply(ResponseBuilder::build)
+                .exceptionally(this::handleException).thenApply(response::resume);
+            return;
+        }
+
         final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
         final DeleteHandler deleteHandler = new DeleteHandler(req, trellis, urlBase);
 
-        getParent(identifier).thenCombine(trellis.getResourceService().get(identifier), deleteHandler::initialize)
-            .thenCompose(deleteHandler::deleteResource).thenApply(ResponseBuilder::build)
+        authorization(requestContext).thenCompose(authorized -> getParent(identifier)
+                .thenCombine(trellis.getResourceService().get(identifier), deleteHandler::initialize))
+            .thenCompose(deleteHandler::deleteResource).whenComplete((res, err) -> invalidate(identifier))
+            .thenApply(ResponseBuilder::build)
             .exceptionally(this::handleException).thenApply(response::resume);
     }
 
@@ -303,6 +417,7 @@ public class TrellisHttpResource {
      * @param response the async response
      * @param uriInfo the URI info
      * @param secContext the security context
+     * @param requestContext the request context
      * @param headers the HTTP headers
      * @param request the request
      * @param body the body
@@ -311,9 +426,15 @@ public class TrellisHttpResource {
     @Timed
     public void createResource(@Suspended final AsyncResponse response, @Context final Request request,
             @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
-            @Context final SecurityContext secContext, final InputStream body) {
+            @Context final SecurityContext secContext, @Context final ContainerRequestContext requestContext,
+            final InputStream body) {
         final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, secContext);
         final String urlBase = getBaseUrl(req);
+        if (UPLOAD.equals(req.getExt())) {
+            uploadResource(response, req, urlBase, body, authorization(requestContext));
+            return;
+        }
+
         final String path = req.getPath();
         final String identifier = ofNullable(req.getSlug())
             .orElseGet(trellis.getResourceService()::generateIdentifier);
@@ -324,10 +445,11 @@ public class TrellisHttpResource {
         final IRI child = rdf.createIRI(TRELLIS_DATA_PREFIX + path + separator + identifier);
         final PostHandler postHandler = new PostHandler(req, parent, identifier, body, trellis, urlBase);
 
-        trellis.getResourceService().get(parent)
-            .thenCombine(trellis.getResourceService().get(child), postHandler::initialize)
+        authorization(requestContext).thenCompose(authorized -> trellis.getResourceService().get(parent)
+                .thenCombine(trellis.getResourceService().get(child), postHandler::initialize))
             .thenCompose(postHandler::createResource).thenCompose(postHandler::updateMemento)
-            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+            .whenComplete((res, err) -> invalidate(child)).thenApply(ResponseBuilder::build)
+            .exceptionally(this::handleException).thenApply(response::resume);
     }
 
     /**
@@ -336,6 +458,7 @@ public class TrellisHttpResource {
      * @param response the async response
      * @param uriInfo the URI info
      * @param secContext the security context
+     * @param requestContext the request context
      * @param headers the HTTP headers
      * @param request the request
      * @param body the body
@@ -344,15 +467,49 @@ public class TrellisHttpResource {
     @Timed
     public void setResource(@Suspended final AsyncResponse response, @Context final Request request,
             @Context final UriInfo uriInfo, @Context final HttpHeaders headers,
-            @Context final SecurityContext secContext, final InputStream body) {
+            @Context final SecurityContext secContext, @Context final ContainerRequestContext requestContext,
+            final InputStream body) {
         final TrellisRequest req = new TrellisRequest(request, uriInfo, headers, secContext);
         final String urlBase = getBaseUrl(req);
+        if (UPLOAD.equals(req.getExt())) {
+            authorization(requestContext).thenCompose(authorized ->
+                    new UploadHandler(req, body, trellis, urlBase).uploadChunk()).thenApply(ResponseBuilder::build)
+                .exceptionally(this::handleException).thenApply(response::resume);
+            return;
+        }
+
         final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
         final PutHandler putHandler = new PutHandler(req, body, trellis, preconditionRequired, urlBase);
 
-        getParent(identifier).thenCombine(trellis.getResourceService().get(identifier), putHandler::initialize)
+        authorization(requestContext).thenCompose(authorized -> getParent(identifier)
+                .thenCombine(trellis.getResourceService().get(identifier), putHandler::initialize))
             .thenCompose(putHandler::setResource).thenCompose(putHandler::updateMemento)
-            .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+            .whenComplete((res, err) -> invalidate(identifier)).thenApply(ResponseBuilder::build)
+            .exceptionally(this::handleException).thenApply(response::resume);
+    }
+
+    private void uploadResource(final AsyncResponse response, final TrellisRequest req, final String urlBase,
+            final InputStream body, final CompletionStage<Void> authorization) {
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
+        if (nonNull(req.getUploadId())) {
+            // Completing an upload commits the binary just as a PUT request would
+            final PutHandler putHandler = new PutHandler(req, body, trellis, preconditionRequired, urlBase);
+            authorization.thenCompose(authorized -> getParent(identifier)
+                    .thenCombine(trellis.getResourceService().get(identifier), putHandler::initialize))
+                .thenCompose(putHandler::setResource).thenCompose(putHandler::updateMemento)
+                .whenComplete((res, err) -> invalidate(identifier)).thenApply(ResponseBuilder::build)
+                .exceptionally(this::handleException).thenApply(response::resume);
+        } else {
+            final UploadHandler uploadHandler = new UploadHandler(req, body, trellis, urlBase);
+            authorization.thenCompose(authorized -> trellis.getResourceService().get(identifier))
+                .thenCompose(uploadHandler::createUpload)
+                .thenApply(ResponseBuilder::build).exceptionally(this::handleException).thenApply(response::resume);
+        }
+    }
+
+    private static SecurityContext getSecurityContext(final ContainerRequestContext requestContext) {
+        // The agent identifies the owner of a resumable upload, whose received ranges may be read
+        return ofNullable(requestContext).map(ContainerRequestContext::getSecurityContext).orElse(null);
     }
 
     private CompletionStage<? extends Resource> getParent(final IRI identifier) {
@@ -367,48 +524,70 @@ public class TrellisHttpResource {
         return nonNull(baseUrl) ? baseUrl : req.getBaseUrl();
     }
 
-    private CompletionStage<ResponseBuilder> fetchResource(final TrellisRequest req) {
+    private CompletionStage<ResponseBuilder> fetchResource(final TrellisRequest req,
+            final ContainerRequestContext requestContext) {
         final String urlBase = getBaseUrl(req);
+        if (UPLOAD.equals(req.getExt())) {
+            return new UploadHandler(req, null, trellis, urlBase).getRanges();
+        }
+
         final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
         final GetHandler getHandler = new GetHandler(req, trellis, nonNull(req.getVersion()), weakEtags,
-                includeMementoDates, defaultJsonLdProfile, urlBase);
+                includeMementoDates, mementoHeaderLinks, defaultJsonLdProfile, urlBase, representations,
+                binaryReads);
+        final MementoResource mementoResource = new MementoResource(trellis, includeMementoDates, mementoHeaderLinks,
+                timemapPageSize);
 
         // Fetch a memento
         if (nonNull(req.getVersion())) {
             LOGGER.debug("Getting versioned resource: {}", req.getVersion());
             return trellis.getMementoService().get(identifier, req.getVersion().getInstant())
                 .thenApply(getHandler::initialize).thenApply(getHandler::standardHeaders)
-                .thenCombine(trellis.getMementoService().mementos(identifier), getHandler::addMementoHeaders)
+                .thenCombine(getMementos(identifier), getHandler::addMementoHeaders)
                 .thenApply(getHandler::getRepresentation);
 
         // Fetch a timemap
         } else if (TIMEMAP.equals(req.getExt())) {
             LOGGER.debug("Getting timemap resource: {}", req.getPath());
-            return trellis.getResourceService().get(identifier)
-                .thenCombine(trellis.getMementoService().mementos(identifier), (res, mementos) -> {
+            final Instant from = ofNullable(req.getFrom()).map(Version::getInstant).orElse(Instant.MIN);
+            final Instant until = ofNullable(req.getUntil()).map(Version::getInstant).orElse(Instant.MAX);
+            return getResource(identifier)
+                .thenCombine(trellis.getMementoService().mementos(identifier, from, until), (res, mementos) -> {
                     if (MISSING_RESOURCE.equals(res)) {
                         throw new NotFoundException();
                     }
-                    return new MementoResource(trellis, includeMementoDates).getTimeMapBuilder(mementos, req, urlBase);
+                    return mementoResource.getTimeMapBuilder(mementos, req, urlBase);
                 });
 
         // Fetch a timegate
         } else if (nonNull(req.getDatetime())) {
             LOGGER.debug("Getting timegate resource: {}", req.getDatetime().getInstant());
             return trellis.getMementoService().get(identifier, req.getDatetime().getInstant())
-                .thenCombine(trellis.getMementoService().mementos(identifier), (res, mementos) -> {
+                .thenCombine(getMementos(identifier), (res, mementos) -> {
                     if (MISSING_RESOURCE.equals(res)) {
                         throw new NotAcceptableException();
                     }
-                    return new MementoResource(trellis, includeMementoDates).getTimeGateBuilder(mementos, req, urlBase);
+                    return mementoResource.getTimeGateBuilder(mementos, req, urlBase);
                 });
         }
 
         // Fetch the current state of the resource
         LOGGER.debug("Getting resource at: {}", identifier);
-        return trellis.getResourceService().get(identifier).thenApply(getHandler::initialize)
-            .thenApply(getHandler::standardHeaders)
-            .thenCombine(trellis.getMementoService().mementos(identifier), getHandler::addMementoHeaders)
+        final CompletionStage<ResponseBuilder> builder = readableChildren(requestContext)
+            .map(filter -> getResource(identifier).thenApply(getHandler::initialize)
+                    .thenCompose(res -> getHandler.filterContainment(res, filter)))
+            .orElseGet(() -> getResource(identifier).thenApply(getHandler::initialize));
+        if (isRevalidation(req)) {
+            // Answer from the resource metadata alone, so that a 304 response never waits for the mementos
+            revalidations.increment();
+            return builder.thenApply(getHandler::revalidate).whenComplete(this::countRevalidation)
+                .thenApply(getHandler::standardHeaders)
+                .thenCompose(res -> getMementos(identifier)
+                        .thenApply(mementos -> getHandler.addMementoHeaders(res, mementos)))
+                .thenApply(getHandler::getRepresentation);
+        }
+        return builder.thenApply(getHandler::standardHeaders)
+            .thenCombine(getMementos(identifier), getHandler::addMementoHeaders)
             .thenApply(getHandler::getRepresentation);
     }
 
@@ -416,7 +595,40 @@ public class TrellisHttpResource {
         if (nonNull(version)) {
             return trellis.getMementoService().get(identifier, version.getInstant());
         }
-        return trellis.getResourceService().get(identifier);
+        return getResource(identifier);
+    }
+
+    private CompletionStage<Resource> getResource(final IRI identifier) {
+        return resourceReads.get(identifier, trellis.getResourceService()::get);
+    }
+
+    private CompletionStage<SortedSet<Instant>> getMementos(final IRI identifier) {
+        return mementoReads.get(identifier, trellis.getMementoService()::mementos);
+    }
+
+    private void invalidate(final IRI identifier) {
+        // A mutation changes the resource and, through containment, its parent; reads that start after the
+        // mutation must not join one that started before it
+        representations.invalidate(identifier);
+        resourceReads.forget(identifier);
+        mementoReads.forget(identifier);
+        getContainer(identifier).ifPresent(parent -> {
+            representations.invalidate(parent);
+            resourceReads.forget(parent);
+        });
+    }
+
+    private void countRevalidation(final ResponseBuilder builder, final Throwable err) {
+        final Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+        if (cause instanceof RedirectionException
+                && ((RedirectionException) cause).getResponse().getStatus() == NOT_MODIFIED.getStatusCode()) {
+            notModified.increment();
+        }
+    }
+
+    private static boolean isRevalidation(final TrellisRequest req) {
+        return nonNull(req.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))
+            || nonNull(req.getHeaders().getFirst(HttpHeaders.IF_MODIFIED_SINCE));
     }
 
     private Response handleException(final Throwable err) {
@@ -18,9 +18,11 @@ import static java.util.Collections.emptyList;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.Priorities.AUTHORIZATION;
 import static javax.ws.rs.core.HttpHeaders.LINK;
 import static javax.ws.rs.core.Link.fromUri;
+import static javax.ws.rs.core.Response.Status.CREATED;
 import static javax.ws.rs.core.Response.Status.Family.SUCCESSFUL;
 import static org.apache.tamaya.ConfigurationProvider.getConfiguration;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -29,9 +31,15 @@ import static org.trellisldp.api.TrellisUtils.getInstance;
 import static org.trellisldp.http.core.HttpConstants.SESSION_PROPERTY;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -50,6 +58,7 @@ import org.slf4j.Logger;
 import org.trellisldp.api.AccessControlService;
 import org.trellisldp.api.Session;
 import org.trellisldp.http.core.HttpConstants;
+import org.trellisldp.http.impl.DeferredAuthorization;
 import org.trellisldp.http.impl.HttpSession;
 import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.Trellis;
@@ -75,6 +84,10 @@ public class WebAcFilter implements ContainerRequestFilter, ContainerResponseFil
     /** The configuration key controlling the realm used in a WWW-Authenticate header, or 'trellis' by default. **/
     public static final String CONFIG_AUTH_REALM = "trellis.auth.realm";
 
+    /** The configuration key controlling whether containment listings only include the children that the agent
+     * may read, which is 'false' by default. **/
+    public static final String CONFIG_AUTH_FILTER_CONTAINMENT = "trellis.auth.filter.containment";
+
     private static final Logger LOGGER = getLogger(WebAcFilter.class);
     private static final RDF rdf = getInstance();
     private static final Set<String> readable = new HashSet<>(asList("GET", "HEAD", "OPTIONS"));
@@ -83,6 +96,7 @@ public class WebAcFilter implements ContainerRequestFilter, ContainerResponseFil
 
     protected final AccessControlService accessService;
     private final List<String> challenges;
+    private final boolean filterContainment;
 
     /**
      * Create a new WebAc-based auth filter.
@@ -113,6 +127,8 @@ public class WebAcFilter implements ContainerRequestFilter, ContainerResponseFil
         this.accessService = requireNonNull(accessService, "Access Control service may not be null!");
         this.challenges = challengeTypes.stream().map(String::trim).map(ch -> ch + " realm=\"" + realm + "\"")
             .collect(toList());
+        this.filterContainment = getConfiguration()
+            .getOrDefault(CONFIG_AUTH_FILTER_CONTAINMENT, Boolean.class, Boolean.FALSE);
     }
 
     @Override
@@ -120,11 +136,67 @@ public class WebAcFilter implements ContainerRequestFilter, ContainerResponseFil
         final String path = ctx.getUriInfo().getPath();
         final Session s = getOrCreateSession(ctx);
         final String method = ctx.getMethod();
+        final List<String> ext = ctx.getUriInfo().getQueryParameters().getOrDefault(HttpConstants.EXT, emptyList());
+
+        final IRI identifier = rdf.createIRI(TRELLIS_DATA_PREFIX + path);
+        final CompletableFuture<Void> authorization = accessService.getAccessModesAsync(identifier, s)
+            .thenAccept(modes -> verify(modes, s, path, method, ext)).toCompletableFuture();
+        if (filterContainment && ext.isEmpty() && ("GET".equals(method) || "HEAD".equals(method))
+                && isDeferrable(ctx)) {
+            // The resource limits any containment listing to the children that may be read
+            new DeferredAuthorization(authorization, readableChildren(identifier, s)).defer(ctx);
+            return;
+        } else if (!authorization.isDone() && isDeferrable(ctx)) {
+            // Rather than wait here, let the resource compose its response onto the pending check
+            new DeferredAuthorization(authorization).defer(ctx);
+            return;
+        }
+        try {
+            authorization.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext req, final ContainerResponseContext res) throws IOException {
+        final boolean isAcl = req.getUriInfo().getQueryParameters().getOrDefault(HttpConstants.EXT, emptyList())
+            .contains(HttpConstants.ACL);
+        if (SUCCESSFUL.equals(res.getStatusInfo().getFamily()) && !isAcl) {
+            res.getHeaders().add(LINK, fromUri(req.getUriInfo().getAbsolutePathBuilder()
+                    .queryParam(HttpConstants.EXT, HttpConstants.ACL).build()).rel(HttpConstants.ACL).build());
+        }
+        if (SUCCESSFUL.equals(res.getStatusInfo().getFamily()) && !readable.contains(req.getMethod())) {
+            if (isAcl || "DELETE".equals(req.getMethod())) {
+                // A changed or removed ACL alters the access modes of the resource and of everything beneath it
+                accessService.invalidate(rdf.createIRI(TRELLIS_DATA_PREFIX + req.getUriInfo().getPath()));
+            } else if (CREATED.getStatusCode() == res.getStatus()) {
+                // A new resource no longer takes the access modes of its nearest existing ancestor
+                accessService.invalidate(rdf.createIRI(TRELLIS_DATA_PREFIX + getCreatedPath(req, res)));
+            } else {
+                // The resource may be a group document that access control lists refer to
+                accessService.resourceChanged(rdf.createIRI(TRELLIS_DATA_PREFIX + req.getUriInfo().getPath()));
+            }
+        }
+    }
 
-        final Set<IRI> modes = accessService.getAccessModes(rdf.createIRI(TRELLIS_DATA_PREFIX + path), s);
-        if (ctx.getUriInfo().getQueryParameters().getOrDefault(HttpConstants.EXT, emptyList())
-                .contains(HttpConstants.ACL)) {
+    private static String getCreatedPath(final ContainerRequestContext req, final ContainerResponseContext res) {
+        if (nonNull(res.getLocation())) {
+            return req.getUriInfo().getBaseUri().relativize(res.getLocation()).getPath();
+        }
+        return req.getUriInfo().getPath();
+    }
+
+    private void verify(final Set<IRI> modes, final Session s, final String path, final String method,
+            final List<String> ext) {
+        if (ext.contains(HttpConstants.ACL)) {
             verifyCanControl(modes, s, path);
+        } else if (ext.contains(HttpConstants.UPLOAD)) {
+            // Every step of a resumable upload contributes to replacing the resource
+            verifyCanWrite(modes, s, path);
         } else if (readable.contains(method)) {
             verifyCanRead(modes, s, path);
         } else if (writable.contains(method)) {
@@ -134,14 +206,16 @@ public class WebAcFilter implements ContainerRequestFilter, ContainerResponseFil
         }
     }
 
-    @Override
-    public void filter(final ContainerRequestContext req, final ContainerResponseContext res) throws IOException {
-        if (SUCCESSFUL.equals(res.getStatusInfo().getFamily())
-                && (!req.getUriInfo().getQueryParameters().containsKey(HttpConstants.EXT)
-                    || !req.getUriInfo().getQueryParameters().get(HttpConstants.EXT).contains(HttpConstants.ACL))) {
-            res.getHeaders().add(LINK, fromUri(req.getUriInfo().getAbsolutePathBuilder()
-                    .queryParam(HttpConstants.EXT, HttpConstants.ACL).build()).rel(HttpConstants.ACL).build());
-        }
+    private Function<Collection<IRI>, CompletionStage<Set<IRI>>> readableChildren(final IRI container,
+            final Session session) {
+        return children -> accessService.getAccessModesForChildren(container, children, session)
+            .thenApply(modes -> modes.entrySet().stream().filter(e -> e.getValue().contains(ACL.Read))
+                    .map(Entry::getKey).collect(toSet()));
+    }
+
+    private static boolean isDeferrable(final ContainerRequestContext ctx) {
+        // Only the LDP resource composes its work onto a deferred authorization check
+        return ctx.getUriInfo().getMatchedResources().stream().anyMatch(TrellisHttpResource.class::isInstance);
     }
 
     protected Session getOrCreateSession(final ContainerRequestContext ctx) {
@@ -55,6 +55,22 @@ public final class HttpConstants {
     /** Configuration key defining whether to include dates in memento headers. **/
     public static final String CONFIG_HTTP_MEMENTO_HEADER_DATES = "trellis.http.memento.headerdates";
 
+    /** Configuration key defining the maximum number of memento links in response headers. **/
+    public static final String CONFIG_HTTP_MEMENTO_HEADER_LINKS = "trellis.http.memento.headerlinks";
+
+    /** Configuration key defining the maximum number of mementos in a single page of a TimeMap. **/
+    public static final String CONFIG_HTTP_MEMENTO_TIMEMAP_PAGE_SIZE = "trellis.http.memento.timemap.pagesize";
+
+    /** Configuration key defining the maximum number of bytes held by the representation cache. **/
+    public static final String CONFIG_HTTP_REPRESENTATION_CACHE_SIZE = "trellis.http.representation.cache.size";
+
+    /** Configuration key defining the size in bytes of the largest representation that may be cached. **/
+    public static final String CONFIG_HTTP_REPRESENTATION_CACHE_THRESHOLD =
+        "trellis.http.representation.cache.threshold";
+
+    /** Configuration key defining whether to hold cached representations in gzip-compressed form. **/
+    public static final String CONFIG_HTTP_REPRESENTATION_CACHE_GZIP = "trellis.http.representation.cache.gzip";
+
     /** Configuration key defining whether to use weak ETags for RDF responses. **/
     public static final String CONFIG_HTTP_WEAK_ETAG = "trellis.http.weak.etag";
 
@@ -70,6 +86,9 @@ public final class HttpConstants {
     /** The Memento link parameter to indicate the datetime of a Memento. **/
     public static final String DATETIME = "datetime";
 
+    /** The name of the request property that holds an authorization check deferred by a request filter. **/
+    public static final String DEFERRED_AUTHORIZATION_PROPERTY = "deferredAuthorization";
+
     /** The Trellis ext parameter value used for accessing the description of an LDP-NR. **/
     public static final String DESCRIPTION = "description";
 
@@ -118,6 +137,15 @@ public final class HttpConstants {
     /** The Memento link parameter indicating the ending range of a TimeMap. **/
     public static final String UNTIL = "until";
 
+    /** The ext parameter value used for resumable uploads of binary content. **/
+    public static final String UPLOAD = "upload";
+
+    /** The query parameter identifying a resumable upload. **/
+    public static final String UPLOAD_ID = "uploadId";
+
+    /** The header defining the total size of a resumable upload. **/
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+
     /** The implied or default set of IRIs used with a Prefer header. **/
     public static final Set<String> DEFAULT_REPRESENTATION = unmodifiableSet(asList(PreferContainment, PreferMembership,
                 PreferUserManaged).stream().map(IRI::getIRIString).collect(toSet()));
@@ -17,9 +17,12 @@ import static java.util.Optional.ofNullable;
 import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.HttpHeaders.LINK;
 import static org.trellisldp.http.core.HttpConstants.ACCEPT_DATETIME;
+import static org.trellisldp.http.core.HttpConstants.FROM;
 import static org.trellisldp.http.core.HttpConstants.PREFER;
 import static org.trellisldp.http.core.HttpConstants.RANGE;
 import static org.trellisldp.http.core.HttpConstants.SLUG;
+import static org.trellisldp.http.core.HttpConstants.UNTIL;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD_ID;
 
 import java.security.Principal;
 import java.util.List;
@@ -157,6 +160,33 @@ public class TrellisRequest {
         return ofNullable(parameters.getFirst("version")).map(Version::valueOf).orElse(null);
     }
 
+    /**
+     * Get the from value, used to select a page of a TimeMap.
+     *
+     * @return the from query parameter
+     */
+    public Version getFrom() {
+        return ofNullable(parameters.getFirst(FROM)).map(Version::valueOf).orElse(null);
+    }
+
+    /**
+     * Get the until value, used to select a page of a TimeMap.
+     *
+     * @return the until query parameter
+     */
+    public Version getUntil() {
+        return ofNullable(parameters.getFirst(UNTIL)).map(Version::valueOf).orElse(null);
+    }
+
+    /**
+     * Get the identifier of a resumable upload.
+     *
+     * @return the uploadId query parameter
+     */
+    public String getUploadId() {
+        return parameters.getFirst(UPLOAD_ID);
+    }
+
     /**
      * Get the ext value.
      *
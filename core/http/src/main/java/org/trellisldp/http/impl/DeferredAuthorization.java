@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+import static java.util.Optional.empty;
+import static java.util.Optional.ofNullable;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.trellisldp.http.core.HttpConstants.DEFERRED_AUTHORIZATION_PROPERTY;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import javax.ws.rs.container.ContainerRequestContext;
+
+import org.apache.commons.rdf.api.IRI;
+
+/**
+ * An authorization check that is still in progress.
+ *
+ * <p>JAX-RS request filters cannot suspend a request, so an authorization filter that would otherwise block
+ * on the persistence layer may instead store its pending check as a request property. A resource that
+ * processes requests asynchronously then composes its own work onto that check, so that nothing happens until
+ * the request is known to be authorized and no container thread waits in the meantime.
+ *
+ * <p>The check may also carry a filter for the children of a container, so that a containment listing can be
+ * limited to the children that the requesting agent is permitted to read.
+ */
+public final class DeferredAuthorization {
+
+    private final CompletionStage<Void> authorization;
+    private final Function<Collection<IRI>, CompletionStage<Set<IRI>>> readableChildren;
+
+    /**
+     * Create a pending authorization check.
+     *
+     * @param authorization the authorization check, which completes exceptionally if the request is not authorized
+     */
+    public DeferredAuthorization(final CompletionStage<Void> authorization) {
+        this(authorization, null);
+    }
+
+    /**
+     * Create a pending authorization check with a filter for containment listings.
+     *
+     * @param authorization the authorization check, which completes exceptionally if the request is not authorized
+     * @param readableChildren a function that selects the children that may be read, or null to list every child
+     */
+    public DeferredAuthorization(final CompletionStage<Void> authorization,
+            final Function<Collection<IRI>, CompletionStage<Set<IRI>>> readableChildren) {
+        this.authorization = requireNonNull(authorization, "The authorization check may not be null!");
+        this.readableChildren = readableChildren;
+    }
+
+    /**
+     * Defer an authorization check to the resource that handles a request.
+     *
+     * @param ctx the request context
+     */
+    public void defer(final ContainerRequestContext ctx) {
+        ctx.setProperty(DEFERRED_AUTHORIZATION_PROPERTY, this);
+    }
+
+    /**
+     * Get the authorization check deferred for a request.
+     *
+     * <p>If a request filter verified the request itself, no check is deferred and the returned stage is already
+     * complete. The returned stage fails, so that the request is refused, if the request context is unavailable or
+     * if the deferred check has been replaced with something else.
+     *
+     * @param ctx the request context
+     * @return the pending authorization check
+     */
+    public static CompletionStage<Void> authorization(final ContainerRequestContext ctx) {
+        if (isNull(ctx)) {
+            return failed("The request context is unavailable, so a deferred authorization check cannot be found");
+        }
+        final Object deferred = ctx.getProperty(DEFERRED_AUTHORIZATION_PROPERTY);
+        if (isNull(deferred)) {
+            return completedFuture(null);
+        } else if (deferred instanceof DeferredAuthorization) {
+            return ((DeferredAuthorization) deferred).authorization;
+        }
+        return failed("The deferred authorization check has been replaced with an instance of "
+                + deferred.getClass().getName());
+    }
+
+    /**
+     * Get the filter for containment listings deferred for a request.
+     *
+     * @param ctx the request context, which may be null
+     * @return a function that selects the children that may be read, if containment listings are to be filtered
+     */
+    public static Optional<Function<Collection<IRI>, CompletionStage<Set<IRI>>>> readableChildren(
+            final ContainerRequestContext ctx) {
+        final Object deferred = isNull(ctx) ? null : ctx.getProperty(DEFERRED_AUTHORIZATION_PROPERTY);
+        if (deferred instanceof DeferredAuthorization) {
+            return ofNullable(((DeferredAuthorization) deferred).readableChildren);
+        }
+        return empty();
+    }
+
+    private static CompletionStage<Void> failed(final String message) {
+        // Fail closed: a request whose authorization cannot be confirmed must never be processed
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException(message));
+        return future;
+    }
+}
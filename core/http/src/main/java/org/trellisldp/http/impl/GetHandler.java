@@ -19,6 +19,7 @@ import static java.util.Date.from;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -30,7 +31,9 @@ import static javax.ws.rs.HttpMethod.OPTIONS;
 import static javax.ws.rs.HttpMethod.POST;
 import static javax.ws.rs.HttpMethod.PUT;
 import static javax.ws.rs.core.HttpHeaders.ACCEPT;
+import static javax.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
 import static javax.ws.rs.core.HttpHeaders.ALLOW;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_ENCODING;
 import static javax.ws.rs.core.HttpHeaders.VARY;
 import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 import static javax.ws.rs.core.Response.Status.GONE;
@@ -61,21 +64,28 @@ import static org.trellisldp.http.impl.HttpUtils.filterWithPrefer;
 import static org.trellisldp.http.impl.HttpUtils.getDefaultProfile;
 import static org.trellisldp.http.impl.HttpUtils.getProfile;
 import static org.trellisldp.http.impl.HttpUtils.getSyntax;
+import static org.trellisldp.http.impl.HttpUtils.isContainer;
 import static org.trellisldp.http.impl.HttpUtils.ldpResourceTypes;
 import static org.trellisldp.http.impl.HttpUtils.unskolemizeQuads;
 import static org.trellisldp.vocabulary.Trellis.PreferAccessControl;
 import static org.trellisldp.vocabulary.Trellis.PreferUserManaged;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.NotFoundException;
@@ -88,6 +98,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Quad;
 import org.apache.commons.rdf.api.RDFSyntax;
+import org.apache.commons.rdf.api.Triple;
 import org.slf4j.Logger;
 import org.trellisldp.api.Binary;
 import org.trellisldp.api.BinaryMetadata;
@@ -107,11 +118,16 @@ import org.trellisldp.vocabulary.Memento;
 public class GetHandler extends BaseLdpHandler {
 
     private static final Logger LOGGER = getLogger(GetHandler.class);
+    private static final String GZIP = "gzip";
 
     private final boolean weakEtags;
     private final boolean includeMementoDates;
+    private final int mementoHeaderLinks;
     private final boolean isMemento;
     private final String defaultJsonLdProfile;
+    private final RepresentationCache cache;
+    private final RequestCoalescer<IRI, Binary> binaryReads;
+    private final Set<IRI> hiddenChildren = new HashSet<>();
 
     private RDFSyntax syntax;
 
@@ -129,11 +145,55 @@ public class GetHandler extends BaseLdpHandler {
     public GetHandler(final TrellisRequest req, final ServiceBundler trellis, final boolean isMemento,
             final boolean weakEtags, final boolean includeMementoDates, final String defaultJsonLdProfile,
             final String baseUrl) {
+        this(req, trellis, isMemento, weakEtags, includeMementoDates, Integer.MAX_VALUE, defaultJsonLdProfile,
+                baseUrl);
+    }
+
+    /**
+     * A GET response builder.
+     *
+     * @param req the LDP request
+     * @param trellis the Trellis application bundle
+     * @param isMemento true if the resource is a memento; false otherwise
+     * @param weakEtags whether to use weak ETags for RDF responses
+     * @param includeMementoDates whether to include date strings in memento link headers
+     * @param mementoHeaderLinks the maximum number of memento links in response headers
+     * @param defaultJsonLdProfile a default json-ld profile
+     * @param baseUrl the base URL
+     */
+    public GetHandler(final TrellisRequest req, final ServiceBundler trellis, final boolean isMemento,
+            final boolean weakEtags, final boolean includeMementoDates, final int mementoHeaderLinks,
+            final String defaultJsonLdProfile, final String baseUrl) {
+        this(req, trellis, isMemento, weakEtags, includeMementoDates, mementoHeaderLinks, defaultJsonLdProfile,
+                baseUrl, null, null);
+    }
+
+    /**
+     * A GET response builder.
+     *
+     * @param req the LDP request
+     * @param trellis the Trellis application bundle
+     * @param isMemento true if the resource is a memento; false otherwise
+     * @param weakEtags whether to use weak ETags for RDF responses
+     * @param includeMementoDates whether to include date strings in memento link headers
+     * @param mementoHeaderLinks the maximum number of memento links in response headers
+     * @param defaultJsonLdProfile a default json-ld profile
+     * @param baseUrl the base URL
+     * @param cache a cache of serialized representations, may be null
+     * @param binaryReads a coalescer for concurrent reads of the same binary, may be null
+     */
+    public GetHandler(final TrellisRequest req, final ServiceBundler trellis, final boolean isMemento,
+            final boolean weakEtags, final boolean includeMementoDates, final int mementoHeaderLinks,
+            final String defaultJsonLdProfile, final String baseUrl, final RepresentationCache cache,
+            final RequestCoalescer<IRI, Binary> binaryReads) {
         super(req, trellis, baseUrl);
         this.isMemento = isMemento;
         this.weakEtags = weakEtags;
         this.includeMementoDates = includeMementoDates;
+        this.mementoHeaderLinks = mementoHeaderLinks;
         this.defaultJsonLdProfile = defaultJsonLdProfile;
+        this.cache = cache;
+        this.binaryReads = binaryReads;
     }
 
     /**
@@ -164,6 +224,52 @@ public class GetHandler extends BaseLdpHandler {
         return ok();
     }
 
+    /**
+     * Limit the containment triples of a container to the children that may be read.
+     *
+     * <p>The children that are left out are part of the entity tag, so that different views of the same container
+     * are never confused with one another.
+     *
+     * @param builder the response builder
+     * @param readableChildren a function that selects the children that may be read
+     * @return the next completion stage, containing the response builder
+     */
+    public CompletionStage<ResponseBuilder> filterContainment(final ResponseBuilder builder,
+            final Function<Collection<IRI>, CompletionStage<Set<IRI>>> readableChildren) {
+        if (isMemento || nonNull(getRequest().getExt()) || !isContainer(getResource().getInteractionModel())) {
+            return completedFuture(builder);
+        }
+        final List<IRI> children;
+        try (final Stream<Triple> triples = getResource().stream(LDP.PreferContainment)) {
+            children = triples.filter(triple -> LDP.contains.equals(triple.getPredicate())).map(Triple::getObject)
+                .filter(IRI.class::isInstance).map(IRI.class::cast).collect(toList());
+        }
+        if (children.isEmpty()) {
+            return completedFuture(builder);
+        }
+        return readableChildren.apply(children).thenApply(readable -> {
+            children.stream().filter(child -> !readable.contains(child)).forEach(hiddenChildren::add);
+            LOGGER.debug("Omitting {} of {} children of {}", hiddenChildren.size(), children.size(), getIdentifier());
+            return builder;
+        });
+    }
+
+    /**
+     * Evaluate any conditional request headers against the resource metadata.
+     *
+     * <p>The entity tag is derived from the identifier, modification date and Prefer header alone, so a
+     * conditional request can be answered with a 304 response before any mementos or content are fetched.
+     *
+     * @param builder the response builder
+     * @return the response builder
+     */
+    public ResponseBuilder revalidate(final ResponseBuilder builder) {
+        final EntityTag etag = getResource().getBinaryMetadata().isPresent() && isNull(syntax)
+            ? getBinaryEtag() : getRdfEtag(getPrefer());
+        checkCache(getResource().getModified(), etag);
+        return builder;
+    }
+
     /**
      * Get the standard headers.
      * @param builder the response builder
@@ -248,7 +354,7 @@ public class GetHandler extends BaseLdpHandler {
         // Only show memento links for the user-managed graph (not ACL)
         if (!ACL.equals(getRequest().getExt())) {
             builder.link(getIdentifier(), "original timegate")
-                .links(MementoResource.getMementoLinks(getIdentifier(), mementos)
+                .links(MementoResource.getMementoLinks(getIdentifier(), mementos, mementoHeaderLinks)
                         .map(link -> MementoResource.filterLinkParams(link, !includeMementoDates))
                         .toArray(Link[]::new));
         }
@@ -291,16 +397,32 @@ public class GetHandler extends BaseLdpHandler {
         }
     }
 
-    private ResponseBuilder getLdpRs(final ResponseBuilder builder, final RDFSyntax syntax,
-            final IRI profile) {
-        final Prefer prefer = ACL.equals(getRequest().getExt()) ?
+    private Prefer getPrefer() {
+        return ACL.equals(getRequest().getExt()) ?
             new Prefer(PREFER_REPRESENTATION, singletonList(PreferAccessControl.getIRIString()),
                     of(PreferUserManaged, LDP.PreferContainment, LDP.PreferMembership).map(IRI::getIRIString)
                         .collect(toList()), null, null) : getRequest().getPrefer();
+    }
+
+    private EntityTag getRdfEtag(final Prefer prefer) {
+        if (!hiddenChildren.isEmpty()) {
+            final String hidden = hiddenChildren.stream().map(IRI::getIRIString).sorted().collect(joining(","));
+            return new EntityTag(buildEtagHash(getIdentifier() + "?hidden=" + hidden, getResource().getModified(),
+                        prefer), weakEtags);
+        }
+        return new EntityTag(buildEtagHash(getIdentifier(), getResource().getModified(), prefer), weakEtags);
+    }
+
+    private EntityTag getBinaryEtag() {
+        return new EntityTag(buildEtagHash(getIdentifier() + "BINARY", getResource().getModified(), null));
+    }
+
+    private ResponseBuilder getLdpRs(final ResponseBuilder builder, final RDFSyntax syntax,
+            final IRI profile) {
+        final Prefer prefer = getPrefer();
 
         // Check for a cache hit
-        final EntityTag etag = new EntityTag(buildEtagHash(getIdentifier(), getResource().getModified(), prefer),
-                weakEtags);
+        final EntityTag etag = getRdfEtag(prefer);
         checkCache(getResource().getModified(), etag);
 
         builder.tag(etag);
@@ -322,28 +444,89 @@ public class GetHandler extends BaseLdpHandler {
             return builder;
         }
 
+        final IRI outputProfile = ofNullable(profile).orElseGet(() ->
+                getDefaultProfile(syntax, getIdentifier(), defaultJsonLdProfile));
+
+        // Linked Data Fragment requests are not cached, since each one selects a different part of the resource
+        if (nonNull(cache) && cache.isEnabled() && isNull(getRequest().getSubject())
+                && isNull(getRequest().getPredicate()) && isNull(getRequest().getObject())) {
+            return getCachedLdpRs(builder, etag, prefer, syntax, outputProfile);
+        }
+
         // Stream the rdf content
         final StreamingOutput stream = new StreamingOutput() {
             @Override
             public void write(final OutputStream out) throws IOException {
-                try (final Stream<Quad> stream = getResource().stream()) {
-                    getServices().getIOService().write(stream.filter(filterWithPrefer(prefer))
-                        .map(unskolemizeQuads(getServices().getResourceService(), getBaseUrl()))
-                        .filter(filterWithLDF(getRequest().getSubject(), getRequest().getPredicate(),
-                                getRequest().getObject()))
-                        .map(Quad::asTriple), out, syntax, ofNullable(profile).orElseGet(() ->
-                                getDefaultProfile(syntax, getIdentifier(), defaultJsonLdProfile)));
+                writeLdpRs(out, prefer, syntax, outputProfile);
+            }
+        };
+        return builder.entity(stream);
+    }
+
+    private ResponseBuilder getCachedLdpRs(final ResponseBuilder builder, final EntityTag etag,
+            final Prefer prefer, final RDFSyntax syntax, final IRI profile) {
+        if (cache.isCompressed()) {
+            builder.header(VARY, ACCEPT_ENCODING);
+        }
+        final String key = RepresentationCache.key(etag, syntax, profile, getBaseUrl());
+        final byte[] cached = cache.get(key);
+        if (nonNull(cached)) {
+            if (!cache.isCompressed()) {
+                return builder.entity(cached);
+            } else if (acceptsGzip()) {
+                // The gzip body differs from the identity body byte for byte, so it may not share a strong ETag
+                return builder.tag(new EntityTag(etag.getValue(), true)).header(CONTENT_ENCODING, GZIP)
+                    .entity(cached);
+            }
+            final StreamingOutput stream = new StreamingOutput() {
+                @Override
+                public void write(final OutputStream out) throws IOException {
+                    try (final InputStream input = new GZIPInputStream(new ByteArrayInputStream(cached))) {
+                        IOUtils.copy(input, out);
+                    }
                 }
+            };
+            return builder.entity(stream);
+        }
+
+        final StreamingOutput stream = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream out) throws IOException {
+                final RepresentationCache.Capture capture = cache.capture(out);
+                writeLdpRs(capture, prefer, syntax, profile);
+                capture.flush();
+                cache.put(getResource().getIdentifier(), key, capture);
             }
         };
         return builder.entity(stream);
     }
 
+    private void writeLdpRs(final OutputStream out, final Prefer prefer, final RDFSyntax syntax,
+            final IRI profile) {
+        try (final Stream<Quad> stream = getResource().stream()) {
+            getServices().getIOService().write(stream.filter(filterWithPrefer(prefer)).filter(this::isVisible)
+                .map(unskolemizeQuads(getServices().getResourceService(), getBaseUrl()))
+                .filter(filterWithLDF(getRequest().getSubject(), getRequest().getPredicate(),
+                        getRequest().getObject()))
+                .map(Quad::asTriple), out, syntax, profile);
+        }
+    }
+
+    private boolean isVisible(final Quad quad) {
+        return hiddenChildren.isEmpty() || !quad.getGraphName().filter(LDP.PreferContainment::equals).isPresent()
+            || !hiddenChildren.contains(quad.getObject());
+    }
+
+    private boolean acceptsGzip() {
+        return ofNullable(getRequest().getHeaders().get(ACCEPT_ENCODING)).map(values -> values.stream()
+                .flatMap(value -> Stream.of(value.split(","))).map(value -> value.split(";")[0].trim())
+                .anyMatch(GZIP::equalsIgnoreCase)).orElse(false);
+    }
+
     private ResponseBuilder getLdpNr(final ResponseBuilder builder) {
 
-        final Instant mod = getResource().getModified();
-        final EntityTag etag = new EntityTag(buildEtagHash(getIdentifier() + "BINARY", mod, null));
-        checkCache(mod, etag);
+        final EntityTag etag = getBinaryEtag();
+        checkCache(getResource().getModified(), etag);
 
         final IRI dsid = getResource().getBinaryMetadata().map(BinaryMetadata::getIdentifier).orElse(null);
 
@@ -367,10 +550,16 @@ public class GetHandler extends BaseLdpHandler {
 
     private CompletionStage<InputStream> getBinaryStream(final IRI dsid, final TrellisRequest req) {
         if (isNull(req.getRange())) {
-            return getServices().getBinaryService().get(dsid).thenApply(Binary::getContent);
+            return getBinary(dsid).thenApply(Binary::getContent);
+        }
+        return getBinary(dsid).thenApply(b -> b.getContent(req.getRange().getFrom(), req.getRange().getTo()));
+    }
+
+    private CompletionStage<? extends Binary> getBinary(final IRI dsid) {
+        if (isNull(binaryReads)) {
+            return getServices().getBinaryService().get(dsid);
         }
-        return getServices().getBinaryService().get(dsid)
-                        .thenApply(b -> b.getContent(req.getRange().getFrom(), req.getRange().getTo()));
+        return binaryReads.get(dsid, getServices().getBinaryService()::get);
     }
 
     private void addLdpHeaders(final ResponseBuilder builder, final IRI model) {
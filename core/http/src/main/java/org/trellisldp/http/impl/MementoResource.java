@@ -18,6 +18,8 @@ import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.ofInstant;
 import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
 import static java.time.temporal.ChronoUnit.SECONDS;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
 import static java.util.ServiceLoader.load;
@@ -53,11 +55,13 @@ import static org.trellisldp.vocabulary.LDP.Resource;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -78,11 +82,15 @@ import org.trellisldp.http.core.TrellisRequest;
 public final class MementoResource {
 
     private static final String TIMEMAP_PARAM = "?ext=timemap";
+    private static final String NEXT = "next";
+    private static final String PREV = "prev";
     private static final TimemapGenerator timemap = of(load(TimemapGenerator.class)).map(ServiceLoader::iterator)
         .filter(Iterator::hasNext).map(Iterator::next).orElseGet(() -> new TimemapGenerator() { });
 
     private final ServiceBundler trellis;
     private final boolean includeMementoDates;
+    private final int linkLimit;
+    private final int pageSize;
 
     /**
      * Wrap a resource in some Memento-specific response builders.
@@ -91,14 +99,33 @@ public final class MementoResource {
      * @param includeMementoDates whether to include memento dates in link headers
      */
     public MementoResource(final ServiceBundler trellis, final boolean includeMementoDates) {
+        this(trellis, includeMementoDates, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Wrap a resource in some Memento-specific response builders.
+     *
+     * @param trellis the Trellis application bundle
+     * @param includeMementoDates whether to include memento dates in link headers
+     * @param linkLimit the maximum number of memento links in response headers
+     * @param pageSize the maximum number of mementos in a single page of a TimeMap
+     */
+    public MementoResource(final ServiceBundler trellis, final boolean includeMementoDates, final int linkLimit,
+            final int pageSize) {
         this.trellis = trellis;
         this.includeMementoDates = includeMementoDates;
+        this.linkLimit = linkLimit;
+        this.pageSize = Math.max(1, pageSize);
     }
 
     /**
      * Create a response builder for a TimeMap response.
      *
-     * @param mementos the mementos
+     * <p>If there are more mementos than fit on a single page, the response is limited to the earliest
+     * mementos, or to the latest mementos if only an {@code until} parameter was supplied, and
+     * {@code next} and {@code prev} links point to the adjacent pages.
+     *
+     * @param mementos the mementos within the range requested by the {@code from} and {@code until} parameters
      * @param baseUrl the base URL
      * @param req the LDP request
      * @return a response builder object
@@ -108,10 +135,14 @@ public final class MementoResource {
 
         final List<MediaType> acceptableTypes = req.getAcceptableMediaTypes();
         final String identifier = getBaseUrl(baseUrl, req) + req.getPath();
-        final List<Link> links = getMementoLinks(identifier, mementos).collect(toList());
+        final SortedSet<Instant> page = getPage(mementos, isNull(req.getFrom()) && nonNull(req.getUntil()));
+        final List<Link> links = getMementoLinks(identifier, page).collect(toList());
+        final List<Link> pages = getPageLinks(identifier, mementos, page, req);
 
+        // Only a bounded number of links are repeated in the headers; the full page is in the response body
         final ResponseBuilder builder = ok().link(identifier, ORIGINAL + " " + TIMEGATE);
-        builder.links(links.stream().map(this::filterLinkParams).toArray(Link[]::new))
+        builder.links(concat(getMementoLinks(identifier, page, linkLimit).map(this::filterLinkParams),
+                    pages.stream()).toArray(Link[]::new))
             .link(Resource.getIRIString(), TYPE).link(RDFSource.getIRIString(), TYPE)
             .header(ALLOW, join(",", GET, HEAD, OPTIONS));
 
@@ -132,8 +163,8 @@ public final class MementoResource {
             return builder.type(syntax.get().mediaType()).entity(stream);
         }
 
-        return builder.type(APPLICATION_LINK_FORMAT)
-            .entity(links.stream().map(this::filterLinkParams).map(Link::toString).collect(joining(",\n")) + "\n");
+        return builder.type(APPLICATION_LINK_FORMAT).entity(concat(links.stream().map(this::filterLinkParams),
+                    pages.stream()).map(Link::toString).collect(joining(",\n")) + "\n");
     }
 
     /**
@@ -150,7 +181,8 @@ public final class MementoResource {
         return status(FOUND)
             .location(fromUri(identifier + "?version=" + req.getDatetime().getInstant().getEpochSecond()).build())
             .link(identifier, ORIGINAL + " " + TIMEGATE)
-            .links(getMementoLinks(identifier, mementos).map(this::filterLinkParams).toArray(Link[]::new))
+            .links(getMementoLinks(identifier, mementos, linkLimit).map(this::filterLinkParams)
+                    .toArray(Link[]::new))
             .header(VARY, ACCEPT_DATETIME);
     }
 
@@ -171,11 +203,28 @@ public final class MementoResource {
      * @return a stream of link headers
      */
     public static Stream<Link> getMementoLinks(final String identifier, final SortedSet<Instant> mementos) {
+        return getMementoLinks(identifier, mementos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieve the Memento-related link headers given a collection of datetimes, with a limit on the
+     * number of memento links.
+     *
+     * <p>Only the most recent mementos are linked; the TimeMap link covers the complete range.
+     *
+     * @param identifier the public identifier for the resource
+     * @param mementos a collection of memento values
+     * @param limit the maximum number of memento links
+     * @return a stream of link headers
+     */
+    public static Stream<Link> getMementoLinks(final String identifier, final SortedSet<Instant> mementos,
+            final int limit) {
         if (mementos.isEmpty()) {
             return empty();
         }
+        final long skip = Math.max(0L, mementos.size() - (long) Math.max(0, limit));
         return concat(getTimeMap(identifier, mementos.first(), mementos.last()),
-                mementos.stream().map(mementoToLink(identifier)));
+                mementos.stream().skip(skip).map(mementoToLink(identifier)));
     }
 
     /**
@@ -197,6 +246,36 @@ public final class MementoResource {
         return link;
     }
 
+    private SortedSet<Instant> getPage(final SortedSet<Instant> mementos, final boolean latest) {
+        if (mementos.size() <= pageSize) {
+            return mementos;
+        }
+        final List<Instant> times = new ArrayList<>(mementos);
+        return new TreeSet<>(latest ? times.subList(times.size() - pageSize, times.size())
+                : times.subList(0, pageSize));
+    }
+
+    private static List<Link> getPageLinks(final String identifier, final SortedSet<Instant> mementos,
+            final SortedSet<Instant> page, final TrellisRequest req) {
+        // An explicit boundary may have further mementos beyond it, so that side always has a link
+        final List<Link> links = new ArrayList<>();
+        if (nonNull(req.getFrom()) || page.size() < mementos.size() && page.first().isAfter(mementos.first())) {
+            final Instant first = page.isEmpty() ? req.getFrom().getInstant() : page.first();
+            links.add(getPageLink(identifier, UNTIL, first.minusSeconds(1), PREV));
+        }
+        if (nonNull(req.getUntil()) || page.size() < mementos.size() && page.last().isBefore(mementos.last())) {
+            final Instant last = page.isEmpty() ? req.getUntil().getInstant() : page.last();
+            links.add(getPageLink(identifier, FROM, last.plusSeconds(1), NEXT));
+        }
+        return links;
+    }
+
+    private static Link getPageLink(final String identifier, final String param, final Instant time,
+            final String rel) {
+        return Link.fromUri(identifier + TIMEMAP_PARAM + "&" + param + "=" + time.getEpochSecond()).rel(rel)
+            .type(APPLICATION_LINK_FORMAT).build();
+    }
+
     private static String getBaseUrl(final String baseUrl, final TrellisRequest req) {
         return ofNullable(baseUrl).orElseGet(req::getBaseUrl);
     }
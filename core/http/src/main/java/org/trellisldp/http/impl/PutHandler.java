@@ -35,6 +35,7 @@ import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
 import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 import static org.trellisldp.api.TrellisUtils.toQuad;
 import static org.trellisldp.http.core.HttpConstants.ACL;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD;
 import static org.trellisldp.http.impl.HttpUtils.buildEtagHash;
 import static org.trellisldp.http.impl.HttpUtils.checkRequiredPreconditions;
 import static org.trellisldp.http.impl.HttpUtils.ldpResourceTypes;
@@ -81,6 +82,7 @@ public class PutHandler extends MutatingLdpHandler {
     private static final Logger LOGGER = getLogger(PutHandler.class);
 
     private final IRI internalId;
+    private final String uploadId;
     private final RDFSyntax rdfSyntax;
     private final IRI heuristicType;
     private final IRI graphName;
@@ -100,11 +102,14 @@ public class PutHandler extends MutatingLdpHandler {
                     final boolean preconditionRequired, final String baseUrl) {
         super(req, trellis, baseUrl, entity);
         this.internalId = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
-        this.rdfSyntax = ofNullable(req.getContentType()).map(MediaType::valueOf).flatMap(ct ->
-                getServices().getIOService().supportedWriteSyntaxes().stream().filter(s ->
+        // A completed resumable upload is committed in place of the request entity
+        this.uploadId = UPLOAD.equals(req.getExt()) ? req.getUploadId() : null;
+        this.rdfSyntax = nonNull(uploadId) ? null : ofNullable(req.getContentType()).map(MediaType::valueOf)
+            .flatMap(ct -> getServices().getIOService().supportedWriteSyntaxes().stream().filter(s ->
                     ct.isCompatible(MediaType.valueOf(s.mediaType()))).findFirst()).orElse(null);
 
-        this.heuristicType = nonNull(req.getContentType()) && isNull(rdfSyntax) ? LDP.NonRDFSource : LDP.RDFSource;
+        this.heuristicType = nonNull(uploadId) || nonNull(req.getContentType()) && isNull(rdfSyntax)
+            ? LDP.NonRDFSource : LDP.RDFSource;
         this.graphName = ACL.equals(req.getExt()) ? PreferAccessControl : PreferUserManaged;
         this.otherGraph = ACL.equals(req.getExt()) ? PreferUserManaged : PreferAccessControl;
         this.preconditionRequired = preconditionRequired;
@@ -153,9 +158,10 @@ public class PutHandler extends MutatingLdpHandler {
     public CompletionStage<ResponseBuilder> setResource(final ResponseBuilder builder) {
         LOGGER.debug("Setting resource as {}", getIdentifier());
 
-        final IRI ldpType = isBinaryDescription() ? LDP.NonRDFSource : ofNullable(getRequest().getLink())
-            .filter(l -> "type".equals(l.getRel())).map(Link::getUri).map(URI::toString)
-            .filter(l -> l.startsWith(LDP.getNamespace())).map(rdf::createIRI).filter(isEqual(LDP.Resource).negate())
+        final IRI ldpType = isBinaryDescription() || nonNull(uploadId) ? LDP.NonRDFSource
+            : ofNullable(getRequest().getLink()).filter(l -> "type".equals(l.getRel())).map(Link::getUri)
+            .map(URI::toString).filter(l -> l.startsWith(LDP.getNamespace())).map(rdf::createIRI)
+            .filter(isEqual(LDP.Resource).negate())
             .orElseGet(() -> ofNullable(getResource()).map(Resource::getInteractionModel).orElse(heuristicType));
 
         // Verify that the persistence layer supports the given interaction model
@@ -200,7 +206,13 @@ public class PutHandler extends MutatingLdpHandler {
         final CompletionStage<Void> persistPromise;
 
         // Add user-supplied data
-        if (LDP.NonRDFSource.equals(ldpType) && isNull(rdfSyntax)) {
+        if (nonNull(uploadId)) {
+            LOGGER.debug("Completing upload {} for {}", uploadId, getIdentifier());
+            metadata = metadataBuilder(internalId, ldpType, mutable);
+            persistPromise = UploadHandler.completeUpload(getServices(), internalId, getSession().getAgent(), uploadId)
+                .thenAccept(metadata::binary);
+            builder.link(getIdentifier() + "?ext=description", "describedby");
+        } else if (LDP.NonRDFSource.equals(ldpType) && isNull(rdfSyntax)) {
             LOGGER.trace("Successfully checked for bad digest value");
             final String mimeType = ofNullable(getRequest().getContentType()).orElse(APPLICATION_OCTET_STREAM);
             final IRI binaryLocation = rdf.createIRI(getServices().getBinaryService().generateIdentifier());
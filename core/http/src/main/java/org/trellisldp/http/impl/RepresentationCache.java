@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFSyntax;
+import org.slf4j.Logger;
+
+/**
+ * A cache of serialized RDF representations.
+ *
+ * <p>Each representation is keyed by its entity tag, which already identifies the state of the resource
+ * and the Prefer header, together with the output syntax, profile and base URL. A changed resource therefore
+ * never matches a cached representation of its former state; mutations only invalidate entries so that
+ * their memory is released early. The least recently used representations are evicted once the total size
+ * of the cached content exceeds a byte budget, and the content may optionally be held in gzip-compressed form.
+ */
+public class RepresentationCache {
+
+    private static final Logger LOGGER = getLogger(RepresentationCache.class);
+
+    private final long capacity;
+    private final long threshold;
+    private final boolean compress;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<IRI, Set<String>> keys = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long size;
+
+    /**
+     * Create a representation cache.
+     * @param capacity the maximum number of bytes to cache, or zero to disable the cache
+     * @param threshold the size, in bytes, of the largest representation that may be cached
+     * @param compress whether to hold cached representations in gzip-compressed form
+     */
+    public RepresentationCache(final long capacity, final long threshold, final boolean compress) {
+        this.capacity = Math.max(0L, capacity);
+        this.threshold = Math.min(Math.min(this.capacity, Integer.MAX_VALUE), Math.max(0L, threshold));
+        this.compress = compress;
+    }
+
+    /**
+     * Determine whether the cache holds any representations.
+     * @return true if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return capacity > 0L;
+    }
+
+    /**
+     * Determine whether cached representations are held in gzip-compressed form.
+     * @return true if the cached content is compressed
+     */
+    public boolean isCompressed() {
+        return compress;
+    }
+
+    /**
+     * Remove every representation of a resource from the cache.
+     * @param identifier the resource identifier
+     */
+    public synchronized void invalidate(final IRI identifier) {
+        final Set<String> removed = keys.remove(identifier);
+        if (nonNull(removed)) {
+            removed.forEach(key -> {
+                final Entry entry = entries.remove(key);
+                if (nonNull(entry)) {
+                    size -= entry.content.length;
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the proportion of representations that were served from the cache.
+     * @return the hit ratio, between 0 and 1
+     */
+    public double getHitRatio() {
+        final long hit = hits.sum();
+        final long total = hit + misses.sum();
+        return total == 0L ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * Get the number of bytes held by the cache.
+     * @return the size of the cached content
+     */
+    public synchronized long getMemoryUsage() {
+        return size;
+    }
+
+    /**
+     * Build the key of a representation.
+     * @param etag the entity tag of the resource state
+     * @param syntax the output syntax
+     * @param profile the output profile, may be null
+     * @param baseUrl the base URL
+     * @return the cache key
+     */
+    static String key(final EntityTag etag, final RDFSyntax syntax, final IRI profile, final String baseUrl) {
+        return etag.getValue() + " " + syntax.mediaType() + " " + (isNull(profile) ? "" : profile.getIRIString())
+            + " " + baseUrl;
+    }
+
+    /**
+     * Get a cached representation.
+     * @param key the cache key
+     * @return the content, compressed if {@link #isCompressed} is true, or null if it is not cached
+     */
+    byte[] get(final String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        synchronized (this) {
+            final Entry entry = entries.get(key);
+            if (nonNull(entry)) {
+                hits.increment();
+                return entry.content;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Wrap a response stream so that the representation written to it is recorded.
+     * @param out the response stream
+     * @return the recording stream
+     */
+    Capture capture(final OutputStream out) {
+        return new Capture(out, threshold);
+    }
+
+    /**
+     * Cache a representation that was written in full to a recording stream.
+     * @param identifier the resource identifier
+     * @param key the cache key
+     * @param capture the recording stream
+     */
+    void put(final IRI identifier, final String key, final Capture capture) {
+        if (!isEnabled() || capture.overflow) {
+            return;
+        }
+        final byte[] content;
+        try {
+            content = compress ? gzip(capture.buffer) : capture.buffer.toByteArray();
+        } catch (final IOException ex) {
+            LOGGER.debug("Unable to cache representation of {}: {}", identifier, ex.getMessage());
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(key) || content.length > capacity) {
+                return;
+            }
+            entries.put(key, new Entry(identifier, content));
+            keys.computeIfAbsent(identifier, k -> new HashSet<>()).add(key);
+            size += content.length;
+            final Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (size > capacity && eldest.hasNext()) {
+                final Map.Entry<String, Entry> evicted = eldest.next();
+                size -= evicted.getValue().content.length;
+                eldest.remove();
+                final Set<String> related = keys.get(evicted.getValue().identifier);
+                if (nonNull(related) && related.remove(evicted.getKey()) && related.isEmpty()) {
+                    keys.remove(evicted.getValue().identifier);
+                }
+            }
+        }
+    }
+
+    private static byte[] gzip(final ByteArrayOutputStream buffer) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (final GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            buffer.writeTo(output);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class Entry {
+
+        private final IRI identifier;
+        private final byte[] content;
+
+        private Entry(final IRI identifier, final byte[] content) {
+            this.identifier = identifier;
+            this.content = content;
+        }
+    }
+
+    /**
+     * A response stream that records what is written to it, up to the size of the largest cacheable
+     * representation.
+     */
+    static final class Capture extends FilterOutputStream {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final long limit;
+        private boolean overflow;
+
+        private Capture(final OutputStream out, final long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            record(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The response stream is owned by the container
+            flush();
+        }
+
+        private void record(final byte[] b, final int off, final int len) {
+            if (overflow) {
+                return;
+            }
+            if (buffer.size() + len > limit) {
+                // Representations that are too large to cache are streamed without being held in memory
+                overflow = true;
+                buffer.reset();
+                return;
+            }
+            buffer.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.util.Objects.nonNull;
+import static java.util.function.Function.identity;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent reads of the same key into a single request.
+ *
+ * <p>While a read is in flight, any other read of the same key shares its result instead of issuing a request
+ * of its own. Nothing is retained once the read completes, so this never serves a result that was fetched
+ * before the read that receives it began, unless that read was already in flight; a key may also be
+ * {@linkplain #forget forgotten} when it is changed, so that later reads do not join an earlier one.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class RequestCoalescer<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Read a value, joining any read of the same key that is already in flight.
+     *
+     * @param key the key
+     * @param loader the function that starts a new read
+     * @return the next completion stage, containing the value
+     */
+    public CompletionStage<V> get(final K key, final Function<K, CompletionStage<? extends V>> loader) {
+        requests.increment();
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (nonNull(existing)) {
+            coalesced.increment();
+            // Each caller gets its own dependent stage, so that none can complete the shared one
+            return existing.thenApply(identity());
+        }
+        try {
+            loader.apply(key).whenComplete((value, err) -> {
+                inFlight.remove(key, created);
+                if (nonNull(err)) {
+                    created.completeExceptionally(err);
+                } else {
+                    created.complete(value);
+                }
+            });
+        } catch (final RuntimeException ex) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(ex);
+        }
+        return created.thenApply(identity());
+    }
+
+    /**
+     * Stop later reads of a key from joining a read that is already in flight.
+     *
+     * @param key the key
+     */
+    public void forget(final K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Get the number of reads.
+     *
+     * @return the number of reads
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Get the number of reads that joined a read already in flight.
+     *
+     * @return the number of coalesced reads
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.lang.Long.parseLong;
+import static java.net.URI.create;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.joining;
+import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.noContent;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.trellisldp.api.Resource.SpecialResources.DELETED_RESOURCE;
+import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD_ID;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD_LENGTH;
+import static org.trellisldp.vocabulary.Trellis.AnonymousAgent;
+
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.Resource;
+import org.trellisldp.api.ResumableBinaryService;
+import org.trellisldp.api.ServiceBundler;
+import org.trellisldp.http.core.TrellisRequest;
+import org.trellisldp.vocabulary.LDP;
+
+/**
+ * The response handler for resumable uploads of binary content.
+ *
+ * <p>A POST request with {@code ?ext=upload} creates an upload for the NonRDFSource at the request path. The
+ * total size of the content is given in an {@code Upload-Length} header, and the location of the new upload is
+ * returned in a {@code Location} header. Chunks are then sent with PUT requests to that location, each with a
+ * {@code Content-Range} header; they may be sent in any order and concurrently. A chunk that holds more bytes than
+ * its range, or whose range states a different total length, is rejected. A GET request to the upload
+ * lists the byte ranges that have been received, a DELETE request aborts it, and a POST request completes it,
+ * at which point the binary content is committed to the resource with the same semantics as a PUT request.
+ *
+ * <p>An upload can only be used at the resource it was created for, and by the agent that created it; any
+ * other request for it is answered as though the upload did not exist.
+ */
+public class UploadHandler extends BaseLdpHandler {
+
+    private static final Logger LOGGER = getLogger(UploadHandler.class);
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("^bytes (\\d+)-(\\d+)/(\\d+|\\*)$");
+
+    private final InputStream entity;
+    private final IRI internalId;
+    private final IRI agent;
+
+    /**
+     * Create a response handler for resumable uploads.
+     *
+     * @param req the LDP request
+     * @param entity the entity
+     * @param trellis the Trellis application bundle
+     * @param baseUrl the base URL
+     */
+    public UploadHandler(final TrellisRequest req, final InputStream entity, final ServiceBundler trellis,
+            final String baseUrl) {
+        super(req, trellis, baseUrl);
+        this.entity = entity;
+        this.internalId = rdf.createIRI(TRELLIS_DATA_PREFIX + req.getPath());
+        this.agent = getAgent(req, trellis);
+    }
+
+    /**
+     * Create an upload.
+     * @param resource the resource that will hold the binary content
+     * @return the response builder
+     */
+    public CompletionStage<ResponseBuilder> createUpload(final Resource resource) {
+        if (nonNull(resource) && !MISSING_RESOURCE.equals(resource) && !DELETED_RESOURCE.equals(resource)
+                && !LDP.NonRDFSource.equals(resource.getInteractionModel())) {
+            throw new ClientErrorException("Cannot upload binary content to " + getIdentifier(),
+                    status(CONFLICT).build());
+        }
+        final long length = parseLength(getRequest().getHeaders().getFirst(UPLOAD_LENGTH));
+        final String mimeType = ofNullable(getRequest().getContentType()).orElse(APPLICATION_OCTET_STREAM);
+        final BinaryMetadata binary = BinaryMetadata.builder(rdf.createIRI(getBinaryService().generateIdentifier()))
+            .mimeType(mimeType).hints(getRequest().getHeaders()).build();
+
+        LOGGER.debug("Creating upload of {} bytes for {}", length, getIdentifier());
+        return getBinaryService().initiateUpload(internalId, agent, binary, length).handle(UploadHandler::checkUpload)
+            .thenApply(id -> status(CREATED).location(create(getIdentifier() + "?ext=" + UPLOAD + "&" + UPLOAD_ID
+                            + "=" + id)));
+    }
+
+    /**
+     * Write a chunk of an upload.
+     * @return the response builder
+     */
+    public CompletionStage<ResponseBuilder> uploadChunk() {
+        final Matcher range = ofNullable(getRequest().getHeaders().getFirst(CONTENT_RANGE_HEADER))
+            .map(CONTENT_RANGE::matcher).filter(Matcher::matches)
+            .orElseThrow(() -> new BadRequestException("A valid Content-Range header is required"));
+        final long start = parseLong(range.group(1));
+        final long end = parseLong(range.group(2));
+        final long total = "*".equals(range.group(3)) ? -1L : parseLong(range.group(3));
+        if (end < start || (total >= 0 && end >= total)) {
+            throw new BadRequestException("Invalid Content-Range: " + range.group());
+        }
+
+        LOGGER.debug("Writing bytes {}-{} of upload {}", start, end, getUploadId());
+        return getBinaryService().uploadChunk(internalId, agent, getUploadId(), start, end - start + 1, total, entity)
+            .whenComplete(HttpUtils.closeInputStreamAsync(entity)).handle(UploadHandler::checkUpload)
+            .thenApply(written -> {
+                // Whatever arrived is kept, so only the remainder of a truncated chunk needs to be sent again
+                if (written != end - start + 1) {
+                    throw new BadRequestException("Received " + written + " of " + (end - start + 1) + " bytes");
+                }
+                return noContent();
+            });
+    }
+
+    /**
+     * List the byte ranges of an upload that have been received, one inclusive range per line.
+     * @return the response builder
+     */
+    public CompletionStage<ResponseBuilder> getRanges() {
+        return getBinaryService().uploadedRanges(internalId, agent, getUploadId()).handle(UploadHandler::checkUpload)
+            .thenApply(ranges -> ok().type(TEXT_PLAIN_TYPE).entity(ranges.entrySet().stream()
+                        .map(r -> r.getKey() + "-" + (r.getValue() - 1) + "\n").collect(joining())));
+    }
+
+    /**
+     * Abort an upload.
+     * @return the response builder
+     */
+    public CompletionStage<ResponseBuilder> abortUpload() {
+        LOGGER.debug("Aborting upload {} for {}", getUploadId(), getIdentifier());
+        return getBinaryService().abortUpload(internalId, agent, getUploadId()).handle(UploadHandler::checkUpload)
+            .thenApply(future -> noContent());
+    }
+
+    /**
+     * Complete an upload.
+     * @param services the Trellis service bundle
+     * @param resource the resource that will hold the binary content
+     * @param agent the agent that completes the upload
+     * @param uploadId the upload identifier
+     * @return the binary metadata
+     */
+    static CompletionStage<BinaryMetadata> completeUpload(final ServiceBundler services, final IRI resource,
+            final IRI agent, final String uploadId) {
+        return getBinaryService(services).completeUpload(resource, agent, uploadId)
+            .handle(UploadHandler::checkUpload);
+    }
+
+    private static IRI getAgent(final TrellisRequest req, final ServiceBundler services) {
+        return ofNullable(req.getPrincipalName()).map(services.getAgentService()::asAgent).orElse(AnonymousAgent);
+    }
+
+    private String getUploadId() {
+        return ofNullable(getRequest().getUploadId()).orElseThrow(NotFoundException::new);
+    }
+
+    private ResumableBinaryService getBinaryService() {
+        return getBinaryService(getServices());
+    }
+
+    private static ResumableBinaryService getBinaryService(final ServiceBundler services) {
+        if (services.getBinaryService() instanceof ResumableBinaryService) {
+            return (ResumableBinaryService) services.getBinaryService();
+        }
+        LOGGER.debug("The binary service does not support resumable uploads");
+        throw new NotFoundException();
+    }
+
+    private static long parseLength(final String length) {
+        try {
+            if (nonNull(length) && parseLong(length) >= 0) {
+                return parseLong(length);
+            }
+        } catch (final NumberFormatException ex) {
+            LOGGER.debug("Invalid {} header: {}", UPLOAD_LENGTH, length);
+        }
+        throw new BadRequestException("A valid " + UPLOAD_LENGTH + " header is required");
+    }
+
+    private static <T> T checkUpload(final T value, final Throwable err) {
+        if (isNull(err)) {
+            return value;
+        }
+        final Throwable cause = err instanceof CompletionException && nonNull(err.getCause()) ? err.getCause() : err;
+        if (cause instanceof NoSuchElementException) {
+            throw new NotFoundException();
+        } else if (cause instanceof IllegalArgumentException) {
+            throw new BadRequestException(cause.getMessage());
+        } else if (cause instanceof IllegalStateException) {
+            throw new ClientErrorException(cause.getMessage(), status(CONFLICT).build());
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new CompletionException(cause);
+    }
+}
@@ -190,6 +190,7 @@ abstract class BaseTrellisHttpResourceTest extends JerseyTest {
 
         when(mockAgentService.asAgent(anyString())).thenReturn(agent);
         when(mockAccessControlService.getAccessModes(any(IRI.class), any(Session.class))).thenReturn(allModes);
+        when(mockAccessControlService.getAccessModesAsync(any(IRI.class), any(Session.class))).thenCallRealMethod();
     }
 
     private void setUpBundler() {
@@ -260,6 +261,8 @@ abstract class BaseTrellisHttpResourceTest extends JerseyTest {
                 ofEpochSecond(timestamp - 2000), ofEpochSecond(timestamp - 1000), time))));
         when(mockMementoService.mementos(eq(deletedIdentifier))).thenReturn(completedFuture(emptySortedSet()));
         when(mockMementoService.mementos(eq(userDeletedIdentifier))).thenReturn(completedFuture(emptySortedSet()));
+        when(mockMementoService.mementos(any(IRI.class), any(Instant.class), any(Instant.class)))
+            .thenCallRealMethod();
         when(mockMementoService.put(any())).thenReturn(completedFuture(null));
         doCallRealMethod().when(mockMementoService).put(any(ResourceService.class), any(IRI.class));
     }
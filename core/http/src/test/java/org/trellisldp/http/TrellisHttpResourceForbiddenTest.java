@@ -16,12 +16,17 @@ package org.trellisldp.http;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_METHOD_NOT_ALLOWED;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static javax.ws.rs.client.Entity.entity;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.trellisldp.http.core.HttpConstants.APPLICATION_LINK_FORMAT;
@@ -32,11 +37,14 @@ import static org.trellisldp.http.core.RdfMediaType.APPLICATION_SPARQL_UPDATE_TY
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.IRI;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.trellisldp.api.Metadata;
+import org.trellisldp.api.Resource;
 import org.trellisldp.api.Session;
 import org.trellisldp.vocabulary.ACL;
 import org.trellisldp.vocabulary.LDP;
@@ -232,6 +240,39 @@ public class TrellisHttpResourceForbiddenTest extends BaseTrellisHttpResourceTes
         assertEquals(SC_FORBIDDEN, res.getStatus(), "Unexpected response code!");
     }
 
+    @Test
+    public void testDeferredGet() {
+        deferAccessModes();
+        final Response res = target("resource").request().get();
+
+        assertEquals(SC_FORBIDDEN, res.getStatus(), "Unexpected response code!");
+        verify(mockResourceService, never().description("Resource read before authorization"))
+            .get(any(IRI.class));
+    }
+
+    @Test
+    public void testDeferredPut() {
+        deferAccessModes();
+        final Response res = target("resource").request()
+            .put(entity("<> <http://purl.org/dc/terms/title> \"A title\" . ", APPLICATION_N_TRIPLES_TYPE));
+
+        assertEquals(SC_FORBIDDEN, res.getStatus(), "Unexpected response code!");
+        verify(mockResourceService, never().description("Resource replaced without authorization"))
+            .replace(any(Metadata.class), any(Dataset.class));
+        verify(mockMementoService, never().description("Memento added without authorization"))
+            .put(any(Resource.class));
+    }
+
+    @Test
+    public void testDeferredDelete() {
+        deferAccessModes();
+        final Response res = target("resource").request().delete();
+
+        assertEquals(SC_FORBIDDEN, res.getStatus(), "Unexpected response code!");
+        verify(mockResourceService, never().description("Resource deleted without authorization"))
+            .delete(any(Metadata.class));
+    }
+
     @Test
     public void testHasAccess() {
         when(mockAccessControlService.getAccessModes(any(IRI.class), any(Session.class)))
@@ -250,4 +291,18 @@ public class TrellisHttpResourceForbiddenTest extends BaseTrellisHttpResourceTes
 
         assertEquals(SC_METHOD_NOT_ALLOWED, res.getStatus(), "Unexpected response code!");
     }
+
+    private void deferAccessModes() {
+        clearInvocations(mockResourceService, mockMementoService);
+        // Complete the access check only after the filter has returned, so that the filter defers it
+        when(mockAccessControlService.getAccessModesAsync(any(IRI.class), any(Session.class)))
+            .thenAnswer(inv -> supplyAsync(() -> {
+                try {
+                    MILLISECONDS.sleep(100L);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return emptySet();
+            }));
+    }
 }
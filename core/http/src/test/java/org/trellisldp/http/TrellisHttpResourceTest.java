@@ -18,6 +18,11 @@ import static java.util.Collections.singletonMap;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.stream.Stream.of;
+import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
 import static javax.ws.rs.core.MediaType.WILDCARD_TYPE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,11 +30,15 @@ import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.trellisldp.api.Resource.SpecialResources.DELETED_RESOURCE;
 import static org.trellisldp.api.Resource.SpecialResources.MISSING_RESOURCE;
+import static org.trellisldp.http.core.HttpConstants.DEFERRED_AUTHORIZATION_PROPERTY;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
+import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -38,6 +47,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
@@ -48,6 +58,7 @@ import org.trellisldp.api.Metadata;
 import org.trellisldp.api.ResourceService;
 import org.trellisldp.api.RuntimeTrellisException;
 import org.trellisldp.http.core.TrellisRequest;
+import org.trellisldp.http.impl.DeferredAuthorization;
 
 /**
  * @author acoburn
@@ -108,7 +119,8 @@ public class TrellisHttpResourceTest extends AbstractTrellisHttpResourceTest {
         when(mockHttpHeaders.getRequestHeaders()).thenReturn(new MultivaluedHashMap<>());
         when(mockTrellisRequest.getAcceptableMediaTypes()).thenReturn(asList(WILDCARD_TYPE));
 
-        matcher.getResourceHeaders(mockResponse, mockRequest, mockUriInfo, mockHttpHeaders);
+        matcher.getResourceHeaders(mockResponse, mockRequest, mockUriInfo, mockHttpHeaders,
+                mock(ContainerRequestContext.class));
         verify(mockResponse).resume(captor.capture());
 
         final Response res = captor.getValue();
@@ -117,6 +129,92 @@ public class TrellisHttpResourceTest extends AbstractTrellisHttpResourceTest {
                 "Missing rel=self header with correct prefix!");
     }
 
+    @Test
+    public void testDeferredAuthorization() throws Exception {
+        final TrellisHttpResource matcher = new TrellisHttpResource(mockBundler, null);
+        final AsyncResponse response = mock(AsyncResponse.class);
+        final UriInfo uriInfo = mock(UriInfo.class);
+        final HttpHeaders httpHeaders = mock(HttpHeaders.class);
+        final CompletableFuture<Void> authorization = new CompletableFuture<>();
+        final ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+
+        when(requestContext.getProperty(eq(DEFERRED_AUTHORIZATION_PROPERTY)))
+            .thenReturn(new DeferredAuthorization(authorization));
+        when(uriInfo.getPathParameters()).thenReturn(new MultivaluedHashMap<>(singletonMap("path", RESOURCE_PATH)));
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://my.example.com/"));
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(httpHeaders.getRequestHeaders()).thenReturn(new MultivaluedHashMap<>());
+        when(httpHeaders.getAcceptableMediaTypes()).thenReturn(asList(WILDCARD_TYPE));
+
+        matcher.getResourceHeaders(response, mock(Request.class), uriInfo, httpHeaders, requestContext);
+        verify(response, never().description("Response sent before authorization")).resume(any(Response.class));
+
+        authorization.completeExceptionally(new ForbiddenException());
+        verify(response).resume(captor.capture());
+        assertEquals(SC_FORBIDDEN, captor.getValue().getStatus(), "Unexpected response code!");
+    }
+
+    @Test
+    public void testMissingDeferredAuthorization() throws Exception {
+        final TrellisHttpResource matcher = new TrellisHttpResource(mockBundler, null);
+        final AsyncResponse response = mock(AsyncResponse.class);
+        final UriInfo uriInfo = mock(UriInfo.class);
+        final HttpHeaders httpHeaders = mock(HttpHeaders.class);
+        final ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+
+        when(requestContext.getProperty(eq(DEFERRED_AUTHORIZATION_PROPERTY))).thenReturn("replaced");
+        when(uriInfo.getPathParameters()).thenReturn(new MultivaluedHashMap<>(singletonMap("path", RESOURCE_PATH)));
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://my.example.com/"));
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(httpHeaders.getRequestHeaders()).thenReturn(new MultivaluedHashMap<>());
+        when(httpHeaders.getAcceptableMediaTypes()).thenReturn(asList(WILDCARD_TYPE));
+
+        // A deferred check that cannot be found must never let the request through
+        matcher.getResourceHeaders(response, mock(Request.class), uriInfo, httpHeaders, requestContext);
+        verify(response).resume(captor.capture());
+        assertEquals(SC_INTERNAL_SERVER_ERROR, captor.getValue().getStatus(), "Unexpected response code!");
+
+        matcher.getResourceHeaders(response, mock(Request.class), uriInfo, httpHeaders, null);
+        verify(response, times(2)).resume(captor.capture());
+        assertEquals(SC_INTERNAL_SERVER_ERROR, captor.getValue().getStatus(), "Unexpected response code!");
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        final TrellisHttpResource matcher = new TrellisHttpResource(mockBundler, null);
+        final AsyncResponse response = mock(AsyncResponse.class);
+        final Request request = mock(Request.class);
+        final UriInfo uriInfo = mock(UriInfo.class);
+        final HttpHeaders httpHeaders = mock(HttpHeaders.class);
+        final MultivaluedHashMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(IF_NONE_MATCH, "*");
+
+        when(uriInfo.getPathParameters()).thenReturn(new MultivaluedHashMap<>(singletonMap("path", RESOURCE_PATH)));
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://my.example.com/"));
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(httpHeaders.getRequestHeaders()).thenReturn(headers);
+        when(httpHeaders.getAcceptableMediaTypes()).thenReturn(asList(WILDCARD_TYPE));
+        when(request.getMethod()).thenReturn("GET");
+        clearInvocations(mockMementoService);
+
+        matcher.getResource(response, request, uriInfo, httpHeaders, mock(ContainerRequestContext.class));
+        verify(response).resume(captor.capture());
+
+        assertEquals(SC_NOT_MODIFIED, captor.getValue().getStatus(), "Unexpected response code!");
+        verify(mockMementoService, never().description("Mementos fetched for a 304 response"))
+            .mementos(any(IRI.class));
+        assertEquals(1L, matcher.getRevalidations(), "Incorrect revalidation count!");
+        assertEquals(1.0, matcher.getRevalidationHitRatio(), "Incorrect revalidation hit ratio!");
+
+        headers.putSingle(IF_NONE_MATCH, "\"stale\"");
+        matcher.getResource(response, request, uriInfo, httpHeaders, mock(ContainerRequestContext.class));
+        verify(response, times(2)).resume(captor.capture());
+
+        assertEquals(SC_OK, captor.getValue().getStatus(), "Unexpected response code!");
+        assertEquals(2L, matcher.getRevalidations(), "Incorrect revalidation count!");
+        assertEquals(0.5, matcher.getRevalidationHitRatio(), "Incorrect revalidation hit ratio!");
+    }
+
     @Test
     public void testInitializeExistingLdpResourceWithFailure() throws Exception {
         final ResourceService mockService = mock(ResourceService.class);
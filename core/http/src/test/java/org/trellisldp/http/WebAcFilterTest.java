@@ -16,27 +16,45 @@ package org.trellisldp.http;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.NO_CONTENT;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.trellisldp.api.TrellisUtils.getInstance;
+import static org.trellisldp.http.core.HttpConstants.DEFERRED_AUTHORIZATION_PROPERTY;
 
+import java.net.URI;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.trellisldp.api.AccessControlService;
 import org.trellisldp.api.Session;
+import org.trellisldp.http.impl.DeferredAuthorization;
 import org.trellisldp.vocabulary.ACL;
 
 /**
@@ -60,6 +78,9 @@ public class WebAcFilterTest {
     @Mock
     private ContainerRequestContext mockContext;
 
+    @Mock
+    private ContainerResponseContext mockResponseContext;
+
     @Mock
     private UriInfo mockUriInfo;
 
@@ -70,6 +91,7 @@ public class WebAcFilterTest {
     public void setUp() {
         initMocks(this);
         when(mockAccessControlService.getAccessModes(any(IRI.class), any(Session.class))).thenReturn(allModes);
+        when(mockAccessControlService.getAccessModesAsync(any(IRI.class), any(Session.class))).thenCallRealMethod();
         when(mockContext.getUriInfo()).thenReturn(mockUriInfo);
         when(mockUriInfo.getQueryParameters()).thenReturn(mockQueryParams);
         when(mockQueryParams.getOrDefault(eq("ext"), eq(emptyList()))).thenReturn(emptyList());
@@ -118,4 +140,110 @@ public class WebAcFilterTest {
         assertTrue(challenges.contains("Foo realm=\"my-realm\""), "Foo not among challenges!");
         assertTrue(challenges.contains("Bar realm=\"my-realm\""), "Bar not among challenges!");
     }
+
+    @Test
+    public void testFilterInvalidatesAcl() throws Exception {
+        final RDF rdf = getInstance();
+        final WebAcFilter filter = new WebAcFilter(mockAccessControlService);
+        when(mockUriInfo.getPath()).thenReturn("container");
+        when(mockUriInfo.getAbsolutePathBuilder()).thenAnswer(inv ->
+                UriBuilder.fromUri("http://example.com/container"));
+        when(mockResponseContext.getStatusInfo()).thenReturn(NO_CONTENT);
+        when(mockResponseContext.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+
+        when(mockContext.getMethod()).thenReturn("PUT");
+        filter.filter(mockContext, mockResponseContext);
+        verify(mockAccessControlService, never()).invalidate(any(IRI.class));
+        verify(mockAccessControlService).resourceChanged(eq(rdf.createIRI("trellis:data/container")));
+
+        when(mockContext.getMethod()).thenReturn("DELETE");
+        filter.filter(mockContext, mockResponseContext);
+        verify(mockAccessControlService).invalidate(eq(rdf.createIRI("trellis:data/container")));
+
+        when(mockContext.getMethod()).thenReturn("PATCH");
+        when(mockQueryParams.getOrDefault(eq("ext"), eq(emptyList()))).thenReturn(singletonList("acl"));
+        filter.filter(mockContext, mockResponseContext);
+        verify(mockAccessControlService, times(2)).invalidate(eq(rdf.createIRI("trellis:data/container")));
+
+        when(mockContext.getMethod()).thenReturn("GET");
+        filter.filter(mockContext, mockResponseContext);
+        verify(mockAccessControlService, times(2)).invalidate(any(IRI.class));
+    }
+
+    @Test
+    public void testFilterInvalidatesCreated() throws Exception {
+        final RDF rdf = getInstance();
+        final WebAcFilter filter = new WebAcFilter(mockAccessControlService);
+        when(mockContext.getMethod()).thenReturn("POST");
+        when(mockUriInfo.getPath()).thenReturn("container");
+        when(mockUriInfo.getBaseUri()).thenReturn(URI.create("http://example.com/"));
+        when(mockUriInfo.getAbsolutePathBuilder()).thenAnswer(inv ->
+                UriBuilder.fromUri("http://example.com/container"));
+        when(mockResponseContext.getStatusInfo()).thenReturn(CREATED);
+        when(mockResponseContext.getStatus()).thenReturn(CREATED.getStatusCode());
+        when(mockResponseContext.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+        when(mockResponseContext.getLocation()).thenReturn(URI.create("http://example.com/container/child"));
+
+        filter.filter(mockContext, mockResponseContext);
+        verify(mockAccessControlService).invalidate(eq(rdf.createIRI("trellis:data/container/child")));
+    }
+
+    @Test
+    public void testFilterDeferred() throws Exception {
+        final CompletableFuture<Set<IRI>> modes = new CompletableFuture<>();
+        when(mockContext.getMethod()).thenReturn("GET");
+        when(mockAccessControlService.getAccessModesAsync(any(IRI.class), any(Session.class))).thenReturn(modes);
+        doReturn(singletonList(mock(TrellisHttpResource.class))).when(mockUriInfo).getMatchedResources();
+
+        final WebAcFilter filter = new WebAcFilter(mockAccessControlService);
+        assertDoesNotThrow(() -> filter.filter(mockContext), "Unexpected exception for a pending check!");
+
+        final ContainerRequestContext deferred = getDeferred();
+        final CompletableFuture<Void> authorization = DeferredAuthorization.authorization(deferred)
+            .toCompletableFuture();
+        assertFalse(authorization.isDone(), "Authorization completed early!");
+
+        modes.complete(emptySet());
+        final CompletionException err = assertThrows(CompletionException.class, authorization::join,
+                "No exception when not authorized!");
+        assertTrue(err.getCause() instanceof NotAuthorizedException, "Incorrect exception type!");
+    }
+
+    @Test
+    public void testFilterContainment() throws Exception {
+        final RDF rdf = getInstance();
+        final IRI readable = rdf.createIRI("trellis:data/readable");
+        final IRI hidden = rdf.createIRI("trellis:data/hidden");
+        final Map<IRI, Set<IRI>> childModes = new HashMap<>();
+        childModes.put(readable, allModes);
+        childModes.put(hidden, singleton(ACL.Write));
+        when(mockContext.getMethod()).thenReturn("GET");
+        when(mockAccessControlService.getAccessModesForChildren(any(IRI.class), anyCollection(), any(Session.class)))
+            .thenAnswer(inv -> completedFuture(childModes));
+        doReturn(singletonList(mock(TrellisHttpResource.class))).when(mockUriInfo).getMatchedResources();
+
+        try {
+            System.setProperty(WebAcFilter.CONFIG_AUTH_FILTER_CONTAINMENT, "true");
+            final WebAcFilter filter = new WebAcFilter(mockAccessControlService);
+            filter.filter(mockContext);
+        } finally {
+            System.clearProperty(WebAcFilter.CONFIG_AUTH_FILTER_CONTAINMENT);
+        }
+
+        final ContainerRequestContext deferred = getDeferred();
+        assertDoesNotThrow(() -> DeferredAuthorization.authorization(deferred).toCompletableFuture().join(),
+                "Unexpected authorization failure!");
+        final Set<IRI> children = DeferredAuthorization.readableChildren(deferred)
+            .map(filter -> filter.apply(asList(readable, hidden)).toCompletableFuture().join()).orElse(null);
+        assertEquals(singleton(readable), children, "Incorrect readable children!");
+    }
+
+    private ContainerRequestContext getDeferred() {
+        final ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(mockContext).setProperty(eq(DEFERRED_AUTHORIZATION_PROPERTY), captor.capture());
+        assertTrue(captor.getValue() instanceof DeferredAuthorization, "Incorrect deferred authorization!");
+        final ContainerRequestContext ctx = mock(ContainerRequestContext.class);
+        when(ctx.getProperty(eq(DEFERRED_AUTHORIZATION_PROPERTY))).thenReturn(captor.getValue());
+        return ctx;
+    }
 }
@@ -13,6 +13,7 @@
  */
 package org.trellisldp.http.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.now;
 import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.ofInstant;
@@ -21,21 +22,27 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.Date.from;
 import static java.util.Optional.of;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.function.Predicate.isEqual;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.HttpMethod.DELETE;
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.HEAD;
 import static javax.ws.rs.HttpMethod.OPTIONS;
 import static javax.ws.rs.HttpMethod.POST;
 import static javax.ws.rs.HttpMethod.PUT;
+import static javax.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_ENCODING;
 import static javax.ws.rs.core.HttpHeaders.LINK;
 import static javax.ws.rs.core.HttpHeaders.VARY;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.TEXT_HTML_TYPE;
 import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
 import static javax.ws.rs.core.MediaType.WILDCARD_TYPE;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
 import static javax.ws.rs.core.Response.Status.NOT_ACCEPTABLE;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 import static javax.ws.rs.core.Response.Status.NO_CONTENT;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
@@ -44,8 +51,13 @@ import static org.apache.commons.rdf.api.RDFSyntax.NTRIPLES;
 import static org.apache.commons.rdf.api.RDFSyntax.RDFA;
 import static org.apache.commons.rdf.api.RDFSyntax.TURTLE;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.trellisldp.api.Syntax.LD_PATCH;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
 import static org.trellisldp.http.core.HttpConstants.ACCEPT_DATETIME;
 import static org.trellisldp.http.core.HttpConstants.ACCEPT_PATCH;
 import static org.trellisldp.http.core.HttpConstants.ACCEPT_POST;
@@ -63,7 +75,9 @@ import static org.trellisldp.http.core.RdfMediaType.APPLICATION_SPARQL_UPDATE;
 import static org.trellisldp.http.core.RdfMediaType.TEXT_TURTLE_TYPE;
 import static org.trellisldp.vocabulary.JSONLD.compacted;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
@@ -73,18 +87,29 @@ import java.util.TreeSet;
 import java.util.stream.Stream;
 
 import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.RedirectionException;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Quad;
+import org.apache.commons.rdf.api.RDFSyntax;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.trellisldp.api.BinaryMetadata;
 import org.trellisldp.http.core.Prefer;
+import org.trellisldp.vocabulary.DC;
 import org.trellisldp.vocabulary.LDP;
 import org.trellisldp.vocabulary.OA;
 import org.trellisldp.vocabulary.SKOS;
+import org.trellisldp.vocabulary.Trellis;
 
 /**
  * @author acoburn
@@ -397,4 +422,163 @@ public class GetHandlerTest extends BaseTestHandler {
             .filter(link -> "memento".equals(link.getRel())).collect(toList());
         assertEquals(2L, links.size());
     }
+
+    @Test
+    public void testRevalidate() {
+        when(mockTrellisRequest.getMethod()).thenReturn(GET);
+        final GetHandler original = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final EntityTag etag = original.getRepresentation(original.initialize(mockResource)).build()
+            .getEntityTag();
+
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(IF_NONE_MATCH, etag.toString());
+        when(mockTrellisRequest.getHeaders()).thenReturn(headers);
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final Response res = assertThrows(RedirectionException.class, () ->
+                handler.revalidate(handler.initialize(mockResource)), "No 304 for a matching ETag!").getResponse();
+        assertEquals(NOT_MODIFIED, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testRevalidateBinary() {
+        when(mockResource.getBinaryMetadata()).thenReturn(of(testBinary));
+        when(mockResource.getInteractionModel()).thenReturn(LDP.NonRDFSource);
+        when(mockTrellisRequest.getAcceptableMediaTypes()).thenReturn(singletonList(WILDCARD_TYPE));
+        when(mockTrellisRequest.getMethod()).thenReturn(GET);
+        final GetHandler original = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final EntityTag etag = original.getRepresentation(original.initialize(mockResource)).build()
+            .getEntityTag();
+        assertFalse(etag.isWeak(), "Unexpected weak ETag for a binary!");
+
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(IF_NONE_MATCH, etag.toString());
+        when(mockTrellisRequest.getHeaders()).thenReturn(headers);
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final Response res = assertThrows(RedirectionException.class, () ->
+                handler.revalidate(handler.initialize(mockResource)), "No 304 for a matching ETag!").getResponse();
+        assertEquals(NOT_MODIFIED, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testRevalidateModified() {
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(IF_NONE_MATCH, "W/\"stale\"");
+        when(mockTrellisRequest.getHeaders()).thenReturn(headers);
+        when(mockTrellisRequest.getMethod()).thenReturn(GET);
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final Response res = handler.revalidate(handler.initialize(mockResource)).build();
+        assertEquals(OK, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testCachedLdprs() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(1024L, 1024L, false);
+        when(mockResource.stream()).thenAnswer(inv -> Stream.empty());
+        doAnswer(inv -> {
+            ((OutputStream) inv.getArgument(1)).write("<> a <#Thing> .".getBytes(UTF_8));
+            return null;
+        }).when(mockIoService).write(any(), any(OutputStream.class), any(RDFSyntax.class), any());
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, 100, null,
+                baseUrl, cache, null);
+        final Response res = handler.getRepresentation(handler.standardHeaders(handler.initialize(mockResource)))
+            .build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) res.getEntity()).write(out);
+        assertEquals("<> a <#Thing> .", new String(out.toByteArray(), UTF_8), "Incorrect representation!");
+        assertEquals(15L, cache.getMemoryUsage(), "Representation not cached!");
+
+        final GetHandler cached = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, 100, null,
+                baseUrl, cache, null);
+        final Response res2 = cached.getRepresentation(cached.standardHeaders(cached.initialize(mockResource)))
+            .build();
+        assertArrayEquals(out.toByteArray(), (byte[]) res2.getEntity(), "Incorrect cached representation!");
+        assertEquals(res.getEntityTag(), res2.getEntityTag(), "Incorrect ETag for a cached representation!");
+        assertEquals(0.5, cache.getHitRatio(), "Incorrect hit ratio!");
+        verify(mockIoService, times(1)).write(any(), any(OutputStream.class), any(RDFSyntax.class), any());
+
+        cache.invalidate(identifier);
+        assertEquals(0L, cache.getMemoryUsage(), "Representation not invalidated!");
+    }
+
+    @Test
+    public void testCachedGzipLdprs() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(1024L, 1024L, true);
+        when(mockTrellisRequest.getMethod()).thenReturn(GET);
+        when(mockResource.stream()).thenAnswer(inv -> Stream.empty());
+        doAnswer(inv -> {
+            ((OutputStream) inv.getArgument(1)).write("<> a <#Thing> .".getBytes(UTF_8));
+            return null;
+        }).when(mockIoService).write(any(), any(OutputStream.class), any(RDFSyntax.class), any());
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, false, true, 100, null,
+                baseUrl, cache, null);
+        final Response res = handler.getRepresentation(handler.standardHeaders(handler.initialize(mockResource)))
+            .build();
+        ((StreamingOutput) res.getEntity()).write(new ByteArrayOutputStream());
+        assertFalse(res.getEntityTag().isWeak(), "Unexpected weak ETag for an identity representation!");
+
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(ACCEPT_ENCODING, "gzip, deflate");
+        when(mockTrellisRequest.getHeaders()).thenReturn(headers);
+        final GetHandler gzip = new GetHandler(mockTrellisRequest, mockBundler, false, false, true, 100, null,
+                baseUrl, cache, null);
+        final Response res2 = gzip.getRepresentation(gzip.standardHeaders(gzip.initialize(mockResource))).build();
+        assertEquals("gzip", res2.getHeaderString(CONTENT_ENCODING), "Incorrect content encoding!");
+        assertTrue(res2.getEntityTag().isWeak(), "Strong ETag shared by the gzip representation!");
+        assertEquals(res.getEntityTag().getValue(), res2.getEntityTag().getValue(), "Incorrect ETag value!");
+
+        // A client holding the gzip representation can still revalidate it
+        headers.putSingle(IF_NONE_MATCH, res2.getEntityTag().toString());
+        final GetHandler revalidated = new GetHandler(mockTrellisRequest, mockBundler, false, false, true, 100,
+                null, baseUrl, cache, null);
+        assertThrows(RedirectionException.class, () -> revalidated.getRepresentation(
+                    revalidated.standardHeaders(revalidated.initialize(mockResource))), "No 304 for a gzip ETag!");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFilterContainment() throws IOException {
+        final IRI readable = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource/readable");
+        final IRI hidden = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource/hidden");
+        final List<Quad> quads = asList(
+                rdf.createQuad(LDP.PreferContainment, identifier, LDP.contains, readable),
+                rdf.createQuad(LDP.PreferContainment, identifier, LDP.contains, hidden),
+                rdf.createQuad(Trellis.PreferUserManaged, identifier, DC.relation, hidden));
+        when(mockResource.getInteractionModel()).thenReturn(LDP.BasicContainer);
+        when(mockResource.stream()).thenAnswer(inv -> quads.stream());
+        when(mockResource.stream(LDP.PreferContainment)).thenAnswer(inv -> quads.stream()
+                .filter(quad -> quad.getGraphName().filter(LDP.PreferContainment::equals).isPresent())
+                .map(Quad::asTriple));
+        when(mockResourceService.unskolemize(any(RDFTerm.class))).thenAnswer(inv -> inv.getArgument(0));
+        final List<Triple> written = new ArrayList<>();
+        doAnswer(inv -> {
+            ((Stream<Triple>) inv.getArgument(0)).forEachOrdered(written::add);
+            return null;
+        }).when(mockIoService).write(any(), any(OutputStream.class), any(RDFSyntax.class), any());
+
+        final GetHandler unfiltered = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null,
+                baseUrl);
+        final Response res = unfiltered.getRepresentation(unfiltered.standardHeaders(unfiltered.initialize(
+                        mockResource))).build();
+        ((StreamingOutput) res.getEntity()).write(new ByteArrayOutputStream());
+        assertEquals(2L, written.stream().filter(triple -> LDP.contains.equals(triple.getPredicate())).count(),
+                "Incorrect number of children before filtering!");
+        written.clear();
+
+        final GetHandler handler = new GetHandler(mockTrellisRequest, mockBundler, false, true, true, null, baseUrl);
+        final Response filtered = handler.filterContainment(handler.initialize(mockResource),
+                children -> completedFuture(children.stream().filter(isEqual(readable)).collect(toSet())))
+            .thenApply(handler::standardHeaders).thenApply(handler::getRepresentation).toCompletableFuture().join()
+            .build();
+        ((StreamingOutput) filtered.getEntity()).write(new ByteArrayOutputStream());
+
+        assertTrue(written.contains(rdf.createTriple(identifier, LDP.contains, readable)), "Readable child missing!");
+        assertFalse(written.contains(rdf.createTriple(identifier, LDP.contains, hidden)), "Hidden child listed!");
+        assertTrue(written.contains(rdf.createTriple(identifier, DC.relation, hidden)), "User triple missing!");
+        assertNotEquals(res.getEntityTag(), filtered.getEntityTag(), "Filtered view has the same ETag!");
+    }
 }
@@ -14,24 +14,43 @@
 package org.trellisldp.http.impl;
 
 import static java.time.Instant.now;
+import static java.time.Instant.ofEpochSecond;
 import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.ofInstant;
 import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.Link.TYPE;
 import static javax.ws.rs.core.Link.fromUri;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.trellisldp.http.core.HttpConstants.DATETIME;
 import static org.trellisldp.http.core.HttpConstants.FROM;
 import static org.trellisldp.http.core.HttpConstants.MEMENTO;
 import static org.trellisldp.http.core.HttpConstants.TIMEMAP;
 import static org.trellisldp.http.core.HttpConstants.UNTIL;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
 import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Response;
 
 import org.junit.jupiter.api.Test;
+import org.trellisldp.api.ServiceBundler;
+import org.trellisldp.http.core.TrellisRequest;
+import org.trellisldp.http.core.Version;
 
 public class MementoResourceTest {
 
+    private static final String BASE_URL = "http://example.com/";
+    private static final SortedSet<Instant> mementos = new TreeSet<>(asList(ofEpochSecond(1000L),
+                ofEpochSecond(2000L), ofEpochSecond(3000L)));
+
     @Test
     public void testFilteredMementoLink() {
         final Link link = fromUri("http://example.com/resource/memento/1").rel(MEMENTO)
@@ -72,4 +91,56 @@ public class MementoResourceTest {
             .param(DATETIME, ofInstant(now(), UTC).format(RFC_1123_DATE_TIME)).build();
         assertFalse(mr.filterLinkParams(link).getParams().containsKey(DATETIME));
     }
+
+    @Test
+    public void testMementoLinkLimit() {
+        final List<Link> links = MementoResource.getMementoLinks(BASE_URL + "resource", mementos, 2)
+            .collect(toList());
+        assertEquals(3L, links.size(), "Incorrect number of links!");
+        assertEquals(TIMEMAP, links.get(0).getRel(), "Missing timemap link!");
+        assertEquals(BASE_URL + "resource?version=2000", links.get(1).getUri().toString(), "Incorrect memento!");
+        assertEquals(BASE_URL + "resource?version=3000", links.get(2).getUri().toString(), "Incorrect memento!");
+        assertEquals(1L, MementoResource.getMementoLinks(BASE_URL + "resource", mementos, 0).count(),
+                "Unexpected memento links!");
+    }
+
+    @Test
+    public void testTimeMapPage() {
+        final TrellisRequest mockRequest = mock(TrellisRequest.class);
+        when(mockRequest.getAcceptableMediaTypes()).thenReturn(emptyList());
+        when(mockRequest.getPath()).thenReturn("resource");
+        when(mockRequest.getFrom()).thenReturn(new Version(ofEpochSecond(1000L)));
+
+        final Response res = new MementoResource(mock(ServiceBundler.class), true, 1, 2)
+            .getTimeMapBuilder(mementos, mockRequest, BASE_URL).build();
+        final String body = (String) res.getEntity();
+        assertTrue(body.contains("<" + BASE_URL + "resource?version=1000>"), "Missing first memento!");
+        assertTrue(body.contains("<" + BASE_URL + "resource?version=2000>"), "Missing second memento!");
+        assertFalse(body.contains("<" + BASE_URL + "resource?version=3000>"), "Unexpected memento on page!");
+        assertTrue(res.getLinks().stream().anyMatch(l -> l.getRels().contains("next")
+                    && l.getUri().toString().equals(BASE_URL + "resource?ext=timemap&from=2001")),
+                "Missing next link!");
+        assertTrue(res.getLinks().stream().anyMatch(l -> l.getRels().contains("prev")
+                    && l.getUri().toString().equals(BASE_URL + "resource?ext=timemap&until=999")),
+                "Missing prev link!");
+        assertEquals(1L, res.getLinks().stream().filter(l -> l.getRels().contains(MEMENTO)).count(),
+                "Incorrect number of memento links in the headers!");
+    }
+
+    @Test
+    public void testTimeMapLastPage() {
+        final TrellisRequest mockRequest = mock(TrellisRequest.class);
+        when(mockRequest.getAcceptableMediaTypes()).thenReturn(emptyList());
+        when(mockRequest.getPath()).thenReturn("resource");
+        when(mockRequest.getUntil()).thenReturn(new Version(ofEpochSecond(3000L)));
+
+        final Response res = new MementoResource(mock(ServiceBundler.class), true, 10, 2)
+            .getTimeMapBuilder(mementos, mockRequest, BASE_URL).build();
+        final String body = (String) res.getEntity();
+        assertFalse(body.contains("<" + BASE_URL + "resource?version=1000>"), "Unexpected memento on page!");
+        assertTrue(body.contains("<" + BASE_URL + "resource?version=3000>"), "Missing last memento!");
+        assertTrue(res.getLinks().stream().anyMatch(l -> l.getRels().contains("prev")
+                    && l.getUri().toString().equals(BASE_URL + "resource?ext=timemap&until=1999")),
+                "Missing prev link!");
+    }
 }
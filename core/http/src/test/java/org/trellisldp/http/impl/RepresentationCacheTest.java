@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.rdf.api.RDFSyntax.TURTLE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.trellisldp.api.TrellisUtils.getInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.RDFSyntax;
+import org.junit.jupiter.api.Test;
+import org.trellisldp.vocabulary.JSONLD;
+
+/**
+ * Test the representation cache.
+ */
+public class RepresentationCacheTest {
+
+    private static final RDF rdf = getInstance();
+    private static final IRI identifier = rdf.createIRI("trellis:data/resource");
+    private static final IRI other = rdf.createIRI("trellis:data/other");
+    private static final String BASE_URL = "http://example.com/";
+
+    @Test
+    public void testCacheRepresentation() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(100L, 50L, false);
+        final String key = RepresentationCache.key(new EntityTag("etag", true), TURTLE, null, BASE_URL);
+        assertNull(cache.get(key), "Unexpected cached representation!");
+
+        put(cache, identifier, key, "turtle");
+        assertArrayEquals("turtle".getBytes(UTF_8), cache.get(key), "Incorrect cached representation!");
+        assertEquals(6L, cache.getMemoryUsage(), "Incorrect memory usage!");
+        assertEquals(0.5, cache.getHitRatio(), "Incorrect hit ratio!");
+    }
+
+    @Test
+    public void testDistinctKeys() {
+        final EntityTag etag = new EntityTag("etag", true);
+        final String key = RepresentationCache.key(etag, TURTLE, null, BASE_URL);
+        assertNotEquals(key, RepresentationCache.key(new EntityTag("changed", true), TURTLE, null, BASE_URL),
+                "Representations of different states share a key!");
+        assertNotEquals(key, RepresentationCache.key(etag, RDFSyntax.JSONLD, null, BASE_URL),
+                "Representations in different syntaxes share a key!");
+        assertNotEquals(RepresentationCache.key(etag, RDFSyntax.JSONLD, JSONLD.compacted, BASE_URL),
+                RepresentationCache.key(etag, RDFSyntax.JSONLD, JSONLD.expanded, BASE_URL),
+                "Representations with different profiles share a key!");
+        assertNotEquals(key, RepresentationCache.key(etag, TURTLE, null, "http://example.org/"),
+                "Representations with different base URLs share a key!");
+    }
+
+    @Test
+    public void testLargeRepresentation() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(100L, 4L, false);
+        final String key = RepresentationCache.key(new EntityTag("etag", true), TURTLE, null, BASE_URL);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final RepresentationCache.Capture capture = cache.capture(out);
+        capture.write("too large".getBytes(UTF_8));
+        cache.put(identifier, key, capture);
+
+        assertEquals("too large", new String(out.toByteArray(), UTF_8), "Incorrect response content!");
+        assertNull(cache.get(key), "Unexpected cached representation!");
+        assertEquals(0L, cache.getMemoryUsage(), "Incorrect memory usage!");
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(10L, 10L, false);
+        final String first = RepresentationCache.key(new EntityTag("first"), TURTLE, null, BASE_URL);
+        final String second = RepresentationCache.key(new EntityTag("second"), TURTLE, null, BASE_URL);
+        final String third = RepresentationCache.key(new EntityTag("third"), TURTLE, null, BASE_URL);
+
+        put(cache, identifier, first, "1234");
+        put(cache, other, second, "5678");
+        assertNotNull(cache.get(first), "Missing cached representation!");
+        put(cache, identifier, third, "9012");
+
+        assertNotNull(cache.get(first), "Recently used representation evicted!");
+        assertNull(cache.get(second), "Least recently used representation not evicted!");
+        assertNotNull(cache.get(third), "Missing cached representation!");
+        assertEquals(8L, cache.getMemoryUsage(), "Incorrect memory usage!");
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(100L, 100L, false);
+        final String turtle = RepresentationCache.key(new EntityTag("etag"), TURTLE, null, BASE_URL);
+        final String jsonld = RepresentationCache.key(new EntityTag("etag"), RDFSyntax.JSONLD, null, BASE_URL);
+        final String unrelated = RepresentationCache.key(new EntityTag("other"), TURTLE, null, BASE_URL);
+
+        put(cache, identifier, turtle, "turtle");
+        put(cache, identifier, jsonld, "jsonld");
+        put(cache, other, unrelated, "other");
+        cache.invalidate(identifier);
+
+        assertNull(cache.get(turtle), "Representation not invalidated!");
+        assertNull(cache.get(jsonld), "Representation not invalidated!");
+        assertNotNull(cache.get(unrelated), "Unrelated representation invalidated!");
+        assertEquals(5L, cache.getMemoryUsage(), "Incorrect memory usage!");
+    }
+
+    @Test
+    public void testCompressedRepresentation() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(1000L, 1000L, true);
+        final String key = RepresentationCache.key(new EntityTag("etag"), TURTLE, null, BASE_URL);
+        assertTrue(cache.isCompressed(), "Cache not compressed!");
+
+        put(cache, identifier, key, "compressed content");
+        try (final InputStream input = new GZIPInputStream(new ByteArrayInputStream(cache.get(key)))) {
+            assertEquals("compressed content", IOUtils.toString(input, UTF_8), "Incorrect cached representation!");
+        }
+    }
+
+    @Test
+    public void testDisabledCache() throws IOException {
+        final RepresentationCache cache = new RepresentationCache(0L, 100L, false);
+        final String key = RepresentationCache.key(new EntityTag("etag"), TURTLE, null, BASE_URL);
+        assertFalse(cache.isEnabled(), "Cache unexpectedly enabled!");
+
+        put(cache, identifier, key, "turtle");
+        assertNull(cache.get(key), "Unexpected cached representation!");
+        assertEquals(0.0, cache.getHitRatio(), "Incorrect hit ratio!");
+    }
+
+    private static void put(final RepresentationCache cache, final IRI identifier, final String key,
+            final String content) throws IOException {
+        final RepresentationCache.Capture capture = cache.capture(new ByteArrayOutputStream());
+        capture.write(content.getBytes(UTF_8));
+        cache.put(identifier, key, capture);
+    }
+}
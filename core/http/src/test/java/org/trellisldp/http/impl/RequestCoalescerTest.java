@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the request coalescer.
+ */
+public class RequestCoalescerTest {
+
+    @Test
+    public void testCoalesceConcurrentReads() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final CompletableFuture<String> read = new CompletableFuture<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        final CompletionStage<String> first = coalescer.get("key", key -> {
+            loads.incrementAndGet();
+            return read;
+        });
+        final CompletionStage<String> second = coalescer.get("key", key -> {
+            loads.incrementAndGet();
+            return completedFuture("unexpected");
+        });
+        read.complete("value");
+
+        assertEquals("value", first.toCompletableFuture().join(), "Incorrect value!");
+        assertEquals("value", second.toCompletableFuture().join(), "Incorrect coalesced value!");
+        assertEquals(1, loads.get(), "Concurrent reads were not coalesced!");
+        assertEquals(2L, coalescer.getRequests(), "Incorrect request count!");
+        assertEquals(1L, coalescer.getCoalesced(), "Incorrect coalesced count!");
+    }
+
+    @Test
+    public void testCompletedReadsNotShared() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        coalescer.get("key", key -> completedFuture("value" + loads.incrementAndGet())).toCompletableFuture().join();
+        assertEquals("value2", coalescer.get("key", key -> completedFuture("value" + loads.incrementAndGet()))
+                .toCompletableFuture().join(), "A completed read was shared!");
+        assertEquals(0L, coalescer.getCoalesced(), "Incorrect coalesced count!");
+    }
+
+    @Test
+    public void testDistinctKeys() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final CompletableFuture<String> read = new CompletableFuture<>();
+
+        coalescer.get("first", key -> read);
+        assertEquals("second", coalescer.get("second", CompletableFuture::completedFuture).toCompletableFuture()
+                .join(), "Reads of different keys were coalesced!");
+        assertEquals(0L, coalescer.getCoalesced(), "Incorrect coalesced count!");
+    }
+
+    @Test
+    public void testForget() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final CompletableFuture<String> stale = new CompletableFuture<>();
+
+        final CompletionStage<String> first = coalescer.get("key", key -> stale);
+        coalescer.forget("key");
+        final CompletionStage<String> second = coalescer.get("key", key -> completedFuture("fresh"));
+        stale.complete("stale");
+
+        assertEquals("stale", first.toCompletableFuture().join(), "Incorrect value!");
+        assertEquals("fresh", second.toCompletableFuture().join(), "A forgotten read was shared!");
+        assertEquals(0L, coalescer.getCoalesced(), "Incorrect coalesced count!");
+    }
+
+    @Test
+    public void testFailedRead() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final CompletableFuture<String> read = new CompletableFuture<>();
+
+        final CompletionStage<String> first = coalescer.get("key", key -> read);
+        final CompletionStage<String> second = coalescer.get("key", key -> read);
+        read.completeExceptionally(new IllegalStateException("Expected"));
+
+        final CompletionException err = assertThrows(CompletionException.class, () ->
+                second.toCompletableFuture().join(), "No exception for a failed read!");
+        assertTrue(err.getCause() instanceof IllegalStateException, "Incorrect exception cause!");
+        assertThrows(CompletionException.class, () -> first.toCompletableFuture().join(),
+                "No exception for a failed read!");
+        assertEquals("retry", coalescer.get("key", key -> completedFuture("retry")).toCompletableFuture().join(),
+                "A failed read was retained!");
+    }
+
+    @Test
+    public void testLoaderException() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+
+        final CompletionStage<String> failed = coalescer.get("key", key -> {
+            throw new IllegalArgumentException("Expected");
+        });
+        assertThrows(CompletionException.class, () -> failed.toCompletableFuture().join(),
+                "No exception for a failed loader!");
+        assertEquals("value", coalescer.get("key", key -> completedFuture("value")).toCompletableFuture().join(),
+                "A failed loader was retained!");
+    }
+
+    @Test
+    public void testSharedStageIsolation() {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        final CompletableFuture<String> read = new CompletableFuture<>();
+
+        final CompletionStage<String> first = coalescer.get("key", key -> read);
+        final CompletionStage<String> second = coalescer.get("key", key -> read);
+        first.toCompletableFuture().complete("tampered");
+        read.complete("value");
+
+        assertEquals("value", second.toCompletableFuture().join(), "One caller completed a shared read!");
+    }
+}
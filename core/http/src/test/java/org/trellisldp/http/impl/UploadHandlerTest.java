@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trellisldp.http.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.NO_CONTENT;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.trellisldp.api.TrellisUtils.TRELLIS_DATA_PREFIX;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD;
+import static org.trellisldp.http.core.HttpConstants.UPLOAD_LENGTH;
+import static org.trellisldp.vocabulary.Trellis.AnonymousAgent;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.IRI;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.trellisldp.api.BinaryMetadata;
+import org.trellisldp.api.Metadata;
+import org.trellisldp.api.ResumableBinaryService;
+import org.trellisldp.vocabulary.LDP;
+
+/**
+ * Test the resumable upload handler.
+ */
+public class UploadHandlerTest extends BaseTestHandler {
+
+    private static final String UPLOAD_ID = "a1b2c3";
+    private static final IRI RESOURCE = rdf.createIRI(TRELLIS_DATA_PREFIX + "resource");
+
+    @Mock
+    private ResumableBinaryService mockUploadService;
+
+    private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+
+    @BeforeEach
+    public void setUpUploads() {
+        when(mockBundler.getBinaryService()).thenReturn(mockUploadService);
+        when(mockUploadService.generateIdentifier()).thenReturn("file:///binary");
+        when(mockTrellisRequest.getPath()).thenReturn("resource");
+        when(mockTrellisRequest.getHeaders()).thenReturn(headers);
+        when(mockTrellisRequest.getUploadId()).thenReturn(UPLOAD_ID);
+        when(mockResource.getInteractionModel()).thenReturn(LDP.NonRDFSource);
+    }
+
+    @Test
+    public void testCreateUpload() {
+        headers.putSingle(UPLOAD_LENGTH, "10");
+        when(mockTrellisRequest.getContentType()).thenReturn("text/plain");
+        when(mockTrellisRequest.getPrincipalName()).thenReturn("https://example.com/user");
+        when(mockUploadService.initiateUpload(any(IRI.class), any(IRI.class), any(BinaryMetadata.class), anyLong()))
+            .thenReturn(completedFuture(UPLOAD_ID));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = handler.createUpload(mockResource).toCompletableFuture().join().build();
+
+        assertEquals(CREATED, res.getStatusInfo(), "Incorrect response code!");
+        assertEquals(baseUrl + "resource?ext=upload&uploadId=" + UPLOAD_ID, res.getLocation().toString(),
+                "Incorrect upload location!");
+        // The upload belongs to the resource and to the agent that created it
+        verify(mockUploadService).initiateUpload(eq(RESOURCE), eq(rdf.createIRI("https://example.com/user")),
+                metadataArgument.capture(), eq(10L));
+        assertEquals("file:///binary", metadataArgument.getValue().getIdentifier().getIRIString(),
+                "Incorrect binary identifier!");
+        assertEquals("text/plain", metadataArgument.getValue().getMimeType().orElse(null), "Incorrect media type!");
+    }
+
+    @Test
+    public void testCreateUploadMissingLength() {
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                handler.createUpload(mockResource), "No exception without an Upload-Length header!").getResponse();
+        assertEquals(BAD_REQUEST, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testCreateUploadContainer() {
+        headers.putSingle(UPLOAD_LENGTH, "10");
+        when(mockResource.getInteractionModel()).thenReturn(LDP.BasicContainer);
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                handler.createUpload(mockResource), "No exception for an upload to a container!").getResponse();
+        assertEquals(CONFLICT, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testCreateUploadUnsupported() {
+        headers.putSingle(UPLOAD_LENGTH, "10");
+        when(mockBundler.getBinaryService()).thenReturn(mockBinaryService);
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                handler.createUpload(mockResource), "No exception without resumable upload support!").getResponse();
+        assertEquals(NOT_FOUND, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadChunk() {
+        headers.putSingle("Content-Range", "bytes 4-7/10");
+        final InputStream entity = new ByteArrayInputStream("data".getBytes(UTF_8));
+        when(mockUploadService.uploadChunk(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID), eq(4L), eq(4L), eq(10L),
+                    eq(entity))).thenReturn(completedFuture(4L));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, entity, mockBundler, baseUrl);
+        final Response res = handler.uploadChunk().toCompletableFuture().join().build();
+        assertEquals(NO_CONTENT, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadTruncatedChunk() {
+        headers.putSingle("Content-Range", "bytes 4-7/10");
+        when(mockUploadService.uploadChunk(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID),
+                eq(4L), eq(4L), eq(10L), any(InputStream.class)))
+            .thenReturn(completedFuture(2L));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest,
+                new ByteArrayInputStream("da".getBytes(UTF_8)), mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                unwrapAsyncError(handler.uploadChunk()), "No exception for a truncated chunk!").getResponse();
+        assertEquals(BAD_REQUEST, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadChunkBadRange() {
+        headers.putSingle("Content-Range", "bytes=4-7");
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest,
+                new ByteArrayInputStream("data".getBytes(UTF_8)), mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, handler::uploadChunk,
+                "No exception for an invalid Content-Range header!").getResponse();
+        assertEquals(BAD_REQUEST, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadChunkUnknownLength() {
+        headers.putSingle("Content-Range", "bytes 4-7/*");
+        final InputStream entity = new ByteArrayInputStream("data".getBytes(UTF_8));
+        when(mockUploadService.uploadChunk(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID), eq(4L), eq(4L), eq(-1L),
+                    eq(entity))).thenReturn(completedFuture(4L));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, entity, mockBundler, baseUrl);
+        final Response res = handler.uploadChunk().toCompletableFuture().join().build();
+        assertEquals(NO_CONTENT, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadChunkBeyondLength() {
+        headers.putSingle("Content-Range", "bytes 8-11/10");
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest,
+                new ByteArrayInputStream("data".getBytes(UTF_8)), mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, handler::uploadChunk,
+                "No exception for a range beyond the content length!").getResponse();
+        assertEquals(BAD_REQUEST, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadOversizedChunk() {
+        headers.putSingle("Content-Range", "bytes 0-1/10");
+        when(mockUploadService.uploadChunk(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID),
+                eq(0L), eq(2L), eq(10L), any(InputStream.class)))
+            .thenReturn(failed(new IllegalArgumentException("Content exceeds 2 bytes")));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest,
+                new ByteArrayInputStream("data".getBytes(UTF_8)), mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                unwrapAsyncError(handler.uploadChunk()), "No exception for an oversized chunk!").getResponse();
+        assertEquals(BAD_REQUEST, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testUploadChunkMissingUpload() {
+        headers.putSingle("Content-Range", "bytes 0-3/10");
+        when(mockUploadService.uploadChunk(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID),
+                eq(0L), eq(4L), eq(10L), any(InputStream.class)))
+            .thenReturn(failed(new NoSuchElementException()));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest,
+                new ByteArrayInputStream("data".getBytes(UTF_8)), mockBundler, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                unwrapAsyncError(handler.uploadChunk()), "No exception for a missing upload!").getResponse();
+        assertEquals(NOT_FOUND, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testGetRanges() {
+        final SortedMap<Long, Long> ranges = new TreeMap<>();
+        ranges.put(0L, 4L);
+        ranges.put(6L, 10L);
+        when(mockUploadService.uploadedRanges(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID)))
+            .thenReturn(completedFuture(ranges));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = handler.getRanges().toCompletableFuture().join().build();
+        assertEquals(OK, res.getStatusInfo(), "Incorrect response code!");
+        assertEquals("0-3\n6-9\n", res.getEntity(), "Incorrect ranges!");
+    }
+
+    @Test
+    public void testAbortUpload() {
+        when(mockUploadService.abortUpload(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID)))
+            .thenReturn(completedFuture(null));
+
+        final UploadHandler handler = new UploadHandler(mockTrellisRequest, null, mockBundler, baseUrl);
+        final Response res = handler.abortUpload().toCompletableFuture().join().build();
+        assertEquals(NO_CONTENT, res.getStatusInfo(), "Incorrect response code!");
+    }
+
+    @Test
+    public void testCompleteUpload() {
+        final BinaryMetadata binary = BinaryMetadata.builder(rdf.createIRI("file:///binary")).mimeType("text/plain")
+            .build();
+        when(mockTrellisRequest.getExt()).thenReturn(UPLOAD);
+        when(mockUploadService.completeUpload(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID)))
+            .thenReturn(completedFuture(binary));
+
+        final PutHandler handler = new PutHandler(mockTrellisRequest, null, mockBundler, false, baseUrl);
+        final Response res = handler.setResource(handler.initialize(mockParent, mockResource))
+            .toCompletableFuture().join().build();
+
+        assertEquals(NO_CONTENT, res.getStatusInfo(), "Incorrect response code!");
+        assertTrue(res.getLinks().stream().anyMatch(hasType(LDP.NonRDFSource)), "Missing NonRDFSource type!");
+        verify(mockUploadService, never()).setContent(any(BinaryMetadata.class), any(InputStream.class));
+        verify(mockResourceService).replace(argThat((final Metadata metadata) -> metadata.getBinary()
+                    .filter(binary::equals).isPresent()), any(Dataset.class));
+    }
+
+    @Test
+    public void testCompleteIncompleteUpload() {
+        when(mockTrellisRequest.getExt()).thenReturn(UPLOAD);
+        when(mockUploadService.completeUpload(eq(RESOURCE), eq(AnonymousAgent), eq(UPLOAD_ID)))
+            .thenReturn(failed(new IllegalStateException()));
+
+        final PutHandler handler = new PutHandler(mockTrellisRequest, null, mockBundler, false, baseUrl);
+        final Response res = assertThrows(WebApplicationException.class, () ->
+                unwrapAsyncError(handler.setResource(handler.initialize(mockParent, mockResource))),
+                "No exception for an incomplete upload!").getResponse();
+        assertEquals(CONFLICT, res.getStatusInfo(), "Incorrect response code!");
+        verify(mockResourceService, never()).replace(any(Metadata.class), any(Dataset.class));
+    }
+
+    private static <T> CompletionStage<T> failed(final Throwable err) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(err);
+        return future;
+    }
+}
@@ -13,10 +13,12 @@
  */
 package org.trellisldp.webapp;
 
+import static java.util.Optional.ofNullable;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.google.common.cache.Cache;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
@@ -54,4 +56,9 @@ public class TrellisCache implements CacheService<String, String> {
             return null;
         }
     }
+
+    @Override
+    public Optional<String> getIfPresent(final String key) {
+        return ofNullable(cache.getIfPresent(key));
+    }
 }
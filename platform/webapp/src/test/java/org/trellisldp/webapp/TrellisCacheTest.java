@@ -45,6 +45,8 @@ public class TrellisCacheTest {
     public void testCache() {
         final TrellisCache cache = new TrellisCache(newBuilder().maximumSize(5).build());
         assertEquals("longer", cache.get("long", x -> x + "er"), "Incorrect cache response!");
+        assertEquals("longer", cache.getIfPresent("long").orElse(null), "Incorrect cached value!");
+        assertFalse(cache.getIfPresent("short").isPresent(), "Unexpected cached value!");
     }
 
     @Test